@@ -0,0 +1,201 @@
+package JamaEx;
+
+import JamaEx.util.Serial;
+
+   /** Band Cholesky Decomposition.
+   <P>
+   For a symmetric, positive definite band matrix A with kd subdiagonals,
+   the band Cholesky decomposition is a lower triangular band matrix L with
+   kd subdiagonals so that A = L*L', as computed by LAPACK's dpbtf2.  Only
+   the diagonal and subdiagonals of A are used.  It takes O(n*kd^2) time and
+   O(n*kd) storage, and each solve O(n*kd).
+   <P>
+   If the matrix is not positive definite, the constructor stops at the
+   first nonpositive pivot and sets an internal flag that may be queried
+   by the isSPD() method.
+   */
+
+public class BandCholeskyDecomposition implements java.io.Serializable {
+
+/* ------------------------
+   Class variables
+ * ------------------------ */
+
+   /** L in band storage, kd+1 elements per column: L(i,j) at
+       L[i-j + j*(kd+1)].
+   */
+   private transient double[] L;
+
+   /** Dimension and number of subdiagonals.
+   @serial matrix dimension.
+   @serial number of subdiagonals.
+   */
+   private int n, kd;
+
+   /** Positive definite flag.
+   @serial is positive definite flag.
+   */
+   private boolean isspd;
+
+/* ------------------------
+   Constructor
+ * ------------------------ */
+
+   /** Band Cholesky algorithm for a symmetric positive definite matrix.
+   @param  A   Band matrix; its lower band is used.
+   */
+
+   public BandCholeskyDecomposition (BandMatrix A) {
+      n = A.getDimension();
+      kd = A.getLowerBandwidth();
+      int ku = A.getUpperBandwidth(), lda = kd + ku + 1, ld = kd + 1;
+      double[] AB = A.getBandArray();
+      L = new double[n*ld];
+      for (int j = 0; j < n; j++) {
+         System.arraycopy(AB, ku + j*lda, L, j*ld, ld);
+      }
+      isspd = true;
+      for (int j = 0; j < n; j++) {
+         int d = j*ld;
+         double ajj = L[d];
+         if (!(ajj > 0.0)) {
+            isspd = false;
+            break;
+         }
+         ajj = Math.sqrt(ajj);
+         L[d] = ajj;
+         int kn = Math.min(kd, n-1-j);
+         for (int i = 1; i <= kn; i++) {
+            L[d+i] /= ajj;
+         }
+         // Symmetric rank-1 update of the trailing kn-by-kn block.
+         for (int c = 1; c <= kn; c++) {
+            double t = L[d+c];
+            if (t != 0.0) {
+               int q = (j+c)*ld - c;
+               for (int i = c; i <= kn; i++) {
+                  L[q+i] -= L[d+i]*t;
+               }
+            }
+         }
+      }
+   }
+
+/* ------------------------
+   Public Methods
+ * ------------------------ */
+
+   /** Is the matrix symmetric and positive definite?
+   @return     true if A is positive definite.
+   */
+
+   public boolean isSPD () {
+      return isspd;
+   }
+
+   /** Return triangular factor.
+   @return     L, a band matrix with kd subdiagonals.
+   */
+
+   public BandMatrix getL () {
+      BandMatrix X = new BandMatrix(n, kd, 0);
+      System.arraycopy(L, 0, X.getBandArray(), 0, L.length);
+      return X;
+   }
+
+   /** Solve A*x = b
+   @param  b   A vector with n elements.
+   @return     x so that L*L'*x = b
+   @exception  IllegalArgumentException  Matrix row dimensions must agree.
+   @exception  RuntimeException  Matrix is not symmetric positive definite.
+   */
+
+   public double[] solve (double[] b) {
+      if (b.length != n) {
+         throw new IllegalArgumentException("Matrix row dimensions must agree.");
+      }
+      if (!isspd) {
+         throw new RuntimeException("Matrix is not symmetric positive definite.");
+      }
+      double[] x = b.clone();
+      solveInPlace(x, 0);
+      return x;
+   }
+
+   /** Solve A*X = B
+   @param  B   A Matrix with as many rows as A and any number of columns.
+   @return     X so that L*L'*X = B
+   @exception  IllegalArgumentException  Matrix row dimensions must agree.
+   @exception  RuntimeException  Matrix is not symmetric positive definite.
+   */
+
+   public Matrix solve (Matrix B) {
+      if (B.getRowDimension() != n) {
+         throw new IllegalArgumentException("Matrix row dimensions must agree.");
+      }
+      if (!isspd) {
+         throw new RuntimeException("Matrix is not symmetric positive definite.");
+      }
+      Matrix X = B.copy();
+      double[] x = X.getColumnPackedArray();
+      for (int col = 0; col < B.getColumnDimension(); col++) {
+         solveInPlace(x, col*n);
+      }
+      return X;
+   }
+
+/* ------------------------
+   Private Methods
+ * ------------------------ */
+
+   /** Overwrite x[off..off+n-1] with the solution. **/
+
+   private void solveInPlace (double[] x, int off) {
+      int ld = kd + 1;
+      // Solve L*y = b.
+      for (int j = 0; j < n; j++) {
+         int d = j*ld;
+         double t = x[off+j] /= L[d];
+         if (t != 0.0) {
+            int kn = Math.min(kd, n-1-j);
+            for (int i = 1; i <= kn; i++) {
+               x[off+j+i] -= L[d+i]*t;
+            }
+         }
+      }
+      // Solve L'*x = y.
+      for (int j = n-1; j >= 0; j--) {
+         int d = j*ld;
+         int kn = Math.min(kd, n-1-j);
+         double t = x[off+j];
+         for (int i = 1; i <= kn; i++) {
+            t -= L[d+i]*x[off+j+i];
+         }
+         x[off+j] = t/L[d];
+      }
+   }
+
+   /** Write the scalar fields, then the factor in bulk.
+   @serialData the scalar fields, then L as written by
+   JamaEx.util.Serial.
+   */
+
+   private void writeObject (java.io.ObjectOutputStream out) throws java.io.IOException {
+      out.defaultWriteObject();
+      Serial.write(out, L);
+   }
+
+   /** Read a decomposition written by writeObject. **/
+
+   private void readObject (java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+      in.defaultReadObject();
+      L = Serial.readDoubles(in);
+      if (n < 0 || kd < 0 || L == null || L.length != (long) n*(kd + 1)) {
+         throw new java.io.InvalidObjectException(
+               "Array length does not match the dimensions.");
+      }
+   }
+
+  private static final long serialVersionUID = 1;
+
+}
@@ -0,0 +1,287 @@
+package JamaEx;
+
+import JamaEx.util.Serial;
+
+   /** Band LU Decomposition.
+   <P>
+   For an n-by-n band matrix A with kl subdiagonals and ku superdiagonals,
+   the band LU decomposition with partial pivoting is a unit lower
+   triangular L with at most kl nonzeros below the diagonal in each column,
+   an upper triangular U with kl+ku superdiagonals, and row interchanges,
+   as computed by LAPACK's dgbtf2.  It takes O(n*kl*(kl+ku)) time and
+   O(n*(2*kl+ku)) storage, and each solve O(n*(kl+ku)).
+   <P>
+   As with LUDecomposition, the decomposition always exists and the
+   constructor never fails; solving fails if isNonsingular() returns false.
+   */
+
+public class BandLUDecomposition implements java.io.Serializable {
+
+/* ------------------------
+   Class variables
+ * ------------------------ */
+
+   /** L and U in band storage with 2*kl+ku+1 elements per column: U(i,j)
+       at LU[kl+ku + i-j + j*ld], and the multipliers of column j below the
+       diagonal after it.
+   */
+   private transient double[] LU;
+
+   /** Row interchanged with row j at step j.
+   */
+   private transient int[] ipiv;
+
+   /** Dimension, bandwidths, and pivot sign.
+   @serial matrix dimension.
+   @serial number of subdiagonals.
+   @serial number of superdiagonals.
+   @serial pivot sign.
+   */
+   private int n, kl, ku, pivsign;
+
+   /** Nonsingular flag.
+   @serial is nonsingular flag.
+   */
+   private boolean nonsingular;
+
+/* ------------------------
+   Constructor
+ * ------------------------ */
+
+   /** Band LU Decomposition
+   @param  A   Band matrix
+   */
+
+   public BandLUDecomposition (BandMatrix A) {
+      n = A.getDimension();
+      kl = A.getLowerBandwidth();
+      ku = A.getUpperBandwidth();
+      int lda = kl + ku + 1, ld = 2*kl + ku + 1, kv = kl + ku;
+      double[] AB = A.getBandArray();
+      LU = new double[n*ld];
+      for (int j = 0; j < n; j++) {
+         System.arraycopy(AB, j*lda, LU, kl + j*ld, lda);
+      }
+      ipiv = new int[n];
+      pivsign = 1;
+      nonsingular = true;
+
+      // Last column touched by the interchanges so far.
+      int ju = 0;
+      for (int j = 0; j < n; j++) {
+         int km = Math.min(kl, n-1-j);
+         int d = kv + j*ld;
+
+         // Find pivot.
+         int jp = 0;
+         for (int i = 1; i <= km; i++) {
+            if (Math.abs(LU[d+i]) > Math.abs(LU[d+jp])) {
+               jp = i;
+            }
+         }
+         ipiv[j] = j + jp;
+         if (LU[d+jp] == 0.0) {
+            nonsingular = false;
+            continue;
+         }
+         ju = Math.max(ju, Math.min(j + ku + jp, n-1));
+
+         // Exchange rows j and j+jp in columns j..ju.
+         if (jp != 0) {
+            pivsign = -pivsign;
+            for (int c = j; c <= ju; c++) {
+               int p = kv + j - c + c*ld;
+               double t = LU[p];
+               LU[p] = LU[p+jp];
+               LU[p+jp] = t;
+            }
+         }
+
+         // Compute multipliers and update the trailing band.
+         if (km > 0) {
+            double r = 1.0/LU[d];
+            for (int i = 1; i <= km; i++) {
+               LU[d+i] *= r;
+            }
+            for (int c = j+1; c <= ju; c++) {
+               int p = kv + j - c + c*ld;
+               double t = LU[p];
+               if (t != 0.0) {
+                  for (int i = 1; i <= km; i++) {
+                     LU[p+i] -= LU[d+i]*t;
+                  }
+               }
+            }
+         }
+      }
+   }
+
+/* ------------------------
+   Public Methods
+ * ------------------------ */
+
+   /** Is the matrix nonsingular?
+   @return     true if U, and hence A, is nonsingular.
+   */
+
+   public boolean isNonsingular () {
+      return nonsingular;
+   }
+
+   /** Return pivot permutation vector
+   @return     piv, so that A(piv,:) = L*U
+   */
+
+   public int[] getPivot () {
+      int[] piv = new int[n];
+      for (int i = 0; i < n; i++) {
+         piv[i] = i;
+      }
+      for (int j = 0; j < n; j++) {
+         int t = piv[j];
+         piv[j] = piv[ipiv[j]];
+         piv[ipiv[j]] = t;
+      }
+      return piv;
+   }
+
+   /** Return upper triangular factor
+   @return     U, a band matrix with kl+ku superdiagonals.
+   */
+
+   public BandMatrix getU () {
+      int ld = 2*kl + ku + 1, kv = kl + ku;
+      BandMatrix U = new BandMatrix(n, 0, kv);
+      double[] u = U.getBandArray();
+      for (int j = 0; j < n; j++) {
+         System.arraycopy(LU, j*ld, u, j*(kv+1), kv+1);
+         for (int i = 0; i < kv - j; i++) {
+            u[i + j*(kv+1)] = 0.0;
+         }
+      }
+      return U;
+   }
+
+   /** Determinant
+   @return     det(A)
+   */
+
+   public double det () {
+      int ld = 2*kl + ku + 1, kv = kl + ku;
+      double d = (double) pivsign;
+      for (int j = 0; j < n; j++) {
+         d *= LU[kv + j*ld];
+      }
+      return d;
+   }
+
+   /** Solve A*x = b
+   @param  b   A vector with n elements.
+   @return     x so that A*x = b
+   @exception  IllegalArgumentException  Matrix row dimensions must agree.
+   @exception  RuntimeException  Matrix is singular.
+   */
+
+   public double[] solve (double[] b) {
+      if (b.length != n) {
+         throw new IllegalArgumentException("Matrix row dimensions must agree.");
+      }
+      if (!nonsingular) {
+         throw new RuntimeException("Matrix is singular.");
+      }
+      double[] x = b.clone();
+      solveInPlace(x, 0);
+      return x;
+   }
+
+   /** Solve A*X = B
+   @param  B   A Matrix with as many rows as A and any number of columns.
+   @return     X so that A*X = B
+   @exception  IllegalArgumentException  Matrix row dimensions must agree.
+   @exception  RuntimeException  Matrix is singular.
+   */
+
+   public Matrix solve (Matrix B) {
+      if (B.getRowDimension() != n) {
+         throw new IllegalArgumentException("Matrix row dimensions must agree.");
+      }
+      if (!nonsingular) {
+         throw new RuntimeException("Matrix is singular.");
+      }
+      Matrix X = B.copy();
+      double[] x = X.getColumnPackedArray();
+      for (int col = 0; col < B.getColumnDimension(); col++) {
+         solveInPlace(x, col*n);
+      }
+      return X;
+   }
+
+/* ------------------------
+   Private Methods
+ * ------------------------ */
+
+   /** Overwrite x[off..off+n-1] with the solution, as LAPACK's dgbtrs. **/
+
+   private void solveInPlace (double[] x, int off) {
+      int ld = 2*kl + ku + 1, kv = kl + ku;
+      // Solve L*y = P*b.
+      for (int j = 0; j < n; j++) {
+         int l = ipiv[j];
+         if (l != j) {
+            double t = x[off+l];
+            x[off+l] = x[off+j];
+            x[off+j] = t;
+         }
+         double t = x[off+j];
+         if (t != 0.0) {
+            int lm = Math.min(kl, n-1-j);
+            int d = kv + j*ld;
+            for (int i = 1; i <= lm; i++) {
+               x[off+j+i] -= LU[d+i]*t;
+            }
+         }
+      }
+      // Solve U*x = y.
+      for (int j = n-1; j >= 0; j--) {
+         int d = kv + j*ld;
+         double t = x[off+j] /= LU[d];
+         if (t != 0.0) {
+            for (int i = Math.max(0, j - kv); i < j; i++) {
+               x[off+i] -= LU[d + i - j]*t;
+            }
+         }
+      }
+   }
+
+   /** Write the scalar fields, then the arrays in bulk.
+   @serialData the scalar fields, then LU and the interchanges as written
+   by JamaEx.util.Serial.
+   */
+
+   private void writeObject (java.io.ObjectOutputStream out) throws java.io.IOException {
+      out.defaultWriteObject();
+      Serial.write(out, LU);
+      Serial.write(out, ipiv);
+   }
+
+   /** Read a decomposition written by writeObject. **/
+
+   private void readObject (java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+      in.defaultReadObject();
+      LU = Serial.readDoubles(in);
+      ipiv = Serial.readInts(in);
+      if (n < 0 || kl < 0 || ku < 0 || LU == null || ipiv == null
+          || LU.length != (long) n*(2*kl + ku + 1) || ipiv.length != n) {
+         throw new java.io.InvalidObjectException(
+               "Array length does not match the dimensions.");
+      }
+      for (int j = 0; j < n; j++) {
+         if (ipiv[j] < 0 || ipiv[j] >= n) {
+            throw new java.io.InvalidObjectException("Bad row interchange.");
+         }
+      }
+   }
+
+  private static final long serialVersionUID = 1;
+
+}
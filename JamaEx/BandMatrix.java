@@ -0,0 +1,413 @@
+package JamaEx;
+
+import JamaEx.util.Serial;
+
+/**
+ * Square band matrix.
+ * <P>
+ * A(i,j) may be nonzero only for j - ku &lt;= i &lt;= j + kl, where kl is the
+ * number of subdiagonals and ku the number of superdiagonals. The band is
+ * stored by columns in LAPACK band layout, n columns of kl+ku+1 elements with
+ * A(i,j) at AB[ku + i - j + j*(kl+ku+1)], so storage is O(n*(kl+ku)) and a
+ * matrix-vector product takes O(n*(kl+ku)) time.
+ * <P>
+ * Systems are solved by BandLUDecomposition, band LU with partial pivoting in
+ * O(n*kl*(kl+ku)) time, or for symmetric positive definite matrices by
+ * BandCholeskyDecomposition in O(n*kl^2). TridiagonalMatrix handles the case
+ * kl = ku = 1 with the Thomas algorithm.
+ */
+
+public class BandMatrix implements Cloneable, java.io.Serializable {
+
+	/*
+	 * ------------------------ Class variables ------------------------
+	 */
+
+	/** Band storage, kl+ku+1 elements per column. **/
+	private transient double[] AB;
+
+	/**
+	 * Dimension, and numbers of subdiagonals and superdiagonals.
+	 *
+	 * @serial matrix dimension.
+	 * @serial number of subdiagonals.
+	 * @serial number of superdiagonals.
+	 */
+	private int n, kl, ku;
+
+	/*
+	 * ------------------------ Constructors ------------------------
+	 */
+
+	/**
+	 * Construct an n-by-n band matrix of zeros.
+	 *
+	 * @param n
+	 *            Dimension.
+	 * @param kl
+	 *            Number of subdiagonals.
+	 * @param ku
+	 *            Number of superdiagonals.
+	 * @exception IllegalArgumentException
+	 *                Bad dimension or bandwidth.
+	 */
+
+	public BandMatrix(int n, int kl, int ku) {
+		if (n < 0 || kl < 0 || ku < 0
+				|| (long) n * ((long) kl + ku + 1) > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Bad dimension or bandwidth.");
+		}
+		this.n = n;
+		this.kl = kl;
+		this.ku = ku;
+		AB = new double[n * (kl + ku + 1)];
+	}
+
+	/**
+	 * Construct a band matrix from the band of a square matrix. Elements
+	 * outside the band are not used.
+	 *
+	 * @param A
+	 *            Square matrix.
+	 * @param kl
+	 *            Number of subdiagonals.
+	 * @param ku
+	 *            Number of superdiagonals.
+	 * @exception IllegalArgumentException
+	 *                Matrix must be square.
+	 */
+
+	public BandMatrix(Matrix A, int kl, int ku) {
+		this(A.getRowDimension(), kl, ku);
+		if (A.getColumnDimension() != n) {
+			throw new IllegalArgumentException("Matrix must be square.");
+		}
+		double[] a = A.getColumnPackedArray();
+		int ld = kl + ku + 1;
+		for (int j = 0; j < n; j++) {
+			int i0 = Math.max(0, j - ku), i1 = Math.min(n - 1, j + kl);
+			System.arraycopy(a, i0 + j * n, AB, ku + i0 - j + j * ld, i1 - i0
+					+ 1);
+		}
+	}
+
+	/*
+	 * ------------------------ Public Methods ------------------------
+	 */
+
+	/**
+	 * Convert to a dense matrix.
+	 *
+	 * @return n-by-n Matrix
+	 */
+
+	public Matrix toMatrix() {
+		Matrix X = new Matrix(n, n);
+		double[] x = X.getColumnPackedArray();
+		int ld = kl + ku + 1;
+		for (int j = 0; j < n; j++) {
+			int i0 = Math.max(0, j - ku), i1 = Math.min(n - 1, j + kl);
+			System.arraycopy(AB, ku + i0 - j + j * ld, x, i0 + j * n, i1 - i0
+					+ 1);
+		}
+		return X;
+	}
+
+	/**
+	 * Make a deep copy of a matrix
+	 */
+
+	public BandMatrix copy() {
+		BandMatrix X = new BandMatrix(n, kl, ku);
+		System.arraycopy(AB, 0, X.AB, 0, AB.length);
+		return X;
+	}
+
+	/**
+	 * Clone the BandMatrix object.
+	 */
+
+	public Object clone() {
+		return this.copy();
+	}
+
+	/**
+	 * Access the internal band storage, kl+ku+1 elements per column with
+	 * A(i,j) at AB[ku + i - j + j*(kl+ku+1)].
+	 *
+	 * @return Pointer to the array.
+	 */
+
+	public double[] getBandArray() {
+		return AB;
+	}
+
+	/**
+	 * Get dimension.
+	 *
+	 * @return n, the number of rows and columns.
+	 */
+
+	public int getDimension() {
+		return n;
+	}
+
+	/**
+	 * Get the number of subdiagonals.
+	 *
+	 * @return kl
+	 */
+
+	public int getLowerBandwidth() {
+		return kl;
+	}
+
+	/**
+	 * Get the number of superdiagonals.
+	 *
+	 * @return ku
+	 */
+
+	public int getUpperBandwidth() {
+		return ku;
+	}
+
+	/**
+	 * Get a single element.
+	 *
+	 * @param i
+	 *            Row index.
+	 * @param j
+	 *            Column index.
+	 * @return A(i,j), zero outside the band.
+	 * @exception ArrayIndexOutOfBoundsException
+	 */
+
+	public double get(int i, int j) {
+		checkIndex(i, j);
+		return i - j > kl || j - i > ku ? 0.0 : AB[ku + i - j + j
+				* (kl + ku + 1)];
+	}
+
+	/**
+	 * Set a single element.
+	 *
+	 * @param i
+	 *            Row index.
+	 * @param j
+	 *            Column index.
+	 * @param s
+	 *            A(i,j).
+	 * @exception ArrayIndexOutOfBoundsException
+	 *                Outside the matrix or outside the band.
+	 */
+
+	public void set(int i, int j, double s) {
+		checkIndex(i, j);
+		if (i - j > kl || j - i > ku) {
+			throw new ArrayIndexOutOfBoundsException("(" + i + "," + j
+					+ ") is outside the band.");
+		}
+		AB[ku + i - j + j * (kl + ku + 1)] = s;
+	}
+
+	/**
+	 * Band matrix-vector multiplication, y = A*x
+	 *
+	 * @param x
+	 *            vector of length n
+	 * @param y
+	 *            vector of length n, overwritten by A*x. Must not be x.
+	 * @return y
+	 * @exception IllegalArgumentException
+	 *                Vector lengths must agree.
+	 */
+
+	public double[] timesVector(double[] x, double[] y) {
+		checkVectors(x, y);
+		java.util.Arrays.fill(y, 0.0);
+		gbmv(x, 0, y, 0);
+		return y;
+	}
+
+	/**
+	 * Band matrix-vector multiplication, A*x
+	 *
+	 * @param x
+	 *            vector of length n
+	 * @return A*x
+	 * @exception IllegalArgumentException
+	 *                Vector lengths must agree.
+	 */
+
+	public double[] timesVector(double[] x) {
+		return timesVector(x, new double[n]);
+	}
+
+	/**
+	 * Transposed band matrix-vector multiplication, y = A'*x, without forming
+	 * A'
+	 *
+	 * @param x
+	 *            vector of length n
+	 * @param y
+	 *            vector of length n, overwritten by A'*x. Must not be x.
+	 * @return y
+	 * @exception IllegalArgumentException
+	 *                Vector lengths must agree.
+	 */
+
+	public double[] transposeTimesVector(double[] x, double[] y) {
+		checkVectors(x, y);
+		int ld = kl + ku + 1;
+		for (int j = 0; j < n; j++) {
+			int i0 = Math.max(0, j - ku), i1 = Math.min(n - 1, j + kl);
+			int p = ku - j + j * ld;
+			double t = 0.0;
+			for (int i = i0; i <= i1; i++) {
+				t += AB[p + i] * x[i];
+			}
+			y[j] = t;
+		}
+		return y;
+	}
+
+	/**
+	 * Band matrix times dense matrix, C = A*B
+	 *
+	 * @param B
+	 *            matrix with n rows
+	 * @return A*B
+	 * @exception IllegalArgumentException
+	 *                Matrix inner dimensions must agree.
+	 */
+
+	public Matrix times(Matrix B) {
+		if (B.getRowDimension() != n) {
+			throw new IllegalArgumentException(
+					"Matrix inner dimensions must agree.");
+		}
+		int nb = B.getColumnDimension();
+		Matrix C = new Matrix(n, nb);
+		double[] b = B.getColumnPackedArray(), c = C.getColumnPackedArray();
+		for (int col = 0; col < nb; col++) {
+			gbmv(b, col * n, c, col * n);
+		}
+		return C;
+	}
+
+	/**
+	 * Multiply a band matrix by a scalar, C = s*A
+	 *
+	 * @param s
+	 *            scalar
+	 * @return s*A
+	 */
+
+	public BandMatrix times(double s) {
+		BandMatrix X = new BandMatrix(n, kl, ku);
+		for (int k = 0; k < AB.length; k++) {
+			X.AB[k] = s * AB[k];
+		}
+		return X;
+	}
+
+	/**
+	 * Band LU Decomposition, with partial pivoting
+	 *
+	 * @return BandLUDecomposition
+	 * @see BandLUDecomposition
+	 */
+
+	public BandLUDecomposition lu() {
+		return new BandLUDecomposition(this);
+	}
+
+	/**
+	 * Band Cholesky Decomposition, of the symmetric matrix given by the lower
+	 * band
+	 *
+	 * @return BandCholeskyDecomposition
+	 * @see BandCholeskyDecomposition
+	 */
+
+	public BandCholeskyDecomposition chol() {
+		return new BandCholeskyDecomposition(this);
+	}
+
+	/**
+	 * Solve A*x = b by band LU.
+	 *
+	 * @param b
+	 *            right hand side
+	 * @return solution x
+	 */
+
+	public double[] solve(double[] b) {
+		return lu().solve(b);
+	}
+
+	/*
+	 * ------------------------ Private Methods ------------------------
+	 */
+
+	/** y += A*x for vectors at offsets in x and y. **/
+
+	private void gbmv(double[] x, int xOff, double[] y, int yOff) {
+		int ld = kl + ku + 1;
+		for (int j = 0; j < n; j++) {
+			double xj = x[xOff + j];
+			if (xj != 0.0) {
+				int i0 = Math.max(0, j - ku), i1 = Math.min(n - 1, j + kl);
+				int p = ku - j + j * ld;
+				for (int i = i0; i <= i1; i++) {
+					y[yOff + i] += AB[p + i] * xj;
+				}
+			}
+		}
+	}
+
+	private void checkIndex(int i, int j) {
+		if (i < 0 || i >= n || j < 0 || j >= n) {
+			throw new ArrayIndexOutOfBoundsException("(" + i + "," + j
+					+ ") is outside a " + n + "-by-" + n + " matrix.");
+		}
+	}
+
+	private void checkVectors(double[] x, double[] y) {
+		if (x.length != n || y.length != n) {
+			throw new IllegalArgumentException("Vector lengths must agree.");
+		}
+		if (x == y) {
+			throw new IllegalArgumentException(
+					"Output vector must not be the operand.");
+		}
+	}
+
+	/**
+	 * Write the dimensions, then the band in bulk.
+	 *
+	 * @serialData the dimension and bandwidths, then AB as written by
+	 *             JamaEx.util.Serial.
+	 */
+
+	private void writeObject(java.io.ObjectOutputStream out)
+			throws java.io.IOException {
+		out.defaultWriteObject();
+		Serial.write(out, AB);
+	}
+
+	/** Read a matrix written by writeObject, checking the array length. **/
+
+	private void readObject(java.io.ObjectInputStream in)
+			throws java.io.IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		AB = Serial.readDoubles(in);
+		if (AB == null || AB.length != (long) n * (kl + ku + 1)) {
+			throw new java.io.InvalidObjectException(
+					"Array length does not match the dimensions.");
+		}
+	}
+
+	private static final long serialVersionUID = 1;
+}
@@ -1,5 +1,9 @@
 package JamaEx;
 
+import JamaEx.util.Blas;
+import JamaEx.util.Lapack;
+import JamaEx.util.Serial;
+
    /** Cholesky Decomposition.
    <P>
    For a symmetric, positive definite matrix A, the Cholesky decomposition
@@ -7,7 +11,9 @@ package JamaEx;
    <P>
    If the matrix is not symmetric or positive definite, the constructor
    returns a partial decomposition and sets an internal flag that may
-   be queried by the isSPD() method.
+   be queried by the isSPD() method.  Only the lower triangle of the
+   matrix is factored, whether or not it is symmetric, and the
+   factorization stops at the first pivot that is not positive.
    */
 
 public class CholeskyDecomposition implements java.io.Serializable {
@@ -16,10 +22,10 @@ public class CholeskyDecomposition implements java.io.Serializable {
    Class variables
  * ------------------------ */
 
-   /** Array for internal storage of decomposition.
-   @serial internal array storage.
+   /** Array for internal storage of decomposition, packed by columns, with
+       zeros above the diagonal.
    */
-   private double[][] L;
+   private transient double[] L;
 
    /** Row and column dimension (square matrix).
    @serial matrix dimension.
@@ -41,98 +47,63 @@ public class CholeskyDecomposition implements java.io.Serializable {
    */
 
    public CholeskyDecomposition (Matrix Arg) {
+      n = Arg.getRowDimension();
+      L = new double[n*n];
+      System.arraycopy(Arg.getColumnPackedArray(), 0, L, 0,
+                       Math.min(L.length, n*Arg.getColumnDimension()));
+      isspd = Arg.getColumnDimension() == n && isSymmetric();
+      factor();
+   }
 
+   /** Factor A in its own storage, as LAPACK's dpotrf, so that no copy of
+       it is made.  A is overwritten by L, with zeros above the diagonal,
+       and the result reads L from there: A must not be changed while it
+       is in use.
+   @param  A     Square, symmetric matrix, overwritten.
+   @return       Structure to access L and isspd flag.
+   @exception    IllegalArgumentException  Matrix must be square.
+   */
 
-     // Initialize.
-      double[][] A = Arg.getArray();
-      n = Arg.getRowDimension();
-      L = new double[n][n];
-      isspd = (Arg.getColumnDimension() == n);
-      // Main loop.
-      for (int j = 0; j < n; j++) {
-         double[] Lrowj = L[j];
-         double d = 0.0;
-         for (int k = 0; k < j; k++) {
-            double[] Lrowk = L[k];
-            double s = 0.0;
-            for (int i = 0; i < k; i++) {
-               s += Lrowk[i]*Lrowj[i];
-            }
-            Lrowj[k] = s = (A[j][k] - s)/L[k][k];
-            d = d + s*s;
-            isspd = isspd & (A[k][j] == A[j][k]); 
-         }
-         d = A[j][j] - d;
-         isspd = isspd & (d > 0.0);
-         L[j][j] = Math.sqrt(Math.max(d,0.0));
-         for (int k = j+1; k < n; k++) {
-            L[j][k] = 0.0;
-         }
+   public static CholeskyDecomposition factorInPlace (Matrix A) {
+      int n = A.getRowDimension();
+      if (A.getColumnDimension() != n) {
+         throw new IllegalArgumentException("Matrix must be square.");
       }
+      return new CholeskyDecomposition(A.getColumnPackedArray(), n);
    }
 
-/* ------------------------
-   Temporary, experimental code.
- * ------------------------ *\
+   /** Cholesky algorithm for a symmetric matrix in packed storage, read
+       directly from its packed arrays.
+   @param  Arg   Symmetric matrix.
+   @exception    IllegalArgumentException  L would have more elements than
+                 an array can hold.
+   */
 
-   \** Right Triangular Cholesky Decomposition.
-   <P>
-   For a symmetric, positive definite matrix A, the Right Cholesky
-   decomposition is an upper triangular matrix R so that A = R'*R.
-   This constructor computes R with the Fortran inspired column oriented
-   algorithm used in LINPACK and MATLAB.  In Java, we suspect a row oriented,
-   lower triangular decomposition is faster.  We have temporarily included
-   this constructor here until timing experiments confirm this suspicion.
-   *\
-
-   \** Array for internal storage of right triangular decomposition. **\
-   private transient double[][] R;
-
-   \** Cholesky algorithm for symmetric and positive definite matrix.
-   @param  A           Square, symmetric matrix.
-   @param  rightflag   Actual value ignored.
-   @return             Structure to access R and isspd flag.
-   *\
-
-   public CholeskyDecomposition (Matrix Arg, int rightflag) {
-      // Initialize.
-      double[][] A = Arg.getArray();
-      n = Arg.getColumnDimension();
-      R = new double[n][n];
-      isspd = (Arg.getColumnDimension() == n);
-      // Main loop.
-      for (int j = 0; j < n; j++) {
-         double d = 0.0;
-         for (int k = 0; k < j; k++) {
-            double s = A[k][j];
-            for (int i = 0; i < k; i++) {
-               s = s - R[i][k]*R[i][j];
-            }
-            R[k][j] = s = s/R[k][k];
-            d = d + s*s;
-            isspd = isspd & (A[k][j] == A[j][k]); 
-         }
-         d = A[j][j] - d;
-         isspd = isspd & (d > 0.0);
-         R[j][j] = Math.sqrt(Math.max(d,0.0));
-         for (int k = j+1; k < n; k++) {
-            R[k][j] = 0.0;
-         }
+   public CholeskyDecomposition (SymmetricMatrix Arg) {
+      n = Arg.getDimension();
+      if ((long) n*n > Integer.MAX_VALUE) {
+         throw new IllegalArgumentException("Matrix dimension too large");
       }
+      double[] diag = Arg.getDiagonalArray(), off = Arg.getPackedArray();
+      L = new double[n*n];
+      for (int j = 0, p = 0; j < n; j++) {
+         L[j + j*n] = diag[j];
+         System.arraycopy(off, p, L, j+1 + j*n, n-j-1);
+         p += n-j-1;
+      }
+      isspd = true;
+      factor();
    }
 
-   \** Return upper triangular factor.
-   @return     R
-   *\
+   /** Factor the n-by-n column packed array L in place. **/
 
-   public Matrix getR () {
-      return new Matrix(R,n,n);
+   private CholeskyDecomposition (double[] L, int n) {
+      this.L = L;
+      this.n = n;
+      isspd = isSymmetric();
+      factor();
    }
 
-\* ------------------------
-   End of temporary code.
- * ------------------------ */
-
 /* ------------------------
    Public Methods
  * ------------------------ */
@@ -150,7 +121,7 @@ public class CholeskyDecomposition implements java.io.Serializable {
    */
 
    public Matrix getL () {
-      return new Matrix(L,n,n);
+      return new Matrix(L,n);
    }
 
    /** Solve A*X = B
@@ -168,34 +139,64 @@ public class CholeskyDecomposition implements java.io.Serializable {
          throw new RuntimeException("Matrix is not symmetric positive definite.");
       }
 
-      // Copy right hand side.
-      double[][] X = B.getArrayCopy();
+      // Solve L*Y = B, then L'*X = Y.
+      Matrix X = B.copy();
       int nx = B.getColumnDimension();
+      double[] x = X.getColumnPackedArray();
+      Blas.dtrsm(false, false, false, n, nx, L, 0, n, x, 0, n);
+      Blas.dtrsm(false, true, false, n, nx, L, 0, n, x, 0, n);
+      return X;
+   }
 
-	      // Solve L*Y = B;
-	      for (int k = 0; k < n; k++) {
-	        for (int j = 0; j < nx; j++) {
-	           for (int i = 0; i < k ; i++) {
-	               X[k][j] -= X[i][j]*L[k][i];
-	           }
-	           X[k][j] /= L[k][k];
-	        }
-	      }
-	
-	      // Solve L'*X = Y;
-	      for (int k = n-1; k >= 0; k--) {
-	        for (int j = 0; j < nx; j++) {
-	           for (int i = k+1; i < n ; i++) {
-	               X[k][j] -= X[i][j]*L[i][k];
-	           }
-	           X[k][j] /= L[k][k];
-	        }
-	      }
-      
-      
-      return new Matrix(X,n,nx);
+/* ------------------------
+   Private Methods
+ * ------------------------ */
+
+   /** Exact symmetry test of L, which still holds A. **/
+
+   private boolean isSymmetric () {
+      for (int j = 0; j < n; j++) {
+         for (int i = j+1; i < n; i++) {
+            if (L[i + j*n] != L[j + i*n]) {
+               return false;
+            }
+         }
+      }
+      return true;
+   }
+
+   /** Factor the lower triangle of L in place, and clear the triangle
+       above the diagonal.  isspd holds the symmetry test on entry. **/
+
+   private void factor () {
+      isspd = Lapack.dpotrf(n, L, 0, n) == 0 && isspd;
+      for (int j = 1; j < n; j++) {
+         java.util.Arrays.fill(L, j*n, j + j*n, 0.0);
+      }
+   }
+
+   /** Write the scalar fields, then the arrays in bulk.
+   @serialData the scalar fields, then L as written by
+   JamaEx.util.Serial.
+   */
+
+   private void writeObject (java.io.ObjectOutputStream out) throws java.io.IOException {
+      out.defaultWriteObject();
+      Serial.write(out, L);
    }
-  private static final long serialVersionUID = 1;
+
+   /** Read a decomposition written by writeObject. **/
+
+   private void readObject (java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+      in.defaultReadObject();
+      L = Serial.readDoubles(in);
+      if (n < 0 || L == null || L.length != (long) n*n) {
+         throw new java.io.InvalidObjectException(
+               "Array length does not match the dimensions.");
+      }
+   }
+
+  private static final long serialVersionUID = 3;
 
 }
 
@@ -1,5 +1,6 @@
 package JamaEx;
 import JamaEx.util.Maths;
+import JamaEx.util.Serial;
 
 /** Eigenvalues and eigenvectors of a real matrix. 
 <P>
@@ -34,24 +35,20 @@ public class EigenvalueDecomposition implements java.io.Serializable {
    private boolean issymmetric;
 
    /** Arrays for internal storage of eigenvalues.
-   @serial internal storage of eigenvalues.
    */
-   private double[] d, e;
+   private transient double[] d, e;
 
    /** Array for internal storage of eigenvectors.
-   @serial internal storage of eigenvectors.
    */
-   private double[][] V;
+   private transient double[][] V;
 
    /** Array for internal storage of nonsymmetric Hessenberg form.
-   @serial internal storage of nonsymmetric Hessenberg form.
    */
-   private double[][] H;
+   private transient double[][] H;
 
    /** Working storage for nonsymmetric algorithm.
-   @serial working storage for nonsymmetric algorithm.
    */
-   private double[] ort;
+   private transient double[] ort;
 
 /* ------------------------
    Private Methods
@@ -904,6 +901,28 @@ public class EigenvalueDecomposition implements java.io.Serializable {
       }
    }
 
+   /** Construct the eigenvalue decomposition of a symmetric matrix in
+       packed storage, read directly from its packed arrays.
+   @param Arg    Symmetric matrix
+   */
+
+   public EigenvalueDecomposition (SymmetricMatrix Arg) {
+      n = Arg.getDimension();
+      double[] diag = Arg.getDiagonalArray(), off = Arg.getPackedArray();
+      V = new double[n][n];
+      d = new double[n];
+      e = new double[n];
+      issymmetric = true;
+      for (int j = 0, p = 0; j < n; j++) {
+         V[j][j] = diag[j];
+         for (int i = j+1; i < n; i++, p++) {
+            V[i][j] = V[j][i] = off[p];
+         }
+      }
+      tred2();
+      tql2();
+   }
+
 /* ------------------------
    Public Methods
  * ------------------------ */
@@ -938,19 +957,42 @@ public class EigenvalueDecomposition implements java.io.Serializable {
 
    public Matrix getD () {
       Matrix X = new Matrix(n,n);
-      double[][] D = X.getArray();
+      double[] D = X.getColumnPackedArray();
       for (int i = 0; i < n; i++) {
-         for (int j = 0; j < n; j++) {
-            D[i][j] = 0.0;
-         }
-         D[i][i] = d[i];
+         D[i+i*n] = d[i];
          if (e[i] > 0) {
-            D[i][i+1] = e[i];
+            D[i+(i+1)*n] = e[i];
          } else if (e[i] < 0) {
-            D[i][i-1] = e[i];
+            D[i+(i-1)*n] = e[i];
          }
       }
       return X;
    }
-  private static final long serialVersionUID = 1;
+
+   /** Write the scalar fields, then the arrays in bulk.
+   @serialData the scalar fields, then d, e, V, H, ort as written by
+   JamaEx.util.Serial.
+   */
+
+   private void writeObject (java.io.ObjectOutputStream out) throws java.io.IOException {
+      out.defaultWriteObject();
+      Serial.write(out, d);
+      Serial.write(out, e);
+      Serial.write(out, V);
+      Serial.write(out, H);
+      Serial.write(out, ort);
+   }
+
+   /** Read a decomposition written by writeObject. **/
+
+   private void readObject (java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+      in.defaultReadObject();
+      d = Serial.readDoubles(in);
+      e = Serial.readDoubles(in);
+      V = Serial.readDoubles2(in);
+      H = Serial.readDoubles2(in);
+      ort = Serial.readDoubles(in);
+   }
+
+  private static final long serialVersionUID = 2;
 }
@@ -0,0 +1,127 @@
+package JamaEx;
+
+import JamaEx.util.ElementOps;
+
+   /** Single precision Cholesky Decomposition.
+   <P>
+   The single precision counterpart of CholeskyDecomposition: for a
+   symmetric, positive definite FloatMatrix A, a lower triangular L so
+   that A = L*L'.  L is stored by columns and computed one column at a
+   time from the columns to its left.
+   <P>
+   If the matrix is not symmetric or positive definite, the constructor
+   returns a partial decomposition and sets an internal flag that may
+   be queried by the isSPD() method.
+   */
+
+public class FloatCholeskyDecomposition implements java.io.Serializable {
+
+/* ------------------------
+   Class variables
+ * ------------------------ */
+
+   /** Array for internal storage of decomposition, packed by columns.
+   @serial internal array storage.
+   */
+   private float[] L;
+
+   /** Row and column dimension (square matrix).
+   @serial matrix dimension.
+   */
+   private int n;
+
+   /** Symmetric and positive definite flag.
+   @serial is symmetric and positive definite flag.
+   */
+   private boolean isspd;
+
+/* ------------------------
+   Constructor
+ * ------------------------ */
+
+   /** Cholesky algorithm for symmetric and positive definite matrix.
+       Structure to access L and isspd flag.
+   @param  Arg   Square, symmetric matrix.
+   */
+
+   public FloatCholeskyDecomposition (FloatMatrix Arg) {
+      float[] A = Arg.getColumnPackedArray();
+      n = Arg.getRowDimension();
+      L = new float[n*n];
+      isspd = (Arg.getColumnDimension() == n);
+      if (!isspd) {
+         return;
+      }
+      for (int j = 0; j < n; j++) {
+         int colj = j*n;
+         // L(j:n-1,j) = A(j:n-1,j) - L(j:n-1,0:j-1)*L(j,0:j-1)'
+         System.arraycopy(A, colj+j, L, colj+j, n-j);
+         for (int k = 0; k < j; k++) {
+            isspd = isspd & (A[k+colj] == A[j+k*n]);
+            ElementOps.axpy(n-j, -L[j+k*n], L, k*n+j, L, colj+j);
+         }
+         float d = L[colj+j];
+         isspd = isspd & (d > 0.0f);
+         float ljj = (float) Math.sqrt(Math.max(d,0.0f));
+         L[colj+j] = ljj;
+         if (ljj != 0.0f) {
+            ElementOps.scale(n-j-1, 1.0f/ljj, L, colj+j+1, L, colj+j+1);
+         }
+      }
+   }
+
+/* ------------------------
+   Public Methods
+ * ------------------------ */
+
+   /** Is the matrix symmetric and positive definite?
+   @return     true if A is symmetric and positive definite.
+   */
+
+   public boolean isSPD () {
+      return isspd;
+   }
+
+   /** Return triangular factor.
+   @return     L
+   */
+
+   public FloatMatrix getL () {
+      return new FloatMatrix(L,n);
+   }
+
+   /** Solve A*X = B
+   @param  B   A FloatMatrix with as many rows as A and any number of columns.
+   @return     X so that L*L'*X = B
+   @exception  IllegalArgumentException  Matrix row dimensions must agree.
+   @exception  RuntimeException  Matrix is not symmetric positive definite.
+   */
+
+   public FloatMatrix solve (FloatMatrix B) {
+      if (B.getRowDimension() != n) {
+         throw new IllegalArgumentException("Matrix row dimensions must agree.");
+      }
+      if (!isspd) {
+         throw new RuntimeException("Matrix is not symmetric positive definite.");
+      }
+
+      int nx = B.getColumnDimension();
+      float[] X = B.getColumnPackedCopy();
+
+      for (int j = 0; j < nx; j++) {
+         int col = j*n;
+         // Solve L*Y = B;
+         for (int k = 0; k < n; k++) {
+            X[col+k] /= L[k+k*n];
+            ElementOps.axpy(n-k-1, -X[col+k], L, k*n+k+1, X, col+k+1);
+         }
+         // Solve L'*X = Y;
+         for (int k = n-1; k >= 0; k--) {
+            X[col+k] -= ElementOps.dot(n-k-1, L, k*n+k+1, X, col+k+1);
+            X[col+k] /= L[k+k*n];
+         }
+      }
+      return new FloatMatrix(X,n);
+   }
+  private static final long serialVersionUID = 1;
+}
@@ -0,0 +1,199 @@
+package JamaEx;
+
+import JamaEx.util.ElementOps;
+
+   /** Single precision LU Decomposition.
+   <P>
+   The single precision counterpart of LUDecomposition: for an m-by-n
+   FloatMatrix A with m >= n, a unit lower triangular L, an upper
+   triangular U and a permutation vector piv so that A(piv,:) = L*U.
+   The factors are stored by columns and computed by column oriented
+   Gaussian elimination with partial pivoting, so that the updates run
+   down contiguous columns.
+   */
+
+public class FloatLUDecomposition implements java.io.Serializable {
+
+/* ------------------------
+   Class variables
+ * ------------------------ */
+
+   /** Array for internal storage of decomposition, packed by columns.
+   @serial internal array storage.
+   */
+   private float[] LU;
+
+   /** Row and column dimensions, and pivot sign.
+   @serial column dimension.
+   @serial row dimension.
+   @serial pivot sign.
+   */
+   private int m, n, pivsign;
+
+   /** Internal storage of pivot vector.
+   @serial pivot vector.
+   */
+   private int[] piv;
+
+/* ------------------------
+   Constructor
+ * ------------------------ */
+
+   /** LU Decomposition
+       Structure to access L, U and piv.
+   @param  A Rectangular matrix
+   */
+
+   public FloatLUDecomposition (FloatMatrix A) {
+      LU = A.getColumnPackedCopy();
+      m = A.getRowDimension();
+      n = A.getColumnDimension();
+      piv = new int[m];
+      for (int i = 0; i < m; i++) {
+         piv[i] = i;
+      }
+      pivsign = 1;
+
+      for (int k = 0; k < Math.min(m, n); k++) {
+         int colk = k*m;
+
+         // Find pivot and exchange if necessary.
+
+         int p = k;
+         for (int i = k+1; i < m; i++) {
+            if (Math.abs(LU[colk+i]) > Math.abs(LU[colk+p])) {
+               p = i;
+            }
+         }
+         if (p != k) {
+            for (int j = 0; j < n; j++) {
+               float t = LU[p+j*m]; LU[p+j*m] = LU[k+j*m]; LU[k+j*m] = t;
+            }
+            int t = piv[p]; piv[p] = piv[k]; piv[k] = t;
+            pivsign = -pivsign;
+         }
+
+         // Compute multipliers and eliminate k-th column.
+
+         float pivot = LU[colk+k];
+         if (pivot != 0.0f) {
+            int len = m-k-1;
+            ElementOps.scale(len, 1.0f/pivot, LU, colk+k+1, LU, colk+k+1);
+            for (int j = k+1; j < n; j++) {
+               int colj = j*m;
+               ElementOps.axpy(len, -LU[colj+k], LU, colk+k+1, LU, colj+k+1);
+            }
+         }
+      }
+   }
+
+/* ------------------------
+   Public Methods
+ * ------------------------ */
+
+   /** Is the matrix nonsingular?
+   @return     true if U, and hence A, is nonsingular.
+   */
+
+   public boolean isNonsingular () {
+      for (int j = 0; j < n; j++) {
+         if (LU[j+j*m] == 0)
+            return false;
+      }
+      return true;
+   }
+
+   /** Return lower triangular factor
+   @return     L
+   */
+
+   public FloatMatrix getL () {
+      FloatMatrix X = new FloatMatrix(m,n);
+      float[] L = X.getColumnPackedArray();
+      for (int j = 0; j < n; j++) {
+         if (j < m) {
+            L[j+j*m] = 1.0f;
+         }
+         for (int i = j+1; i < m; i++) {
+            L[i+j*m] = LU[i+j*m];
+         }
+      }
+      return X;
+   }
+
+   /** Return upper triangular factor
+   @return     U
+   */
+
+   public FloatMatrix getU () {
+      FloatMatrix X = new FloatMatrix(n,n);
+      float[] U = X.getColumnPackedArray();
+      for (int j = 0; j < n; j++) {
+         for (int i = 0; i <= Math.min(j, m-1); i++) {
+            U[i+j*n] = LU[i+j*m];
+         }
+      }
+      return X;
+   }
+
+   /** Return pivot permutation vector
+   @return     piv
+   */
+
+   public int[] getPivot () {
+      return piv.clone();
+   }
+
+   /** Determinant, accumulated in double precision
+   @return     det(A)
+   @exception  IllegalArgumentException  Matrix must be square
+   */
+
+   public double det () {
+      if (m != n) {
+         throw new IllegalArgumentException("Matrix must be square.");
+      }
+      double d = (double) pivsign;
+      for (int j = 0; j < n; j++) {
+         d *= LU[j+j*m];
+      }
+      return d;
+   }
+
+   /** Solve A*X = B
+   @param  B   A FloatMatrix with as many rows as A and any number of columns.
+   @return     X so that L*U*X = B(piv,:)
+   @exception  IllegalArgumentException Matrix row dimensions must agree.
+   @exception  RuntimeException  Matrix is singular.
+   */
+
+   public FloatMatrix solve (FloatMatrix B) {
+      if (B.getRowDimension() != m) {
+         throw new IllegalArgumentException("Matrix row dimensions must agree.");
+      }
+      if (!this.isNonsingular()) {
+         throw new RuntimeException("Matrix is singular.");
+      }
+
+      // Copy right hand side with pivoting
+      int nx = B.getColumnDimension();
+      FloatMatrix Xmat = B.getMatrix(piv,0,nx-1);
+      float[] X = Xmat.getColumnPackedArray();
+
+      for (int j = 0; j < nx; j++) {
+         int col = j*m;
+
+         // Solve L*Y = B(piv,:)
+         for (int k = 0; k < n; k++) {
+            ElementOps.axpy(n-k-1, -X[col+k], LU, k*m+k+1, X, col+k+1);
+         }
+         // Solve U*X = Y;
+         for (int k = n-1; k >= 0; k--) {
+            X[col+k] /= LU[k+k*m];
+            ElementOps.axpy(k, -X[col+k], LU, k*m, X, col);
+         }
+      }
+      return Xmat;
+   }
+  private static final long serialVersionUID = 1;
+}
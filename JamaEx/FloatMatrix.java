@@ -0,0 +1,1250 @@
+package JamaEx;
+
+import java.io.BufferedReader;
+import java.io.PrintWriter;
+import java.text.NumberFormat;
+
+import JamaEx.util.Blas;
+import JamaEx.util.ElementOps;
+
+/**
+ * Single precision matrix.
+ * <P>
+ * FloatMatrix mirrors the Matrix API with elements stored as float, packed by
+ * columns in one array. It takes half the memory of a Matrix of the same
+ * size, and the element-by-element kernels process twice as many elements per
+ * vector instruction. Sums, norms, traces and determinants are accumulated and
+ * returned in double precision; everything else is computed in single
+ * precision, so results carry about 7 significant digits.
+ * <P>
+ * The LU, QR and Cholesky decompositions are available as
+ * FloatLUDecomposition, FloatQRDecomposition and FloatCholeskyDecomposition.
+ * svd(), eig(), norm2() and cond() work in double precision on a copy
+ * converted by toMatrix(); rank() counts the singular values above the
+ * rounding error of single precision. print and read go through Matrix.
+ * Conversion to and from Matrix is a single pass over the elements.
+ * <P>
+ * Not mirrored: the variants that write into an existing output matrix,
+ * lazy(), timesVector, timesStrassen and gemm, views, solveTranspose, the
+ * in-place factorizations, write, writeFile and mapFile, and the MATLAB
+ * style helpers of JamaEx (find and its variants, sort, repmat, reshape,
+ * concatenate, buildBind, pdist, squareform, setdiff, reverse, fill, equals,
+ * getRow, getCol, getRows, getCols and the linear index getMatrix). Convert
+ * with toMatrix() to use them.
+ */
+
+public class FloatMatrix implements Cloneable, java.io.Serializable {
+
+	/*
+	 * ------------------------ Class variables ------------------------
+	 */
+
+	/**
+	 * Array for internal storage of elements, packed by columns. Element
+	 * A(i,j) is stored at A[i + j * m].
+	 *
+	 * @serial internal array storage.
+	 */
+	private float[] A;
+
+	/**
+	 * Row and column dimensions.
+	 *
+	 * @serial row dimension.
+	 * @serial column dimension.
+	 */
+	private int m, n;
+
+	/*
+	 * ------------------------ Constructors ------------------------
+	 */
+
+	/**
+	 * Construct an m-by-n matrix of zeros.
+	 *
+	 * @param m
+	 *            Number of rows.
+	 * @param n
+	 *            Number of columns.
+	 */
+
+	public FloatMatrix(int m, int n) {
+		this.m = m;
+		this.n = n;
+		A = new float[m * n];
+	}
+
+	/**
+	 * Construct an m-by-n constant matrix.
+	 *
+	 * @param m
+	 *            Number of rows.
+	 * @param n
+	 *            Number of columns.
+	 * @param s
+	 *            Fill the matrix with this scalar value.
+	 */
+
+	public FloatMatrix(int m, int n, float s) {
+		this(m, n);
+		java.util.Arrays.fill(A, s);
+	}
+
+	/**
+	 * Construct a matrix from a 2-D array.
+	 *
+	 * @param B
+	 *            Two-dimensional array of floats.
+	 * @exception IllegalArgumentException
+	 *                All rows must have the same length
+	 */
+
+	public FloatMatrix(float[][] B) {
+		this(B.length, B.length == 0 ? 0 : B[0].length);
+		for (int i = 0; i < m; i++) {
+			if (B[i].length != n) {
+				throw new IllegalArgumentException(
+						"All rows must have the same length.");
+			}
+			for (int j = 0; j < n; j++) {
+				A[i + j * m] = B[i][j];
+			}
+		}
+	}
+
+	/**
+	 * Construct a matrix from a one-dimensional packed array
+	 *
+	 * @param vals
+	 *            One-dimensional array of floats, packed by columns (ala
+	 *            Fortran).
+	 * @param m
+	 *            Number of rows.
+	 * @exception IllegalArgumentException
+	 *                Array length must be a multiple of m.
+	 */
+
+	public FloatMatrix(float vals[], int m) {
+		this.m = m;
+		n = (m != 0 ? vals.length / m : 0);
+		if (m * n != vals.length) {
+			throw new IllegalArgumentException(
+					"Array length must be a multiple of m.");
+		}
+		A = vals.clone();
+	}
+
+	/**
+	 * Construct a single precision copy of a matrix. Elements are rounded to
+	 * the nearest float.
+	 *
+	 * @param B
+	 *            double precision matrix
+	 */
+
+	public FloatMatrix(Matrix B) {
+		this(B.getRowDimension(), B.getColumnDimension());
+		double[] b = B.getColumnPackedArray();
+		for (int k = 0; k < A.length; k++) {
+			A[k] = (float) b[k];
+		}
+	}
+
+	/*
+	 * ------------------------ Public Methods ------------------------
+	 */
+
+	/**
+	 * Convert to a double precision matrix.
+	 *
+	 * @return Matrix with the same elements.
+	 */
+
+	public Matrix toMatrix() {
+		Matrix X = new Matrix(m, n);
+		double[] x = X.getColumnPackedArray();
+		for (int k = 0; k < A.length; k++) {
+			x[k] = A[k];
+		}
+		return X;
+	}
+
+	/**
+	 * Make a deep copy of a matrix
+	 *
+	 * @return copy
+	 */
+
+	public FloatMatrix copy() {
+		return new FloatMatrix(A, m);
+	}
+
+	/**
+	 * Clone the FloatMatrix object.
+	 */
+
+	public Object clone() {
+		return this.copy();
+	}
+
+	/**
+	 * Copy the internal array into a two-dimensional array.
+	 *
+	 * @return Two-dimensional array copy of matrix elements.
+	 */
+
+	public float[][] getArrayCopy() {
+		float[][] C = new float[m][n];
+		for (int i = 0; i < m; i++) {
+			for (int j = 0; j < n; j++) {
+				C[i][j] = A[i + j * m];
+			}
+		}
+		return C;
+	}
+
+	/**
+	 * Access the internal storage, packed by columns.
+	 *
+	 * @return Pointer to the array of matrix elements.
+	 */
+
+	public float[] getColumnPackedArray() {
+		return A;
+	}
+
+	/**
+	 * Make a one-dimensional column packed copy of the internal array.
+	 *
+	 * @return Matrix elements packed in a one-dimensional array by columns.
+	 */
+
+	public float[] getColumnPackedCopy() {
+		return A.clone();
+	}
+
+	/**
+	 * Get row dimension.
+	 *
+	 * @return m, the number of rows.
+	 */
+
+	public int getRowDimension() {
+		return m;
+	}
+
+	/**
+	 * Get column dimension.
+	 *
+	 * @return n, the number of columns.
+	 */
+
+	public int getColumnDimension() {
+		return n;
+	}
+
+	/**
+	 * Get a single element.
+	 *
+	 * @param i
+	 *            Row index.
+	 * @param j
+	 *            Column index.
+	 * @return A(i,j)
+	 * @exception ArrayIndexOutOfBoundsException
+	 */
+
+	public float get(int i, int j) {
+		if (i < 0 || i >= m || j < 0 || j >= n) {
+			throw new ArrayIndexOutOfBoundsException("Matrix index (" + i
+					+ "," + j + ")");
+		}
+		return A[i + j * m];
+	}
+
+	/**
+	 * Set a single element.
+	 *
+	 * @param i
+	 *            Row index.
+	 * @param j
+	 *            Column index.
+	 * @param s
+	 *            A(i,j).
+	 * @exception ArrayIndexOutOfBoundsException
+	 */
+
+	public void set(int i, int j, float s) {
+		if (i < 0 || i >= m || j < 0 || j >= n) {
+			throw new ArrayIndexOutOfBoundsException("Matrix index (" + i
+					+ "," + j + ")");
+		}
+		A[i + j * m] = s;
+	}
+
+	/**
+	 * Get an element by its linear (column major) index.
+	 *
+	 * @param index
+	 *            linear index
+	 * @return A(index)
+	 */
+
+	public float get(int index) {
+		return A[index];
+	}
+
+	/**
+	 * Set an element by its linear (column major) index.
+	 *
+	 * @param index
+	 *            linear index
+	 * @param val
+	 *            A(index)
+	 */
+
+	public void set(int index, float val) {
+		A[index] = val;
+	}
+
+	/**
+	 * Get a submatrix.
+	 *
+	 * @param i0
+	 *            Initial row index
+	 * @param i1
+	 *            Final row index
+	 * @param j0
+	 *            Initial column index
+	 * @param j1
+	 *            Final column index
+	 * @return A(i0:i1,j0:j1)
+	 * @exception ArrayIndexOutOfBoundsException
+	 *                Submatrix indices
+	 */
+
+	public FloatMatrix getMatrix(int i0, int i1, int j0, int j1) {
+		if ((i1 >= i0 && (i0 < 0 || i1 >= m))
+				|| (j1 >= j0 && (j0 < 0 || j1 >= n))) {
+			throw new ArrayIndexOutOfBoundsException("Submatrix indices");
+		}
+		FloatMatrix X = new FloatMatrix(i1 - i0 + 1, j1 - j0 + 1);
+		for (int j = j0; j <= j1; j++) {
+			System.arraycopy(A, i0 + j * m, X.A, (j - j0) * X.m, X.m);
+		}
+		return X;
+	}
+
+	/**
+	 * Get a submatrix.
+	 *
+	 * @param r
+	 *            Array of row indices.
+	 * @param j0
+	 *            Initial column index
+	 * @param j1
+	 *            Final column index
+	 * @return A(r(:),j0:j1)
+	 * @exception ArrayIndexOutOfBoundsException
+	 *                Submatrix indices
+	 */
+
+	public FloatMatrix getMatrix(int[] r, int j0, int j1) {
+		checkIndices(r, m);
+		checkIndices(j0, j1, n);
+		FloatMatrix X = new FloatMatrix(r.length, j1 - j0 + 1);
+		for (int j = j0; j <= j1; j++) {
+			int src = j * m, dst = (j - j0) * X.m;
+			for (int i = 0; i < r.length; i++) {
+				X.A[dst + i] = A[src + r[i]];
+			}
+		}
+		return X;
+	}
+
+	/**
+	 * Get a submatrix.
+	 *
+	 * @param r
+	 *            Array of row indices.
+	 * @param c
+	 *            Array of column indices.
+	 * @return A(r(:),c(:))
+	 * @exception ArrayIndexOutOfBoundsException
+	 *                Submatrix indices
+	 */
+
+	public FloatMatrix getMatrix(int[] r, int[] c) {
+		checkIndices(r, m);
+		checkIndices(c, n);
+		FloatMatrix X = new FloatMatrix(r.length, c.length);
+		for (int j = 0; j < c.length; j++) {
+			int src = c[j] * m, dst = j * X.m;
+			for (int i = 0; i < r.length; i++) {
+				X.A[dst + i] = A[src + r[i]];
+			}
+		}
+		return X;
+	}
+
+	/**
+	 * Get a submatrix.
+	 *
+	 * @param i0
+	 *            Initial row index
+	 * @param i1
+	 *            Final row index
+	 * @param c
+	 *            Array of column indices.
+	 * @return A(i0:i1,c(:))
+	 * @exception ArrayIndexOutOfBoundsException
+	 *                Submatrix indices
+	 */
+
+	public FloatMatrix getMatrix(int i0, int i1, int[] c) {
+		checkIndices(i0, i1, m);
+		checkIndices(c, n);
+		FloatMatrix X = new FloatMatrix(i1 - i0 + 1, c.length);
+		for (int j = 0; j < c.length; j++) {
+			System.arraycopy(A, i0 + c[j] * m, X.A, j * X.m, X.m);
+		}
+		return X;
+	}
+
+	/**
+	 * Set a submatrix.
+	 *
+	 * @param i0
+	 *            Initial row index
+	 * @param i1
+	 *            Final row index
+	 * @param j0
+	 *            Initial column index
+	 * @param j1
+	 *            Final column index
+	 * @param X
+	 *            A(i0:i1,j0:j1)
+	 * @exception ArrayIndexOutOfBoundsException
+	 *                Submatrix indices
+	 */
+
+	public void setMatrix(int i0, int i1, int j0, int j1, FloatMatrix X) {
+		checkIndices(i0, i1, m);
+		checkIndices(j0, j1, n);
+		checkIndices(0, i1 - i0, X.m);
+		checkIndices(0, j1 - j0, X.n);
+		int rows = i1 - i0 + 1;
+		for (int j = j0; j <= j1; j++) {
+			System.arraycopy(X.A, (j - j0) * X.m, A, i0 + j * m, rows);
+		}
+	}
+
+	/**
+	 * Set a submatrix.
+	 *
+	 * @param r
+	 *            Array of row indices.
+	 * @param c
+	 *            Array of column indices.
+	 * @param X
+	 *            A(r(:),c(:))
+	 * @exception ArrayIndexOutOfBoundsException
+	 *                Submatrix indices
+	 */
+
+	public void setMatrix(int[] r, int[] c, FloatMatrix X) {
+		checkIndices(r, m);
+		checkIndices(c, n);
+		checkIndices(0, r.length - 1, X.m);
+		checkIndices(0, c.length - 1, X.n);
+		for (int j = 0; j < c.length; j++) {
+			int src = j * X.m, dst = c[j] * m;
+			for (int i = 0; i < r.length; i++) {
+				A[dst + r[i]] = X.A[src + i];
+			}
+		}
+	}
+
+	/**
+	 * Set a submatrix.
+	 *
+	 * @param r
+	 *            Array of row indices.
+	 * @param j0
+	 *            Initial column index
+	 * @param j1
+	 *            Final column index
+	 * @param X
+	 *            A(r(:),j0:j1)
+	 * @exception ArrayIndexOutOfBoundsException
+	 *                Submatrix indices
+	 */
+
+	public void setMatrix(int[] r, int j0, int j1, FloatMatrix X) {
+		checkIndices(r, m);
+		checkIndices(j0, j1, n);
+		checkIndices(0, r.length - 1, X.m);
+		checkIndices(0, j1 - j0, X.n);
+		for (int j = j0; j <= j1; j++) {
+			int src = (j - j0) * X.m, dst = j * m;
+			for (int i = 0; i < r.length; i++) {
+				A[dst + r[i]] = X.A[src + i];
+			}
+		}
+	}
+
+	/**
+	 * Set a submatrix.
+	 *
+	 * @param i0
+	 *            Initial row index
+	 * @param i1
+	 *            Final row index
+	 * @param c
+	 *            Array of column indices.
+	 * @param X
+	 *            A(i0:i1,c(:))
+	 * @exception ArrayIndexOutOfBoundsException
+	 *                Submatrix indices
+	 */
+
+	public void setMatrix(int i0, int i1, int[] c, FloatMatrix X) {
+		checkIndices(i0, i1, m);
+		checkIndices(c, n);
+		checkIndices(0, i1 - i0, X.m);
+		checkIndices(0, c.length - 1, X.n);
+		int rows = i1 - i0 + 1;
+		for (int j = 0; j < c.length; j++) {
+			System.arraycopy(X.A, j * X.m, A, i0 + c[j] * m, rows);
+		}
+	}
+
+	/**
+	 * Matrix transpose.
+	 *
+	 * @return A'
+	 */
+
+	public FloatMatrix transpose() {
+		FloatMatrix X = new FloatMatrix(n, m);
+		Blas.transpose(m, n, A, 0, m, X.A, 0, n);
+		return X;
+	}
+
+	/**
+	 * One norm
+	 *
+	 * @return maximum column sum.
+	 */
+
+	public double norm1() {
+		double f = 0;
+		for (int j = 0; j < n; j++) {
+			double s = 0;
+			for (int i = 0; i < m; i++) {
+				s += Math.abs(A[i + j * m]);
+			}
+			f = Math.max(f, s);
+		}
+		return f;
+	}
+
+	/**
+	 * Two norm, computed in double precision.
+	 *
+	 * @return maximum singular value.
+	 */
+
+	public double norm2() {
+		return svd().norm2();
+	}
+
+	/**
+	 * Infinity norm
+	 *
+	 * @return maximum row sum.
+	 */
+
+	public double normInf() {
+		double[] rows = new double[m];
+		for (int j = 0; j < n; j++) {
+			for (int i = 0; i < m; i++) {
+				rows[i] += Math.abs(A[i + j * m]);
+			}
+		}
+		double f = 0;
+		for (int i = 0; i < m; i++) {
+			f = Math.max(f, rows[i]);
+		}
+		return f;
+	}
+
+	/**
+	 * Frobenius norm
+	 *
+	 * @return sqrt of sum of squares of all elements.
+	 */
+
+	public double normF() {
+		// Squares of floats cannot overflow a double.
+		double s = 0;
+		for (int k = 0; k < A.length; k++) {
+			s += (double) A[k] * A[k];
+		}
+		return Math.sqrt(s);
+	}
+
+	/**
+	 * Unary minus
+	 *
+	 * @return -A
+	 */
+
+	public FloatMatrix uminus() {
+		FloatMatrix X = new FloatMatrix(m, n);
+		ElementOps.negate(A.length, A, 0, X.A, 0);
+		return X;
+	}
+
+	/**
+	 * Absolute value of each element
+	 *
+	 * @return abs(A)
+	 */
+
+	public FloatMatrix abs() {
+		FloatMatrix X = new FloatMatrix(m, n);
+		ElementOps.abs(A.length, A, 0, X.A, 0);
+		return X;
+	}
+
+	/**
+	 * C = A + B
+	 *
+	 * @param B
+	 *            another matrix
+	 * @return A + B
+	 */
+
+	public FloatMatrix plus(FloatMatrix B) {
+		checkMatrixDimensions(B);
+		FloatMatrix X = new FloatMatrix(m, n);
+		ElementOps.plus(A.length, A, 0, B.A, 0, X.A, 0);
+		return X;
+	}
+
+	/**
+	 * A = A + B
+	 *
+	 * @param B
+	 *            another matrix
+	 * @return A + B
+	 */
+
+	public FloatMatrix plusEquals(FloatMatrix B) {
+		checkMatrixDimensions(B);
+		ElementOps.plus(A.length, A, 0, B.A, 0, A, 0);
+		return this;
+	}
+
+	/**
+	 * C = A - B
+	 *
+	 * @param B
+	 *            another matrix
+	 * @return A - B
+	 */
+
+	public FloatMatrix minus(FloatMatrix B) {
+		checkMatrixDimensions(B);
+		FloatMatrix X = new FloatMatrix(m, n);
+		ElementOps.minus(A.length, A, 0, B.A, 0, X.A, 0);
+		return X;
+	}
+
+	/**
+	 * A = A - B
+	 *
+	 * @param B
+	 *            another matrix
+	 * @return A - B
+	 */
+
+	public FloatMatrix minusEquals(FloatMatrix B) {
+		checkMatrixDimensions(B);
+		ElementOps.minus(A.length, A, 0, B.A, 0, A, 0);
+		return this;
+	}
+
+	/**
+	 * Element-by-element multiplication, C = A.*B
+	 *
+	 * @param B
+	 *            another matrix
+	 * @return A.*B
+	 */
+
+	public FloatMatrix arrayTimes(FloatMatrix B) {
+		checkMatrixDimensions(B);
+		FloatMatrix X = new FloatMatrix(m, n);
+		ElementOps.times(A.length, A, 0, B.A, 0, X.A, 0);
+		return X;
+	}
+
+	/**
+	 * Element-by-element multiplication in place, A = A.*B
+	 *
+	 * @param B
+	 *            another matrix
+	 * @return A.*B
+	 */
+
+	public FloatMatrix arrayTimesEquals(FloatMatrix B) {
+		checkMatrixDimensions(B);
+		ElementOps.times(A.length, A, 0, B.A, 0, A, 0);
+		return this;
+	}
+
+	/**
+	 * Element-by-element right division, C = A./B
+	 *
+	 * @param B
+	 *            another matrix
+	 * @return A./B
+	 */
+
+	public FloatMatrix arrayRightDivide(FloatMatrix B) {
+		checkMatrixDimensions(B);
+		FloatMatrix X = new FloatMatrix(m, n);
+		ElementOps.divide(A.length, A, 0, B.A, 0, X.A, 0);
+		return X;
+	}
+
+	/**
+	 * Element-by-element right division in place, A = A./B
+	 *
+	 * @param B
+	 *            another matrix
+	 * @return A./B
+	 */
+
+	public FloatMatrix arrayRightDivideEquals(FloatMatrix B) {
+		checkMatrixDimensions(B);
+		ElementOps.divide(A.length, A, 0, B.A, 0, A, 0);
+		return this;
+	}
+
+	/**
+	 * Element-by-element left division, C = A.\B
+	 *
+	 * @param B
+	 *            another matrix
+	 * @return A.\B
+	 */
+
+	public FloatMatrix arrayLeftDivide(FloatMatrix B) {
+		checkMatrixDimensions(B);
+		FloatMatrix X = new FloatMatrix(m, n);
+		ElementOps.divide(A.length, B.A, 0, A, 0, X.A, 0);
+		return X;
+	}
+
+	/**
+	 * Element-by-element left division in place, A = A.\B
+	 *
+	 * @param B
+	 *            another matrix
+	 * @return A.\B
+	 */
+
+	public FloatMatrix arrayLeftDivideEquals(FloatMatrix B) {
+		checkMatrixDimensions(B);
+		ElementOps.divide(A.length, B.A, 0, A, 0, A, 0);
+		return this;
+	}
+
+	/**
+	 * Multiply a matrix by a scalar, C = s*A
+	 *
+	 * @param s
+	 *            scalar
+	 * @return s*A
+	 */
+
+	public FloatMatrix times(float s) {
+		FloatMatrix X = new FloatMatrix(m, n);
+		ElementOps.scale(A.length, s, A, 0, X.A, 0);
+		return X;
+	}
+
+	/**
+	 * Multiply a matrix by a scalar in place, A = s*A
+	 *
+	 * @param s
+	 *            scalar
+	 * @return replace A by s*A
+	 */
+
+	public FloatMatrix timesEquals(float s) {
+		ElementOps.scale(A.length, s, A, 0, A, 0);
+		return this;
+	}
+
+	/**
+	 * Linear algebraic matrix multiplication, A * B
+	 *
+	 * @param B
+	 *            another matrix
+	 * @return Matrix product, A * B
+	 * @exception IllegalArgumentException
+	 *                Matrix inner dimensions must agree.
+	 */
+
+	public FloatMatrix times(FloatMatrix B) {
+		if (B.m != n) {
+			throw new IllegalArgumentException(
+					"Matrix inner dimensions must agree.");
+		}
+		FloatMatrix X = new FloatMatrix(m, B.n);
+		Blas.sgemm(m, B.n, n, 1.0f, A, 0, m, B.A, 0, n, 0.0f, X.A, 0, m);
+		return X;
+	}
+
+	/**
+	 * LU Decomposition
+	 *
+	 * @return FloatLUDecomposition
+	 * @see FloatLUDecomposition
+	 */
+
+	public FloatLUDecomposition lu() {
+		return new FloatLUDecomposition(this);
+	}
+
+	/**
+	 * QR Decomposition
+	 *
+	 * @return FloatQRDecomposition
+	 * @see FloatQRDecomposition
+	 */
+
+	public FloatQRDecomposition qr() {
+		return new FloatQRDecomposition(this);
+	}
+
+	/**
+	 * Cholesky Decomposition
+	 *
+	 * @return FloatCholeskyDecomposition
+	 * @see FloatCholeskyDecomposition
+	 */
+
+	public FloatCholeskyDecomposition chol() {
+		return new FloatCholeskyDecomposition(this);
+	}
+
+	/**
+	 * Singular Value Decomposition, computed in double precision on a copy of
+	 * the matrix.
+	 *
+	 * @return SingularValueDecomposition
+	 * @see SingularValueDecomposition
+	 */
+
+	public SingularValueDecomposition svd() {
+		return new SingularValueDecomposition(toMatrix());
+	}
+
+	/**
+	 * Eigenvalue Decomposition, computed in double precision on a copy of the
+	 * matrix.
+	 *
+	 * @return EigenvalueDecomposition
+	 * @see EigenvalueDecomposition
+	 */
+
+	public EigenvalueDecomposition eig() {
+		return new EigenvalueDecomposition(toMatrix());
+	}
+
+	/**
+	 * Solve A*X = B
+	 *
+	 * @param B
+	 *            right hand side
+	 * @return solution if A is square, least squares solution otherwise
+	 */
+
+	public FloatMatrix solve(FloatMatrix B) {
+		return (m == n ? (new FloatLUDecomposition(this)).solve(B)
+				: (new FloatQRDecomposition(this)).solve(B));
+	}
+
+	/**
+	 * Matrix inverse or pseudoinverse
+	 *
+	 * @return inverse(A) if A is square, pseudoinverse otherwise.
+	 */
+
+	public FloatMatrix inverse() {
+		return solve(identity(m, m));
+	}
+
+	/**
+	 * Matrix determinant
+	 *
+	 * @return determinant
+	 */
+
+	public double det() {
+		return new FloatLUDecomposition(this).det();
+	}
+
+	/**
+	 * Matrix rank
+	 *
+	 * @return effective numerical rank, obtained from SVD, counting the
+	 *         singular values above the rounding error of single precision.
+	 */
+
+	public int rank() {
+		double[] s = svd().getSingularValues();
+		if (s.length == 0) {
+			return 0;
+		}
+		double tol = Math.max(m, n) * s[0] * Math.ulp(1.0f);
+		int r = 0;
+		for (int i = 0; i < s.length; i++) {
+			if (s[i] > tol) {
+				r++;
+			}
+		}
+		return r;
+	}
+
+	/**
+	 * Matrix condition (2 norm)
+	 *
+	 * @return ratio of largest to smallest singular value.
+	 */
+
+	public double cond() {
+		return svd().cond();
+	}
+
+	/**
+	 * Matrix trace.
+	 *
+	 * @return sum of the diagonal elements.
+	 */
+
+	public double trace() {
+		double t = 0;
+		for (int i = 0; i < Math.min(m, n); i++) {
+			t += A[i + i * m];
+		}
+		return t;
+	}
+
+	/**
+	 * Sum of all elements.
+	 *
+	 * @return sum of the elements, accumulated in double precision.
+	 */
+
+	public double sum() {
+		double s = 0;
+		for (int k = 0; k < A.length; k++) {
+			s += A[k];
+		}
+		return s;
+	}
+
+	/**
+	 * Mean of all elements.
+	 *
+	 * @return mean of the elements, accumulated in double precision.
+	 */
+
+	public double mean() {
+		return sum() / A.length;
+	}
+
+	/**
+	 * Largest element.
+	 *
+	 * @return max of the elements.
+	 */
+
+	public float max() {
+		float max = A[0];
+		for (int k = 1; k < A.length; k++) {
+			if (max < A[k]) {
+				max = A[k];
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * Smallest element.
+	 *
+	 * @return min of the elements.
+	 */
+
+	public float min() {
+		float min = A[0];
+		for (int k = 1; k < A.length; k++) {
+			if (min > A[k]) {
+				min = A[k];
+			}
+		}
+		return min;
+	}
+
+	/**
+	 * Largest elements along a dimension, as Matrix.max(dim).
+	 *
+	 * @param dim
+	 *            1 for the max of each column, 2 for the max of each row.
+	 * @return 1-by-n for dim=1, m-by-1 for dim=2.
+	 * @exception IllegalArgumentException
+	 *                dim must be 1 or 2.
+	 */
+
+	public FloatMatrix max(int dim) {
+		return extreme(dim, true);
+	}
+
+	/**
+	 * Smallest elements along a dimension, as Matrix.min(dim).
+	 *
+	 * @param dim
+	 *            1 for the min of each column, 2 for the min of each row.
+	 * @return 1-by-n for dim=1, m-by-1 for dim=2.
+	 * @exception IllegalArgumentException
+	 *                dim must be 1 or 2.
+	 */
+
+	public FloatMatrix min(int dim) {
+		return extreme(dim, false);
+	}
+
+	/**
+	 * Means along a dimension, as Matrix.mean(dim), accumulated in double
+	 * precision and rounded once to single precision.
+	 *
+	 * @param dim
+	 *            1 for the mean of each column, 2 for the mean of each row.
+	 * @return 1-by-n for dim=1, m-by-1 for dim=2.
+	 * @exception IllegalArgumentException
+	 *                dim must be 1 or 2.
+	 */
+
+	public FloatMatrix mean(int dim) {
+		if (dim == 1) {
+			return sums(false, m);
+		} else if (dim == 2) {
+			return sums(true, n);
+		} else {
+			throw new IllegalArgumentException("dim must be 1 or 2");
+		}
+	}
+
+	/**
+	 * Sums along a dimension, as Matrix.sum(dim), accumulated in double
+	 * precision and rounded once to single precision. Note that, as in
+	 * Matrix, dim=1 sums each row.
+	 *
+	 * @param dim
+	 *            1 for the sum of each row, 2 for the sum of each column.
+	 * @return m-by-1 for dim=1, 1-by-n for dim=2.
+	 * @exception IllegalArgumentException
+	 *                dim must be 1 or 2.
+	 */
+
+	public FloatMatrix sum(int dim) {
+		if (dim == 1) {
+			return sums(true, 1);
+		} else if (dim == 2) {
+			return sums(false, 1);
+		} else {
+			throw new IllegalArgumentException("dim must be 1 or 2");
+		}
+	}
+
+	/**
+	 * Generate matrix with random elements
+	 *
+	 * @param m
+	 *            Number of rows.
+	 * @param n
+	 *            Number of colums.
+	 * @return An m-by-n matrix with uniformly distributed random elements.
+	 */
+
+	public static FloatMatrix random(int m, int n) {
+		FloatMatrix X = new FloatMatrix(m, n);
+		for (int k = 0; k < X.A.length; k++) {
+			X.A[k] = (float) Math.random();
+		}
+		return X;
+	}
+
+	/**
+	 * Generate identity matrix
+	 *
+	 * @param m
+	 *            Number of rows.
+	 * @param n
+	 *            Number of colums.
+	 * @return An m-by-n matrix with ones on the diagonal and zeros elsewhere.
+	 */
+
+	public static FloatMatrix identity(int m, int n) {
+		FloatMatrix X = new FloatMatrix(m, n);
+		for (int i = 0; i < Math.min(m, n); i++) {
+			X.A[i + i * m] = 1.0f;
+		}
+		return X;
+	}
+
+	/**
+	 * Print the matrix to stdout, as Matrix.print(w, d).
+	 *
+	 * @param w
+	 *            Column width.
+	 * @param d
+	 *            Number of digits after the decimal.
+	 */
+
+	public void print(int w, int d) {
+		toMatrix().print(w, d);
+	}
+
+	/**
+	 * Print the matrix to the output stream, as Matrix.print(output, w, d).
+	 *
+	 * @param output
+	 *            Output stream.
+	 * @param w
+	 *            Column width.
+	 * @param d
+	 *            Number of digits after the decimal.
+	 */
+
+	public void print(PrintWriter output, int w, int d) {
+		toMatrix().print(output, w, d);
+	}
+
+	/**
+	 * Print the matrix to stdout, as Matrix.print(format, width).
+	 *
+	 * @param format
+	 *            A Formatting object for individual elements.
+	 * @param width
+	 *            Field width for each column.
+	 */
+
+	public void print(NumberFormat format, int width) {
+		toMatrix().print(format, width);
+	}
+
+	/**
+	 * Print the matrix to the output stream, as Matrix.print(output, format,
+	 * width).
+	 *
+	 * @param output
+	 *            the output stream.
+	 * @param format
+	 *            A formatting object to format the matrix elements
+	 * @param width
+	 *            Column width.
+	 */
+
+	public void print(PrintWriter output, NumberFormat format, int width) {
+		toMatrix().print(output, format, width);
+	}
+
+	/**
+	 * Read a matrix from a stream in the format of Matrix.read, rounding each
+	 * element to single precision.
+	 *
+	 * @param input
+	 *            the input stream.
+	 * @return FloatMatrix
+	 */
+
+	public static FloatMatrix read(BufferedReader input)
+			throws java.io.IOException {
+		return new FloatMatrix(Matrix.read(input));
+	}
+
+	/*
+	 * ------------------------ Private Methods ------------------------
+	 */
+
+	/** Check if size(A) == size(B) **/
+
+	private void checkMatrixDimensions(FloatMatrix B) {
+		if (B.m != m || B.n != n) {
+			throw new IllegalArgumentException("Matrix dimensions must agree.");
+		}
+	}
+
+	/** Check that i0:i1 is a range of indices below length. **/
+
+	private static void checkIndices(int i0, int i1, int length) {
+		if (i1 >= i0 && (i0 < 0 || i1 >= length)) {
+			throw new ArrayIndexOutOfBoundsException("Submatrix indices");
+		}
+	}
+
+	/** Check that every entry of r is an index below length. **/
+
+	private static void checkIndices(int[] r, int length) {
+		for (int i = 0; i < r.length; i++) {
+			if (r[i] < 0 || r[i] >= length) {
+				throw new ArrayIndexOutOfBoundsException("Submatrix indices");
+			}
+		}
+	}
+
+	/** Max (or min) of each column for dim=1, of each row for dim=2. **/
+
+	private FloatMatrix extreme(int dim, boolean max) {
+		if (dim != 1 && dim != 2) {
+			throw new IllegalArgumentException("dim must be 1 or 2");
+		}
+		FloatMatrix X = dim == 1 ? new FloatMatrix(1, n) : new FloatMatrix(m,
+				1);
+		for (int j = 0; j < n; j++) {
+			for (int i = 0; i < m; i++) {
+				float a = A[i + j * m];
+				int k = dim == 1 ? j : i;
+				if ((dim == 1 ? i : j) == 0 || (max ? X.A[k] < a : X.A[k] > a)) {
+					X.A[k] = a;
+				}
+			}
+		}
+		return X;
+	}
+
+	/** Sums of each row (m-by-1) or column (1-by-n) over count, in double. **/
+
+	private FloatMatrix sums(boolean rows, int count) {
+		double[] x = new double[rows ? m : n];
+		for (int j = 0; j < n; j++) {
+			for (int i = 0; i < m; i++) {
+				x[rows ? i : j] += A[i + j * m];
+			}
+		}
+		FloatMatrix X = rows ? new FloatMatrix(m, 1) : new FloatMatrix(1, n);
+		for (int k = 0; k < x.length; k++) {
+			X.A[k] = (float) (x[k] / count);
+		}
+		return X;
+	}
+
+	private static final long serialVersionUID = 1;
+}
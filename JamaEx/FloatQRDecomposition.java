@@ -0,0 +1,181 @@
+package JamaEx;
+
+import JamaEx.util.ElementOps;
+
+/** Single precision QR Decomposition.
+<P>
+   The single precision counterpart of QRDecomposition: for an m-by-n
+   FloatMatrix A with m >= n, an m-by-n orthogonal Q and an n-by-n upper
+   triangular R so that A = Q*R, computed by Householder reflections on
+   columns stored contiguously.  Column norms are accumulated in double
+   precision, which avoids underflow and overflow without hypot.
+*/
+
+public class FloatQRDecomposition implements java.io.Serializable {
+
+/* ------------------------
+   Class variables
+ * ------------------------ */
+
+   /** Array for internal storage of decomposition, packed by columns.
+   @serial internal array storage.
+   */
+   private float[] QR;
+
+   /** Row and column dimensions.
+   @serial column dimension.
+   @serial row dimension.
+   */
+   private int m, n;
+
+   /** Array for internal storage of diagonal of R.
+   @serial diagonal of R.
+   */
+   private float[] Rdiag;
+
+/* ------------------------
+   Constructor
+ * ------------------------ */
+
+   /** QR Decomposition, computed by Householder reflections.
+       Structure to access R and the Householder vectors and compute Q.
+   @param A    Rectangular matrix
+   */
+
+   public FloatQRDecomposition (FloatMatrix A) {
+      QR = A.getColumnPackedCopy();
+      m = A.getRowDimension();
+      n = A.getColumnDimension();
+      Rdiag = new float[n];
+
+      for (int k = 0; k < n; k++) {
+         int colk = k*m;
+         double s2 = 0;
+         for (int i = k; i < m; i++) {
+            s2 += (double) QR[colk+i]*QR[colk+i];
+         }
+         float nrm = (float) Math.sqrt(s2);
+
+         if (nrm != 0.0f) {
+            // Form k-th Householder vector.
+            if (QR[colk+k] < 0) {
+               nrm = -nrm;
+            }
+            ElementOps.scale(m-k, 1.0f/nrm, QR, colk+k, QR, colk+k);
+            QR[colk+k] += 1.0f;
+
+            // Apply transformation to remaining columns.
+            for (int j = k+1; j < n; j++) {
+               int colj = j*m;
+               float s = ElementOps.dot(m-k, QR, colk+k, QR, colj+k);
+               ElementOps.axpy(m-k, -s/QR[colk+k], QR, colk+k, QR, colj+k);
+            }
+         }
+         Rdiag[k] = -nrm;
+      }
+   }
+
+/* ------------------------
+   Public Methods
+ * ------------------------ */
+
+   /** Is the matrix full rank?
+   @return     true if R, and hence A, has full rank.
+   */
+
+   public boolean isFullRank () {
+      for (int j = 0; j < n; j++) {
+         if (Rdiag[j] == 0)
+            return false;
+      }
+      return true;
+   }
+
+   /** Return the Householder vectors
+   @return     Lower trapezoidal matrix whose columns define the reflections
+   */
+
+   public FloatMatrix getH () {
+      FloatMatrix X = new FloatMatrix(m,n);
+      float[] H = X.getColumnPackedArray();
+      for (int j = 0; j < n; j++) {
+         for (int i = j; i < m; i++) {
+            H[i+j*m] = QR[i+j*m];
+         }
+      }
+      return X;
+   }
+
+   /** Return the upper triangular factor
+   @return     R
+   */
+
+   public FloatMatrix getR () {
+      FloatMatrix X = new FloatMatrix(n,n);
+      float[] R = X.getColumnPackedArray();
+      for (int j = 0; j < n; j++) {
+         for (int i = 0; i < j; i++) {
+            R[i+j*n] = QR[i+j*m];
+         }
+         R[j+j*n] = Rdiag[j];
+      }
+      return X;
+   }
+
+   /** Generate and return the (economy-sized) orthogonal factor
+   @return     Q
+   */
+
+   public FloatMatrix getQ () {
+      FloatMatrix X = new FloatMatrix(m,n);
+      float[] Q = X.getColumnPackedArray();
+      for (int k = n-1; k >= 0; k--) {
+         int colk = k*m;
+         Q[k+colk] = 1.0f;
+         if (QR[colk+k] != 0) {
+            for (int j = k; j < n; j++) {
+               int col = j*m;
+               float s = ElementOps.dot(m-k, QR, colk+k, Q, col+k);
+               ElementOps.axpy(m-k, -s/QR[colk+k], QR, colk+k, Q, col+k);
+            }
+         }
+      }
+      return X;
+   }
+
+   /** Least squares solution of A*X = B
+   @param B    A FloatMatrix with as many rows as A and any number of columns.
+   @return     X that minimizes the two norm of Q*R*X-B.
+   @exception  IllegalArgumentException  Matrix row dimensions must agree.
+   @exception  RuntimeException  Matrix is rank deficient.
+   */
+
+   public FloatMatrix solve (FloatMatrix B) {
+      if (B.getRowDimension() != m) {
+         throw new IllegalArgumentException("Matrix row dimensions must agree.");
+      }
+      if (!this.isFullRank()) {
+         throw new RuntimeException("Matrix is rank deficient.");
+      }
+
+      int nx = B.getColumnDimension();
+      float[] X = B.getColumnPackedCopy();
+
+      for (int j = 0; j < nx; j++) {
+         int col = j*m;
+         // Compute Y = transpose(Q)*B
+         for (int k = 0; k < n; k++) {
+            int colk = k*m;
+            float s = ElementOps.dot(m-k, QR, colk+k, X, col+k);
+            ElementOps.axpy(m-k, -s/QR[colk+k], QR, colk+k, X, col+k);
+         }
+         // Solve R*X = Y;
+         for (int k = n-1; k >= 0; k--) {
+            X[col+k] /= Rdiag[k];
+            ElementOps.axpy(k, -X[col+k], QR, k*m, X, col);
+         }
+      }
+      return new FloatMatrix(X,m).getMatrix(0,n-1,0,nx-1);
+   }
+  private static final long serialVersionUID = 1;
+}
@@ -1,5 +1,9 @@
 package JamaEx;
 
+import JamaEx.util.Blas;
+import JamaEx.util.Lapack;
+import JamaEx.util.Serial;
+
    /** LU Decomposition.
    <P>
    For an m-by-n matrix A with m >= n, the LU decomposition is an m-by-n
@@ -19,10 +23,10 @@ public class LUDecomposition implements java.io.Serializable {
    Class variables
  * ------------------------ */
 
-   /** Array for internal storage of decomposition.
-   @serial internal array storage.
+   /** Array for internal storage of decomposition, packed by columns:
+       L below the diagonal and U on and above it.
    */
-   private double[][] LU;
+   private transient double[] LU;
 
    /** Row and column dimensions, and pivot sign.
    @serial column dimension.
@@ -32,9 +36,8 @@ public class LUDecomposition implements java.io.Serializable {
    private int m, n, pivsign; 
 
    /** Internal storage of pivot vector.
-   @serial pivot vector.
    */
-   private int[] piv;
+   private transient int[] piv;
 
 /* ------------------------
    Constructor
@@ -46,131 +49,50 @@ public class LUDecomposition implements java.io.Serializable {
    */
 
    public LUDecomposition (Matrix A) {
+      this(A.getColumnPackedCopy(), A.getRowDimension(),
+           A.getColumnDimension());
+   }
 
-   // Use a "left-looking", dot-product, Crout/Doolittle algorithm.
-
-      LU = A.getArrayCopy();
-      m = A.getRowDimension();
-      n = A.getColumnDimension();
-      piv = new int[m];
-      for (int i = 0; i < m; i++) {
-         piv[i] = i;
-      }
-      pivsign = 1;
-      double[] LUrowi;
-      double[] LUcolj = new double[m];
-
-      // Outer loop.
-
-      for (int j = 0; j < n; j++) {
-
-         // Make a copy of the j-th column to localize references.
-
-         for (int i = 0; i < m; i++) {
-            LUcolj[i] = LU[i][j];
-         }
-
-         // Apply previous transformations.
-
-         for (int i = 0; i < m; i++) {
-            LUrowi = LU[i];
-
-            // Most of the time is spent in the following dot product.
-
-            int kmax = Math.min(i,j);
-            double s = 0.0;
-            for (int k = 0; k < kmax; k++) {
-               s += LUrowi[k]*LUcolj[k];
-            }
+   /** Factor A in its own storage, as LAPACK's dgetrf, so that no copy of
+       it is made.  A is overwritten by the factors, L below the diagonal
+       without its unit diagonal and U on and above it, and the result
+       reads them from there: A must not be changed while it is in use.
+   @param  A Rectangular matrix, overwritten.
+   @return   Structure to access L, U and piv.
+   */
 
-            LUrowi[j] = LUcolj[i] -= s;
-         }
-   
-         // Find pivot and exchange if necessary.
+   public static LUDecomposition factorInPlace (Matrix A) {
+      return new LUDecomposition(A.getColumnPackedArray(),
+                                 A.getRowDimension(), A.getColumnDimension());
+   }
 
-         int p = j;
-         for (int i = j+1; i < m; i++) {
-            if (Math.abs(LUcolj[i]) > Math.abs(LUcolj[p])) {
-               p = i;
-            }
-         }
-         if (p != j) {
-            for (int k = 0; k < n; k++) {
-               double t = LU[p][k]; LU[p][k] = LU[j][k]; LU[j][k] = t;
-            }
-            int k = piv[p]; piv[p] = piv[j]; piv[j] = k;
-            pivsign = -pivsign;
-         }
+   /** Factor the m-by-n column packed array LU in place. **/
 
-         // Compute multipliers.
-         
-         if (j < m & LU[j][j] != 0.0) {
-            for (int i = j+1; i < m; i++) {
-               LU[i][j] /= LU[j][j];
-            }
-         }
-      }
-   }
+   private LUDecomposition (double[] LU, int m, int n) {
 
-/* ------------------------
-   Temporary, experimental code.
-   ------------------------ *\
+   // Use a blocked, "right-looking" algorithm: recursive panels with
+   // partial pivoting, and dgemm updates of the trailing matrix.
 
-   \** LU Decomposition, computed by Gaussian elimination.
-   <P>
-   This constructor computes L and U with the "daxpy"-based elimination
-   algorithm used in LINPACK and MATLAB.  In Java, we suspect the dot-product,
-   Crout algorithm will be faster.  We have temporarily included this
-   constructor until timing experiments confirm this suspicion.
-   <P>
-   @param  A             Rectangular matrix
-   @param  linpackflag   Use Gaussian elimination.  Actual value ignored.
-   @return               Structure to access L, U and piv.
-   *\
-
-   public LUDecomposition (Matrix A, int linpackflag) {
-      // Initialize.
-      LU = A.getArrayCopy();
-      m = A.getRowDimension();
-      n = A.getColumnDimension();
+      this.LU = LU;
+      this.m = m;
+      this.n = n;
+      int k = Math.min(m, n);
+      int[] ipiv = new int[k];
+      Lapack.dgetrf(m, n, LU, 0, m, ipiv);
       piv = new int[m];
       for (int i = 0; i < m; i++) {
          piv[i] = i;
       }
       pivsign = 1;
-      // Main loop.
-      for (int k = 0; k < n; k++) {
-         // Find pivot.
-         int p = k;
-         for (int i = k+1; i < m; i++) {
-            if (Math.abs(LU[i][k]) > Math.abs(LU[p][k])) {
-               p = i;
-            }
-         }
-         // Exchange if necessary.
-         if (p != k) {
-            for (int j = 0; j < n; j++) {
-               double t = LU[p][j]; LU[p][j] = LU[k][j]; LU[k][j] = t;
-            }
-            int t = piv[p]; piv[p] = piv[k]; piv[k] = t;
+      for (int j = 0; j < k; j++) {
+         int p = ipiv[j];
+         if (p != j) {
+            int t = piv[p]; piv[p] = piv[j]; piv[j] = t;
             pivsign = -pivsign;
          }
-         // Compute multipliers and eliminate k-th column.
-         if (LU[k][k] != 0.0) {
-            for (int i = k+1; i < m; i++) {
-               LU[i][k] /= LU[k][k];
-               for (int j = k+1; j < n; j++) {
-                  LU[i][j] -= LU[i][k]*LU[k][j];
-               }
-            }
-         }
       }
    }
 
-\* ------------------------
-   End of temporary code.
- * ------------------------ */
-
 /* ------------------------
    Public Methods
  * ------------------------ */
@@ -181,7 +103,7 @@ public class LUDecomposition implements java.io.Serializable {
 
    public boolean isNonsingular () {
       for (int j = 0; j < n; j++) {
-         if (LU[j][j] == 0)
+         if (j >= m || LU[j+j*m] == 0)
             return false;
       }
       return true;
@@ -193,15 +115,15 @@ public class LUDecomposition implements java.io.Serializable {
 
    public Matrix getL () {
       Matrix X = new Matrix(m,n);
-      double[][] L = X.getArray();
+      double[] L = X.getColumnPackedArray();
       for (int i = 0; i < m; i++) {
          for (int j = 0; j < n; j++) {
             if (i > j) {
-               L[i][j] = LU[i][j];
+               L[i+j*m] = LU[i+j*m];
             } else if (i == j) {
-               L[i][j] = 1.0;
+               L[i+j*m] = 1.0;
             } else {
-               L[i][j] = 0.0;
+               L[i+j*m] = 0.0;
             }
          }
       }
@@ -214,13 +136,13 @@ public class LUDecomposition implements java.io.Serializable {
 
    public Matrix getU () {
       Matrix X = new Matrix(n,n);
-      double[][] U = X.getArray();
+      double[] U = X.getColumnPackedArray();
       for (int i = 0; i < n; i++) {
          for (int j = 0; j < n; j++) {
-            if (i <= j) {
-               U[i][j] = LU[i][j];
+            if (i <= j && i < m) {
+               U[i+j*n] = LU[i+j*m];
             } else {
-               U[i][j] = 0.0;
+               U[i+j*n] = 0.0;
             }
          }
       }
@@ -262,7 +184,7 @@ public class LUDecomposition implements java.io.Serializable {
       }
       double d = (double) pivsign;
       for (int j = 0; j < n; j++) {
-         d *= LU[j][j];
+         d *= LU[j+j*m];
       }
       return d;
    }
@@ -285,28 +207,43 @@ public class LUDecomposition implements java.io.Serializable {
       // Copy right hand side with pivoting
       int nx = B.getColumnDimension();
       Matrix Xmat = B.getMatrix(piv,0,nx-1);
-      double[][] X = Xmat.getArray();
+      double[] X = Xmat.getColumnPackedArray();
 
-      // Solve L*Y = B(piv,:)
-      for (int k = 0; k < n; k++) {
-         for (int i = k+1; i < n; i++) {
-            for (int j = 0; j < nx; j++) {
-               X[i][j] -= X[k][j]*LU[i][k];
-            }
-         }
+      // Solve L*Y = B(piv,:), then U*X = Y.  Only the first n rows of L
+      // take part, as in the unblocked algorithm.
+      Blas.dtrsm(false, false, true, n, nx, LU, 0, m, X, 0, m);
+      Blas.dtrsm(true, false, false, n, nx, LU, 0, m, X, 0, m);
+      return Xmat;
+   }
+
+   /** Write the scalar fields, then the arrays in bulk.
+   @serialData the scalar fields, then LU, piv as written by
+   JamaEx.util.Serial.
+   */
+
+   private void writeObject (java.io.ObjectOutputStream out) throws java.io.IOException {
+      out.defaultWriteObject();
+      Serial.write(out, LU);
+      Serial.write(out, piv);
+   }
+
+   /** Read a decomposition written by writeObject. **/
+
+   private void readObject (java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+      in.defaultReadObject();
+      LU = Serial.readDoubles(in);
+      piv = Serial.readInts(in);
+      if (m < 0 || n < 0 || LU == null || piv == null
+          || LU.length != (long) m*n || piv.length != m) {
+         throw new java.io.InvalidObjectException(
+               "Array length does not match the dimensions.");
       }
-      // Solve U*X = Y;
-      for (int k = n-1; k >= 0; k--) {
-         for (int j = 0; j < nx; j++) {
-            X[k][j] /= LU[k][k];
-         }
-         for (int i = 0; i < k; i++) {
-            for (int j = 0; j < nx; j++) {
-               X[i][j] -= X[k][j]*LU[i][k];
-            }
+      for (int i = 0; i < m; i++) {
+         if (piv[i] < 0 || piv[i] >= m) {
+            throw new java.io.InvalidObjectException("Bad pivot index.");
          }
       }
-      return Xmat;
    }
-  private static final long serialVersionUID = 1;
+
+  private static final long serialVersionUID = 3;
 }
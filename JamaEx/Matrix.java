@@ -3,12 +3,17 @@ package JamaEx;
 import java.text.NumberFormat;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
+import java.util.Arrays;
 import java.util.Locale;
 import java.io.PrintWriter;
 import java.io.BufferedReader;
-import java.io.StreamTokenizer;
+import java.nio.file.Path;
 
+import JamaEx.util.Blas;
+import JamaEx.util.ElementOps;
 import JamaEx.util.Maths;
+import JamaEx.util.Serial;
+import JamaEx.util.Strassen;
 
 /**
  * Jama = Java Matrix class.
@@ -67,11 +72,11 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	 */
 
 	/**
-	 * Array for internal storage of elements.
-	 * 
-	 * @serial internal array storage.
+	 * Array for internal storage of elements, packed by columns. Element
+	 * A(i,j) is stored at A[i + j * m], which is also the MatLab linear index
+	 * of that element. Serialized in bulk by writeObject.
 	 */
-	private double[][] A;
+	private transient double[] A;
 
 	/**
 	 * Row and column dimensions.
@@ -81,6 +86,18 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	 */
 	private int m, n;
 
+	/**
+	 * Whether times(Matrix) uses Strassen-Winograd multiplication, off by
+	 * default.
+	 */
+	private static volatile boolean strassen = false;
+
+	/**
+	 * Products whose dimensions are all above this use Strassen-Winograd
+	 * recursion when it is selected.
+	 */
+	private static volatile int strassenCutoff = 512;
+
 	/*
 	 * ------------------------ Constructors ------------------------
 	 */
@@ -97,7 +114,7 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	public Matrix(int m, int n) {
 		this.m = m;
 		this.n = n;
-		A = new double[m][n];
+		A = new double[elementCount(m, n)];
 	}
 
 	/**
@@ -114,12 +131,8 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	public Matrix(int m, int n, double s) {
 		this.m = m;
 		this.n = n;
-		A = new double[m][n];
-		for (int i = 0; i < m; i++) {
-			for (int j = 0; j < n; j++) {
-				A[i][j] = s;
-			}
-		}
+		A = new double[elementCount(m, n)];
+		Arrays.fill(A, s);
 	}
 
 	/**
@@ -135,14 +148,14 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	public Matrix(double[] B) {
 		m = 1;
 		n = B.length;
-		A = new double[m][n];
-		for (int i = 0; i < n; ++i) {
-			A[0][i] = B[i];
-		}
+		A = new double[n];
+		System.arraycopy(B, 0, A, 0, n);
 	}
 
 	/**
-	 * Construct a matrix from a 2-D array.
+	 * Construct a matrix from a 2-D array. The elements are copied into the
+	 * internal column packed storage, so later changes to A are not seen by
+	 * the matrix.
 	 * 
 	 * @param A
 	 *            Two-dimensional array of doubles.
@@ -160,11 +173,13 @@ public class Matrix implements Cloneable, java.io.Serializable {
 						"All rows must have the same length.");
 			}
 		}
-		this.A = A;
+		this.A = new double[elementCount(m, n)];
+		pack(A);
 	}
 
 	/**
-	 * Construct a matrix quickly without checking arguments.
+	 * Construct a matrix quickly without checking arguments. Only the leading
+	 * m-by-n block of A is copied.
 	 * 
 	 * @param A
 	 *            Two-dimensional array of doubles.
@@ -175,9 +190,10 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	 */
 
 	public Matrix(double[][] A, int m, int n) {
-		this.A = A;
 		this.m = m;
 		this.n = n;
+		this.A = new double[elementCount(m, n)];
+		pack(A);
 	}
 
 	/**
@@ -199,12 +215,8 @@ public class Matrix implements Cloneable, java.io.Serializable {
 			throw new IllegalArgumentException(
 					"Array length must be a multiple of m.");
 		}
-		A = new double[m][n];
-		for (int i = 0; i < m; i++) {
-			for (int j = 0; j < n; j++) {
-				A[i][j] = vals[i + j * m];
-			}
-		}
+		A = new double[elementCount(m, n)];
+		System.arraycopy(vals, 0, A, 0, m * n);
 	}
 
 	/*
@@ -223,17 +235,14 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	public static Matrix constructWithCopy(double[][] A) {
 		int m = A.length;
 		int n = A[0].length;
-		Matrix X = new Matrix(m, n);
-		double[][] C = X.getArray();
 		for (int i = 0; i < m; i++) {
 			if (A[i].length != n) {
 				throw new IllegalArgumentException(
 						"All rows must have the same length.");
 			}
-			for (int j = 0; j < n; j++) {
-				C[i][j] = A[i][j];
-			}
 		}
+		Matrix X = new Matrix(m, n);
+		X.pack(A);
 		return X;
 	}
 
@@ -243,12 +252,7 @@ public class Matrix implements Cloneable, java.io.Serializable {
 
 	public Matrix copy() {
 		Matrix X = new Matrix(m, n);
-		double[][] C = X.getArray();
-		for (int i = 0; i < m; i++) {
-			for (int j = 0; j < n; j++) {
-				C[i][j] = A[i][j];
-			}
-		}
+		System.arraycopy(A, 0, X.A, 0, A.length);
 		return X;
 	}
 
@@ -261,31 +265,47 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	}
 
 	/**
-	 * Access the internal two-dimensional array.
+	 * Two-dimensional array of the matrix elements. The matrix is stored by
+	 * columns internally, so this is kept for compatibility only and returns
+	 * a copy: writing to the returned array does not change the matrix. Use
+	 * getColumnPackedArray() for direct access.
 	 * 
-	 * @return Pointer to the two-dimensional array of matrix elements.
+	 * @return Two-dimensional array copy of matrix elements.
+	 * @see #getColumnPackedArray
 	 */
 
 	public double[][] getArray() {
-		return A;
+		return getArrayCopy();
 	}
 
 	/**
-	 * Copy the internal two-dimensional array.
+	 * Copy the internal array into a two-dimensional array.
 	 * 
 	 * @return Two-dimensional array copy of matrix elements.
 	 */
 
 	public double[][] getArrayCopy() {
 		double[][] C = new double[m][n];
-		for (int i = 0; i < m; i++) {
-			for (int j = 0; j < n; j++) {
-				C[i][j] = A[i][j];
+		for (int j = 0; j < n; j++) {
+			int col = j * m;
+			for (int i = 0; i < m; i++) {
+				C[i][j] = A[col + i];
 			}
 		}
 		return C;
 	}
 
+	/**
+	 * Access the internal one-dimensional array. Elements are packed by
+	 * columns, A(i,j) is at index i + j*m.
+	 * 
+	 * @return Pointer to the column packed array of matrix elements.
+	 */
+
+	public double[] getColumnPackedArray() {
+		return A;
+	}
+
 	/**
 	 * Make a one-dimensional column packed copy of the internal array.
 	 * 
@@ -294,11 +314,7 @@ public class Matrix implements Cloneable, java.io.Serializable {
 
 	public double[] getColumnPackedCopy() {
 		double[] vals = new double[m * n];
-		for (int i = 0; i < m; i++) {
-			for (int j = 0; j < n; j++) {
-				vals[i + j * m] = A[i][j];
-			}
-		}
+		System.arraycopy(A, 0, vals, 0, m * n);
 		return vals;
 	}
 
@@ -310,14 +326,38 @@ public class Matrix implements Cloneable, java.io.Serializable {
 
 	public double[] getRowPackedCopy() {
 		double[] vals = new double[m * n];
-		for (int i = 0; i < m; i++) {
-			for (int j = 0; j < n; j++) {
-				vals[i * n + j] = A[i][j];
+		for (int j = 0; j < n; j++) {
+			int col = j * m;
+			for (int i = 0; i < m; i++) {
+				vals[i * n + j] = A[col + i];
 			}
 		}
 		return vals;
 	}
 
+	/**
+	 * Convert to a single precision matrix. Elements are rounded to the
+	 * nearest float.
+	 * 
+	 * @return FloatMatrix with the same dimensions.
+	 * @see FloatMatrix
+	 */
+
+	public FloatMatrix toFloatMatrix() {
+		return new FloatMatrix(this);
+	}
+
+	/**
+	 * Convert to a sparse matrix in CSC form, storing the nonzero elements.
+	 * 
+	 * @return SparseMatrix with the same elements.
+	 * @see SparseMatrix
+	 */
+
+	public SparseMatrix toSparse() {
+		return new SparseMatrix(this);
+	}
+
 	/**
 	 * Get row dimension.
 	 * 
@@ -350,7 +390,11 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	 */
 
 	public double get(int i, int j) {
-		return A[i][j];
+		if (i < 0 || i >= m || j < 0 || j >= n) {
+			throw new ArrayIndexOutOfBoundsException("Matrix index (" + i
+					+ "," + j + ")");
+		}
+		return A[i + j * m];
 	}
 
 	/**
@@ -370,16 +414,39 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	 */
 
 	public Matrix getMatrix(int i0, int i1, int j0, int j1) {
-		Matrix X = new Matrix(i1 - i0 + 1, j1 - j0 + 1);
-		double[][] B = X.getArray();
-		try {
-			for (int i = i0; i <= i1; i++) {
-				for (int j = j0; j <= j1; j++) {
-					B[i - i0][j - j0] = A[i][j];
-				}
-			}
-		} catch (ArrayIndexOutOfBoundsException e) {
-			throw new ArrayIndexOutOfBoundsException("Submatrix indices");
+		checkRowIndices(i0, i1);
+		checkColumnIndices(j0, j1);
+		return getMatrix(i0, i1, j0, j1, new Matrix(i1 - i0 + 1, j1 - j0 + 1));
+	}
+
+	/**
+	 * Get a submatrix into an existing matrix.
+	 * 
+	 * @param i0
+	 *            Initial row index
+	 * @param i1
+	 *            Final row index
+	 * @param j0
+	 *            Initial column index
+	 * @param j1
+	 *            Final column index
+	 * @param X
+	 *            (i1-i0+1)-by-(j1-j0+1) output matrix, not A itself.
+	 * @return X = A(i0:i1,j0:j1)
+	 * @exception ArrayIndexOutOfBoundsException
+	 *                Submatrix indices
+	 * @exception IllegalArgumentException
+	 *                Output matrix dimensions must agree.
+	 */
+
+	public Matrix getMatrix(int i0, int i1, int j0, int j1, Matrix X) {
+		checkRowIndices(i0, i1);
+		checkColumnIndices(j0, j1);
+		checkOutput(X, i1 - i0 + 1, j1 - j0 + 1);
+		checkNotAliased(X);
+		int rows = X.m;
+		for (int j = j0; j <= j1; j++) {
+			System.arraycopy(A, i0 + j * m, X.A, (j - j0) * rows, rows);
 		}
 		return X;
 	}
@@ -397,16 +464,37 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	 */
 
 	public Matrix getMatrix(int[] r, int[] c) {
-		Matrix X = new Matrix(r.length, c.length);
-		double[][] B = X.getArray();
-		try {
+		return getMatrix(r, c, new Matrix(r.length, c.length));
+	}
+
+	/**
+	 * Get a submatrix into an existing matrix.
+	 * 
+	 * @param r
+	 *            Array of row indices.
+	 * @param c
+	 *            Array of column indices.
+	 * @param X
+	 *            r.length-by-c.length output matrix, not A itself.
+	 * @return X = A(r(:),c(:))
+	 * @exception ArrayIndexOutOfBoundsException
+	 *                Submatrix indices
+	 * @exception IllegalArgumentException
+	 *                Output matrix dimensions must agree.
+	 */
+
+	public Matrix getMatrix(int[] r, int[] c, Matrix X) {
+		checkRowIndices(r);
+		checkColumnIndices(c);
+		checkOutput(X, r.length, c.length);
+		checkNotAliased(X);
+		double[] B = X.A;
+		for (int j = 0; j < c.length; j++) {
+			int src = c[j] * m;
+			int dst = j * r.length;
 			for (int i = 0; i < r.length; i++) {
-				for (int j = 0; j < c.length; j++) {
-					B[i][j] = A[r[i]][c[j]];
-				}
+				B[dst + i] = A[src + r[i]];
 			}
-		} catch (ArrayIndexOutOfBoundsException e) {
-			throw new ArrayIndexOutOfBoundsException("Submatrix indices");
 		}
 		return X;
 	}
@@ -426,16 +514,12 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	 */
 
 	public Matrix getMatrix(int i0, int i1, int[] c) {
+		checkRowIndices(i0, i1);
+		checkColumnIndices(c);
 		Matrix X = new Matrix(i1 - i0 + 1, c.length);
-		double[][] B = X.getArray();
-		try {
-			for (int i = i0; i <= i1; i++) {
-				for (int j = 0; j < c.length; j++) {
-					B[i - i0][j] = A[i][c[j]];
-				}
-			}
-		} catch (ArrayIndexOutOfBoundsException e) {
-			throw new ArrayIndexOutOfBoundsException("Submatrix indices");
+		int rows = X.m;
+		for (int j = 0; j < c.length; j++) {
+			System.arraycopy(A, i0 + c[j] * m, X.A, j * rows, rows);
 		}
 		return X;
 	}
@@ -455,16 +539,16 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	 */
 
 	public Matrix getMatrix(int[] r, int j0, int j1) {
+		checkRowIndices(r);
+		checkColumnIndices(j0, j1);
 		Matrix X = new Matrix(r.length, j1 - j0 + 1);
-		double[][] B = X.getArray();
-		try {
+		double[] B = X.A;
+		for (int j = j0; j <= j1; j++) {
+			int src = j * m;
+			int dst = (j - j0) * r.length;
 			for (int i = 0; i < r.length; i++) {
-				for (int j = j0; j <= j1; j++) {
-					B[i][j - j0] = A[r[i]][j];
-				}
+				B[dst + i] = A[src + r[i]];
 			}
-		} catch (ArrayIndexOutOfBoundsException e) {
-			throw new ArrayIndexOutOfBoundsException("Submatrix indices");
 		}
 		return X;
 	}
@@ -482,7 +566,11 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	 */
 
 	public void set(int i, int j, double s) {
-		A[i][j] = s;
+		if (i < 0 || i >= m || j < 0 || j >= n) {
+			throw new ArrayIndexOutOfBoundsException("Matrix index (" + i
+					+ "," + j + ")");
+		}
+		A[i + j * m] = s;
 	}
 
 	/**
@@ -503,14 +591,13 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	 */
 
 	public void setMatrix(int i0, int i1, int j0, int j1, Matrix X) {
-		try {
-			for (int i = i0; i <= i1; i++) {
-				for (int j = j0; j <= j1; j++) {
-					A[i][j] = X.get(i - i0, j - j0);
-				}
-			}
-		} catch (ArrayIndexOutOfBoundsException e) {
-			throw new ArrayIndexOutOfBoundsException("Submatrix indices");
+		checkRowIndices(i0, i1);
+		checkColumnIndices(j0, j1);
+		X.checkRowIndices(0, i1 - i0);
+		X.checkColumnIndices(0, j1 - j0);
+		int rows = i1 - i0 + 1;
+		for (int j = j0; j <= j1; j++) {
+			System.arraycopy(X.A, (j - j0) * X.m, A, i0 + j * m, rows);
 		}
 	}
 
@@ -528,14 +615,16 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	 */
 
 	public void setMatrix(int[] r, int[] c, Matrix X) {
-		try {
+		checkRowIndices(r);
+		checkColumnIndices(c);
+		X.checkRowIndices(0, r.length - 1);
+		X.checkColumnIndices(0, c.length - 1);
+		for (int j = 0; j < c.length; j++) {
+			int src = j * X.m;
+			int dst = c[j] * m;
 			for (int i = 0; i < r.length; i++) {
-				for (int j = 0; j < c.length; j++) {
-					A[r[i]][c[j]] = X.get(i, j);
-				}
+				A[dst + r[i]] = X.A[src + i];
 			}
-		} catch (ArrayIndexOutOfBoundsException e) {
-			throw new ArrayIndexOutOfBoundsException("Submatrix indices");
 		}
 	}
 
@@ -555,14 +644,16 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	 */
 
 	public void setMatrix(int[] r, int j0, int j1, Matrix X) {
-		try {
+		checkRowIndices(r);
+		checkColumnIndices(j0, j1);
+		X.checkRowIndices(0, r.length - 1);
+		X.checkColumnIndices(0, j1 - j0);
+		for (int j = j0; j <= j1; j++) {
+			int src = (j - j0) * X.m;
+			int dst = j * m;
 			for (int i = 0; i < r.length; i++) {
-				for (int j = j0; j <= j1; j++) {
-					A[r[i]][j] = X.get(i, j - j0);
-				}
+				A[dst + r[i]] = X.A[src + i];
 			}
-		} catch (ArrayIndexOutOfBoundsException e) {
-			throw new ArrayIndexOutOfBoundsException("Submatrix indices");
 		}
 	}
 
@@ -582,14 +673,13 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	 */
 
 	public void setMatrix(int i0, int i1, int[] c, Matrix X) {
-		try {
-			for (int i = i0; i <= i1; i++) {
-				for (int j = 0; j < c.length; j++) {
-					A[i][c[j]] = X.get(i - i0, j);
-				}
-			}
-		} catch (ArrayIndexOutOfBoundsException e) {
-			throw new ArrayIndexOutOfBoundsException("Submatrix indices");
+		checkRowIndices(i0, i1);
+		checkColumnIndices(c);
+		X.checkRowIndices(0, i1 - i0);
+		X.checkColumnIndices(0, c.length - 1);
+		int rows = i1 - i0 + 1;
+		for (int j = 0; j < c.length; j++) {
+			System.arraycopy(X.A, j * X.m, A, i0 + c[j] * m, rows);
 		}
 	}
 
@@ -600,16 +690,42 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	 */
 
 	public Matrix transpose() {
-		Matrix X = new Matrix(n, m);
-		double[][] C = X.getArray();
-		for (int i = 0; i < m; i++) {
-			for (int j = 0; j < n; j++) {
-				C[j][i] = A[i][j];
-			}
-		}
+		return transpose(new Matrix(n, m));
+	}
+
+	/**
+	 * Matrix transpose into an existing matrix.
+	 * 
+	 * @param X
+	 *            n-by-m output matrix, not A itself.
+	 * @return X = A'
+	 * @exception IllegalArgumentException
+	 *                Output matrix dimensions must agree.
+	 */
+
+	public Matrix transpose(Matrix X) {
+		checkOutput(X, n, m);
+		checkNotAliased(X);
+		Blas.transpose(m, n, A, 0, m, X.A, 0, n);
 		return X;
 	}
 
+	/**
+	 * Matrix transpose in place, A = A'. No storage is allocated.
+	 * 
+	 * @return A'
+	 * @exception IllegalArgumentException
+	 *                Matrix must be square.
+	 */
+
+	public Matrix transposeEquals() {
+		if (m != n) {
+			throw new IllegalArgumentException("Matrix must be square.");
+		}
+		Blas.transpose(n, A, 0, m);
+		return this;
+	}
+
 	/**
 	 * One norm
 	 * 
@@ -619,9 +735,10 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	public double norm1() {
 		double f = 0;
 		for (int j = 0; j < n; j++) {
+			int col = j * m;
 			double s = 0;
 			for (int i = 0; i < m; i++) {
-				s += Math.abs(A[i][j]);
+				s += Math.abs(A[col + i]);
 			}
 			f = Math.max(f, s);
 		}
@@ -645,13 +762,17 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	 */
 
 	public double normInf() {
+		// Accumulate all row sums in one pass down the columns.
+		double[] s = new double[m];
+		for (int j = 0; j < n; j++) {
+			int col = j * m;
+			for (int i = 0; i < m; i++) {
+				s[i] += Math.abs(A[col + i]);
+			}
+		}
 		double f = 0;
 		for (int i = 0; i < m; i++) {
-			double s = 0;
-			for (int j = 0; j < n; j++) {
-				s += Math.abs(A[i][j]);
-			}
-			f = Math.max(f, s);
+			f = Math.max(f, s[i]);
 		}
 		return f;
 	}
@@ -664,28 +785,47 @@ public class Matrix implements Cloneable, java.io.Serializable {
 
 	public double normF() {
 		double f = 0;
-		for (int i = 0; i < m; i++) {
-			for (int j = 0; j < n; j++) {
-				f = Maths.hypot(f, A[i][j]);
-			}
+		for (int k = 0; k < A.length; k++) {
+			f = Maths.hypot(f, A[k]);
 		}
 		return f;
 	}
 
+	/**
+	 * Start a lazy element-by-element expression on this matrix. The
+	 * operations recorded on it run in one fused pass when eval() is called.
+	 *
+	 * @return expression whose value is A
+	 * @see MatrixExpression
+	 */
+
+	public MatrixExpression lazy() {
+		return new MatrixExpression(this);
+	}
+
 	/**
 	 * Unary minus
-	 * 
+	 *
 	 * @return -A
 	 */
 
 	public Matrix uminus() {
-		Matrix X = new Matrix(m, n);
-		double[][] C = X.getArray();
-		for (int i = 0; i < m; i++) {
-			for (int j = 0; j < n; j++) {
-				C[i][j] = -A[i][j];
-			}
-		}
+		return uminus(new Matrix(m, n));
+	}
+
+	/**
+	 * Unary minus into an existing matrix
+	 * 
+	 * @param X
+	 *            output matrix, the same size as A. May be A.
+	 * @return X = -A
+	 * @exception IllegalArgumentException
+	 *                Output matrix dimensions must agree.
+	 */
+
+	public Matrix uminus(Matrix X) {
+		checkOutput(X, m, n);
+		ElementOps.negate(A.length, A, 0, X.A, 0);
 		return X;
 	}
 
@@ -698,14 +838,25 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	 */
 
 	public Matrix plus(Matrix B) {
+		return plus(B, new Matrix(m, n));
+	}
+
+	/**
+	 * C = A + B into an existing matrix
+	 * 
+	 * @param B
+	 *            another matrix
+	 * @param X
+	 *            output matrix, the same size as A. May be A or B.
+	 * @return X = A + B
+	 * @exception IllegalArgumentException
+	 *                Matrix dimensions must agree.
+	 */
+
+	public Matrix plus(Matrix B, Matrix X) {
 		checkMatrixDimensions(B);
-		Matrix X = new Matrix(m, n);
-		double[][] C = X.getArray();
-		for (int i = 0; i < m; i++) {
-			for (int j = 0; j < n; j++) {
-				C[i][j] = A[i][j] + B.A[i][j];
-			}
-		}
+		checkOutput(X, m, n);
+		ElementOps.plus(A.length, A, 0, B.A, 0, X.A, 0);
 		return X;
 	}
 
@@ -719,11 +870,7 @@ public class Matrix implements Cloneable, java.io.Serializable {
 
 	public Matrix plusEquals(Matrix B) {
 		checkMatrixDimensions(B);
-		for (int i = 0; i < m; i++) {
-			for (int j = 0; j < n; j++) {
-				A[i][j] = A[i][j] + B.A[i][j];
-			}
-		}
+		ElementOps.plus(A.length, A, 0, B.A, 0, A, 0);
 		return this;
 	}
 
@@ -736,14 +883,25 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	 */
 
 	public Matrix minus(Matrix B) {
+		return minus(B, new Matrix(m, n));
+	}
+
+	/**
+	 * C = A - B into an existing matrix
+	 * 
+	 * @param B
+	 *            another matrix
+	 * @param X
+	 *            output matrix, the same size as A. May be A or B.
+	 * @return X = A - B
+	 * @exception IllegalArgumentException
+	 *                Matrix dimensions must agree.
+	 */
+
+	public Matrix minus(Matrix B, Matrix X) {
 		checkMatrixDimensions(B);
-		Matrix X = new Matrix(m, n);
-		double[][] C = X.getArray();
-		for (int i = 0; i < m; i++) {
-			for (int j = 0; j < n; j++) {
-				C[i][j] = A[i][j] - B.A[i][j];
-			}
-		}
+		checkOutput(X, m, n);
+		ElementOps.minus(A.length, A, 0, B.A, 0, X.A, 0);
 		return X;
 	}
 
@@ -757,11 +915,7 @@ public class Matrix implements Cloneable, java.io.Serializable {
 
 	public Matrix minusEquals(Matrix B) {
 		checkMatrixDimensions(B);
-		for (int i = 0; i < m; i++) {
-			for (int j = 0; j < n; j++) {
-				A[i][j] = A[i][j] - B.A[i][j];
-			}
-		}
+		ElementOps.minus(A.length, A, 0, B.A, 0, A, 0);
 		return this;
 	}
 
@@ -774,14 +928,25 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	 */
 
 	public Matrix arrayTimes(Matrix B) {
+		return arrayTimes(B, new Matrix(m, n));
+	}
+
+	/**
+	 * Element-by-element multiplication, C = A.*B into an existing matrix
+	 * 
+	 * @param B
+	 *            another matrix
+	 * @param X
+	 *            output matrix, the same size as A. May be A or B.
+	 * @return X = A.*B
+	 * @exception IllegalArgumentException
+	 *                Matrix dimensions must agree.
+	 */
+
+	public Matrix arrayTimes(Matrix B, Matrix X) {
 		checkMatrixDimensions(B);
-		Matrix X = new Matrix(m, n);
-		double[][] C = X.getArray();
-		for (int i = 0; i < m; i++) {
-			for (int j = 0; j < n; j++) {
-				C[i][j] = A[i][j] * B.A[i][j];
-			}
-		}
+		checkOutput(X, m, n);
+		ElementOps.times(A.length, A, 0, B.A, 0, X.A, 0);
 		return X;
 	}
 
@@ -795,11 +960,7 @@ public class Matrix implements Cloneable, java.io.Serializable {
 
 	public Matrix arrayTimesEquals(Matrix B) {
 		checkMatrixDimensions(B);
-		for (int i = 0; i < m; i++) {
-			for (int j = 0; j < n; j++) {
-				A[i][j] = A[i][j] * B.A[i][j];
-			}
-		}
+		ElementOps.times(A.length, A, 0, B.A, 0, A, 0);
 		return this;
 	}
 
@@ -812,14 +973,25 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	 */
 
 	public Matrix arrayRightDivide(Matrix B) {
+		return arrayRightDivide(B, new Matrix(m, n));
+	}
+
+	/**
+	 * Element-by-element right division, C = A./B into an existing matrix
+	 * 
+	 * @param B
+	 *            another matrix
+	 * @param X
+	 *            output matrix, the same size as A. May be A or B.
+	 * @return X = A./B
+	 * @exception IllegalArgumentException
+	 *                Matrix dimensions must agree.
+	 */
+
+	public Matrix arrayRightDivide(Matrix B, Matrix X) {
 		checkMatrixDimensions(B);
-		Matrix X = new Matrix(m, n);
-		double[][] C = X.getArray();
-		for (int i = 0; i < m; i++) {
-			for (int j = 0; j < n; j++) {
-				C[i][j] = A[i][j] / B.A[i][j];
-			}
-		}
+		checkOutput(X, m, n);
+		ElementOps.divide(A.length, A, 0, B.A, 0, X.A, 0);
 		return X;
 	}
 
@@ -833,11 +1005,7 @@ public class Matrix implements Cloneable, java.io.Serializable {
 
 	public Matrix arrayRightDivideEquals(Matrix B) {
 		checkMatrixDimensions(B);
-		for (int i = 0; i < m; i++) {
-			for (int j = 0; j < n; j++) {
-				A[i][j] = A[i][j] / B.A[i][j];
-			}
-		}
+		ElementOps.divide(A.length, A, 0, B.A, 0, A, 0);
 		return this;
 	}
 
@@ -850,14 +1018,25 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	 */
 
 	public Matrix arrayLeftDivide(Matrix B) {
+		return arrayLeftDivide(B, new Matrix(m, n));
+	}
+
+	/**
+	 * Element-by-element left division, C = A.\B into an existing matrix
+	 * 
+	 * @param B
+	 *            another matrix
+	 * @param X
+	 *            output matrix, the same size as A. May be A or B.
+	 * @return X = A.\B
+	 * @exception IllegalArgumentException
+	 *                Matrix dimensions must agree.
+	 */
+
+	public Matrix arrayLeftDivide(Matrix B, Matrix X) {
 		checkMatrixDimensions(B);
-		Matrix X = new Matrix(m, n);
-		double[][] C = X.getArray();
-		for (int i = 0; i < m; i++) {
-			for (int j = 0; j < n; j++) {
-				C[i][j] = B.A[i][j] / A[i][j];
-			}
-		}
+		checkOutput(X, m, n);
+		ElementOps.divide(A.length, B.A, 0, A, 0, X.A, 0);
 		return X;
 	}
 
@@ -871,11 +1050,7 @@ public class Matrix implements Cloneable, java.io.Serializable {
 
 	public Matrix arrayLeftDivideEquals(Matrix B) {
 		checkMatrixDimensions(B);
-		for (int i = 0; i < m; i++) {
-			for (int j = 0; j < n; j++) {
-				A[i][j] = B.A[i][j] / A[i][j];
-			}
-		}
+		ElementOps.divide(A.length, B.A, 0, A, 0, A, 0);
 		return this;
 	}
 
@@ -888,13 +1063,24 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	 */
 
 	public Matrix times(double s) {
-		Matrix X = new Matrix(m, n);
-		double[][] C = X.getArray();
-		for (int i = 0; i < m; i++) {
-			for (int j = 0; j < n; j++) {
-				C[i][j] = s * A[i][j];
-			}
-		}
+		return times(s, new Matrix(m, n));
+	}
+
+	/**
+	 * Multiply a matrix by a scalar into an existing matrix, C = s*A
+	 * 
+	 * @param s
+	 *            scalar
+	 * @param X
+	 *            output matrix, the same size as A. May be A.
+	 * @return X = s*A
+	 * @exception IllegalArgumentException
+	 *                Output matrix dimensions must agree.
+	 */
+
+	public Matrix times(double s, Matrix X) {
+		checkOutput(X, m, n);
+		ElementOps.scale(A.length, s, A, 0, X.A, 0);
 		return X;
 	}
 
@@ -907,11 +1093,7 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	 */
 
 	public Matrix timesEquals(double s) {
-		for (int i = 0; i < m; i++) {
-			for (int j = 0; j < n; j++) {
-				A[i][j] = s * A[i][j];
-			}
-		}
+		ElementOps.scale(A.length, s, A, 0, A, 0);
 		return this;
 	}
 
@@ -930,25 +1112,243 @@ public class Matrix implements Cloneable, java.io.Serializable {
 			throw new IllegalArgumentException(
 					"Matrix inner dimensions must agree.");
 		}
-		Matrix X = new Matrix(m, B.n);
-		double[][] C = X.getArray();
-		double[] Bcolj = new double[n];
-		for (int j = 0; j < B.n; j++) {
-			for (int k = 0; k < n; k++) {
-				Bcolj[k] = B.A[k][j];
-			}
-			for (int i = 0; i < m; i++) {
-				double[] Arowi = A[i];
-				double s = 0;
-				for (int k = 0; k < n; k++) {
-					s += Arowi[k] * Bcolj[k];
-				}
-				C[i][j] = s;
-			}
+		return times(B, new Matrix(m, B.n));
+	}
+
+	/**
+	 * Linear algebraic matrix multiplication into an existing matrix, A * B
+	 * 
+	 * @param B
+	 *            another matrix
+	 * @param X
+	 *            m-by-B.n output matrix. Must not share storage with A or B.
+	 * @return X = A * B
+	 * @exception IllegalArgumentException
+	 *                Matrix inner dimensions must agree.
+	 */
+
+	public Matrix times(Matrix B, Matrix X) {
+		if (B.m != n) {
+			throw new IllegalArgumentException(
+					"Matrix inner dimensions must agree.");
+		}
+		checkOutput(X, m, B.n);
+		checkNotAliased(X);
+		B.checkNotAliased(X);
+		if (B.n == 1) {
+			Blas.dgemv(false, m, n, 1.0, A, 0, m, B.A, 0, 0.0, X.A, 0);
+		} else if (m == 1) {
+			// x'*B = (B'*x)', and a 1-by-p row has the same storage as a
+			// p-by-1 column.
+			Blas.dgemv(true, B.m, B.n, 1.0, B.A, 0, B.m, A, 0, 0.0, X.A, 0);
+		} else if (strassen) {
+			Strassen.dgemm(m, B.n, n, A, 0, m, B.A, 0, n, X.A, 0, m,
+					strassenCutoff);
+		} else {
+			Blas.dgemm(m, B.n, n, 1.0, A, 0, m, B.A, 0, n, 0.0, X.A, 0, m);
 		}
 		return X;
 	}
 
+	/**
+	 * Matrix-vector multiplication, y = A*x
+	 * 
+	 * @param x
+	 *            vector of length n
+	 * @param y
+	 *            vector of length m, overwritten by A*x. Must not be x.
+	 * @return y
+	 * @exception IllegalArgumentException
+	 *                Vector lengths must agree.
+	 */
+
+	public double[] timesVector(double[] x, double[] y) {
+		checkVectors(x, n, y, m);
+		Blas.dgemv(false, m, n, 1.0, A, 0, m, x, 0, 0.0, y, 0);
+		return y;
+	}
+
+	/**
+	 * Matrix-vector multiplication, A*x
+	 * 
+	 * @param x
+	 *            vector of length n
+	 * @return A*x
+	 * @exception IllegalArgumentException
+	 *                Vector lengths must agree.
+	 */
+
+	public double[] timesVector(double[] x) {
+		return timesVector(x, new double[m]);
+	}
+
+	/**
+	 * Transposed matrix-vector multiplication, y = A'*x, without forming A'
+	 * 
+	 * @param x
+	 *            vector of length m
+	 * @param y
+	 *            vector of length n, overwritten by A'*x. Must not be x.
+	 * @return y
+	 * @exception IllegalArgumentException
+	 *                Vector lengths must agree.
+	 */
+
+	public double[] transposeTimesVector(double[] x, double[] y) {
+		checkVectors(x, m, y, n);
+		Blas.dgemv(true, m, n, 1.0, A, 0, m, x, 0, 0.0, y, 0);
+		return y;
+	}
+
+	/**
+	 * Transposed matrix-vector multiplication, A'*x, without forming A'
+	 * 
+	 * @param x
+	 *            vector of length m
+	 * @return A'*x
+	 * @exception IllegalArgumentException
+	 *                Vector lengths must agree.
+	 */
+
+	public double[] transposeTimesVector(double[] x) {
+		return transposeTimesVector(x, new double[n]);
+	}
+
+	/**
+	 * Matrix multiplication by the Strassen-Winograd algorithm, whatever the
+	 * global setting. Faster than times(Matrix) for large products, but only
+	 * accurate relative to ||A||*||B||; see JamaEx.util.Strassen.
+	 * 
+	 * @param B
+	 *            another matrix
+	 * @param cutoff
+	 *            blocks with a dimension at or below cutoff are multiplied
+	 *            conventionally
+	 * @return Matrix product, A * B
+	 * @exception IllegalArgumentException
+	 *                Matrix inner dimensions must agree.
+	 */
+
+	public Matrix timesStrassen(Matrix B, int cutoff) {
+		if (B.m != n) {
+			throw new IllegalArgumentException(
+					"Matrix inner dimensions must agree.");
+		}
+		Matrix X = new Matrix(m, B.n);
+		Strassen.dgemm(m, B.n, n, A, 0, m, B.A, 0, n, X.A, 0, m, cutoff);
+		return X;
+	}
+
+	/**
+	 * Matrix multiplication by the Strassen-Winograd algorithm with the
+	 * global cutoff.
+	 * 
+	 * @param B
+	 *            another matrix
+	 * @return Matrix product, A * B
+	 * @exception IllegalArgumentException
+	 *                Matrix inner dimensions must agree.
+	 */
+
+	public Matrix timesStrassen(Matrix B) {
+		return timesStrassen(B, strassenCutoff);
+	}
+
+	/**
+	 * Select Strassen-Winograd multiplication for every times(Matrix) call.
+	 * Small products are still computed conventionally.
+	 * 
+	 * @param enable
+	 *            true to use Strassen-Winograd, false for the conventional
+	 *            product
+	 */
+
+	public static void setStrassen(boolean enable) {
+		strassen = enable;
+	}
+
+	/**
+	 * Is Strassen-Winograd multiplication selected globally?
+	 * 
+	 * @return true if times(Matrix) uses Strassen-Winograd.
+	 */
+
+	public static boolean isStrassen() {
+		return strassen;
+	}
+
+	/**
+	 * Set the global Strassen-Winograd cutoff. Each level of recursion trades
+	 * one eighth of the multiplications for extra additions and a little
+	 * accuracy, so the best cutoff depends on the machine.
+	 * 
+	 * @param cutoff
+	 *            blocks with a dimension at or below cutoff are multiplied
+	 *            conventionally
+	 * @exception IllegalArgumentException
+	 *                Cutoff must be positive.
+	 */
+
+	public static void setStrassenCutoff(int cutoff) {
+		if (cutoff < 1) {
+			throw new IllegalArgumentException("Cutoff must be positive.");
+		}
+		strassenCutoff = cutoff;
+	}
+
+	/**
+	 * Get the global Strassen-Winograd cutoff.
+	 * 
+	 * @return the cutoff, 512 by default.
+	 */
+
+	public static int getStrassenCutoff() {
+		return strassenCutoff;
+	}
+
+	/**
+	 * General matrix multiply in place, C = alpha*op(A)*op(B) + beta*C, where
+	 * op(X) is X or X'. Transposed operands are read in place, so
+	 * A.transpose() is never formed.
+	 *
+	 * @param alpha
+	 *            scalar multiplier of op(A)*op(B)
+	 * @param A
+	 *            left operand
+	 * @param transA
+	 *            true to use A' instead of A
+	 * @param B
+	 *            right operand
+	 * @param transB
+	 *            true to use B' instead of B
+	 * @param beta
+	 *            scalar multiplier of C. If beta is zero, the old contents of
+	 *            C are ignored.
+	 * @param C
+	 *            accumulator, overwritten by the result. Must not share
+	 *            storage with A or B.
+	 * @return C
+	 * @exception IllegalArgumentException
+	 *                Matrix dimensions must agree.
+	 */
+
+	public static Matrix gemm(double alpha, Matrix A, boolean transA,
+			Matrix B, boolean transB, double beta, Matrix C) {
+		int rows = transA ? A.n : A.m;
+		int inner = transA ? A.m : A.n;
+		int cols = transB ? B.m : B.n;
+		if ((transB ? B.n : B.m) != inner) {
+			throw new IllegalArgumentException(
+					"Matrix inner dimensions must agree.");
+		}
+		checkOutput(C, rows, cols);
+		A.checkNotAliased(C);
+		B.checkNotAliased(C);
+		Blas.dgemm(transA, transB, rows, cols, inner, alpha, A.A, 0, A.m, B.A,
+				0, B.m, beta, C.A, 0, C.m);
+		return C;
+	}
+
 	/**
 	 * LU Decomposition
 	 * 
@@ -960,6 +1360,17 @@ public class Matrix implements Cloneable, java.io.Serializable {
 		return new LUDecomposition(this);
 	}
 
+	/**
+	 * LU Decomposition in place, overwriting this matrix with L and U
+	 * 
+	 * @return LUDecomposition
+	 * @see LUDecomposition#factorInPlace
+	 */
+
+	public LUDecomposition luInPlace() {
+		return LUDecomposition.factorInPlace(this);
+	}
+
 	/**
 	 * QR Decomposition
 	 * 
@@ -971,6 +1382,18 @@ public class Matrix implements Cloneable, java.io.Serializable {
 		return new QRDecomposition(this);
 	}
 
+	/**
+	 * QR Decomposition in place, overwriting this matrix with the
+	 * Householder vectors and R
+	 * 
+	 * @return QRDecomposition
+	 * @see QRDecomposition#factorInPlace
+	 */
+
+	public QRDecomposition qrInPlace() {
+		return QRDecomposition.factorInPlace(this);
+	}
+
 	/**
 	 * Cholesky Decomposition
 	 * 
@@ -982,6 +1405,17 @@ public class Matrix implements Cloneable, java.io.Serializable {
 		return new CholeskyDecomposition(this);
 	}
 
+	/**
+	 * Cholesky Decomposition in place, overwriting this matrix with L
+	 * 
+	 * @return CholeskyDecomposition
+	 * @see CholeskyDecomposition#factorInPlace
+	 */
+
+	public CholeskyDecomposition cholInPlace() {
+		return CholeskyDecomposition.factorInPlace(this);
+	}
+
 	/**
 	 * Singular Value Decomposition
 	 * 
@@ -1078,7 +1512,7 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	public double trace() {
 		double t = 0;
 		for (int i = 0; i < Math.min(m, n); i++) {
-			t += A[i][i];
+			t += A[i + i * m];
 		}
 		return t;
 	}
@@ -1095,11 +1529,9 @@ public class Matrix implements Cloneable, java.io.Serializable {
 
 	public static Matrix random(int m, int n) {
 		Matrix A = new Matrix(m, n);
-		double[][] X = A.getArray();
-		for (int i = 0; i < m; i++) {
-			for (int j = 0; j < n; j++) {
-				X[i][j] = Math.random();
-			}
+		double[] X = A.A;
+		for (int k = 0; k < X.length; k++) {
+			X[k] = Math.random();
 		}
 		return A;
 	}
@@ -1116,11 +1548,9 @@ public class Matrix implements Cloneable, java.io.Serializable {
 
 	public static Matrix identity(int m, int n) {
 		Matrix A = new Matrix(m, n);
-		double[][] X = A.getArray();
-		for (int i = 0; i < m; i++) {
-			for (int j = 0; j < n; j++) {
-				X[i][j] = (i == j ? 1.0 : 0.0);
-			}
+		double[] X = A.A;
+		for (int i = 0; i < Math.min(m, n); i++) {
+			X[i + i * m] = 1.0;
 		}
 		return A;
 	}
@@ -1203,7 +1633,7 @@ public class Matrix implements Cloneable, java.io.Serializable {
 		output.println(); // start on new line.
 		for (int i = 0; i < m; i++) {
 			for (int j = 0; j < n; j++) {
-				String s = format.format(A[i][j]); // format the number
+				String s = format.format(A[i + j * m]); // format the number
 				int padding = Math.max(1, width - s.length()); // At _least_ 1
 																// space
 				for (int k = 0; k < padding; k++)
@@ -1218,63 +1648,104 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	/**
 	 * Read a matrix from a stream. The format is the same the print method, so
 	 * printed matrices can be read back in (provided they were printed using US
-	 * Locale). Elements are separated by whitespace, all the elements for each
-	 * row appear on a single line, the last row is followed by a blank line.
+	 * Locale), as can the output of write. Elements are separated by
+	 * whitespace or commas, all the elements for each row appear on a single
+	 * line, the last row is followed by a blank line or the end of the input.
+	 * Nothing after the blank line is read.
 	 * 
 	 * @param input
 	 *            the input stream.
 	 */
 
-	public static Matrix read(BufferedReader input) throws java.io.IOException {
-		StreamTokenizer tokenizer = new StreamTokenizer(input);
-
-		// Although StreamTokenizer will parse numbers, it doesn't recognize
-		// scientific notation (E or D); however, Double.valueOf does.
-		// The strategy here is to disable StreamTokenizer's number parsing.
-		// We'll only get whitespace delimited words, EOL's and EOF's.
-		// These words should all be numbers, for Double.valueOf to parse.
-
-		tokenizer.resetSyntax();
-		tokenizer.wordChars(0, 255);
-		tokenizer.whitespaceChars(0, ' ');
-		tokenizer.eolIsSignificant(true);
-		java.util.Vector<Double> vD = new java.util.Vector<Double>();
-
-		// Ignore initial empty lines
-		while (tokenizer.nextToken() == StreamTokenizer.TT_EOL)
-			;
-		if (tokenizer.ttype == StreamTokenizer.TT_EOF)
-			throw new java.io.IOException("Unexpected EOF on matrix read.");
-		do {
-			vD.addElement(Double.valueOf(tokenizer.sval)); // Read & store 1st
-															// row.
-		} while (tokenizer.nextToken() == StreamTokenizer.TT_WORD);
-
-		int n = vD.size(); // Now we've got the number of columns!
-		double row[] = new double[n];
-		for (int j = 0; j < n; j++)
-			// extract the elements of the 1st row.
-			row[j] = vD.elementAt(j).doubleValue();
-		java.util.Vector<double[]> v = new java.util.Vector<double[]>();
-		v.addElement(row); // Start storing rows instead of columns.
-		while (tokenizer.nextToken() == StreamTokenizer.TT_WORD) {
-			// While non-empty lines
-			v.addElement(row = new double[n]);
-			int j = 0;
-			do {
-				if (j >= n)
-					throw new java.io.IOException("Row " + v.size()
-							+ " is too long.");
-				row[j++] = Double.valueOf(tokenizer.sval).doubleValue();
-			} while (tokenizer.nextToken() == StreamTokenizer.TT_WORD);
-			if (j < n)
-				throw new java.io.IOException("Row " + v.size()
-						+ " is too short.");
-		}
-		int m = v.size(); // Now we've got the number of rows.
-		double[][] A = new double[m][];
-		v.copyInto(A); // copy the rows out of the vector
-		return new Matrix(A);
+	public static Matrix read(BufferedReader input) throws java.io.IOException {
+		return MatrixReader.read(input);
+	}
+
+	/**
+	 * Read a matrix from a text file in the format of the print method. Large
+	 * files are parsed in parallel pieces; see MatrixReader.
+	 * 
+	 * @param file
+	 *            path of the file.
+	 */
+
+	public static Matrix read(Path file) throws java.io.IOException {
+		return MatrixReader.read(file);
+	}
+
+	/**
+	 * Write the matrix as text, one row per line, with each element as the
+	 * shortest decimal that read converts back to the same double. The last
+	 * row is followed by a blank line, as in print.
+	 * 
+	 * @param output
+	 *            the output stream, flushed but not closed.
+	 * @param format
+	 *            separator between the elements of a row.
+	 * @exception IllegalArgumentException
+	 *                Matrix is empty; read could not read it back.
+	 */
+
+	public void write(java.io.Writer output, MatrixWriter.Format format)
+			throws java.io.IOException {
+		MatrixWriter.write(this, output, format);
+	}
+
+	/**
+	 * Write the matrix as ASCII text, one row per line, with each element as
+	 * the shortest decimal that read converts back to the same double. The
+	 * last row is followed by a blank line, as in print.
+	 * 
+	 * @param output
+	 *            the output stream, flushed but not closed.
+	 * @param format
+	 *            separator between the elements of a row.
+	 * @exception IllegalArgumentException
+	 *                Matrix is empty; read could not read it back.
+	 */
+
+	public void write(java.io.OutputStream output, MatrixWriter.Format format)
+			throws java.io.IOException {
+		MatrixWriter.write(this, output, format);
+	}
+
+	/**
+	 * Write the matrix to a binary matrix file, in the format described in
+	 * MatrixFile.
+	 *
+	 * @param file
+	 *            path of the file, replaced if it exists.
+	 */
+
+	public void writeFile(Path file) throws java.io.IOException {
+		MatrixFile.write(this, file);
+	}
+
+	/**
+	 * Read a binary matrix file written by writeFile.
+	 *
+	 * @param file
+	 *            path of the file.
+	 * @return Matrix
+	 */
+
+	public static Matrix readFile(Path file) throws java.io.IOException {
+		return MatrixFile.read(file);
+	}
+
+	/**
+	 * Map a binary matrix file read only, without copying it. A Matrix keeps
+	 * its elements in a Java array, which cannot live in a file, so the result
+	 * is an OffHeapMatrix backed by the file's pages. The mapping can be shared
+	 * by several processes; close the result to release it.
+	 *
+	 * @param file
+	 *            path of the file.
+	 * @return OffHeapMatrix on the file
+	 */
+
+	public static OffHeapMatrix mapFile(Path file) throws java.io.IOException {
+		return MatrixFile.map(file, false);
 	}
 
 	/**
@@ -1286,32 +1757,58 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	 * @author Steven Chang
 	 */
 	public Matrix max(int dim) throws Exception {
+		if (dim == 1) {
+			return max(dim, new Matrix(1, n));
+		} else if (dim == 2) {
+			return max(dim, new Matrix(m, 1));
+		} else {
+			throw new IllegalArgumentException("row and col should be the same");
+		}
+	}
+
+	/**
+	 * Return the max value of specific dimension into an existing matrix.
+	 * 
+	 * @param dim
+	 *            dimension
+	 * @param X
+	 *            output matrix, 1-by-n for dim=1, m-by-1 for dim=2, not A itself.
+	 * @return X
+	 * @exception IllegalArgumentException
+	 *                Output matrix dimensions must agree.
+	 */
+
+	public Matrix max(int dim, Matrix X) throws Exception {
 
 		// MatLab max simplified function
 		if (dim == 1) {
 			// row dimension
-			Matrix X = new Matrix(1, n);
+			checkOutput(X, 1, n);
+			checkNotAliased(X);
 			for (int j = 0; j < n; ++j) {
-				double max = A[0][j];
+				int col = j * m;
+				double max = A[col];
 				for (int i = 0; i < m; ++i) {
-					if (max < A[i][j]) {
-						max = A[i][j];
+					if (max < A[col + i]) {
+						max = A[col + i];
 					}
 				}
-				X.set(0, j, max);
+				X.A[j] = max;
 			}
 			return X;
 		} else if (dim == 2) {
 			// col dimension
-			Matrix X = new Matrix(m, 1);
-			for (int i = 0; i < m; ++i) {
-				double max = A[i][0];
-				for (int j = 0; j < n; ++j) {
-					if (max < A[i][j]) {
-						max = A[i][j];
+			checkOutput(X, m, 1);
+			checkNotAliased(X);
+			double[] maxs = X.A;
+			System.arraycopy(A, 0, maxs, 0, m);
+			for (int j = 1; j < n; ++j) {
+				int col = j * m;
+				for (int i = 0; i < m; ++i) {
+					if (maxs[i] < A[col + i]) {
+						maxs[i] = A[col + i];
 					}
 				}
-				X.set(i, 0, max);
 			}
 			return X;
 		} else {
@@ -1326,12 +1823,10 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	 */
 	public double max() {
 
-		double max = A[0][0];
-		for (int i = 0; i < m; ++i) {
-			for (int j = 0; j < n; ++j) {
-				if (max < A[i][j]) {
-					max = A[i][j];
-				}
+		double max = A[0];
+		for (int k = 1; k < A.length; ++k) {
+			if (max < A[k]) {
+				max = A[k];
 			}
 		}
 		return max;
@@ -1346,32 +1841,58 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	 * @author Steven Chang
 	 */
 	public Matrix min(int dim) throws Exception {
+		if (dim == 1) {
+			return min(dim, new Matrix(1, n));
+		} else if (dim == 2) {
+			return min(dim, new Matrix(m, 1));
+		} else {
+			throw new IllegalArgumentException("row and col should be the same");
+		}
+	}
+
+	/**
+	 * Return the min value of specific dimension into an existing matrix.
+	 * 
+	 * @param dim
+	 *            dimension
+	 * @param X
+	 *            output matrix, 1-by-n for dim=1, m-by-1 for dim=2, not A itself.
+	 * @return X
+	 * @exception IllegalArgumentException
+	 *                Output matrix dimensions must agree.
+	 */
+
+	public Matrix min(int dim, Matrix X) throws Exception {
 
 		// MatLab max simplified funtion
 		if (dim == 1) {
 			// row dimension
-			Matrix X = new Matrix(1, n);
+			checkOutput(X, 1, n);
+			checkNotAliased(X);
 			for (int j = 0; j < n; ++j) {
-				double min = A[0][j];
+				int col = j * m;
+				double min = A[col];
 				for (int i = 0; i < m; ++i) {
-					if (min > A[i][j]) {
-						min = A[i][j];
+					if (min > A[col + i]) {
+						min = A[col + i];
 					}
 				}
-				X.set(0, j, min);
+				X.A[j] = min;
 			}
 			return X;
 		} else if (dim == 2) {
 			// col dimension
-			Matrix X = new Matrix(m, 1);
-			for (int i = 0; i < m; ++i) {
-				double min = A[i][0];
-				for (int j = 0; j < n; ++j) {
-					if (min > A[i][j]) {
-						min = A[i][j];
+			checkOutput(X, m, 1);
+			checkNotAliased(X);
+			double[] mins = X.A;
+			System.arraycopy(A, 0, mins, 0, m);
+			for (int j = 1; j < n; ++j) {
+				int col = j * m;
+				for (int i = 0; i < m; ++i) {
+					if (mins[i] > A[col + i]) {
+						mins[i] = A[col + i];
 					}
 				}
-				X.set(i, 0, min);
 			}
 			return X;
 		} else {
@@ -1386,12 +1907,10 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	 */
 	public double min() {
 
-		double min = A[0][0];
-		for (int i = 0; i < m; ++i) {
-			for (int j = 0; j < n; ++j) {
-				if (min > A[i][j]) {
-					min = A[i][j];
-				}
+		double min = A[0];
+		for (int k = 1; k < A.length; ++k) {
+			if (min > A[k]) {
+				min = A[k];
 			}
 		}
 		return min;
@@ -1407,28 +1926,57 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	 */
 
 	public Matrix mean(int dim) throws Exception {
+		if (dim == 1) {
+			return mean(dim, new Matrix(1, n));
+		} else if (dim == 2) {
+			return mean(dim, new Matrix(m, 1));
+		} else {
+			throw new IllegalArgumentException("row and col should be the same");
+		}
+	}
+
+	/**
+	 * Return the mean value of specific dimension into an existing matrix.
+	 * 
+	 * @param dim
+	 *            dimension
+	 * @param X
+	 *            output matrix, 1-by-n for dim=1, m-by-1 for dim=2, not A itself.
+	 * @return X
+	 * @exception IllegalArgumentException
+	 *                Output matrix dimensions must agree.
+	 */
+
+	public Matrix mean(int dim, Matrix X) throws Exception {
 
 		// MatLab mean simplified funtion
 		if (dim == 1) {
 			// row dimension
-			Matrix X = new Matrix(1, n);
+			checkOutput(X, 1, n);
+			checkNotAliased(X);
 			for (int j = 0; j < n; ++j) {
+				int col = j * m;
 				double means = 0;
 				for (int i = 0; i < m; ++i) {
-					means += A[i][j];
+					means += A[col + i];
 				}
-				X.set(0, j, means / (float) m);
+				X.A[j] = means / (float) m;
 			}
 			return X;
 		} else if (dim == 2) {
 			// col dimension
-			Matrix X = new Matrix(m, 1);
-			for (int i = 0; i < m; ++i) {
-				double means = 0;
-				for (int j = 0; j < n; ++j) {
-					means += A[i][j];
+			checkOutput(X, m, 1);
+			checkNotAliased(X);
+			Arrays.fill(X.A, 0.0);
+			double[] means = X.A;
+			for (int j = 0; j < n; ++j) {
+				int col = j * m;
+				for (int i = 0; i < m; ++i) {
+					means[i] += A[col + i];
 				}
-				X.set(i, 0, means / (float) n);
+			}
+			for (int i = 0; i < m; ++i) {
+				means[i] = means[i] / (float) n;
 			}
 			return X;
 		} else {
@@ -1445,10 +1993,8 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	public double mean() throws Exception {
 
 		double mean = 0.;
-		for (int i = 0; i < m; ++i) {
-			for (int j = 0; j < n; ++j) {
-				mean += A[i][j]/(double)m/(double)n;
-			}
+		for (int k = 0; k < A.length; ++k) {
+			mean += A[k]/(double)m/(double)n;
 		}
 		return mean;
 	}
@@ -1475,9 +2021,11 @@ public class Matrix implements Cloneable, java.io.Serializable {
 		int nrow = m * r1;
 		int ncol = n * r2;
 		Matrix X = new Matrix(nrow, ncol);
-		for (int i = 0; i < nrow; ++i) {
-			for (int j = 0; j < ncol; ++j) {
-				X.set(i, j, A[i % m][j % n]);
+		// Every column of X is column j % n of A stacked r1 times.
+		for (int j = 0; j < ncol; ++j) {
+			int src = (j % n) * m;
+			for (int r = 0; r < r1; ++r) {
+				System.arraycopy(A, src, X.A, j * nrow + r * m, m);
 			}
 		}
 		return X;
@@ -1522,37 +2070,11 @@ public class Matrix implements Cloneable, java.io.Serializable {
 			throw new IllegalArgumentException(
 					"nrow and ncol should be larger than 0");
 		}
-		int tprow = 0;
-		int tpcol = 0;
-		if (nrow * ncol >= m * n) {
-			// larger
-			Matrix X = new Matrix(nrow, ncol, fit);
-			double[][] array = X.getArray();
-			for (int j = 0; j < n; ++j) {
-				for (int i = 0; i < m; ++i, ++tprow) {
-					if (tprow == nrow) {
-						++tpcol;
-						tprow = 0;
-					}
-					array[tprow][tpcol] = A[i][j];
-				}
-			}
-			return X;
-		} else {
-			// smaller
-			Matrix X = new Matrix(nrow, ncol, fit);
-			double[][] array = X.getArray();
-			for (int j = 0; j < ncol; ++j) {
-				for (int i = 0; i < nrow; ++i, ++tprow) {
-					if (tprow == m) {
-						++tpcol;
-						tprow = 0;
-					}
-					array[i][j] = A[tprow][tpcol];
-				}
-			}
-			return X;
-		}
+		// Both matrices are packed by columns, so reshaping keeps the linear
+		// order and only copies the leading elements.
+		Matrix X = new Matrix(nrow, ncol, fit);
+		System.arraycopy(A, 0, X.A, 0, Math.min(nrow * ncol, m * n));
+		return X;
 	}
 
 	/**
@@ -1631,9 +2153,9 @@ public class Matrix implements Cloneable, java.io.Serializable {
 			for (int j = i + 1; j < m; ++j, ++tpIndex) {
 				double dist = 0.0;
 				for (int k = 0; k < n; ++k) {
-					dist = Maths.hypot(dist, (A[i][k] - A[j][k]));
+					dist = Maths.hypot(dist, (A[i + k * m] - A[j + k * m]));
 				}
-				X.set(tpIndex, 0, dist);
+				X.A[tpIndex] = dist;
 			}
 		}
 		return X;
@@ -1647,8 +2169,9 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	public Matrix reverse() {
 
 		Matrix X = new Matrix(m, n);
-		for (int index = 0; index < this.elementSize(); ++index) {
-			X.set(this.elementSize() - index - 1, this.get(index));
+		int size = A.length;
+		for (int index = 0; index < size; ++index) {
+			X.A[size - index - 1] = A[index];
 		}
 		return X;
 	}
@@ -1660,11 +2183,12 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	 */
 	public void reverseEqual() {
 
-		for (int index = 0; index < this.elementSize() / 2; ++index) {
-			double value = this.get(index);
-			int rindex = this.elementSize() - index - 1;
-			this.set(index, this.get(rindex));
-			this.set(rindex, value);
+		int size = A.length;
+		for (int index = 0; index < size / 2; ++index) {
+			double value = A[index];
+			int rindex = size - index - 1;
+			A[index] = A[rindex];
+			A[rindex] = value;
 		}
 	}
 
@@ -1690,44 +2214,100 @@ public class Matrix implements Cloneable, java.io.Serializable {
 		++tpVal;
 		int tpIndex = 0;
 		Matrix X = new Matrix(tpVal, tpVal, 0.0);
-		if (m == 1) {
-			for (int i = 0; i < tpVal; ++i) {
-				for (int j = i + 1; j < tpVal; ++j, ++tpIndex) {
-					X.set(i, j, A[0][tpIndex]);
-					X.set(j, i, A[0][tpIndex]);
-				}
-			}
-		} else {
-			for (int i = 0; i < tpVal; ++i) {
-				for (int j = i + 1; j < tpVal; ++j, ++tpIndex) {
-					X.set(i, j, A[tpIndex][0]);
-					X.set(j, i, A[tpIndex][0]);
-				}
+		// Row and column vectors share the same packed layout.
+		double[] S = X.A;
+		for (int i = 0; i < tpVal; ++i) {
+			for (int j = i + 1; j < tpVal; ++j, ++tpIndex) {
+				S[i + j * tpVal] = A[tpIndex];
+				S[j + i * tpVal] = A[tpIndex];
 			}
 		}
 		return X;
 	}
 
 	/**
-	 * Get one row.
+	 * Get one row, as a copy. Use rowView for a row that shares storage.
 	 * 
 	 * @author Steven Chang
-	 * @throws Exception
+	 * @exception ArrayIndexOutOfBoundsException
+	 *                Submatrix indices
 	 */
-	public Matrix getRow(int index) throws Exception {
+	public Matrix getRow(int index) {
 		return this.getMatrix(index, index, 0, n-1);
 	}
 
 	/**
-	 * Get one col.
+	 * Get one col, as a copy. Use columnView for a column that shares
+	 * storage.
 	 * 
 	 * @author Steven Chang
-	 * @throws Exception
+	 * @exception ArrayIndexOutOfBoundsException
+	 *                Submatrix indices
 	 */
-	public Matrix getCol(int index) throws Exception {
+	public Matrix getCol(int index) {
 		return this.getMatrix(0, m-1, index, index);
 	}
 
+	/**
+	 * View of the whole matrix, sharing its storage.
+	 * 
+	 * @return m-by-n MatrixView
+	 * @see MatrixView
+	 */
+
+	public MatrixView view() {
+		return new MatrixView(A, 0, 1, m, m, n);
+	}
+
+	/**
+	 * View of a submatrix, sharing storage with this matrix. Unlike
+	 * getMatrix nothing is copied, and writes through the view change A.
+	 * 
+	 * @param i0
+	 *            Initial row index
+	 * @param i1
+	 *            Final row index
+	 * @param j0
+	 *            Initial column index
+	 * @param j1
+	 *            Final column index
+	 * @return view of A(i0:i1,j0:j1)
+	 * @exception ArrayIndexOutOfBoundsException
+	 *                Submatrix indices
+	 */
+
+	public MatrixView view(int i0, int i1, int j0, int j1) {
+		return view().view(i0, i1, j0, j1);
+	}
+
+	/**
+	 * View of one row, sharing storage with this matrix.
+	 * 
+	 * @param i
+	 *            Row index.
+	 * @return 1-by-n view of A(i,:), with a stride of m
+	 * @exception ArrayIndexOutOfBoundsException
+	 *                Submatrix indices
+	 */
+
+	public MatrixView rowView(int i) {
+		return view().row(i);
+	}
+
+	/**
+	 * View of one column, sharing storage with this matrix.
+	 * 
+	 * @param j
+	 *            Column index.
+	 * @return m-by-1 view of A(:,j)
+	 * @exception ArrayIndexOutOfBoundsException
+	 *                Submatrix indices
+	 */
+
+	public MatrixView columnView(int j) {
+		return view().column(j);
+	}
+
 	/**
 	 * Return a 1 x n matrix containing the number of indices of element
 	 * matching the value.
@@ -1740,14 +2320,12 @@ public class Matrix implements Cloneable, java.io.Serializable {
 		int count = this.find_number(value);
 		// Assign the index
 		Matrix X = new Matrix(1, count);
-		double[][] Xarr = X.getArray();
+		double[] Xarr = X.A;
 		int tpCount = 0;
-		for (int j = 0; j < n; ++j) {
-			for (int i = 0; i < m; ++i) {
-				if (A[i][j] == value) {
-					Xarr[0][tpCount] = i + j * m;
-					++tpCount;
-				}
+		for (int k = 0; k < A.length; ++k) {
+			if (A[k] == value) {
+				Xarr[tpCount] = k;
+				++tpCount;
 			}
 		}
 		return X;
@@ -1760,9 +2338,8 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	 * @throws Exception
 	 */
 	public int find_first(double value) throws Exception {
-		int count = this.elementSize();
-		for (int i = 0; i < count; ++i) {
-			if (this.get(i) == value) {
+		for (int i = 0; i < A.length; ++i) {
+			if (A[i] == value) {
 				return i;
 			}
 		}
@@ -1786,7 +2363,7 @@ public class Matrix implements Cloneable, java.io.Serializable {
 		for (int i = 0; i < m; ++i) {
 			int j = 0;
 			for (j = 0; j < n; ++j) {
-				if (A[i][j] != row.get(j))
+				if (A[i + j * m] != row.A[j])
 					break;
 			}
 			if (j == n) {
@@ -1813,8 +2390,9 @@ public class Matrix implements Cloneable, java.io.Serializable {
 		}
 		for (int j=0; j<n; ++j) {
 			int i=0; 
+			int offset = j * m;
 			for (; i<m; ++i) {
-				if (A[i][j]!=col.get(i))
+				if (A[offset + i]!=col.A[i])
 					break;
 			}
 			if (i==m) {
@@ -1835,12 +2413,10 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	public boolean equals(Matrix mat) throws Exception {
 
 		checkMatrixDimensions(mat);
-		double[][] B = mat.getArray();
-		for (int i = 0; i < m; ++i) {
-			for (int j = 0; j < n; ++j) {
-				if (A[i][j] - B[i][j] < 0.e-7) {
-					return false;
-				}
+		double[] B = mat.A;
+		for (int k = 0; k < A.length; ++k) {
+			if (A[k] - B[k] < 0.e-7) {
+				return false;
 			}
 		}
 		return true;
@@ -1856,11 +2432,9 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	public Matrix equals(double value) throws Exception {
 
 		Matrix X = new Matrix(m, n, 0.0);
-		for (int i = 0; i < m; ++i) {
-			for (int j = 0; j < n; ++j) {
-				if (A[i][j] == value) {
-					X.set(i, j, 1.0);
-				}
+		for (int k = 0; k < A.length; ++k) {
+			if (A[k] == value) {
+				X.A[k] = 1.0;
 			}
 		}
 		return X;
@@ -1877,11 +2451,9 @@ public class Matrix implements Cloneable, java.io.Serializable {
 			throws Exception {
 
 		Matrix X = new Matrix(m, n, 0.0);
-		for (int i = 0; i < m; ++i) {
-			for (int j = 0; j < n; ++j) {
-				if (A[i][j] == value) {
-					X.set(i, j, substitute);
-				}
+		for (int k = 0; k < A.length; ++k) {
+			if (A[k] == value) {
+				X.A[k] = substitute;
 			}
 		}
 		return X;
@@ -1896,11 +2468,9 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	public int find_number(double value) throws Exception {
 
 		int count = 0;
-		for (int i = 0; i < m; ++i) {
-			for (int j = 0; j < n; ++j) {
-				if (A[i][j] == value) {
-					++count;
-				}
+		for (int k = 0; k < A.length; ++k) {
+			if (A[k] == value) {
+				++count;
 			}
 		}
 		return count;
@@ -1916,9 +2486,7 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	 */
 
 	public double get(int index) {
-		int row = index % m;
-		int col = index / m;
-		return A[row][col];
+		return A[index];
 	}
 
 	/**
@@ -1932,9 +2500,7 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	 */
 
 	public void set(int index, double val) {
-		int row = index % m;
-		int col = index / m;
-		A[row][col] = val;
+		A[index] = val;
 	}
 
 	/**
@@ -1946,9 +2512,8 @@ public class Matrix implements Cloneable, java.io.Serializable {
 
 	public Matrix sort() throws Exception {
 
-		double[] array = this.getColumnPackedCopy();
-		quicksort(0, array.length-1, array);
-		Matrix X = new Matrix(array, m);
+		Matrix X = this.copy();
+		quicksort(0, X.A.length-1, X.A);
 		return X;
 	}
 
@@ -1963,20 +2528,27 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	public Matrix sort(int dim) {
 
 		if (dim == 1) {
-			Matrix X = Matrix.constructWithCopy(A);
-			double[][] array = X.getArray();
+			Matrix X = this.copy();
+			double[] array = X.A;
+			double[] row = new double[n];
 			// For each row, perform quick sort
 			for (int i = 0; i < m; ++i) {
-				quicksort(0, n - 1, array[i]);
+				for (int j = 0; j < n; ++j) {
+					row[j] = array[i + j * m];
+				}
+				quicksort(0, n - 1, row);
+				for (int j = 0; j < n; ++j) {
+					array[i + j * m] = row[j];
+				}
 			}
 			return X;
 		} else if (dim == 2) {
 			// For each column, perform quick sort
-			double[] array = this.getColumnPackedCopy();
+			Matrix X = this.copy();
+			double[] array = X.A;
 			for(int j=0; j<n; ++j) {
 				quicksort(j*m, j*m+m-1, array);
 			}
-			Matrix X = new Matrix(array, m);
 			return X;
 		} else {
 			throw new IllegalArgumentException("dim must be 1 or 2");
@@ -1998,11 +2570,7 @@ public class Matrix implements Cloneable, java.io.Serializable {
 
 		if (iend<=istart) {throw new IllegalArgumentException();}
 		Matrix X = new Matrix((iend - istart)+1, 1);
-		double[][] array = X.getArray();
-		int index = 0;
-		for (int i = istart; i < iend+1; ++i, ++index) {
-			array[index][0] = this.get(i);
-		}
+		System.arraycopy(A, istart, X.A, 0, X.m);
 		return X;
 	}
 
@@ -2016,12 +2584,10 @@ public class Matrix implements Cloneable, java.io.Serializable {
 
 	public Matrix getMatrix(Matrix mat) throws Exception {
 
-		Matrix X = Matrix.constructWithCopy(mat.getArray());
-		double[][] array = X.getArray();
-		for (int i = 0; i < mat.getRowDimension(); ++i) {
-			for (int j = 0; j < mat.getColumnDimension(); ++j) {
-				array[i][j] = this.get((int)mat.get(i, j));
-			}
+		Matrix X = new Matrix(mat.m, mat.n);
+		double[] array = X.A;
+		for (int k = 0; k < array.length; ++k) {
+			array[k] = A[(int)mat.A[k]];
 		}
 		return X;
 	}
@@ -2036,11 +2602,12 @@ public class Matrix implements Cloneable, java.io.Serializable {
 
 	public Matrix getRows(Matrix mat) throws Exception {
 		
-		Matrix X = new Matrix(mat.elementSize(), n);
-		double[][] array = X.getArray();
-		for (int k=0; k<mat.elementSize(); ++k) {
-			for(int j=0; j<n; ++j) {
-				array[k][j] = A[(int)mat.get(k)][j];
+		int rows = mat.elementSize();
+		Matrix X = new Matrix(rows, n);
+		double[] array = X.A;
+		for(int j=0; j<n; ++j) {
+			for (int k=0; k<rows; ++k) {
+				array[k + j * rows] = A[(int)mat.A[k] + j * m];
 			}
 		}
 		return X;
@@ -2057,11 +2624,8 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	public Matrix getCols(Matrix mat) throws Exception {
 
 		Matrix X = new Matrix(m, mat.elementSize());
-		double[][] array = X.getArray();
 		for (int k=0; k<mat.elementSize(); ++k) {
-			for(int i=0; i<m; ++i) {
-				array[i][k] = A[i][(int)mat.get(k)];
-			}
+			System.arraycopy(A, (int)mat.A[k] * m, X.A, k * m, m);
 		}
 		return X;
 	}
@@ -2073,16 +2637,23 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	 */
 
 	public Matrix abs() throws Exception {
+		return abs(new Matrix(m, n));
+	}
 
-		double[][] B = new double[m][n];
-		for (int i = 0; i < m; ++i) {
-			for (int j = 0; j < m; ++j) {
-				B[i][j] = A[i][j];
-				if (B[i][j] < 0)
-					B[i][j] *= -1;
-			}
-		}
-		return new Matrix(B);
+	/**
+	 * Perform abs() method for all elements into an existing matrix.
+	 * 
+	 * @param X
+	 *            output matrix, the same size as A. May be A.
+	 * @return X
+	 * @exception IllegalArgumentException
+	 *                Output matrix dimensions must agree.
+	 */
+
+	public Matrix abs(Matrix X) throws Exception {
+		checkOutput(X, m, n);
+		ElementOps.abs(A.length, A, 0, X.A, 0);
+		return X;
 	}
 
 	/**
@@ -2094,10 +2665,8 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	public double sum() throws Exception {
 
 		double val = 0.0;
-		for (int i = 0; i < m; ++i) {
-			for (int j = 0; j < n; ++j) {
-				val += A[i][j];
-			}
+		for (int k = 0; k < A.length; ++k) {
+			val += A[k];
 		}
 		return val;
 	}
@@ -2112,24 +2681,52 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	 */
 
 	public Matrix sum(int dim) throws Exception {
+		if (dim == 1) {
+			return sum(dim, new Matrix(m, 1));
+		} else if (dim == 2) {
+			return sum(dim, new Matrix(1, n));
+		} else {
+			throw new IllegalArgumentException("dim must be 1 or 2");
+		}
+	}
+
+	/**
+	 * Get the sum of assigned dimensions into an existing matrix.
+	 * 
+	 * @param dim
+	 *            dimension
+	 * @param X
+	 *            output matrix, m-by-1 for dim=1, 1-by-n for dim=2, not A itself.
+	 * @return X
+	 * @exception IllegalArgumentException
+	 *                Output matrix dimensions must agree.
+	 */
+
+	public Matrix sum(int dim, Matrix X) throws Exception {
 
 		if (dim == 1) {
 			// row
-			Matrix X = new Matrix(m, 1);
-			double[][] arr = X.getArray();
-			for (int i = 0; i < m; ++i) {
-				for (int j = 0; j < n; ++j) {
-					arr[i][0] += A[i][j];
+			checkOutput(X, m, 1);
+			checkNotAliased(X);
+			Arrays.fill(X.A, 0.0);
+			double[] arr = X.A;
+			for (int j = 0; j < n; ++j) {
+				int col = j * m;
+				for (int i = 0; i < m; ++i) {
+					arr[i] += A[col + i];
 				}
 			}
 			return X;
 		} else if (dim == 2) {
 			// col
-			Matrix X = new Matrix(1, n);
-			double[][] arr = X.getArray();
-			for (int i = 0; i < m; ++i) {
-				for (int j = 0; j < n; ++j) {
-					arr[0][j] += A[i][j];
+			checkOutput(X, 1, n);
+			checkNotAliased(X);
+			Arrays.fill(X.A, 0.0);
+			double[] arr = X.A;
+			for (int j = 0; j < n; ++j) {
+				int col = j * m;
+				for (int i = 0; i < m; ++i) {
+					arr[j] += A[col + i];
 				}
 			}
 			return X;
@@ -2154,11 +2751,9 @@ public class Matrix implements Cloneable, java.io.Serializable {
 
 		double stride = (end - start) / (this.elementSize() - 1);
 		double val = start;
-		for (int j = 0; j < n; ++j) {
-			for (int i = 0; i < m; ++i) {
-				A[i][j] = val;
-				val += stride;
-			}
+		for (int k = 0; k < A.length; ++k) {
+			A[k] = val;
+			val += stride;
 		}
 	}
 
@@ -2177,17 +2772,14 @@ public class Matrix implements Cloneable, java.io.Serializable {
 		double[] arr = new double[m * n];
 		int numOfDiff = 0;
 		for (int i = 0; i < m * n; ++i) {
-			if (this.get(i) != mat.get(i)) {
+			if (A[i] != mat.A[i]) {
 				arr[numOfDiff] = i;
 				++numOfDiff;
 			}
 		}
 		// Copy and construct
 		Matrix X = new Matrix(numOfDiff, 1);
-		double[][] array = X.getArray();
-		for (int i = 0; i < numOfDiff; ++i) {
-			array[i][0] = arr[i];
-		}
+		System.arraycopy(arr, 0, X.A, 0, numOfDiff);
 		return X;
 	}
 
@@ -2209,21 +2801,21 @@ public class Matrix implements Cloneable, java.io.Serializable {
 
 		checkMatrixDimensions(mat);
 		Matrix X = this.copy();
-		double[][] arr = X.getArray();
+		double[] arr = X.A;
 		if (dim == 1) {
 			// row dimension
 			for (int i = 0; i < m; ++i) {
 				for (int j = 0; j < n; ++j) {
 					int k = 0;
 					for (; k < n; ++k) {
-						if (A[i][j] == mat.get(i, k))
+						if (A[i + j * m] == mat.A[i + k * m])
 							break;
 					}
 					if (k == n) {
 						throw new IllegalArgumentException(
 								"Data set of each row must be the same");
 					}
-					arr[i][k] = j;
+					arr[i + k * m] = j;
 				}
 			}
 		} else if (dim == 2) {
@@ -2232,14 +2824,14 @@ public class Matrix implements Cloneable, java.io.Serializable {
 				for (int i = 0; i < m; ++i) {
 					int k = 0;
 					for (; k < m; ++k) {
-						if (A[i][j] == mat.get(k, j))
+						if (A[i + j * m] == mat.A[k + j * m])
 							break;
 					}
 					if (k == n) {
 						throw new IllegalArgumentException(
 								"Data set of each row must be the same");
 					}
-					arr[k][j] = i;
+					arr[k + j * m] = i;
 				}
 			}
 		} else {
@@ -2275,6 +2867,99 @@ public class Matrix implements Cloneable, java.io.Serializable {
 	    }
 	}
 
+	/** Copy a two-dimensional array into the column packed storage. **/
+
+	private void pack(double[][] B) {
+		for (int i = 0; i < m; i++) {
+			double[] Browi = B[i];
+			for (int j = 0; j < n; j++) {
+				A[i + j * m] = Browi[j];
+			}
+		}
+	}
+
+	/** Check that rows i0:i1 are inside the matrix. **/
+
+	private void checkRowIndices(int i0, int i1) {
+		if (i1 >= i0 && (i0 < 0 || i1 >= m)) {
+			throw new ArrayIndexOutOfBoundsException("Submatrix indices");
+		}
+	}
+
+	/** Check that every row index in r is inside the matrix. **/
+
+	private void checkRowIndices(int[] r) {
+		for (int i = 0; i < r.length; i++) {
+			if (r[i] < 0 || r[i] >= m) {
+				throw new ArrayIndexOutOfBoundsException("Submatrix indices");
+			}
+		}
+	}
+
+	/** Check that columns j0:j1 are inside the matrix. **/
+
+	private void checkColumnIndices(int j0, int j1) {
+		if (j1 >= j0 && (j0 < 0 || j1 >= n)) {
+			throw new ArrayIndexOutOfBoundsException("Submatrix indices");
+		}
+	}
+
+	/** Check that every column index in c is inside the matrix. **/
+
+	private void checkColumnIndices(int[] c) {
+		for (int j = 0; j < c.length; j++) {
+			if (c[j] < 0 || c[j] >= n) {
+				throw new ArrayIndexOutOfBoundsException("Submatrix indices");
+			}
+		}
+	}
+
+	/**
+	 * Number of elements of an m-by-n matrix, which must fit in an array.
+	 * Without this check m * n silently wraps around for large matrices.
+	 */
+
+	private static int elementCount(int m, int n) {
+		long count = (long) m * n;
+		if (count > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Matrix has " + count
+					+ " elements, more than an array can hold;"
+					+ " use OffHeapMatrix.");
+		}
+		return (int) count;
+	}
+
+	/** Check that an output matrix is rows-by-cols. **/
+
+	private static void checkOutput(Matrix X, int rows, int cols) {
+		if (X.m != rows || X.n != cols) {
+			throw new IllegalArgumentException("Output matrix must be "
+					+ rows + "-by-" + cols + ".");
+		}
+	}
+
+	/** Check the lengths of a matrix-vector product's operand and result. **/
+
+	private static void checkVectors(double[] x, int xlen, double[] y,
+			int ylen) {
+		if (x.length != xlen || y.length != ylen) {
+			throw new IllegalArgumentException("Vector lengths must agree.");
+		}
+		if (x == y) {
+			throw new IllegalArgumentException(
+					"Output vector must not be the operand.");
+		}
+	}
+
+	/** Check that an output matrix does not share storage with this one. **/
+
+	private void checkNotAliased(Matrix X) {
+		if (X.A == A) {
+			throw new IllegalArgumentException(
+					"Output matrix must not share storage with an operand.");
+		}
+	}
+
 	/** Check if size(A) == size(B) **/
 
 	private void checkMatrixDimensions(Matrix B) {
@@ -2283,5 +2968,31 @@ public class Matrix implements Cloneable, java.io.Serializable {
 		}
 	}
 
-	private static final long serialVersionUID = 1;
+	/**
+	 * Write the dimensions, then the elements in bulk.
+	 * 
+	 * @serialData the row and column dimensions, then the length of the
+	 *             element array and its elements as little-endian doubles,
+	 *             packed by columns.
+	 */
+
+	private void writeObject(java.io.ObjectOutputStream out)
+			throws java.io.IOException {
+		out.defaultWriteObject();
+		Serial.write(out, A);
+	}
+
+	/** Read a matrix written by writeObject. **/
+
+	private void readObject(java.io.ObjectInputStream in)
+			throws java.io.IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		A = Serial.readDoubles(in);
+		if (m < 0 || n < 0 || A == null || A.length != (long) m * n) {
+			throw new java.io.InvalidObjectException(
+					"Matrix elements do not match its dimensions.");
+		}
+	}
+
+	private static final long serialVersionUID = 3;
 }
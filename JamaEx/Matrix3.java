@@ -1,6 +1,7 @@
 package JamaEx;
 
 import JamaEx.util.Maths;
+import JamaEx.util.Serial;
 
 /**
  * Jama = Java Matrix class.
@@ -25,11 +26,10 @@ public class Matrix3 implements Cloneable, java.io.Serializable {
 	 */
 
 	/**
-	 * Array for internal storage of elements.
-	 * 
-	 * @serial internal array storage.
+	 * Array for internal storage of elements. Serialized in bulk by
+	 * writeObject.
 	 */
-	private double[][][] A;
+	private transient double[][][] A;
 
 	/**
 	 * Row, column and the third dimension.
@@ -101,6 +101,7 @@ public class Matrix3 implements Cloneable, java.io.Serializable {
 	public Matrix3(double[][][] A) {
 		m = A.length;
 		n = A[0].length;
+		d3 = n == 0 ? 0 : A[0][0].length;
 		for (int i = 0; i < m; i++) {
 			if (A[i].length != n) {
 				throw new IllegalArgumentException(
@@ -132,6 +133,7 @@ public class Matrix3 implements Cloneable, java.io.Serializable {
 	public Matrix3(double[][][] A, int m, int n, int d3) {
 		this.A = A;
 		this.m = m;
+		this.n = n;
 		this.d3 = d3;
 	}
 
@@ -537,5 +539,42 @@ public class Matrix3 implements Cloneable, java.io.Serializable {
 		}
 	}
 
-	private static final long serialVersionUID = 1;
+	/**
+	 * Write the dimensions, then the elements in bulk.
+	 * 
+	 * @serialData the three dimensions, then the element array as written by
+	 *             JamaEx.util.Serial.
+	 */
+
+	private void writeObject(java.io.ObjectOutputStream out)
+			throws java.io.IOException {
+		out.defaultWriteObject();
+		Serial.write(out, A);
+	}
+
+	/** Read a matrix written by writeObject. **/
+
+	private void readObject(java.io.ObjectInputStream in)
+			throws java.io.IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		A = Serial.readDoubles3(in);
+		if (m < 0 || n < 0 || d3 < 0 || A == null || A.length != m) {
+			throw new java.io.InvalidObjectException(
+					"Matrix elements do not match its dimensions.");
+		}
+		for (int i = 0; i < m; ++i) {
+			if (A[i] == null || A[i].length != n) {
+				throw new java.io.InvalidObjectException(
+						"Matrix elements do not match its dimensions.");
+			}
+			for (int j = 0; j < n; ++j) {
+				if (A[i][j] == null || A[i][j].length != d3) {
+					throw new java.io.InvalidObjectException(
+							"Matrix elements do not match its dimensions.");
+				}
+			}
+		}
+	}
+
+	private static final long serialVersionUID = 2;
 }
\ No newline at end of file
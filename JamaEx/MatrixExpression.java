@@ -0,0 +1,394 @@
+package JamaEx;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+import JamaEx.util.ElementOps;
+
+/**
+ * Lazy element-by-element matrix expression.
+ * <P>
+ * An expression records element-by-element operations on matrices of the same
+ * size without computing anything. Calling eval() runs the whole expression in
+ * one fused pass: the elements are processed in small chunks, each operator
+ * works on a chunk that stays in cache, and only the result is written to
+ * memory. A chain of k operators therefore reads each operand once and writes
+ * one matrix, instead of making k passes and k temporaries.
+ * <P>
+ * Expressions are immutable and may share subexpressions, which are computed
+ * once per chunk. The operand matrices are read when eval() is called, not
+ * when the expression is built.
+ * <P>
+ *
+ * <PRE>
+ * Matrix X = A.lazy().plus(B).times(0.5).arrayTimes(C).minus(D).eval();
+ * </PRE>
+ */
+
+public class MatrixExpression {
+
+	/*
+	 * ------------------------ Class variables ------------------------
+	 */
+
+	/** Operators. **/
+	private static final int LEAF = 0, PLUS = 1, MINUS = 2, TIMES = 3,
+			DIVIDE = 4, SCALE = 5, NEGATE = 6, ABS = 7;
+
+	/**
+	 * Number of elements evaluated per chunk. A few chunk buffers of this size
+	 * fit in L1 together.
+	 */
+	private static final int CHUNK = 512;
+
+	/** Operator of this node. **/
+	private final int op;
+
+	/** Operands of this node, null for a leaf. **/
+	private final MatrixExpression left, right;
+
+	/** Matrix of a leaf node. **/
+	private final Matrix matrix;
+
+	/** Scalar of a SCALE node. **/
+	private final double scalar;
+
+	/** Row and column dimensions. **/
+	private final int m, n;
+
+	/*
+	 * ------------------------ Constructors ------------------------
+	 */
+
+	/**
+	 * Construct an expression which evaluates to a matrix.
+	 *
+	 * @param A
+	 *            operand matrix, read at evaluation time.
+	 */
+
+	public MatrixExpression(Matrix A) {
+		this(LEAF, null, null, A, 0.0, A.getRowDimension(), A
+				.getColumnDimension());
+	}
+
+	private MatrixExpression(int op, MatrixExpression left,
+			MatrixExpression right, Matrix matrix, double scalar, int m, int n) {
+		this.op = op;
+		this.left = left;
+		this.right = right;
+		this.matrix = matrix;
+		this.scalar = scalar;
+		this.m = m;
+		this.n = n;
+	}
+
+	/*
+	 * ------------------------ Public Methods ------------------------
+	 */
+
+	/**
+	 * Get row dimension.
+	 *
+	 * @return m, the number of rows.
+	 */
+
+	public int getRowDimension() {
+		return m;
+	}
+
+	/**
+	 * Get column dimension.
+	 *
+	 * @return n, the number of columns.
+	 */
+
+	public int getColumnDimension() {
+		return n;
+	}
+
+	/**
+	 * A + B
+	 *
+	 * @param B
+	 *            another expression
+	 * @return lazy A + B
+	 */
+
+	public MatrixExpression plus(MatrixExpression B) {
+		return binary(PLUS, this, B);
+	}
+
+	/**
+	 * A + B
+	 *
+	 * @param B
+	 *            another matrix
+	 * @return lazy A + B
+	 */
+
+	public MatrixExpression plus(Matrix B) {
+		return plus(new MatrixExpression(B));
+	}
+
+	/**
+	 * A - B
+	 *
+	 * @param B
+	 *            another expression
+	 * @return lazy A - B
+	 */
+
+	public MatrixExpression minus(MatrixExpression B) {
+		return binary(MINUS, this, B);
+	}
+
+	/**
+	 * A - B
+	 *
+	 * @param B
+	 *            another matrix
+	 * @return lazy A - B
+	 */
+
+	public MatrixExpression minus(Matrix B) {
+		return minus(new MatrixExpression(B));
+	}
+
+	/**
+	 * Element-by-element multiplication, A.*B
+	 *
+	 * @param B
+	 *            another expression
+	 * @return lazy A.*B
+	 */
+
+	public MatrixExpression arrayTimes(MatrixExpression B) {
+		return binary(TIMES, this, B);
+	}
+
+	/**
+	 * Element-by-element multiplication, A.*B
+	 *
+	 * @param B
+	 *            another matrix
+	 * @return lazy A.*B
+	 */
+
+	public MatrixExpression arrayTimes(Matrix B) {
+		return arrayTimes(new MatrixExpression(B));
+	}
+
+	/**
+	 * Element-by-element right division, A./B
+	 *
+	 * @param B
+	 *            another expression
+	 * @return lazy A./B
+	 */
+
+	public MatrixExpression arrayRightDivide(MatrixExpression B) {
+		return binary(DIVIDE, this, B);
+	}
+
+	/**
+	 * Element-by-element right division, A./B
+	 *
+	 * @param B
+	 *            another matrix
+	 * @return lazy A./B
+	 */
+
+	public MatrixExpression arrayRightDivide(Matrix B) {
+		return arrayRightDivide(new MatrixExpression(B));
+	}
+
+	/**
+	 * Element-by-element left division, A.\B
+	 *
+	 * @param B
+	 *            another expression
+	 * @return lazy A.\B
+	 */
+
+	public MatrixExpression arrayLeftDivide(MatrixExpression B) {
+		return binary(DIVIDE, B, this);
+	}
+
+	/**
+	 * Element-by-element left division, A.\B
+	 *
+	 * @param B
+	 *            another matrix
+	 * @return lazy A.\B
+	 */
+
+	public MatrixExpression arrayLeftDivide(Matrix B) {
+		return arrayLeftDivide(new MatrixExpression(B));
+	}
+
+	/**
+	 * Multiply by a scalar, s*A
+	 *
+	 * @param s
+	 *            scalar
+	 * @return lazy s*A
+	 */
+
+	public MatrixExpression times(double s) {
+		return new MatrixExpression(SCALE, this, null, null, s, m, n);
+	}
+
+	/**
+	 * Unary minus
+	 *
+	 * @return lazy -A
+	 */
+
+	public MatrixExpression uminus() {
+		return new MatrixExpression(NEGATE, this, null, null, 0.0, m, n);
+	}
+
+	/**
+	 * Absolute value of each element
+	 *
+	 * @return lazy abs(A)
+	 */
+
+	public MatrixExpression abs() {
+		return new MatrixExpression(ABS, this, null, null, 0.0, m, n);
+	}
+
+	/**
+	 * Evaluate the expression in a single pass.
+	 *
+	 * @return a new matrix holding the value of the expression
+	 */
+
+	public Matrix eval() {
+		return eval(new Matrix(m, n));
+	}
+
+	/**
+	 * Evaluate the expression in a single pass into an existing matrix. X may
+	 * be one of the operands: each chunk of X is written only after all
+	 * operands have been read there.
+	 *
+	 * @param X
+	 *            output matrix, the same size as the expression
+	 * @return X
+	 * @exception IllegalArgumentException
+	 *                Output matrix dimensions must agree.
+	 */
+
+	public Matrix eval(Matrix X) {
+		if (X.getRowDimension() != m || X.getColumnDimension() != n) {
+			throw new IllegalArgumentException("Output matrix must be " + m
+					+ "-by-" + n + ".");
+		}
+		// Order the distinct nodes so that operands come first, and give
+		// every inner node a chunk buffer.
+		ArrayList<MatrixExpression> nodes = new ArrayList<MatrixExpression>();
+		IdentityHashMap<MatrixExpression, Integer> slot = new IdentityHashMap<MatrixExpression, Integer>();
+		order(this, nodes, slot);
+		int count = nodes.size();
+		double[][] data = new double[count][];
+		int[] offset = new int[count];
+		int[] a = new int[count];
+		int[] b = new int[count];
+		for (int k = 0; k < count; k++) {
+			MatrixExpression e = nodes.get(k);
+			if (e.op == LEAF) {
+				data[k] = e.matrix.getColumnPackedArray();
+			} else {
+				data[k] = new double[Math.min(CHUNK, m * n)];
+				a[k] = slot.get(e.left);
+				b[k] = e.right == null ? -1 : slot.get(e.right);
+			}
+		}
+		double[] out = X.getColumnPackedArray();
+		int root = count - 1;
+		int size = m * n;
+		for (int start = 0; start < size; start += CHUNK) {
+			int len = Math.min(CHUNK, size - start);
+			for (int k = 0; k < count; k++) {
+				MatrixExpression e = nodes.get(k);
+				if (e.op == LEAF) {
+					offset[k] = start;
+					continue;
+				}
+				// The root writes straight into the output.
+				double[] c = k == root ? out : data[k];
+				int cOff = k == root ? start : 0;
+				int i = a[k], j = b[k];
+				switch (e.op) {
+				case PLUS:
+					ElementOps.plus(len, data[i], offset[i], data[j], offset[j],
+							c, cOff);
+					break;
+				case MINUS:
+					ElementOps.minus(len, data[i], offset[i], data[j],
+							offset[j], c, cOff);
+					break;
+				case TIMES:
+					ElementOps.times(len, data[i], offset[i], data[j],
+							offset[j], c, cOff);
+					break;
+				case DIVIDE:
+					ElementOps.divide(len, data[i], offset[i], data[j],
+							offset[j], c, cOff);
+					break;
+				case SCALE:
+					ElementOps.scale(len, e.scalar, data[i], offset[i], c, cOff);
+					break;
+				case NEGATE:
+					ElementOps.negate(len, data[i], offset[i], c, cOff);
+					break;
+				default:
+					ElementOps.abs(len, data[i], offset[i], c, cOff);
+					break;
+				}
+				offset[k] = 0;
+			}
+			if (nodes.get(root).op == LEAF) {
+				System.arraycopy(data[root], start, out, start, len);
+			}
+		}
+		return X;
+	}
+
+	/*
+	 * ------------------------ Private Methods ------------------------
+	 */
+
+	/** Build a binary node after checking that the operand sizes agree. **/
+
+	private static MatrixExpression binary(int op, MatrixExpression A,
+			MatrixExpression B) {
+		if (A.m != B.m || A.n != B.n) {
+			throw new IllegalArgumentException("Matrix dimensions must agree.");
+		}
+		return new MatrixExpression(op, A, B, null, 0.0, A.m, A.n);
+	}
+
+	/**
+	 * Append the distinct nodes of e to nodes in post order, recording the
+	 * position of each in slot.
+	 */
+
+	private static void order(MatrixExpression e,
+			ArrayList<MatrixExpression> nodes,
+			IdentityHashMap<MatrixExpression, Integer> slot) {
+		if (slot.containsKey(e)) {
+			return;
+		}
+		if (e.left != null) {
+			order(e.left, nodes, slot);
+		}
+		if (e.right != null) {
+			order(e.right, nodes, slot);
+		}
+		slot.put(e, nodes.size());
+		nodes.add(e);
+	}
+}
@@ -0,0 +1,261 @@
+package JamaEx;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary matrix files.
+ * <P>
+ * A matrix file is a 32 byte header followed by the elements as raw IEEE 754
+ * doubles, packed by columns. Everything is little-endian. The header is
+ * <P>
+ *
+ * <PRE>
+ *  offset  size  contents
+ *       0     4  magic, the bytes 'J' 'A' 'M' 'X'
+ *       4     4  format version, 1
+ *       8     4  layout, 0 for packed by columns
+ *      12     4  bytes per element, 8
+ *      16     8  number of rows
+ *      24     8  number of columns
+ * </PRE>
+ * <P>
+ * Because the elements start at a multiple of 8 and need no parsing, map()
+ * can use the file itself as the storage of an OffHeapMatrix. A read only
+ * mapping shares the operating system's page cache, so any number of
+ * processes may map the same file and only one copy is held in memory.
+ */
+
+public class MatrixFile {
+
+	/*
+	 * ------------------------ Class variables ------------------------
+	 */
+
+	/** 'J' 'A' 'M' 'X' read as a little-endian int. **/
+	private static final int MAGIC = 0x584D414A;
+
+	/** Format version, layout and element size written by this class. **/
+	private static final int VERSION = 1, COLUMN_MAJOR = 0, DOUBLE_BYTES = 8;
+
+	/** Length of the header, and offset of the first element. **/
+	public static final int HEADER = 32;
+
+	/** Size of the buffer used to write files. **/
+	private static final int BUFFER = 1 << 20;
+
+	/*
+	 * ------------------------ Public Methods ------------------------
+	 */
+
+	/**
+	 * Write a matrix to a file, replacing any existing file.
+	 *
+	 * @param A
+	 *            matrix
+	 * @param file
+	 *            path of the file
+	 * @exception IOException
+	 */
+
+	public static void write(Matrix A, Path file) throws IOException {
+		long m = A.getRowDimension(), n = A.getColumnDimension();
+		try (FileChannel ch = create(file)) {
+			ByteBuffer buf = header(m, n);
+			double[] a = A.getColumnPackedArray();
+			put(ch, buf, a, 0, a.length);
+			flush(ch, buf);
+		}
+	}
+
+	/**
+	 * Write an off-heap matrix to a file, replacing any existing file.
+	 *
+	 * @param A
+	 *            matrix
+	 * @param file
+	 *            path of the file
+	 * @exception IOException
+	 */
+
+	public static void write(OffHeapMatrix A, Path file) throws IOException {
+		long m = A.getRowDimension(), n = A.getColumnDimension();
+		try (FileChannel ch = create(file)) {
+			ByteBuffer buf = header(m, n);
+			double[] col = new double[(int) m];
+			for (long j = 0; j < n; j++) {
+				A.getColumn(j, col, 0);
+				put(ch, buf, col, 0, col.length);
+			}
+			flush(ch, buf);
+		}
+	}
+
+	/**
+	 * Read a matrix file onto the heap. The elements are copied once, in bulk,
+	 * from a mapping of the file.
+	 *
+	 * @param file
+	 *            path of the file
+	 * @return Matrix
+	 * @exception IOException
+	 *                Not a matrix file, or too large for a Matrix.
+	 */
+
+	public static Matrix read(Path file) throws IOException {
+		try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+			long[] dims = readHeader(ch);
+			long m = dims[0], n = dims[1];
+			if (m * n > Integer.MAX_VALUE) {
+				throw new IOException("Matrix has " + m * n
+						+ " elements, too many for a Matrix; use map().");
+			}
+			Matrix X = new Matrix((int) m, (int) n);
+			double[] x = X.getColumnPackedArray();
+			// Map at most 2^27 elements at a time.
+			int step = 1 << 27;
+			for (int k = 0; k < x.length; k += step) {
+				int len = Math.min(step, x.length - k);
+				ch.map(FileChannel.MapMode.READ_ONLY, HEADER + 8L * k, 8L * len)
+						.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer()
+						.get(x, k, len);
+			}
+			return X;
+		}
+	}
+
+	/**
+	 * Map a matrix file as the storage of an off-heap matrix, without
+	 * reading it. Pages are loaded by the operating system on first access.
+	 * The mapping stays valid after the file is closed, until the matrix is
+	 * closed.
+	 *
+	 * @param file
+	 *            path of the file
+	 * @param writable
+	 *            false for a read only, shareable mapping; true to write
+	 *            changes to elements through to the file
+	 * @return OffHeapMatrix on the file
+	 * @exception IOException
+	 *                Not a matrix file, or a column has more than 2^27
+	 *                elements, the limit of OffHeapMatrix.
+	 */
+
+	public static OffHeapMatrix map(Path file, boolean writable)
+			throws IOException {
+		FileChannel.MapMode mode = writable ? FileChannel.MapMode.READ_WRITE
+				: FileChannel.MapMode.READ_ONLY;
+		try (FileChannel ch = writable ? FileChannel.open(file,
+				StandardOpenOption.READ, StandardOpenOption.WRITE)
+				: FileChannel.open(file, StandardOpenOption.READ)) {
+			long[] dims = readHeader(ch);
+			long m = dims[0], n = dims[1];
+			if (OffHeapMatrix.chunkColumns(m) == 0) {
+				throw new IOException("A column of " + m
+						+ " rows does not fit in one chunk of 2^27 elements.");
+			}
+			long cols = Math.max(1, Math.min(n, OffHeapMatrix.chunkColumns(m)));
+			int count = (int) ((n + cols - 1) / cols);
+			ByteBuffer[] bytes = new ByteBuffer[count];
+			for (int c = 0; c < count; c++) {
+				long first = c * cols;
+				long size = 8 * m * Math.min(cols, n - first);
+				bytes[c] = ch.map(mode, HEADER + 8 * m * first, size).order(
+						ByteOrder.LITTLE_ENDIAN);
+			}
+			return new OffHeapMatrix(m, n, cols, bytes);
+		}
+	}
+
+	/*
+	 * ------------------------ Private Methods ------------------------
+	 */
+
+	/** Open a file for writing, truncating it. **/
+
+	private static FileChannel create(Path file) throws IOException {
+		return FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+	}
+
+	/** Start a write buffer with the header of an m-by-n matrix. **/
+
+	private static ByteBuffer header(long m, long n) {
+		ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER).order(
+				ByteOrder.LITTLE_ENDIAN);
+		buf.putInt(MAGIC).putInt(VERSION).putInt(COLUMN_MAJOR)
+				.putInt(DOUBLE_BYTES).putLong(m).putLong(n);
+		return buf;
+	}
+
+	/** Append len doubles to the write buffer, writing it out when full. **/
+
+	private static void put(FileChannel ch, ByteBuffer buf, double[] x,
+			int off, int len) throws IOException {
+		while (len > 0) {
+			int room = buf.remaining() / 8;
+			if (room == 0) {
+				flush(ch, buf);
+				continue;
+			}
+			int l = Math.min(room, len);
+			DoubleBuffer d = buf.asDoubleBuffer();
+			d.put(x, off, l);
+			buf.position(buf.position() + 8 * l);
+			off += l;
+			len -= l;
+		}
+	}
+
+	/** Write out and clear the write buffer. **/
+
+	private static void flush(FileChannel ch, ByteBuffer buf)
+			throws IOException {
+		buf.flip();
+		while (buf.hasRemaining()) {
+			ch.write(buf);
+		}
+		buf.clear();
+	}
+
+	/**
+	 * Read and check the header.
+	 *
+	 * @return the row and column dimensions
+	 */
+
+	private static long[] readHeader(FileChannel ch) throws IOException {
+		ByteBuffer h = ByteBuffer.allocate(HEADER).order(
+				ByteOrder.LITTLE_ENDIAN);
+		while (h.hasRemaining()) {
+			if (ch.read(h, h.position()) < 0) {
+				throw new IOException("Not a matrix file: too short.");
+			}
+		}
+		h.flip();
+		if (h.getInt() != MAGIC) {
+			throw new IOException("Not a matrix file.");
+		}
+		int version = h.getInt(), layout = h.getInt(), size = h.getInt();
+		if (version != VERSION || layout != COLUMN_MAJOR
+				|| size != DOUBLE_BYTES) {
+			throw new IOException("Unsupported matrix file: version "
+					+ version + ", layout " + layout + ", element size "
+					+ size + ".");
+		}
+		long m = h.getLong(), n = h.getLong();
+		if (m < 0 || n < 0 || (m > 0 && n > (Long.MAX_VALUE - HEADER) / 8 / m)) {
+			throw new IOException("Bad matrix dimensions " + m + "-by-" + n
+					+ ".");
+		}
+		if (ch.size() < HEADER + 8 * m * n) {
+			throw new IOException("Matrix file is truncated.");
+		}
+		return new long[] { m, n };
+	}
+}
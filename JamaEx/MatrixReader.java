@@ -0,0 +1,432 @@
+package JamaEx;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import JamaEx.util.Blas;
+import JamaEx.util.Decimal;
+
+/**
+ * Reads matrices from text, in the format written by Matrix.print or
+ * Matrix.write.
+ * <P>
+ * Elements are separated by whitespace or commas. All the elements of a row
+ * are on one line, and the matrix ends at the first blank line after a row,
+ * or at the end of the input. Leading blank lines are skipped. Each element
+ * may have any form accepted by Double.valueOf.
+ * <P>
+ * The text is scanned one character at a time in large buffers. Each row is
+ * appended to a growable array of doubles, and the numbers are converted by
+ * JamaEx.util.Decimal without creating strings. A file is split into pieces of
+ * CHUNK bytes at line ends, and the pieces are parsed in parallel on the
+ * common fork/join pool and then joined.
+ */
+
+public class MatrixReader {
+
+	/*
+	 * ------------------------ Class variables ------------------------
+	 */
+
+	/** Size of the read buffer. **/
+	private static final int BUFFER = 1 << 16;
+
+	/** Files are parsed in pieces of about this many bytes. **/
+	private static final long CHUNK = 1 << 23;
+
+	/*
+	 * ------------------------ Public Methods ------------------------
+	 */
+
+	/**
+	 * Read a matrix from a character stream. Reading stops at the blank line
+	 * that ends the matrix, so several matrices may be read in turn from one
+	 * stream. A stream that supports mark, such as a BufferedReader, is read
+	 * in large blocks and the characters after the blank line are given back
+	 * with reset; any other stream is read one character at a time.
+	 *
+	 * @param input
+	 *            the input stream.
+	 * @return Matrix
+	 * @exception IOException
+	 *                Empty input, or rows of different lengths.
+	 * @exception NumberFormatException
+	 *                An element is not a number.
+	 */
+
+	public static Matrix read(Reader input) throws IOException {
+		Rows rows = new Rows(true);
+		char[] c = new char[BUFFER];
+		byte[] b = new byte[BUFFER];
+		int len = 0;
+		boolean eof = false, mark = input.markSupported();
+		while (!eof && !rows.done) {
+			if (len == b.length) {
+				// A single token fills the buffer.
+				b = Arrays.copyOf(b, 2 * b.length);
+				c = new char[b.length];
+			}
+			int want = mark ? b.length - len : 1;
+			if (mark) {
+				input.mark(want);
+			}
+			int r = input.read(c, 0, want);
+			if (r < 0) {
+				eof = true;
+			} else {
+				for (int k = 0; k < r; k++) {
+					// Numbers are ASCII; anything else fails to parse.
+					b[len + k] = c[k] > 0xFF ? (byte) 0xFF : (byte) c[k];
+				}
+				len += r;
+			}
+			int used = rows.parse(b, 0, len, eof);
+			if (rows.done && mark && !eof) {
+				// Give back the characters read past the end of the matrix.
+				input.reset();
+				for (long k = Math.max(used - (len - r), 0); k > 0;) {
+					k -= input.skip(k);
+				}
+			}
+			System.arraycopy(b, used, b, 0, len - used);
+			len -= used;
+		}
+		return join(new Rows[] { rows });
+	}
+
+	/**
+	 * Read a matrix from a text file, parsing pieces of the file in parallel.
+	 * The file must use an ASCII compatible encoding such as UTF-8.
+	 *
+	 * @param file
+	 *            path of the file.
+	 * @return Matrix
+	 * @exception IOException
+	 *                Empty input, or rows of different lengths.
+	 * @exception NumberFormatException
+	 *                An element is not a number.
+	 */
+
+	public static Matrix read(Path file) throws IOException {
+		boolean serial = ForkJoinPool.commonPool().getParallelism() < 2;
+		return read(file, serial ? Long.MAX_VALUE : CHUNK);
+	}
+
+	/**
+	 * Read a matrix from a text file, parsing pieces of about chunk bytes in
+	 * parallel. The file must use an ASCII compatible encoding such as UTF-8.
+	 *
+	 * @param file
+	 *            path of the file.
+	 * @param chunk
+	 *            size of the pieces in bytes. Each piece ends at a line end.
+	 * @return Matrix
+	 * @exception IOException
+	 *                Empty input, or rows of different lengths.
+	 * @exception NumberFormatException
+	 *                An element is not a number.
+	 * @exception IllegalArgumentException
+	 *                chunk is not positive.
+	 */
+
+	public static Matrix read(Path file, long chunk) throws IOException {
+		if (chunk < 1) {
+			throw new IllegalArgumentException("Chunk size must be positive.");
+		}
+		try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = ch.size();
+			ForkJoinPool pool = ForkJoinPool.commonPool();
+			int pieces = (int) Math.min(Math.max(1, size / chunk
+					+ (size % chunk == 0 ? 0 : 1)), Integer.MAX_VALUE - 1);
+			long[] bounds = new long[pieces + 1];
+			for (int k = 1; k < pieces; k++) {
+				bounds[k] = lineStart(ch, Math.max(bounds[k - 1], k * chunk));
+			}
+			bounds[pieces] = size;
+			Rows[] parts = new Rows[pieces];
+			ParseTask task = new ParseTask(ch, bounds, parts, 0, pieces);
+			if (pieces == 1) {
+				task.compute();
+			} else {
+				pool.invoke(task);
+			}
+			if (task.failure != null) {
+				throw task.failure;
+			}
+			return join(parts);
+		}
+	}
+
+	/*
+	 * ------------------------ Private Methods ------------------------
+	 */
+
+	/** Offset of the first line that starts at or after pos. **/
+
+	private static long lineStart(FileChannel ch, long pos) throws IOException {
+		ByteBuffer buf = ByteBuffer.allocate(4096);
+		// The line starts at pos if the previous byte ends a line.
+		long p = pos - 1;
+		while (true) {
+			buf.clear();
+			int r = ch.read(buf, p);
+			if (r <= 0) {
+				return ch.size();
+			}
+			for (int k = 0; k < r; k++) {
+				if (buf.get(k) == '\n') {
+					return p + k + 1;
+				}
+			}
+			p += r;
+		}
+	}
+
+	/** Parse the bytes [from, to) of a file. **/
+
+	private static Rows parse(FileChannel ch, long from, long to)
+			throws IOException {
+		Rows rows = new Rows(false);
+		byte[] b = new byte[(int) Math.min(Math.max(to - from, 1), BUFFER)];
+		ByteBuffer buf = ByteBuffer.wrap(b);
+		int len = 0;
+		long pos = from;
+		while (!rows.done) {
+			if (len == b.length) {
+				b = Arrays.copyOf(b, 2 * b.length);
+				buf = ByteBuffer.wrap(b);
+			}
+			buf.limit((int) Math.min(b.length, len + (to - pos)));
+			buf.position(len);
+			while (buf.hasRemaining()) {
+				int r = ch.read(buf, pos + buf.position() - len);
+				if (r < 0) {
+					// The file was truncated while it was read.
+					throw new EOFException("Unexpected EOF on matrix read.");
+				}
+			}
+			pos += buf.position() - len;
+			len = buf.position();
+			boolean eof = pos >= to;
+			int used = rows.parse(b, 0, len, eof);
+			System.arraycopy(b, used, b, 0, len - used);
+			len -= used;
+			if (eof) {
+				break;
+			}
+		}
+		return rows;
+	}
+
+	/**
+	 * Join the rows parsed from consecutive pieces of the input into a matrix,
+	 * applying the blank line rule across pieces and checking row lengths.
+	 */
+
+	private static Matrix join(Rows[] parts) throws IOException {
+		int n = -1;
+		long m = 0;
+		int[] limits = new int[parts.length];
+		int last = parts.length;
+		for (int p = 0; p < parts.length; p++) {
+			Rows rows = parts[p];
+			// Before the first row, only a blank line after a row ends the
+			// matrix; after it, any blank line does.
+			int stop = n < 0 ? rows.blankAfterRow : rows.blank;
+			int limit = stop >= 0 ? stop : rows.rows;
+			for (int r = 0; r < limit; r++) {
+				if (n < 0) {
+					n = rows.length[r];
+				} else if (rows.length[r] != n) {
+					throw new IOException("Row " + (m + r + 1) + " is too "
+							+ (rows.length[r] > n ? "long." : "short."));
+				}
+			}
+			if (rows.failure != null && stop < 0) {
+				// A row that is already too long is reported as such.
+				if (n >= 0 && rows.line >= n) {
+					throw new IOException("Row " + (m + limit + 1)
+							+ " is too long.");
+				}
+				throw rows.failure;
+			}
+			limits[p] = limit;
+			m += limit;
+			if (stop >= 0) {
+				last = p + 1;
+				break;
+			}
+		}
+		if (n < 0) {
+			throw new IOException("Unexpected EOF on matrix read.");
+		}
+		Matrix X = new Matrix((int) Math.min(m, Integer.MAX_VALUE), n);
+		double[] A = X.getColumnPackedArray();
+		int r0 = 0;
+		for (int p = 0; p < last; p++) {
+			// Each piece holds its rows packed by rows, that is, the
+			// transpose of a block of rows of X packed by columns.
+			Blas.transpose(n, limits[p], parts[p].values, 0, n, A, r0, X
+					.getRowDimension());
+			r0 += limits[p];
+		}
+		return X;
+	}
+
+	/** Parses the pieces bounds[lo..hi) of a file, split in halves. **/
+
+	private static class ParseTask extends RecursiveAction {
+		private final FileChannel ch;
+		private final long[] bounds;
+		private final Rows[] parts;
+		private final int lo, hi;
+		IOException failure;
+
+		ParseTask(FileChannel ch, long[] bounds, Rows[] parts, int lo, int hi) {
+			this.ch = ch;
+			this.bounds = bounds;
+			this.parts = parts;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		protected void compute() {
+			if (hi - lo == 1) {
+				try {
+					parts[lo] = parse(ch, bounds[lo], bounds[lo + 1]);
+				} catch (IOException e) {
+					failure = e;
+				}
+				return;
+			}
+			int mid = (lo + hi) >>> 1;
+			ParseTask left = new ParseTask(ch, bounds, parts, lo, mid);
+			ParseTask right = new ParseTask(ch, bounds, parts, mid, hi);
+			invokeAll(left, right);
+			failure = left.failure != null ? left.failure : right.failure;
+		}
+
+		private static final long serialVersionUID = 1;
+	}
+
+	/**
+	 * The rows parsed from a stretch of text, with their elements packed by
+	 * rows, and the positions of the blank lines that might end the matrix.
+	 */
+
+	private static class Rows {
+
+		/** Stop at the blank line that ends the matrix. **/
+		final boolean stopAtBlank;
+
+		/** Elements packed by rows, and their number. **/
+		double[] values = new double[1024];
+		int count;
+
+		/** Length of each row, and the number of rows. **/
+		int[] length = new int[64];
+		int rows;
+
+		/** Elements on the current line. **/
+		int line;
+
+		/**
+		 * Number of rows before the first blank line, and before the first
+		 * blank line that follows a row, or -1 for none.
+		 */
+		int blank = -1, blankAfterRow = -1;
+
+		/**
+		 * Parse error. It is on the line after the last row, after the
+		 * elements counted in line.
+		 */
+		RuntimeException failure;
+
+		/** No more input is needed. **/
+		boolean done;
+
+		Rows(boolean stopAtBlank) {
+			this.stopAtBlank = stopAtBlank;
+		}
+
+		/**
+		 * Parse b[off..end). A token or line end that may continue past end is
+		 * left unparsed unless eof.
+		 *
+		 * @return offset after the last byte used.
+		 */
+
+		int parse(byte[] b, int off, int end, boolean eof) {
+			int i = off;
+			while (i < end && !done) {
+				byte ch = b[i];
+				if (ch == '\n' || ch == '\r') {
+					if (ch == '\r') {
+						if (i + 1 == end && !eof) {
+							break;
+						}
+						if (i + 1 < end && b[i + 1] == '\n') {
+							i++;
+						}
+					}
+					i++;
+					endLine();
+				} else if ((ch & 0xFF) <= ' ' || ch == ',') {
+					i++;
+				} else {
+					int s = i;
+					while (i < end && (b[i] & 0xFF) > ' ' && b[i] != ',') {
+						i++;
+					}
+					if (i == end && !eof) {
+						return s;
+					}
+					try {
+						add(Decimal.parse(b, s, i));
+					} catch (NumberFormatException e) {
+						failure = e;
+						done = true;
+					}
+				}
+			}
+			if (eof && !done && i == end && line > 0) {
+				endLine();
+			}
+			return i;
+		}
+
+		private void add(double x) {
+			if (count == values.length) {
+				values = Arrays.copyOf(values, 2 * values.length);
+			}
+			values[count++] = x;
+			line++;
+		}
+
+		private void endLine() {
+			if (line > 0) {
+				if (rows == length.length) {
+					length = Arrays.copyOf(length, 2 * length.length);
+				}
+				length[rows++] = line;
+				line = 0;
+			} else {
+				if (blank < 0) {
+					blank = rows;
+				}
+				if (blankAfterRow < 0 && rows > 0) {
+					blankAfterRow = rows;
+					done = stopAtBlank;
+				}
+			}
+		}
+	}
+}
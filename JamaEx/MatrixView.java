@@ -0,0 +1,689 @@
+package JamaEx;
+
+import JamaEx.util.Blas;
+import JamaEx.util.ElementOps;
+import JamaEx.util.Maths;
+
+/**
+ * Strided view of a matrix.
+ * <P>
+ * A view shares the storage of the matrix it was taken from: element (i,j) of
+ * the view is element offset + i*rowStride + j*colStride of the parent's
+ * column packed array. Submatrices, rows, columns and transposes are all views
+ * of this form, so taking one costs O(1) and writes through a view change the
+ * parent. Use copy() for an independent Matrix.
+ * <P>
+ * Element operations run the ElementOps kernels on contiguous columns (or
+ * rows, for transposed views) and fall back to strided loops otherwise; times
+ * passes the strides straight to Blas.dgemm. When an operand of an in-place
+ * operation overlaps this view in storage but not element for element, it is
+ * copied first, so the result is always as if the operand had been read
+ * before any element was written.
+ */
+
+public class MatrixView {
+
+	/*
+	 * ------------------------ Class variables ------------------------
+	 */
+
+	/** Storage shared with the parent matrix. **/
+	private final double[] A;
+
+	/**
+	 * Position of element (0,0) in A, and the distances between rows and
+	 * columns.
+	 */
+	private final int offset, rowStride, colStride;
+
+	/** Row and column dimensions. **/
+	private final int m, n;
+
+	/** Element operations, as passed to binary(). **/
+	private static final int PLUS = 0, MINUS = 1, TIMES = 2, DIVIDE = 3,
+			ASSIGN = 4;
+
+	/*
+	 * ------------------------ Constructors ------------------------
+	 */
+
+	/**
+	 * Construct a view of an array. Every element of the view must lie inside
+	 * the array.
+	 *
+	 * @param A
+	 *            Storage; not copied.
+	 * @param offset
+	 *            Index of element (0,0).
+	 * @param rowStride
+	 *            Distance in A between rows.
+	 * @param colStride
+	 *            Distance in A between columns.
+	 * @param m
+	 *            Number of rows.
+	 * @param n
+	 *            Number of columns.
+	 * @exception IllegalArgumentException
+	 *                Bad dimensions.
+	 * @exception ArrayIndexOutOfBoundsException
+	 *                View extends outside the array.
+	 */
+
+	public MatrixView(double[] A, int offset, int rowStride, int colStride,
+			int m, int n) {
+		if (m < 0 || n < 0) {
+			throw new IllegalArgumentException("Bad dimensions.");
+		}
+		if (m > 0 && n > 0) {
+			long first = offset + Math.min(0L, (long) (m - 1) * rowStride)
+					+ Math.min(0L, (long) (n - 1) * colStride);
+			long last = offset + Math.max(0L, (long) (m - 1) * rowStride)
+					+ Math.max(0L, (long) (n - 1) * colStride);
+			if (first < 0 || last >= A.length) {
+				throw new ArrayIndexOutOfBoundsException(
+						"View extends outside the array.");
+			}
+		}
+		this.A = A;
+		this.offset = offset;
+		this.rowStride = rowStride;
+		this.colStride = colStride;
+		this.m = m;
+		this.n = n;
+	}
+
+	/*
+	 * ------------------------ Public Methods ------------------------
+	 */
+
+	/**
+	 * Copy the elements into a new, independent matrix.
+	 *
+	 * @return m-by-n Matrix
+	 */
+
+	public Matrix copy() {
+		Matrix X = new Matrix(m, n);
+		new MatrixView(X.getColumnPackedArray(), 0, 1, m, m, n).assign(this);
+		return X;
+	}
+
+	/**
+	 * Access the shared storage.
+	 *
+	 * @return Pointer to the parent's array.
+	 */
+
+	public double[] getArray() {
+		return A;
+	}
+
+	/**
+	 * Get the index in the shared storage of element (0,0).
+	 *
+	 * @return offset
+	 */
+
+	public int getOffset() {
+		return offset;
+	}
+
+	/**
+	 * Get the distance in the shared storage between rows.
+	 *
+	 * @return row stride
+	 */
+
+	public int getRowStride() {
+		return rowStride;
+	}
+
+	/**
+	 * Get the distance in the shared storage between columns.
+	 *
+	 * @return column stride
+	 */
+
+	public int getColumnStride() {
+		return colStride;
+	}
+
+	/**
+	 * Get row dimension.
+	 *
+	 * @return m, the number of rows.
+	 */
+
+	public int getRowDimension() {
+		return m;
+	}
+
+	/**
+	 * Get column dimension.
+	 *
+	 * @return n, the number of columns.
+	 */
+
+	public int getColumnDimension() {
+		return n;
+	}
+
+	/**
+	 * Get a single element.
+	 *
+	 * @param i
+	 *            Row index.
+	 * @param j
+	 *            Column index.
+	 * @return A(i,j)
+	 * @exception ArrayIndexOutOfBoundsException
+	 */
+
+	public double get(int i, int j) {
+		checkIndex(i, j);
+		return A[offset + i * rowStride + j * colStride];
+	}
+
+	/**
+	 * Set a single element, in the parent matrix as well.
+	 *
+	 * @param i
+	 *            Row index.
+	 * @param j
+	 *            Column index.
+	 * @param s
+	 *            A(i,j).
+	 * @exception ArrayIndexOutOfBoundsException
+	 */
+
+	public void set(int i, int j, double s) {
+		checkIndex(i, j);
+		A[offset + i * rowStride + j * colStride] = s;
+	}
+
+	/**
+	 * View of a submatrix.
+	 *
+	 * @param i0
+	 *            Initial row index
+	 * @param i1
+	 *            Final row index
+	 * @param j0
+	 *            Initial column index
+	 * @param j1
+	 *            Final column index
+	 * @return A(i0:i1,j0:j1), sharing storage with A
+	 * @exception ArrayIndexOutOfBoundsException
+	 *                Submatrix indices
+	 */
+
+	public MatrixView view(int i0, int i1, int j0, int j1) {
+		if ((i1 >= i0 && (i0 < 0 || i1 >= m))
+				|| (j1 >= j0 && (j0 < 0 || j1 >= n))) {
+			throw new ArrayIndexOutOfBoundsException("Submatrix indices");
+		}
+		int rows = Math.max(i1 - i0 + 1, 0), cols = Math.max(j1 - j0 + 1, 0);
+		int start = rows > 0 && cols > 0 ? offset + i0 * rowStride + j0
+				* colStride : offset;
+		return new MatrixView(A, start, rowStride, colStride, rows, cols);
+	}
+
+	/**
+	 * View of one row.
+	 *
+	 * @param i
+	 *            Row index.
+	 * @return 1-by-n view of A(i,:)
+	 * @exception ArrayIndexOutOfBoundsException
+	 *                Submatrix indices
+	 */
+
+	public MatrixView row(int i) {
+		return view(i, i, 0, n - 1);
+	}
+
+	/**
+	 * View of one column.
+	 *
+	 * @param j
+	 *            Column index.
+	 * @return m-by-1 view of A(:,j)
+	 * @exception ArrayIndexOutOfBoundsException
+	 *                Submatrix indices
+	 */
+
+	public MatrixView column(int j) {
+		return view(0, m - 1, j, j);
+	}
+
+	/**
+	 * Transposed view, with the strides exchanged.
+	 *
+	 * @return n-by-m view of A'
+	 */
+
+	public MatrixView transpose() {
+		return new MatrixView(A, offset, colStride, rowStride, n, m);
+	}
+
+	/**
+	 * Copy the elements of B into this view, A = B
+	 *
+	 * @param B
+	 *            view with the same dimensions
+	 * @return this view
+	 * @exception IllegalArgumentException
+	 *                Matrix dimensions must agree.
+	 */
+
+	public MatrixView assign(MatrixView B) {
+		binary(ASSIGN, this, B, this);
+		return this;
+	}
+
+	/**
+	 * Copy the elements of B into this view, A = B
+	 *
+	 * @param B
+	 *            matrix with the same dimensions
+	 * @return this view
+	 * @exception IllegalArgumentException
+	 *                Matrix dimensions must agree.
+	 */
+
+	public MatrixView assign(Matrix B) {
+		return assign(B.view());
+	}
+
+	/**
+	 * Set every element to s.
+	 *
+	 * @param s
+	 *            value
+	 * @return this view
+	 */
+
+	public MatrixView fill(double s) {
+		if (rowStride == 1) {
+			for (int j = 0; j < n; j++) {
+				int p = offset + j * colStride;
+				java.util.Arrays.fill(A, p, p + m, s);
+			}
+		} else {
+			for (int j = 0; j < n; j++) {
+				for (int i = 0, p = offset + j * colStride; i < m; i++, p +=
+						rowStride) {
+					A[p] = s;
+				}
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * C = A + B
+	 *
+	 * @param B
+	 *            another view
+	 * @return A + B, a new matrix
+	 * @exception IllegalArgumentException
+	 *                Matrix dimensions must agree.
+	 */
+
+	public Matrix plus(MatrixView B) {
+		return result(PLUS, B);
+	}
+
+	/**
+	 * A = A + B
+	 *
+	 * @param B
+	 *            another view
+	 * @return this view
+	 * @exception IllegalArgumentException
+	 *                Matrix dimensions must agree.
+	 */
+
+	public MatrixView plusEquals(MatrixView B) {
+		binary(PLUS, this, B, this);
+		return this;
+	}
+
+	/**
+	 * C = A - B
+	 *
+	 * @param B
+	 *            another view
+	 * @return A - B, a new matrix
+	 * @exception IllegalArgumentException
+	 *                Matrix dimensions must agree.
+	 */
+
+	public Matrix minus(MatrixView B) {
+		return result(MINUS, B);
+	}
+
+	/**
+	 * A = A - B
+	 *
+	 * @param B
+	 *            another view
+	 * @return this view
+	 * @exception IllegalArgumentException
+	 *                Matrix dimensions must agree.
+	 */
+
+	public MatrixView minusEquals(MatrixView B) {
+		binary(MINUS, this, B, this);
+		return this;
+	}
+
+	/**
+	 * Element-by-element multiplication, C = A.*B
+	 *
+	 * @param B
+	 *            another view
+	 * @return A.*B, a new matrix
+	 * @exception IllegalArgumentException
+	 *                Matrix dimensions must agree.
+	 */
+
+	public Matrix arrayTimes(MatrixView B) {
+		return result(TIMES, B);
+	}
+
+	/**
+	 * Element-by-element multiplication in place, A = A.*B
+	 *
+	 * @param B
+	 *            another view
+	 * @return this view
+	 * @exception IllegalArgumentException
+	 *                Matrix dimensions must agree.
+	 */
+
+	public MatrixView arrayTimesEquals(MatrixView B) {
+		binary(TIMES, this, B, this);
+		return this;
+	}
+
+	/**
+	 * Element-by-element right division, C = A./B
+	 *
+	 * @param B
+	 *            another view
+	 * @return A./B, a new matrix
+	 * @exception IllegalArgumentException
+	 *                Matrix dimensions must agree.
+	 */
+
+	public Matrix arrayRightDivide(MatrixView B) {
+		return result(DIVIDE, B);
+	}
+
+	/**
+	 * Element-by-element right division in place, A = A./B
+	 *
+	 * @param B
+	 *            another view
+	 * @return this view
+	 * @exception IllegalArgumentException
+	 *                Matrix dimensions must agree.
+	 */
+
+	public MatrixView arrayRightDivideEquals(MatrixView B) {
+		binary(DIVIDE, this, B, this);
+		return this;
+	}
+
+	/**
+	 * Multiply by a scalar, C = s*A
+	 *
+	 * @param s
+	 *            scalar
+	 * @return s*A, a new matrix
+	 */
+
+	public Matrix times(double s) {
+		Matrix X = new Matrix(m, n);
+		scale(s, new MatrixView(X.getColumnPackedArray(), 0, 1, m, m, n));
+		return X;
+	}
+
+	/**
+	 * Multiply by a scalar in place, A = s*A
+	 *
+	 * @param s
+	 *            scalar
+	 * @return this view
+	 */
+
+	public MatrixView timesEquals(double s) {
+		scale(s, this);
+		return this;
+	}
+
+	/**
+	 * Linear algebraic matrix multiplication, C = A*B. Views with a unit row
+	 * or column stride go to Blas.dgemm without copying.
+	 *
+	 * @param B
+	 *            another view
+	 * @return A*B, a new matrix
+	 * @exception IllegalArgumentException
+	 *                Matrix inner dimensions must agree.
+	 */
+
+	public Matrix times(MatrixView B) {
+		if (B.m != n) {
+			throw new IllegalArgumentException(
+					"Matrix inner dimensions must agree.");
+		}
+		Matrix X = new Matrix(m, B.n);
+		if (m == 0 || B.n == 0 || n == 0) {
+			return X;
+		}
+		MatrixView a = this.packed(), b = B.packed();
+		Blas.dgemm(!a.columnMajor(), !b.columnMajor(), m, B.n, n, 1.0, a.A,
+				a.offset, a.leading(), b.A, b.offset, b.leading(), 0.0, X
+						.getColumnPackedArray(), 0, m);
+		return X;
+	}
+
+	/**
+	 * Linear algebraic matrix multiplication, C = A*B
+	 *
+	 * @param B
+	 *            a matrix
+	 * @return A*B, a new matrix
+	 * @exception IllegalArgumentException
+	 *                Matrix inner dimensions must agree.
+	 */
+
+	public Matrix times(Matrix B) {
+		return times(B.view());
+	}
+
+	/**
+	 * Sum of all elements.
+	 *
+	 * @return sum(A(:))
+	 */
+
+	public double sum() {
+		double s = 0.0;
+		for (int j = 0; j < n; j++) {
+			for (int i = 0, p = offset + j * colStride; i < m; i++, p +=
+					rowStride) {
+				s += A[p];
+			}
+		}
+		return s;
+	}
+
+	/**
+	 * Frobenius norm
+	 *
+	 * @return sqrt of sum of squares of all elements.
+	 */
+
+	public double normF() {
+		double f = 0.0;
+		for (int j = 0; j < n; j++) {
+			for (int i = 0, p = offset + j * colStride; i < m; i++, p +=
+					rowStride) {
+				f = Maths.hypot(f, A[p]);
+			}
+		}
+		return f;
+	}
+
+	/*
+	 * ------------------------ Private Methods ------------------------
+	 */
+
+	private void checkIndex(int i, int j) {
+		if (i < 0 || i >= m || j < 0 || j >= n) {
+			throw new ArrayIndexOutOfBoundsException("(" + i + "," + j
+					+ ") is outside a " + m + "-by-" + n + " view.");
+		}
+	}
+
+	/** New matrix holding the element operation op of A and B. **/
+
+	private Matrix result(int op, MatrixView B) {
+		Matrix X = new Matrix(m, n);
+		binary(op, this, B, new MatrixView(X.getColumnPackedArray(), 0, 1, m,
+				m, n));
+		return X;
+	}
+
+	/**
+	 * C = a op b for views of equal size. The first operand is always C
+	 * itself or a view of new storage; b is copied first if it overlaps C
+	 * elsewhere than element for element.
+	 */
+
+	private static void binary(int op, MatrixView a, MatrixView b,
+			MatrixView c) {
+		if (b.m != c.m || b.n != c.n || a.m != c.m || a.n != c.n) {
+			throw new IllegalArgumentException("Matrix dimensions must agree.");
+		}
+		if (b.overlaps(c) && !b.sameLayout(c)) {
+			b = b.copy().view();
+		}
+		int m = c.m, n = c.n;
+		if (a.rowStride == 1 && b.rowStride == 1 && c.rowStride == 1) {
+			for (int j = 0; j < n; j++) {
+				kernel(op, m, a.A, a.offset + j * a.colStride, b.A, b.offset
+						+ j * b.colStride, c.A, c.offset + j * c.colStride);
+			}
+		} else if (a.colStride == 1 && b.colStride == 1 && c.colStride == 1) {
+			for (int i = 0; i < m; i++) {
+				kernel(op, n, a.A, a.offset + i * a.rowStride, b.A, b.offset
+						+ i * b.rowStride, c.A, c.offset + i * c.rowStride);
+			}
+		} else {
+			for (int j = 0; j < n; j++) {
+				int pa = a.offset + j * a.colStride, pb = b.offset + j
+						* b.colStride, pc = c.offset + j * c.colStride;
+				for (int i = 0; i < m; i++, pa += a.rowStride, pb +=
+						b.rowStride, pc += c.rowStride) {
+					double x = a.A[pa], y = b.A[pb];
+					c.A[pc] = op == PLUS ? x + y : op == MINUS ? x - y
+							: op == TIMES ? x * y : op == DIVIDE ? x / y : y;
+				}
+			}
+		}
+	}
+
+	/** One contiguous run of an element operation. **/
+
+	private static void kernel(int op, int len, double[] a, int aOff,
+			double[] b, int bOff, double[] c, int cOff) {
+		switch (op) {
+		case PLUS:
+			ElementOps.plus(len, a, aOff, b, bOff, c, cOff);
+			break;
+		case MINUS:
+			ElementOps.minus(len, a, aOff, b, bOff, c, cOff);
+			break;
+		case TIMES:
+			ElementOps.times(len, a, aOff, b, bOff, c, cOff);
+			break;
+		case DIVIDE:
+			ElementOps.divide(len, a, aOff, b, bOff, c, cOff);
+			break;
+		default:
+			System.arraycopy(b, bOff, c, cOff, len);
+		}
+	}
+
+	/** C = s*A for a view C of the same size, which is A or new storage. **/
+
+	private void scale(double s, MatrixView c) {
+		if (rowStride == 1 && c.rowStride == 1) {
+			for (int j = 0; j < n; j++) {
+				ElementOps.scale(m, s, A, offset + j * colStride, c.A, c.offset
+						+ j * c.colStride);
+			}
+		} else {
+			for (int j = 0; j < n; j++) {
+				int p = offset + j * colStride, q = c.offset + j * c.colStride;
+				for (int i = 0; i < m; i++, p += rowStride, q += c.rowStride) {
+					c.A[q] = s * A[p];
+				}
+			}
+		}
+	}
+
+	/** True if the storage spans of the two views intersect. **/
+
+	private boolean overlaps(MatrixView B) {
+		if (A != B.A || m == 0 || n == 0 || B.m == 0 || B.n == 0) {
+			return false;
+		}
+		return first() <= B.last() && B.first() <= last();
+	}
+
+	private boolean sameLayout(MatrixView B) {
+		return offset == B.offset && rowStride == B.rowStride
+				&& colStride == B.colStride;
+	}
+
+	private long first() {
+		return offset + Math.min(0L, (long) (m - 1) * rowStride)
+				+ Math.min(0L, (long) (n - 1) * colStride);
+	}
+
+	private long last() {
+		return offset + Math.max(0L, (long) (m - 1) * rowStride)
+				+ Math.max(0L, (long) (n - 1) * colStride);
+	}
+
+	/**
+	 * This view if dgemm can read it in place, as a column major block, or as
+	 * a row major one read transposed; otherwise a packed copy.
+	 */
+
+	private MatrixView packed() {
+		return columnMajor() || rowMajor() ? this : copy().view();
+	}
+
+	private boolean columnMajor() {
+		return rowStride == 1 && (n == 1 || colStride >= m);
+	}
+
+	private boolean rowMajor() {
+		return colStride == 1 && (m == 1 || rowStride >= n);
+	}
+
+	/** Leading dimension of a view accepted by packed(). **/
+
+	private int leading() {
+		if (columnMajor()) {
+			return n == 1 ? Math.max(m, 1) : colStride;
+		}
+		return m == 1 ? Math.max(n, 1) : rowStride;
+	}
+}
@@ -0,0 +1,216 @@
+package JamaEx;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import JamaEx.util.Decimal;
+
+/**
+ * Writes matrices as text, one row per line, that Matrix.read reads back
+ * exactly. As with Matrix.print, the last row is followed by a blank line,
+ * so several matrices may be written to one stream and read back in turn.
+ * <P>
+ * Each element is written by JamaEx.util.Decimal.format as the shortest
+ * decimal that parses back to the same double, straight into a byte buffer.
+ * The elements are formatted in row order in bands of BAND elements; large
+ * matrices have several bands formatted at once on the common fork/join pool,
+ * and the bands are then written in order.
+ */
+
+public class MatrixWriter {
+
+	/** Layout of the elements within a row. **/
+
+	public enum Format {
+		/** Elements separated by a space. **/
+		WHITESPACE(' '),
+		/** Comma separated values. **/
+		CSV(','),
+		/** Tab separated values. **/
+		TSV('\t');
+
+		final byte separator;
+
+		Format(char separator) {
+			this.separator = (byte) separator;
+		}
+	}
+
+	/*
+	 * ------------------------ Class variables ------------------------
+	 */
+
+	/** Number of elements formatted at a time. **/
+	private static final int BAND = 1 << 16;
+
+	/** The blank line that ends a matrix. **/
+	private static final byte[] END = { '\n' };
+
+	/*
+	 * ------------------------ Public Methods ------------------------
+	 */
+
+	/**
+	 * Write a matrix to a byte stream, in ASCII. The stream is not closed.
+	 *
+	 * @param A
+	 *            matrix
+	 * @param output
+	 *            the output stream.
+	 * @param format
+	 *            layout of the rows.
+	 * @exception IllegalArgumentException
+	 *                Matrix is empty; read could not read it back.
+	 */
+
+	public static void write(Matrix A, final OutputStream output, Format format)
+			throws IOException {
+		write(A, format, new Sink() {
+			public void write(byte[] b, int len) throws IOException {
+				output.write(b, 0, len);
+			}
+		});
+		output.flush();
+	}
+
+	/**
+	 * Write a matrix to a character stream. The stream is not closed.
+	 *
+	 * @param A
+	 *            matrix
+	 * @param output
+	 *            the output stream.
+	 * @param format
+	 *            layout of the rows.
+	 * @exception IllegalArgumentException
+	 *                Matrix is empty; read could not read it back.
+	 */
+
+	public static void write(Matrix A, final Writer output, Format format)
+			throws IOException {
+		write(A, format, new Sink() {
+			private char[] c = new char[0];
+
+			public void write(byte[] b, int len) throws IOException {
+				if (c.length < len) {
+					c = new char[len];
+				}
+				for (int k = 0; k < len; k++) {
+					c[k] = (char) b[k];
+				}
+				output.write(c, 0, len);
+			}
+		});
+		output.flush();
+	}
+
+	/*
+	 * ------------------------ Private Methods ------------------------
+	 */
+
+	/** Destination of formatted bands. **/
+
+	private interface Sink {
+		void write(byte[] b, int len) throws IOException;
+	}
+
+	private static void write(Matrix A, Format format, Sink sink)
+			throws IOException {
+		int m = A.getRowDimension(), n = A.getColumnDimension();
+		if (m == 0 || n == 0) {
+			// Text has no way to give the dimensions of an empty matrix.
+			throw new IllegalArgumentException("Matrix is empty.");
+		}
+		double[] a = A.getColumnPackedArray();
+		int bands = (int) (((long) m * n + BAND - 1) / BAND);
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		int group = Math.min(bands, 2 * pool.getParallelism());
+		if (pool.getParallelism() < 2) {
+			group = 1;
+		}
+		BandTask[] tasks = new BandTask[group];
+		for (int g = 0; g < group; g++) {
+			tasks[g] = new BandTask(a, m, n, format.separator, (int) Math.min(
+					BAND, (long) m * n));
+		}
+		for (int first = 0; first < bands; first += group) {
+			int count = Math.min(group, bands - first);
+			for (int g = 0; g < count; g++) {
+				tasks[g].reinitialize();
+				tasks[g].band = first + g;
+			}
+			if (count == 1) {
+				tasks[0].compute();
+			} else {
+				pool.invoke(new Group(tasks, count));
+			}
+			for (int g = 0; g < count; g++) {
+				sink.write(tasks[g].b, tasks[g].len);
+			}
+		}
+		sink.write(END, END.length);
+	}
+
+	/**
+	 * Formats one band of elements, taken in row order, into its own buffer.
+	 * Each element is followed by the separator, or by a line end if it is the
+	 * last of its row.
+	 */
+
+	private static class BandTask extends RecursiveAction {
+		private final double[] a;
+		private final int m, n;
+		private final byte separator;
+		final byte[] b;
+		int band, len;
+
+		BandTask(double[] a, int m, int n, byte separator, int size) {
+			this.a = a;
+			this.m = m;
+			this.n = n;
+			this.separator = separator;
+			b = new byte[size * (Decimal.MAX_CHARS + 1)];
+		}
+
+		protected void compute() {
+			long e0 = (long) band * BAND;
+			long e1 = Math.min((long) m * n, e0 + BAND);
+			int i = (int) (e0 / n), j = (int) (e0 % n);
+			int k = 0;
+			for (long e = e0; e < e1; e++) {
+				k = Decimal.format(a[i + j * m], b, k);
+				if (++j < n) {
+					b[k++] = separator;
+				} else {
+					b[k++] = '\n';
+					j = 0;
+					i++;
+				}
+			}
+			len = k;
+		}
+
+		private static final long serialVersionUID = 1;
+	}
+
+	/** Runs the first count band tasks together. **/
+
+	private static class Group extends RecursiveAction {
+		private final BandTask[] tasks;
+		private final int count;
+
+		Group(BandTask[] tasks, int count) {
+			this.tasks = tasks;
+			this.count = count;
+		}
+
+		protected void compute() {
+			invokeAll(java.util.Arrays.asList(tasks).subList(0, count));
+		}
+
+		private static final long serialVersionUID = 1;
+	}
+}
@@ -0,0 +1,773 @@
+package JamaEx;
+
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+
+import JamaEx.util.Blas;
+import JamaEx.util.ElementOps;
+
+/**
+ * Off-heap matrix with long indices.
+ * <P>
+ * OffHeapMatrix holds its elements outside the Java heap, in direct byte
+ * buffers, so matrices of more than 2^31 elements (16 GB) can be stored and
+ * the garbage collector never scans or moves them. Dimensions and indices are
+ * long. Elements are packed by columns, as in Matrix; the storage is split
+ * into chunks of whole columns, so a single column must have fewer than
+ * 2^27 elements.
+ * <P>
+ * Arithmetic copies blocks of columns into small on-heap arrays and runs the
+ * same ElementOps and Blas kernels as Matrix on them. times() multiplies
+ * tiles of the operands with Blas.dgemm, so it also runs on the fork/join
+ * pool.
+ * <P>
+ * The memory is released by close(), or by the garbage collector if the
+ * matrix is never closed. Every method that returns a new OffHeapMatrix
+ * transfers ownership of it to the caller. Like other unsynchronized
+ * classes, OffHeapMatrix must not be closed while other threads use it.
+ *
+ * <PRE>
+ * try (OffHeapMatrix A = new OffHeapMatrix(100000, 50000)) {
+ * 	A.set(99999L, 49999L, 1.0);
+ * }
+ * </PRE>
+ */
+
+public class OffHeapMatrix implements AutoCloseable {
+
+	/*
+	 * ------------------------ Class variables ------------------------
+	 */
+
+	/** Largest number of elements in one chunk, 1 GB of doubles. **/
+	private static final int CHUNK = 1 << 27;
+
+	/** Number of elements processed per step of element-by-element work. **/
+	private static final int STEP = 8192;
+
+	/** Element-by-element operators. **/
+	private static final int PLUS = 0, MINUS = 1, TIMES = 2, DIVIDE = 3,
+			LEFT_DIVIDE = 4, SCALE = 5;
+
+	/** Tile size of times(); three tiles of doubles fit in L3. **/
+	private static final int TILE = 512;
+
+	/** sun.misc.Unsafe.invokeCleaner, if available, to free buffers early. **/
+	private static final Object UNSAFE;
+	private static final Method CLEANER;
+
+	static {
+		Object unsafe = null;
+		Method cleaner = null;
+		try {
+			Class<?> c = Class.forName("sun.misc.Unsafe");
+			java.lang.reflect.Field f = c.getDeclaredField("theUnsafe");
+			f.setAccessible(true);
+			unsafe = f.get(null);
+			cleaner = c.getMethod("invokeCleaner", ByteBuffer.class);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			// Not available, buffers are freed by the garbage collector.
+			unsafe = null;
+			cleaner = null;
+		}
+		UNSAFE = unsafe;
+		CLEANER = cleaner;
+	}
+
+	/** Row and column dimensions. **/
+	private final long m, n;
+
+	/** Number of whole columns in each chunk. **/
+	private final long chunkColumns;
+
+	/** Storage, and a double view of each chunk. Null after close(). **/
+	private ByteBuffer[] bytes;
+	private DoubleBuffer[] chunks;
+
+	/** Set by close(); every public method then throws. **/
+	private boolean closed;
+
+	/*
+	 * ------------------------ Constructors ------------------------
+	 */
+
+	/**
+	 * Construct an m-by-n matrix of zeros.
+	 *
+	 * @param m
+	 *            Number of rows.
+	 * @param n
+	 *            Number of columns.
+	 * @exception IllegalArgumentException
+	 *                Negative dimensions, or a column of more than 2^27
+	 *                elements.
+	 */
+
+	public OffHeapMatrix(long m, long n) {
+		this(m, n, CHUNK);
+	}
+
+	/**
+	 * Construct an m-by-n matrix of zeros with a given chunk size.
+	 *
+	 * @param m
+	 *            Number of rows.
+	 * @param n
+	 *            Number of columns.
+	 * @param chunk
+	 *            Largest number of elements per direct buffer, at most 2^27.
+	 *            Each buffer holds as many whole columns as fit.
+	 * @exception IllegalArgumentException
+	 *                Negative dimensions, or a column larger than a chunk.
+	 */
+
+	public OffHeapMatrix(long m, long n, int chunk) {
+		if (m < 0 || n < 0) {
+			throw new IllegalArgumentException("Negative matrix dimension.");
+		}
+		if (chunk < 1 || chunk > CHUNK || m > chunk) {
+			throw new IllegalArgumentException(
+					"A column must fit in one chunk of at most 2^27 elements.");
+		}
+		this.m = m;
+		this.n = n;
+		chunkColumns = m == 0 ? Math.max(n, 1) : chunk / m;
+		int count = (int) ((n + chunkColumns - 1) / chunkColumns);
+		bytes = new ByteBuffer[count];
+		chunks = new DoubleBuffer[count];
+		for (int c = 0; c < count; c++) {
+			long cols = Math.min(chunkColumns, n - c * chunkColumns);
+			bytes[c] = ByteBuffer.allocateDirect((int) (m * cols * 8)).order(
+					ByteOrder.nativeOrder());
+			chunks[c] = bytes[c].asDoubleBuffer();
+		}
+	}
+
+	/**
+	 * Construct a matrix on existing buffers, such as mapped regions of a
+	 * file. Buffer c holds columns c*chunkColumns onwards, in its own byte
+	 * order.
+	 */
+
+	OffHeapMatrix(long m, long n, long chunkColumns, ByteBuffer[] bytes) {
+		this.m = m;
+		this.n = n;
+		this.chunkColumns = chunkColumns;
+		this.bytes = bytes;
+		chunks = new DoubleBuffer[bytes.length];
+		for (int c = 0; c < bytes.length; c++) {
+			chunks[c] = bytes[c].asDoubleBuffer();
+		}
+	}
+
+	/*
+	 * ------------------------ Public Methods ------------------------
+	 */
+
+	/**
+	 * Copy a Matrix off the heap.
+	 *
+	 * @param A
+	 *            Matrix
+	 * @return OffHeapMatrix with the same elements
+	 */
+
+	public static OffHeapMatrix valueOf(Matrix A) {
+		int rows = A.getRowDimension(), cols = A.getColumnDimension();
+		OffHeapMatrix X = new OffHeapMatrix(rows, cols);
+		double[] a = A.getColumnPackedArray();
+		for (int j = 0; j < cols; j++) {
+			X.setColumn(j, a, j * rows);
+		}
+		return X;
+	}
+
+	/**
+	 * Copy onto the heap as a Matrix.
+	 *
+	 * @return Matrix with the same elements
+	 * @exception IllegalArgumentException
+	 *                Matrix has more elements than an array can hold.
+	 */
+
+	public Matrix toMatrix() {
+		checkOpen();
+		if (m * n > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException(
+					"Matrix has more elements than an array can hold.");
+		}
+		Matrix X = new Matrix((int) m, (int) n);
+		double[] x = X.getColumnPackedArray();
+		for (long j = 0; j < n; j++) {
+			getColumn(j, x, (int) (j * m));
+		}
+		return X;
+	}
+
+	/**
+	 * Release the off-heap memory. Any later call of a method that reads or
+	 * writes elements throws IllegalStateException. Closing twice has no
+	 * effect.
+	 * <P>
+	 * The buffers are freed at once, not when they become unreachable, so
+	 * close() must not run while another thread is still using the matrix:
+	 * a method that has already passed its check may then touch memory that
+	 * has been freed, which can crash the JVM. Callers that share a matrix
+	 * between threads must make sure all other use has finished first.
+	 */
+
+	public void close() {
+		closed = true;
+		ByteBuffer[] b = bytes;
+		bytes = null;
+		chunks = null;
+		if (b == null || CLEANER == null) {
+			return;
+		}
+		for (int c = 0; c < b.length; c++) {
+			try {
+				CLEANER.invoke(UNSAFE, b[c]);
+			} catch (ReflectiveOperationException e) {
+				// Left to the garbage collector.
+			}
+		}
+	}
+
+	/**
+	 * Is the storage read only? Matrices mapped read only from a file reject
+	 * every write with java.nio.ReadOnlyBufferException.
+	 *
+	 * @return true if elements cannot be set.
+	 */
+
+	public boolean isReadOnly() {
+		checkOpen();
+		return n > 0 && chunk(0).isReadOnly();
+	}
+
+	/**
+	 * Number of whole columns that fit in one buffer, for matrices with m
+	 * rows.
+	 */
+
+	static long chunkColumns(long m) {
+		return m == 0 ? Long.MAX_VALUE : CHUNK / m;
+	}
+
+	/**
+	 * Get row dimension.
+	 *
+	 * @return m, the number of rows.
+	 */
+
+	public long getRowDimension() {
+		return m;
+	}
+
+	/**
+	 * Get column dimension.
+	 *
+	 * @return n, the number of columns.
+	 */
+
+	public long getColumnDimension() {
+		return n;
+	}
+
+	/**
+	 * Number of elements.
+	 *
+	 * @return m*n
+	 */
+
+	public long elementSize() {
+		return m * n;
+	}
+
+	/**
+	 * Get a single element.
+	 *
+	 * @param i
+	 *            Row index.
+	 * @param j
+	 *            Column index.
+	 * @return A(i,j)
+	 * @exception ArrayIndexOutOfBoundsException
+	 */
+
+	public double get(long i, long j) {
+		checkOpen();
+		checkIndex(i, j);
+		return chunk(j).get(offset(i, j));
+	}
+
+	/**
+	 * Set a single element.
+	 *
+	 * @param i
+	 *            Row index.
+	 * @param j
+	 *            Column index.
+	 * @param s
+	 *            A(i,j).
+	 * @exception ArrayIndexOutOfBoundsException
+	 */
+
+	public void set(long i, long j, double s) {
+		checkOpen();
+		checkIndex(i, j);
+		chunk(j).put(offset(i, j), s);
+	}
+
+	/**
+	 * Get an element by its linear (column major) index.
+	 *
+	 * @param index
+	 *            linear index
+	 * @return A(index)
+	 * @exception ArrayIndexOutOfBoundsException
+	 */
+
+	public double get(long index) {
+		checkOpen();
+		checkIndex(index);
+		return get(index % m, index / m);
+	}
+
+	/**
+	 * Set an element by its linear (column major) index.
+	 *
+	 * @param index
+	 *            linear index
+	 * @param val
+	 *            A(index)
+	 * @exception ArrayIndexOutOfBoundsException
+	 */
+
+	public void set(long index, double val) {
+		checkOpen();
+		checkIndex(index);
+		set(index % m, index / m, val);
+	}
+
+	/**
+	 * Copy column j into an array.
+	 *
+	 * @param j
+	 *            Column index.
+	 * @param x
+	 *            destination, with room for m elements from off
+	 * @param off
+	 *            offset of A(0,j) in x
+	 */
+
+	public void getColumn(long j, double[] x, int off) {
+		checkOpen();
+		checkColumn(j);
+		chunk(j).get(offset(0, j), x, off, (int) m);
+	}
+
+	/**
+	 * Copy an array into column j.
+	 *
+	 * @param j
+	 *            Column index.
+	 * @param x
+	 *            source, with m elements from off
+	 * @param off
+	 *            offset of the new A(0,j) in x
+	 */
+
+	public void setColumn(long j, double[] x, int off) {
+		checkOpen();
+		checkColumn(j);
+		chunk(j).put(offset(0, j), x, off, (int) m);
+	}
+
+	/**
+	 * C = A + B
+	 *
+	 * @param B
+	 *            another matrix
+	 * @return A + B, owned by the caller
+	 */
+
+	public OffHeapMatrix plus(OffHeapMatrix B) {
+		checkMatrixDimensions(B);
+		return elementwise(PLUS, B, new OffHeapMatrix(m, n), 0);
+	}
+
+	/**
+	 * A = A + B
+	 *
+	 * @param B
+	 *            another matrix
+	 * @return A + B
+	 */
+
+	public OffHeapMatrix plusEquals(OffHeapMatrix B) {
+		checkMatrixDimensions(B);
+		return elementwise(PLUS, B, this, 0);
+	}
+
+	/**
+	 * C = A - B
+	 *
+	 * @param B
+	 *            another matrix
+	 * @return A - B, owned by the caller
+	 */
+
+	public OffHeapMatrix minus(OffHeapMatrix B) {
+		checkMatrixDimensions(B);
+		return elementwise(MINUS, B, new OffHeapMatrix(m, n), 0);
+	}
+
+	/**
+	 * A = A - B
+	 *
+	 * @param B
+	 *            another matrix
+	 * @return A - B
+	 */
+
+	public OffHeapMatrix minusEquals(OffHeapMatrix B) {
+		checkMatrixDimensions(B);
+		return elementwise(MINUS, B, this, 0);
+	}
+
+	/**
+	 * Element-by-element multiplication, C = A.*B
+	 *
+	 * @param B
+	 *            another matrix
+	 * @return A.*B, owned by the caller
+	 */
+
+	public OffHeapMatrix arrayTimes(OffHeapMatrix B) {
+		checkMatrixDimensions(B);
+		return elementwise(TIMES, B, new OffHeapMatrix(m, n), 0);
+	}
+
+	/**
+	 * Element-by-element multiplication in place, A = A.*B
+	 *
+	 * @param B
+	 *            another matrix
+	 * @return A.*B
+	 */
+
+	public OffHeapMatrix arrayTimesEquals(OffHeapMatrix B) {
+		checkMatrixDimensions(B);
+		return elementwise(TIMES, B, this, 0);
+	}
+
+	/**
+	 * Element-by-element right division, C = A./B
+	 *
+	 * @param B
+	 *            another matrix
+	 * @return A./B, owned by the caller
+	 */
+
+	public OffHeapMatrix arrayRightDivide(OffHeapMatrix B) {
+		checkMatrixDimensions(B);
+		return elementwise(DIVIDE, B, new OffHeapMatrix(m, n), 0);
+	}
+
+	/**
+	 * Element-by-element right division in place, A = A./B
+	 *
+	 * @param B
+	 *            another matrix
+	 * @return A./B
+	 */
+
+	public OffHeapMatrix arrayRightDivideEquals(OffHeapMatrix B) {
+		checkMatrixDimensions(B);
+		return elementwise(DIVIDE, B, this, 0);
+	}
+
+	/**
+	 * Element-by-element left division, C = A.\B
+	 *
+	 * @param B
+	 *            another matrix
+	 * @return A.\B, owned by the caller
+	 */
+
+	public OffHeapMatrix arrayLeftDivide(OffHeapMatrix B) {
+		checkMatrixDimensions(B);
+		return elementwise(LEFT_DIVIDE, B, new OffHeapMatrix(m, n), 0);
+	}
+
+	/**
+	 * Element-by-element left division in place, A = A.\B
+	 *
+	 * @param B
+	 *            another matrix
+	 * @return A.\B
+	 */
+
+	public OffHeapMatrix arrayLeftDivideEquals(OffHeapMatrix B) {
+		checkMatrixDimensions(B);
+		return elementwise(LEFT_DIVIDE, B, this, 0);
+	}
+
+	/**
+	 * Multiply a matrix by a scalar, C = s*A
+	 *
+	 * @param s
+	 *            scalar
+	 * @return s*A, owned by the caller
+	 */
+
+	public OffHeapMatrix times(double s) {
+		checkOpen();
+		return elementwise(SCALE, this, new OffHeapMatrix(m, n), s);
+	}
+
+	/**
+	 * Multiply a matrix by a scalar in place, A = s*A
+	 *
+	 * @param s
+	 *            scalar
+	 * @return replace A by s*A
+	 */
+
+	public OffHeapMatrix timesEquals(double s) {
+		checkOpen();
+		return elementwise(SCALE, this, this, s);
+	}
+
+	/**
+	 * Unary minus
+	 *
+	 * @return -A, owned by the caller
+	 */
+
+	public OffHeapMatrix uminus() {
+		checkOpen();
+		return elementwise(SCALE, this, new OffHeapMatrix(m, n), -1.0);
+	}
+
+	/**
+	 * Linear algebraic matrix multiplication, A * B. The product is formed
+	 * tile by tile: TILE-by-TILE blocks of A and B are copied to the heap and
+	 * multiplied with Blas.dgemm.
+	 *
+	 * @param B
+	 *            another matrix
+	 * @return Matrix product, A * B, owned by the caller
+	 * @exception IllegalArgumentException
+	 *                Matrix inner dimensions must agree.
+	 */
+
+	public OffHeapMatrix times(OffHeapMatrix B) {
+		checkOpen();
+		B.checkOpen();
+		if (B.m != n) {
+			throw new IllegalArgumentException(
+					"Matrix inner dimensions must agree.");
+		}
+		OffHeapMatrix X = new OffHeapMatrix(m, B.n);
+		double[] a = new double[TILE * TILE];
+		double[] b = new double[TILE * TILE];
+		double[] c = new double[TILE * TILE];
+		for (long jc = 0; jc < B.n; jc += TILE) {
+			int nb = (int) Math.min(TILE, B.n - jc);
+			for (long ic = 0; ic < m; ic += TILE) {
+				int mb = (int) Math.min(TILE, m - ic);
+				java.util.Arrays.fill(c, 0, mb * nb, 0.0);
+				for (long pc = 0; pc < n; pc += TILE) {
+					int kb = (int) Math.min(TILE, n - pc);
+					readBlock(ic, pc, mb, kb, a);
+					B.readBlock(pc, jc, kb, nb, b);
+					Blas.dgemm(mb, nb, kb, 1.0, a, 0, mb, b, 0, kb, 1.0, c, 0,
+							mb);
+				}
+				X.writeBlock(ic, jc, mb, nb, c);
+			}
+		}
+		return X;
+	}
+
+	/**
+	 * One norm
+	 *
+	 * @return maximum column sum.
+	 */
+
+	public double norm1() {
+		checkOpen();
+		double[] x = new double[(int) m];
+		double f = 0;
+		for (long j = 0; j < n; j++) {
+			getColumn(j, x, 0);
+			double s = 0;
+			for (int i = 0; i < m; i++) {
+				s += Math.abs(x[i]);
+			}
+			f = Math.max(f, s);
+		}
+		return f;
+	}
+
+	/**
+	 * Frobenius norm
+	 *
+	 * @return sqrt of sum of squares of all elements.
+	 */
+
+	public double normF() {
+		checkOpen();
+		double[] x = new double[(int) m];
+		double scale = 0, ssq = 1;
+		for (long j = 0; j < n; j++) {
+			getColumn(j, x, 0);
+			// Scaled sum of squares, as in LAPACK's dnrm2.
+			for (int i = 0; i < m; i++) {
+				double a = Math.abs(x[i]);
+				if (a == 0) {
+					continue;
+				}
+				if (scale < a) {
+					ssq = 1 + ssq * (scale / a) * (scale / a);
+					scale = a;
+				} else {
+					ssq += (a / scale) * (a / scale);
+				}
+			}
+		}
+		return scale * Math.sqrt(ssq);
+	}
+
+	/*
+	 * ------------------------ Private Methods ------------------------
+	 */
+
+	/**
+	 * X = op(A, B) element by element, in steps of at most STEP elements of a
+	 * column. X may be A or B.
+	 */
+
+	private OffHeapMatrix elementwise(int op, OffHeapMatrix B,
+			OffHeapMatrix X, double s) {
+		int len = (int) Math.min(STEP, m);
+		double[] a = new double[len];
+		double[] b = new double[len];
+		for (long j = 0; j < n; j++) {
+			DoubleBuffer ca = chunk(j), cb = B.chunk(j), cx = X.chunk(j);
+			// The operands may be chunked differently.
+			int oa = offset(0, j), ob = B.offset(0, j), ox = X.offset(0, j);
+			for (int i = 0; i < m; i += len) {
+				int l = (int) Math.min(len, m - i);
+				ca.get(oa + i, a, 0, l);
+				switch (op) {
+				case PLUS:
+					cb.get(ob + i, b, 0, l);
+					ElementOps.plus(l, a, 0, b, 0, a, 0);
+					break;
+				case MINUS:
+					cb.get(ob + i, b, 0, l);
+					ElementOps.minus(l, a, 0, b, 0, a, 0);
+					break;
+				case TIMES:
+					cb.get(ob + i, b, 0, l);
+					ElementOps.times(l, a, 0, b, 0, a, 0);
+					break;
+				case DIVIDE:
+					cb.get(ob + i, b, 0, l);
+					ElementOps.divide(l, a, 0, b, 0, a, 0);
+					break;
+				case LEFT_DIVIDE:
+					cb.get(ob + i, b, 0, l);
+					ElementOps.divide(l, b, 0, a, 0, a, 0);
+					break;
+				default:
+					ElementOps.scale(l, s, a, 0, a, 0);
+					break;
+				}
+				cx.put(ox + i, a, 0, l);
+			}
+		}
+		return X;
+	}
+
+	/** Copy the rows-by-cols block at (i0,j0) into x, packed by columns. **/
+
+	private void readBlock(long i0, long j0, int rows, int cols, double[] x) {
+		for (int j = 0; j < cols; j++) {
+			chunk(j0 + j).get(offset(i0, j0 + j), x, j * rows, rows);
+		}
+	}
+
+	/** Copy x, packed by columns, into the rows-by-cols block at (i0,j0). **/
+
+	private void writeBlock(long i0, long j0, int rows, int cols, double[] x) {
+		for (int j = 0; j < cols; j++) {
+			chunk(j0 + j).put(offset(i0, j0 + j), x, j * rows, rows);
+		}
+	}
+
+	/** Chunk holding column j. **/
+
+	private DoubleBuffer chunk(long j) {
+		DoubleBuffer[] c = chunks;
+		if (c == null) {
+			throw new IllegalStateException("Matrix is closed.");
+		}
+		return c[(int) (j / chunkColumns)];
+	}
+
+	/** Offset of element (i,j) within its chunk. **/
+
+	private int offset(long i, long j) {
+		return (int) (i + (j % chunkColumns) * m);
+	}
+
+	/** Check if size(A) == size(B) **/
+
+	private void checkMatrixDimensions(OffHeapMatrix B) {
+		checkOpen();
+		B.checkOpen();
+		if (B.m != m || B.n != n) {
+			throw new IllegalArgumentException("Matrix dimensions must agree.");
+		}
+	}
+
+	/** Check that the matrix has not been closed. **/
+
+	private void checkOpen() {
+		if (closed) {
+			throw new IllegalStateException("Matrix is closed.");
+		}
+	}
+
+	/** Check a column index. **/
+
+	private void checkColumn(long j) {
+		if (j < 0 || j >= n) {
+			throw new ArrayIndexOutOfBoundsException("Matrix column " + j);
+		}
+	}
+
+	/** Check an element index. **/
+
+	private void checkIndex(long i, long j) {
+		if (i < 0 || i >= m || j < 0 || j >= n) {
+			throw new ArrayIndexOutOfBoundsException("Matrix index (" + i
+					+ "," + j + ")");
+		}
+	}
+
+	/** Check a linear index, which also guards the division by m. **/
+
+	private void checkIndex(long index) {
+		if (index < 0 || index >= m * n) {
+			throw new ArrayIndexOutOfBoundsException("Matrix index " + index);
+		}
+	}
+}
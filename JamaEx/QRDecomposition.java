@@ -1,5 +1,8 @@
 package JamaEx;
+import JamaEx.util.Blas;
+import JamaEx.util.ElementOps;
 import JamaEx.util.Maths;
+import JamaEx.util.Serial;
 
 /** QR Decomposition.
 <P>
@@ -12,6 +15,15 @@ import JamaEx.util.Maths;
    QR decomposition is in the least squares solution of nonsquare systems
    of simultaneous linear equations.  This will fail if isFullRank()
    returns false.
+<P>
+   The reflections are computed in blocks of NB columns, each block
+   factored recursively, and kept in compact WY form: the product of the
+   reflections of a block is I - V*T*V', with V the block's Householder
+   vectors and T an upper triangular NB-by-NB matrix.  Applying a block
+   to other columns is then a few matrix products, so almost all of the
+   work is done by Blas.dgemm.  Q is never formed unless getQ() is called;
+   applyQ and applyQTranspose multiply by it directly, and solve uses
+   applyQTranspose.
 */
 
 public class QRDecomposition implements java.io.Serializable {
@@ -20,10 +32,10 @@ public class QRDecomposition implements java.io.Serializable {
    Class variables
  * ------------------------ */
 
-   /** Array for internal storage of decomposition.
-   @serial internal array storage.
+   /** Array for internal storage of decomposition, packed by columns:
+       the Householder vectors on and below the diagonal, R above it.
    */
-   private double[][] QR;
+   private transient double[] QR;
 
    /** Row and column dimensions.
    @serial column dimension.
@@ -32,9 +44,16 @@ public class QRDecomposition implements java.io.Serializable {
    private int m, n;
 
    /** Array for internal storage of diagonal of R.
-   @serial diagonal of R.
    */
-   private double[] Rdiag;
+   private transient double[] Rdiag;
+
+   /** Triangular factors of the blocks, NB rows per column: the factor of
+       the block starting at column j is in columns j to j+NB-1.
+   */
+   private transient double[] T;
+
+   /** Columns per block of reflections. **/
+   private static final int NB = 64;
 
 /* ------------------------
    Constructor
@@ -46,43 +65,41 @@ public class QRDecomposition implements java.io.Serializable {
    */
 
    public QRDecomposition (Matrix A) {
-      // Initialize.
-      QR = A.getArrayCopy();
-      m = A.getRowDimension();
-      n = A.getColumnDimension();
-      Rdiag = new double[n];
+      this(A.getColumnPackedCopy(), A.getRowDimension(),
+           A.getColumnDimension());
+   }
 
-      // Main loop.
-      for (int k = 0; k < n; k++) {
-         // Compute 2-norm of k-th column without under/overflow.
-         double nrm = 0;
-         for (int i = k; i < m; i++) {
-            nrm = Maths.hypot(nrm,QR[i][k]);
-         }
+   /** Factor A in its own storage, as LAPACK's dgeqrf, so that no copy of
+       it is made.  A is overwritten by the Householder vectors and R, and
+       the result reads them from there: A must not be changed while it is
+       in use.
+   @param A    Rectangular matrix, overwritten.
+   @return     Structure to access R and the Householder vectors and
+               compute Q.
+   */
 
-         if (nrm != 0.0) {
-            // Form k-th Householder vector.
-            if (QR[k][k] < 0) {
-               nrm = -nrm;
-            }
-            for (int i = k; i < m; i++) {
-               QR[i][k] /= nrm;
-            }
-            QR[k][k] += 1.0;
-
-            // Apply transformation to remaining columns.
-            for (int j = k+1; j < n; j++) {
-               double s = 0.0; 
-               for (int i = k; i < m; i++) {
-                  s += QR[i][k]*QR[i][j];
-               }
-               s = -s/QR[k][k];
-               for (int i = k; i < m; i++) {
-                  QR[i][j] += s*QR[i][k];
-               }
-            }
+   public static QRDecomposition factorInPlace (Matrix A) {
+      return new QRDecomposition(A.getColumnPackedArray(),
+                                 A.getRowDimension(), A.getColumnDimension());
+   }
+
+   /** Factor the m-by-n column packed array QR in place. **/
+
+   private QRDecomposition (double[] QR, int m, int n) {
+      this.QR = QR;
+      this.m = m;
+      this.n = n;
+      Rdiag = new double[n];
+      T = new double[NB*n];
+      int k = Math.min(m, n);
+      for (int j = 0; j < k; j += NB) {
+         int jb = Math.min(NB, k-j);
+         int d = j + j*m;
+         geqr3(m-j, jb, QR, d, m, T, j*NB, NB, Rdiag, j);
+         if (j+jb < n) {
+            larfb(true, m-j, jb, n-j-jb, QR, d, m, T, j*NB, NB,
+                  QR, d + jb*m, m);
          }
-         Rdiag[k] = -nrm;
       }
    }
 
@@ -108,14 +125,10 @@ public class QRDecomposition implements java.io.Serializable {
 
    public Matrix getH () {
       Matrix X = new Matrix(m,n);
-      double[][] H = X.getArray();
-      for (int i = 0; i < m; i++) {
-         for (int j = 0; j < n; j++) {
-            if (i >= j) {
-               H[i][j] = QR[i][j];
-            } else {
-               H[i][j] = 0.0;
-            }
+      double[] H = X.getColumnPackedArray();
+      for (int j = 0; j < n; j++) {
+         for (int i = j; i < m; i++) {
+            H[i+j*m] = QR[i+j*m];
          }
       }
       return X;
@@ -127,17 +140,12 @@ public class QRDecomposition implements java.io.Serializable {
 
    public Matrix getR () {
       Matrix X = new Matrix(n,n);
-      double[][] R = X.getArray();
-      for (int i = 0; i < n; i++) {
-         for (int j = 0; j < n; j++) {
-            if (i < j) {
-               R[i][j] = QR[i][j];
-            } else if (i == j) {
-               R[i][j] = Rdiag[i];
-            } else {
-               R[i][j] = 0.0;
-            }
+      double[] R = X.getColumnPackedArray();
+      for (int j = 0; j < n; j++) {
+         for (int i = 0; i < j && i < m; i++) {
+            R[i+j*n] = QR[i+j*m];
          }
+         R[j+j*n] = Rdiag[j];
       }
       return X;
    }
@@ -148,25 +156,49 @@ public class QRDecomposition implements java.io.Serializable {
 
    public Matrix getQ () {
       Matrix X = new Matrix(m,n);
-      double[][] Q = X.getArray();
-      for (int k = n-1; k >= 0; k--) {
-         for (int i = 0; i < m; i++) {
-            Q[i][k] = 0.0;
-         }
-         Q[k][k] = 1.0;
-         for (int j = k; j < n; j++) {
-            if (QR[k][k] != 0) {
-               double s = 0.0;
-               for (int i = k; i < m; i++) {
-                  s += QR[i][k]*Q[i][j];
-               }
-               s = -s/QR[k][k];
-               for (int i = k; i < m; i++) {
-                  Q[i][j] += s*QR[i][k];
-               }
-            }
-         }
+      double[] Q = X.getColumnPackedArray();
+      for (int k = 0; k < Math.min(m, n); k++) {
+         Q[k+k*m] = 1.0;
+      }
+      applyQ(false, Q, m, n);
+      return X;
+   }
+
+   /** Multiply by the orthogonal factor without forming it, Q*B
+   @param B    A Matrix with m rows, multiplied by the full m-by-m Q, or
+               with n rows, multiplied by the economy-sized m-by-n Q.
+   @return     Q*B, with m rows.
+   @exception  IllegalArgumentException  Matrix row dimensions must agree.
+   */
+
+   public Matrix applyQ (Matrix B) {
+      int rows = B.getRowDimension(), nx = B.getColumnDimension();
+      if (rows != m && rows != n) {
+         throw new IllegalArgumentException("Matrix row dimensions must agree.");
+      }
+      Matrix X = new Matrix(m,nx);
+      double[] x = X.getColumnPackedArray(), b = B.getColumnPackedArray();
+      for (int j = 0; j < nx; j++) {
+         System.arraycopy(b, j*rows, x, j*m, rows);
+      }
+      applyQ(false, x, m, nx);
+      return X;
+   }
+
+   /** Multiply by the transpose of the orthogonal factor without forming
+       it, Q'*B
+   @param B    A Matrix with m rows.
+   @return     Q'*B, with m rows, for the full m-by-m Q.  The first n rows
+               are the product with the economy-sized Q.
+   @exception  IllegalArgumentException  Matrix row dimensions must agree.
+   */
+
+   public Matrix applyQTranspose (Matrix B) {
+      if (B.getRowDimension() != m) {
+         throw new IllegalArgumentException("Matrix row dimensions must agree.");
       }
+      Matrix X = B.copy();
+      applyQ(true, X.getColumnPackedArray(), m, B.getColumnDimension());
       return X;
    }
 
@@ -184,36 +216,173 @@ public class QRDecomposition implements java.io.Serializable {
       if (!this.isFullRank()) {
          throw new RuntimeException("Matrix is rank deficient.");
       }
-      
-      // Copy right hand side
-      int nx = B.getColumnDimension();
-      double[][] X = B.getArrayCopy();
 
       // Compute Y = transpose(Q)*B
-      for (int k = 0; k < n; k++) {
-         for (int j = 0; j < nx; j++) {
-            double s = 0.0; 
-            for (int i = k; i < m; i++) {
-               s += QR[i][k]*X[i][j];
-            }
-            s = -s/QR[k][k];
-            for (int i = k; i < m; i++) {
-               X[i][j] += s*QR[i][k];
+      int nx = B.getColumnDimension();
+      double[] Y = applyQTranspose(B).getColumnPackedArray();
+
+      // Solve R*X = Y, one column at a time.
+      Matrix Xmat = new Matrix(n,nx);
+      double[] X = Xmat.getColumnPackedArray();
+      for (int j = 0; j < nx; j++) {
+         int col = j*m;
+         for (int k = n-1; k >= 0; k--) {
+            double Xkj = Y[col+k] /= Rdiag[k];
+            if (Xkj != 0.0) {
+               ElementOps.axpy(k, -Xkj, QR, k*m, Y, col);
             }
          }
+         System.arraycopy(Y, col, X, j*n, n);
       }
-      // Solve R*X = Y;
-      for (int k = n-1; k >= 0; k--) {
-         for (int j = 0; j < nx; j++) {
-            X[k][j] /= Rdiag[k];
-         }
-         for (int i = 0; i < k; i++) {
-            for (int j = 0; j < nx; j++) {
-               X[i][j] -= X[k][j]*QR[i][k];
+      return Xmat;
+   }
+
+/* ------------------------
+   Private Methods
+ * ------------------------ */
+
+   /** Overwrite the m-by-nx column packed array C with Q'*C, applying the
+       blocks first to last, or with Q*C, applying them last to first. **/
+
+   private void applyQ (boolean transpose, double[] C, int ldc, int nx) {
+      int k = Math.min(m, n);
+      int last = (k-1)/NB*NB;
+      for (int b = 0; b <= last && k > 0; b += NB) {
+         int j = transpose ? b : last - b;
+         int jb = Math.min(NB, k-j);
+         larfb(transpose, m-j, jb, nx, QR, j + j*m, m, T, j*NB, NB,
+               C, j, ldc);
+      }
+   }
+
+   /** Recursive QR of an m-by-n block, m >= n, as LAPACK's dgeqrt3.  The
+       left half is factored, its reflections are applied to the right
+       half, which is factored in turn, and the two triangular factors are
+       joined: T12 = -T11*V1'*V2*T22.  Each reflection is I - v*v'/v(0),
+       with v scaled as in the unblocked JAMA algorithm, so T(i,i) is
+       1/v(0), or 0 for a zero column. **/
+
+   private static void geqr3 (int m, int n, double[] A, int aOff, int lda,
+                              double[] T, int tOff, int ldt,
+                              double[] Rdiag, int rOff) {
+      if (n == 1) {
+         double nrm = norm2(m, A, aOff);
+         if (nrm != 0.0) {
+            if (A[aOff] < 0) {
+               nrm = -nrm;
             }
+            ElementOps.scale(m, 1.0/nrm, A, aOff, A, aOff);
+            A[aOff] += 1.0;
+            T[tOff] = 1.0/A[aOff];
+         } else {
+            T[tOff] = 0.0;
          }
+         Rdiag[rOff] = -nrm;
+         return;
       }
-      return (new Matrix(X,n,nx).getMatrix(0,n-1,0,nx-1));
+      int n1 = n/2, n2 = n - n1, m2 = m - n1;
+      int a12 = aOff + n1*lda, a22 = a12 + n1;
+      geqr3(m, n1, A, aOff, lda, T, tOff, ldt, Rdiag, rOff);
+      larfb(true, m, n1, n2, A, aOff, lda, T, tOff, ldt, A, a12, lda);
+      int t22 = tOff + n1 + n1*ldt;
+      geqr3(m2, n2, A, a22, lda, T, t22, ldt, Rdiag, rOff+n1);
+
+      // V1(n1:m,:)'*V2, with the triangle at the top of V2 made explicit.
+      double[] V2 = lowerTriangle(n2, A, a22, lda);
+      double[] Y = new double[n1*n2], Z = new double[n1*n2];
+      Blas.dgemm(true, false, n1, n2, n2, 1.0, A, aOff+n1, lda, V2, 0, n2,
+                 0.0, Y, 0, n1);
+      Blas.dgemm(true, false, n1, n2, m2-n2, 1.0, A, aOff+n1+n2, lda,
+                 A, a22+n2, lda, 1.0, Y, 0, n1);
+      Blas.dgemm(false, false, n1, n2, n1, 1.0, T, tOff, ldt, Y, 0, n1,
+                 0.0, Z, 0, n1);
+      Blas.dgemm(false, false, n1, n2, n2, -1.0, Z, 0, n1, T, t22, ldt,
+                 0.0, T, tOff + n1*ldt, ldt);
    }
-  private static final long serialVersionUID = 1;
+
+   /** Apply a block of k reflections, stored as the m-by-k matrix V with
+       triangular factor T, to the m-by-nc matrix C: C = (I - V*T'*V')*C
+       if transpose, otherwise C = (I - V*T*V')*C, as LAPACK's dlarfb.  The
+       top k-by-k triangle of V is copied out so that the elements of R
+       stored above it are not read. **/
+
+   private static void larfb (boolean transpose, int m, int k, int nc,
+                              double[] V, int vOff, int ldv,
+                              double[] T, int tOff, int ldt,
+                              double[] C, int cOff, int ldc) {
+      if (k == 0 || nc == 0) {
+         return;
+      }
+      double[] V1 = lowerTriangle(k, V, vOff, ldv);
+      double[] W = new double[k*nc], W2 = new double[k*nc];
+      // W = V'*C
+      Blas.dgemm(true, false, k, nc, k, 1.0, V1, 0, k, C, cOff, ldc,
+                 0.0, W, 0, k);
+      Blas.dgemm(true, false, k, nc, m-k, 1.0, V, vOff+k, ldv,
+                 C, cOff+k, ldc, 1.0, W, 0, k);
+      // W2 = op(T)*W, then C = C - V*W2
+      Blas.dgemm(transpose, false, k, nc, k, 1.0, T, tOff, ldt, W, 0, k,
+                 0.0, W2, 0, k);
+      Blas.dgemm(false, false, k, nc, k, -1.0, V1, 0, k, W2, 0, k,
+                 1.0, C, cOff, ldc);
+      Blas.dgemm(false, false, m-k, nc, k, -1.0, V, vOff+k, ldv,
+                 W2, 0, k, 1.0, C, cOff+k, ldc);
+   }
+
+   /** Copy of the k-by-k lower triangle of V, diagonal included, with
+       zeros above it. **/
+
+   private static double[] lowerTriangle (int k, double[] V, int vOff,
+                                          int ldv) {
+      double[] L = new double[k*k];
+      for (int j = 0; j < k; j++) {
+         System.arraycopy(V, vOff + j + j*ldv, L, j + j*k, k-j);
+      }
+      return L;
+   }
+
+   /** 2-norm of a column.  The sum of squares is used when it can neither
+       overflow nor lose small elements to underflow, and the scaled
+       hypot accumulation otherwise. **/
+
+   private static double norm2 (int len, double[] a, int aOff) {
+      double s = ElementOps.dot(len, a, aOff, a, aOff);
+      if (s >= 1e-200 && s < Double.POSITIVE_INFINITY) {
+         return Math.sqrt(s);
+      }
+      double nrm = 0;
+      for (int i = 0; i < len; i++) {
+         nrm = Maths.hypot(nrm,a[aOff+i]);
+      }
+      return nrm;
+   }
+
+   /** Write the scalar fields, then the arrays in bulk.
+   @serialData the scalar fields, then QR, Rdiag and T as written by
+   JamaEx.util.Serial.
+   */
+
+   private void writeObject (java.io.ObjectOutputStream out) throws java.io.IOException {
+      out.defaultWriteObject();
+      Serial.write(out, QR);
+      Serial.write(out, Rdiag);
+      Serial.write(out, T);
+   }
+
+   /** Read a decomposition written by writeObject. **/
+
+   private void readObject (java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+      in.defaultReadObject();
+      QR = Serial.readDoubles(in);
+      Rdiag = Serial.readDoubles(in);
+      T = Serial.readDoubles(in);
+      if (m < 0 || n < 0 || QR == null || Rdiag == null || T == null
+          || QR.length != (long) m*n || Rdiag.length != n
+          || T.length != (long) NB*n) {
+         throw new java.io.InvalidObjectException(
+               "Array length does not match the dimensions.");
+      }
+   }
+
+  private static final long serialVersionUID = 3;
 }
@@ -1,5 +1,6 @@
 package JamaEx;
 import JamaEx.util.Maths;
+import JamaEx.util.Serial;
 
    /** Singular Value Decomposition.
    <P>
@@ -22,15 +23,12 @@ public class SingularValueDecomposition implements java.io.Serializable {
  * ------------------------ */
 
    /** Arrays for internal storage of U and V.
-   @serial internal storage of U.
-   @serial internal storage of V.
    */
-   private double[][] U, V;
+   private transient double[][] U, V;
 
    /** Array for internal storage of singular values.
-   @serial internal storage of singular values.
    */
-   private double[] s;
+   private transient double[] s;
 
    /** Row and column dimensions.
    @serial row dimension.
@@ -503,12 +501,9 @@ public class SingularValueDecomposition implements java.io.Serializable {
 
    public Matrix getS () {
       Matrix X = new Matrix(n,n);
-      double[][] S = X.getArray();
+      double[] S = X.getColumnPackedArray();
       for (int i = 0; i < n; i++) {
-         for (int j = 0; j < n; j++) {
-            S[i][j] = 0.0;
-         }
-         S[i][i] = this.s[i];
+         S[i+i*n] = this.s[i];
       }
       return X;
    }
@@ -544,5 +539,27 @@ public class SingularValueDecomposition implements java.io.Serializable {
       }
       return r;
    }
-  private static final long serialVersionUID = 1;
+
+   /** Write the scalar fields, then the arrays in bulk.
+   @serialData the scalar fields, then U, V, s as written by
+   JamaEx.util.Serial.
+   */
+
+   private void writeObject (java.io.ObjectOutputStream out) throws java.io.IOException {
+      out.defaultWriteObject();
+      Serial.write(out, U);
+      Serial.write(out, V);
+      Serial.write(out, s);
+   }
+
+   /** Read a decomposition written by writeObject. **/
+
+   private void readObject (java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+      in.defaultReadObject();
+      U = Serial.readDoubles2(in);
+      V = Serial.readDoubles2(in);
+      s = Serial.readDoubles(in);
+   }
+
+  private static final long serialVersionUID = 2;
 }
@@ -0,0 +1,468 @@
+package JamaEx;
+
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+
+/**
+ * Assembles a sparse matrix from (row, column, value) triplets, like Matlab's
+ * sparse(i, j, v, m, n).
+ * <P>
+ * Triplets are appended in any order to growable primitive arrays. build()
+ * sums the values of duplicate entries, drops entries whose sum is exactly
+ * zero, and returns the matrix in CSR form. It makes a counting sort of the
+ * triplets by row, then sorts each row by column with a stable merge sort, so
+ * duplicates are summed in the order they were added and the result does not
+ * depend on the number of threads. Large inputs are counted, scattered, sorted
+ * and compacted in parallel on the common fork/join pool. No step boxes
+ * indices or values.
+ * <P>
+ * A builder is not thread safe; each thread may fill its own and the triplets
+ * be combined with add(SparseBuilder). clear() keeps the arrays, so a builder
+ * can be reused for each assembly.
+ */
+
+public class SparseBuilder {
+
+	/*
+	 * ------------------------ Class variables ------------------------
+	 */
+
+	/** Row and column indices and values of the triplets. **/
+	private int[] rows, cols;
+	private double[] vals;
+
+	/** Number of triplets. **/
+	private int count;
+
+	/** Dimensions of the matrix being built. **/
+	private final int m, n;
+
+	/** Builds with at least this many triplets run in parallel. **/
+	private static final int PARALLEL = 1 << 16;
+
+	/** Rows this short are sorted by insertion. **/
+	private static final int INSERTION = 24;
+
+	/*
+	 * ------------------------ Constructors ------------------------
+	 */
+
+	/**
+	 * Start an m-by-n sparse matrix with no triplets.
+	 *
+	 * @param m
+	 *            Number of rows.
+	 * @param n
+	 *            Number of columns.
+	 */
+
+	public SparseBuilder(int m, int n) {
+		this(m, n, 16);
+	}
+
+	/**
+	 * Start an m-by-n sparse matrix with room for a number of triplets.
+	 *
+	 * @param m
+	 *            Number of rows.
+	 * @param n
+	 *            Number of columns.
+	 * @param capacity
+	 *            Expected number of triplets.
+	 */
+
+	public SparseBuilder(int m, int n, int capacity) {
+		if (m < 0 || n < 0 || capacity < 0) {
+			throw new IllegalArgumentException("Negative dimension or capacity.");
+		}
+		this.m = m;
+		this.n = n;
+		rows = new int[capacity];
+		cols = new int[capacity];
+		vals = new double[capacity];
+	}
+
+	/*
+	 * ------------------------ Public Methods ------------------------
+	 */
+
+	/**
+	 * Add a value to element (i,j).
+	 *
+	 * @param i
+	 *            Row index.
+	 * @param j
+	 *            Column index.
+	 * @param v
+	 *            value, summed with other values added at (i,j).
+	 * @return this builder
+	 * @exception ArrayIndexOutOfBoundsException
+	 */
+
+	public SparseBuilder add(int i, int j, double v) {
+		if (i < 0 || i >= m || j < 0 || j >= n) {
+			throw outside(i, j);
+		}
+		if (count == rows.length) {
+			grow(count + 1);
+		}
+		rows[count] = i;
+		cols[count] = j;
+		vals[count++] = v;
+		return this;
+	}
+
+	/**
+	 * Add triplets from arrays.
+	 *
+	 * @param i
+	 *            Row indices.
+	 * @param j
+	 *            Column indices.
+	 * @param v
+	 *            values.
+	 * @return this builder
+	 * @exception IllegalArgumentException
+	 *                Array lengths must agree.
+	 * @exception ArrayIndexOutOfBoundsException
+	 */
+
+	public SparseBuilder add(int[] i, int[] j, double[] v) {
+		if (i.length != j.length || i.length != v.length) {
+			throw new IllegalArgumentException("Array lengths must agree.");
+		}
+		for (int k = 0; k < i.length; k++) {
+			if (i[k] < 0 || i[k] >= m || j[k] < 0 || j[k] >= n) {
+				throw outside(i[k], j[k]);
+			}
+		}
+		grow(count + i.length);
+		System.arraycopy(i, 0, rows, count, i.length);
+		System.arraycopy(j, 0, cols, count, i.length);
+		System.arraycopy(v, 0, vals, count, i.length);
+		count += i.length;
+		return this;
+	}
+
+	/**
+	 * Add triplets from primitive streams, which are consumed together.
+	 *
+	 * @param i
+	 *            Row indices.
+	 * @param j
+	 *            Column indices.
+	 * @param v
+	 *            values.
+	 * @return this builder
+	 * @exception IllegalArgumentException
+	 *                Stream lengths must agree.
+	 * @exception ArrayIndexOutOfBoundsException
+	 */
+
+	public SparseBuilder add(IntStream i, IntStream j, DoubleStream v) {
+		PrimitiveIterator.OfInt ii = i.iterator(), jj = j.iterator();
+		PrimitiveIterator.OfDouble vv = v.iterator();
+		while (ii.hasNext() && jj.hasNext() && vv.hasNext()) {
+			add(ii.nextInt(), jj.nextInt(), vv.nextDouble());
+		}
+		if (ii.hasNext() || jj.hasNext() || vv.hasNext()) {
+			throw new IllegalArgumentException("Stream lengths must agree.");
+		}
+		return this;
+	}
+
+	/**
+	 * Add the triplets of another builder of the same dimensions.
+	 *
+	 * @param B
+	 *            another builder
+	 * @return this builder
+	 * @exception IllegalArgumentException
+	 *                Matrix dimensions must agree.
+	 */
+
+	public SparseBuilder add(SparseBuilder B) {
+		if (B.m != m || B.n != n) {
+			throw new IllegalArgumentException("Matrix dimensions must agree.");
+		}
+		int c = B.count;
+		grow(count + c);
+		System.arraycopy(B.rows, 0, rows, count, c);
+		System.arraycopy(B.cols, 0, cols, count, c);
+		System.arraycopy(B.vals, 0, vals, count, c);
+		count += c;
+		return this;
+	}
+
+	/**
+	 * Number of triplets added, counting duplicates.
+	 *
+	 * @return count
+	 */
+
+	public int size() {
+		return count;
+	}
+
+	/** Remove all triplets, keeping the storage for reuse. **/
+
+	public void clear() {
+		count = 0;
+	}
+
+	/**
+	 * Assemble the triplets into a sparse matrix in CSR form. The builder is
+	 * not changed.
+	 *
+	 * @return SparseMatrix with the sums of the values added at each element.
+	 */
+
+	public SparseMatrix build() {
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		int P = pool.getParallelism();
+		// One histogram per chunk of triplets, so parallel only when the
+		// histograms are small next to the triplets.
+		int split = count < PARALLEL || P < 2 ? 1 : 4 * P;
+		int chunks = (int) Math.max(1, Math.min(split, (long) count
+				/ Math.max(m, 1)));
+
+		// Count the triplets of each row in each chunk, then turn the counts
+		// into the offset of each chunk's part of each row.
+		int[][] start = new int[chunks][];
+		run(pool, new Pass(this, COUNT, chunks, start, null, null, null, null,
+				0, chunks));
+		int[] ptr = new int[m + 1];
+		int t = 0;
+		for (int i = 0; i < m; i++) {
+			ptr[i] = t;
+			for (int c = 0; c < chunks; c++) {
+				int k = start[c][i];
+				start[c][i] = t;
+				t += k;
+			}
+		}
+		ptr[m] = t;
+
+		// Stable scatter by row, then sort each row by column and sum
+		// duplicates in place, leaving the number of distinct entries.
+		int[] ci = new int[count];
+		double[] cv = new double[count];
+		run(pool, new Pass(this, SCATTER, chunks, start, ptr, ci, cv, null, 0,
+				chunks));
+		int[] kept = new int[m + 1];
+		run(pool, new Pass(this, SORT, split, null, ptr, ci, cv, kept, 0, m));
+
+		// Compact the rows into arrays of the final size.
+		for (int i = 0; i < m; i++) {
+			kept[i + 1] += kept[i];
+		}
+		int nnz = kept[m];
+		int[] ri = new int[nnz];
+		double[] rv = new double[nnz];
+		Pass copy = new Pass(this, COPY, split, null, ptr, ci, cv, kept, 0, m);
+		copy.ri = ri;
+		copy.rv = rv;
+		run(pool, copy);
+		return new SparseMatrix(m, n, true, kept, ri, rv);
+	}
+
+	/*
+	 * ------------------------ Private Methods ------------------------
+	 */
+
+	private ArrayIndexOutOfBoundsException outside(int i, int j) {
+		return new ArrayIndexOutOfBoundsException("(" + i + "," + j
+				+ ") is outside a " + m + "-by-" + n + " matrix.");
+	}
+
+	/** Make room for at least size triplets. **/
+
+	private void grow(int size) {
+		if (size < 0) {
+			throw new IllegalArgumentException("Too many triplets.");
+		}
+		if (size > rows.length) {
+			int c = (int) Math.min(Integer.MAX_VALUE - 8,
+					Math.max(size, 2L * rows.length));
+			rows = Arrays.copyOf(rows, c);
+			cols = Arrays.copyOf(cols, c);
+			vals = Arrays.copyOf(vals, c);
+		}
+	}
+
+	private static void run(ForkJoinPool pool, Pass pass) {
+		if (pass.chunks == 1) {
+			pass.compute();
+		} else {
+			pool.invoke(pass);
+		}
+	}
+
+	/** Passes of build. **/
+	private static final int COUNT = 0, SCATTER = 1, SORT = 2, COPY = 3;
+
+	/**
+	 * One pass of build over chunks [lo, hi) of the triplets (COUNT and
+	 * SCATTER) or rows [lo, hi) (SORT and COPY), split in halves.
+	 */
+
+	private static class Pass extends RecursiveAction {
+		private final SparseBuilder B;
+		/** Number of chunks of triplets, or of parts of the rows. **/
+		private final int pass, chunks, lo, hi;
+		private final int[][] start;
+		private final int[] ptr, ci, kept;
+		private final double[] cv;
+		int[] ri;
+		double[] rv;
+
+		Pass(SparseBuilder B, int pass, int chunks, int[][] start, int[] ptr,
+				int[] ci, double[] cv, int[] kept, int lo, int hi) {
+			this.B = B;
+			this.pass = pass;
+			this.chunks = chunks;
+			this.start = start;
+			this.ptr = ptr;
+			this.ci = ci;
+			this.cv = cv;
+			this.kept = kept;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		protected void compute() {
+			int leaf = pass <= SCATTER ? 1 : Math.max(1, B.m / (4 * chunks));
+			if (chunks > 1 && hi - lo > leaf) {
+				int h = (lo + hi) >>> 1;
+				Pass left = new Pass(B, pass, chunks, start, ptr, ci, cv, kept,
+						lo, h);
+				Pass right = new Pass(B, pass, chunks, start, ptr, ci, cv,
+						kept, h, hi);
+				left.ri = right.ri = ri;
+				left.rv = right.rv = rv;
+				invokeAll(left, right);
+				return;
+			}
+			for (int c = lo; c < hi; c++) {
+				switch (pass) {
+				case COUNT:
+					count(c);
+					break;
+				case SCATTER:
+					scatter(c);
+					break;
+				case SORT:
+					kept[c + 1] = sortRow(ci, cv, ptr[c], ptr[c + 1]);
+					break;
+				default:
+					int len = kept[c + 1] - kept[c];
+					System.arraycopy(ci, ptr[c], ri, kept[c], len);
+					System.arraycopy(cv, ptr[c], rv, kept[c], len);
+				}
+			}
+		}
+
+		/** Triplets [k0, k1) of chunk c. **/
+
+		private int first(int c) {
+			return (int) ((long) B.count * c / chunks);
+		}
+
+		private void count(int c) {
+			int[] h = new int[B.m];
+			for (int k = first(c), k1 = first(c + 1); k < k1; k++) {
+				h[B.rows[k]]++;
+			}
+			start[c] = h;
+		}
+
+		private void scatter(int c) {
+			int[] next = start[c];
+			for (int k = first(c), k1 = first(c + 1); k < k1; k++) {
+				int q = next[B.rows[k]]++;
+				ci[q] = B.cols[k];
+				cv[q] = B.vals[k];
+			}
+		}
+
+		private static final long serialVersionUID = 1;
+	}
+
+	/**
+	 * Sort c[lo..hi) by column, stably, sum the values of equal columns and
+	 * drop zero sums, leaving the distinct entries at the start.
+	 *
+	 * @return number of distinct nonzero entries.
+	 */
+
+	private static int sortRow(int[] c, double[] v, int lo, int hi) {
+		if (hi - lo <= INSERTION) {
+			insertion(c, v, lo, hi);
+		} else {
+			mergeSort(c, v, lo, hi, new int[hi - lo], new double[hi - lo]);
+		}
+		int q = lo;
+		for (int p = lo; p < hi;) {
+			int col = c[p];
+			double s = v[p++];
+			while (p < hi && c[p] == col) {
+				s += v[p++];
+			}
+			if (s != 0.0) {
+				c[q] = col;
+				v[q++] = s;
+			}
+		}
+		return q - lo;
+	}
+
+	private static void insertion(int[] c, double[] v, int lo, int hi) {
+		for (int p = lo + 1; p < hi; p++) {
+			int x = c[p];
+			double y = v[p];
+			int q = p - 1;
+			while (q >= lo && c[q] > x) {
+				c[q + 1] = c[q];
+				v[q + 1] = v[q];
+				q--;
+			}
+			c[q + 1] = x;
+			v[q + 1] = y;
+		}
+	}
+
+	/** Stable merge sort of c[lo..hi), using tc and tv from index 0. **/
+
+	private static void mergeSort(int[] c, double[] v, int lo, int hi,
+			int[] tc, double[] tv) {
+		if (hi - lo <= INSERTION) {
+			insertion(c, v, lo, hi);
+			return;
+		}
+		int mid = (lo + hi) >>> 1;
+		mergeSort(c, v, lo, mid, tc, tv);
+		mergeSort(c, v, mid, hi, tc, tv);
+		if (c[mid - 1] <= c[mid]) {
+			return;
+		}
+		int len = mid - lo;
+		System.arraycopy(c, lo, tc, 0, len);
+		System.arraycopy(v, lo, tv, 0, len);
+		int a = 0, b = mid, q = lo;
+		while (a < len && b < hi) {
+			if (c[b] < tc[a]) {
+				c[q] = c[b];
+				v[q++] = v[b++];
+			} else {
+				c[q] = tc[a];
+				v[q++] = tv[a++];
+			}
+		}
+		System.arraycopy(tc, a, c, q, len - a);
+		System.arraycopy(tv, a, v, q, len - a);
+	}
+}
@@ -0,0 +1,795 @@
+package JamaEx;
+
+import java.util.Arrays;
+
+import JamaEx.util.Amd;
+import JamaEx.util.Blas;
+import JamaEx.util.Serial;
+
+   /** Sparse Cholesky Decomposition.
+   <P>
+   For a sparse, symmetric, positive definite matrix A, the sparse Cholesky
+   decomposition is a permutation p and a sparse lower triangular matrix L
+   so that A(p,p) = L*L'.  Only the lower triangle of A is used, so A may
+   hold just its lower triangle; if any entry above the diagonal is
+   stored, A must be symmetric.
+   <P>
+   The work is split in two phases.  The symbolic analysis (analyze) orders
+   A by approximate minimum degree, postorders its elimination tree, counts
+   the entries of L and groups consecutive columns of L with the same
+   structure into supernodes.  It depends only on the pattern of A, so one
+   analysis serves any number of numeric factorizations of matrices with
+   that pattern.  The numeric factorization is left-looking and supernodal:
+   each supernode is a dense block of columns, updated from its descendants
+   with matrix products (Blas.dgemm) and then factored in place.
+   <P>
+   If the matrix is not positive definite, or stores an upper triangle
+   that is not the transpose of its lower triangle, the constructor
+   returns a partial decomposition and sets an internal flag that may
+   be queried by the isSPD() method.
+   */
+
+public class SparseCholeskyDecomposition implements java.io.Serializable {
+
+   /** Symbolic analysis of a sparse symmetric matrix: the fill reducing
+       ordering and the supernodal structure of its Cholesky factor.
+   */
+
+   public static class Symbolic implements java.io.Serializable {
+
+      /** Dimension.
+      @serial matrix dimension.
+      */
+      private int n;
+
+      /** Permutation and its inverse: row k of A(p,p) is row perm[k] of A,
+          and row i of A is row pinv[i] of A(p,p). **/
+      private transient int[] perm, pinv;
+
+      /** Pattern of A, in CSC form, that the analysis is for. **/
+      private transient int[] Ap, Ai;
+
+      /** First column of each supernode, with n at the end, and the
+          supernode of each column. **/
+      private transient int[] superStart, superOf;
+
+      /** Row indices of each supernode's columns, rows[rowPtr[s] ..
+          rowPtr[s+1]-1], in increasing order, starting with the columns of
+          the supernode itself. **/
+      private transient int[] rowPtr, rows;
+
+      /** Position in its supernode's block of each entry of A, or -1 for
+          entries above the diagonal. **/
+      private transient int[] map;
+
+      private Symbolic () {
+      }
+
+      /** Dimension of the analyzed matrix.
+      @return  n
+      */
+
+      public int getDimension () {
+         return n;
+      }
+
+      /** The fill reducing ordering.
+      @return  p, so that A(p,p) = L*L'.
+      */
+
+      public int[] getPermutation () {
+         return perm.clone();
+      }
+
+      /** Number of entries of L, counting the diagonal.
+      @return  nnz(L)
+      */
+
+      public long nnzL () {
+         long c = 0;
+         for (int s = 0; s + 1 < superStart.length; s++) {
+            long nc = superStart[s+1] - superStart[s];
+            long nr = rowPtr[s+1] - rowPtr[s];
+            c += nc*nr - nc*(nc-1)/2;
+         }
+         return c;
+      }
+
+      /** Number of supernodes.
+      @return  number of dense column blocks of L.
+      */
+
+      public int getSupernodeCount () {
+         return superStart.length - 1;
+      }
+
+      /** Write the dimension, then the arrays in bulk.
+      @serialData the dimension, then the ordering, pattern and supernode
+      arrays as written by JamaEx.util.Serial.
+      */
+
+      private void writeObject (java.io.ObjectOutputStream out)
+            throws java.io.IOException {
+         out.defaultWriteObject();
+         Serial.write(out, perm);
+         Serial.write(out, Ap);
+         Serial.write(out, Ai);
+         Serial.write(out, superStart);
+         Serial.write(out, rowPtr);
+         Serial.write(out, rows);
+         Serial.write(out, map);
+      }
+
+      /** Read an analysis written by writeObject. **/
+
+      private void readObject (java.io.ObjectInputStream in)
+            throws java.io.IOException, ClassNotFoundException {
+         in.defaultReadObject();
+         perm = Serial.readInts(in);
+         Ap = Serial.readInts(in);
+         Ai = Serial.readInts(in);
+         superStart = Serial.readInts(in);
+         rowPtr = Serial.readInts(in);
+         rows = Serial.readInts(in);
+         map = Serial.readInts(in);
+         pinv = inverse(perm);
+         superOf = new int[n];
+         for (int s = 0; s + 1 < superStart.length; s++) {
+            Arrays.fill(superOf, superStart[s], superStart[s+1], s);
+         }
+      }
+
+      private static final long serialVersionUID = 1;
+   }
+
+/* ------------------------
+   Class variables
+ * ------------------------ */
+
+   /** Symbolic analysis the factor is built on.
+   @serial symbolic analysis.
+   */
+   private Symbolic S;
+
+   /** Dense block of each supernode, column-major with leading dimension
+       the number of rows of the supernode.  Only the lower triangle of
+       the diagonal block is used.
+   */
+   private transient double[][] Lx;
+
+   /** Symmetric and positive definite flag.
+   @serial is symmetric and positive definite flag.
+   */
+   private boolean isspd;
+
+   /** Diagonal blocks wider than this are factored in panels of this many
+       columns, with the trailing columns updated by Blas.dgemm. **/
+   private static final int NB = 48;
+
+   /** Updates with at most this many multiply-adds are applied directly,
+       without forming the product. **/
+   private static final long SMALL = 4096;
+
+/* ------------------------
+   Constructors
+ * ------------------------ */
+
+   /** Sparse Cholesky algorithm, with an approximate minimum degree
+       ordering.  Structure to access L, p and isspd flag.
+   @param  A   Square, symmetric sparse matrix, or its lower triangle.
+   @exception  IllegalArgumentException  Matrix must be square.
+   */
+
+   public SparseCholeskyDecomposition (SparseMatrix A) {
+      this(A, analyze(A));
+   }
+
+   /** Sparse Cholesky algorithm, reusing a symbolic analysis.
+   @param  A   Square, symmetric sparse matrix, or its lower triangle, with
+               the pattern that S was computed for.
+   @param  S   Symbolic analysis from analyze.
+   @exception  IllegalArgumentException  Matrix pattern must match the
+               analysis.
+   */
+
+   public SparseCholeskyDecomposition (SparseMatrix A, Symbolic S) {
+      this.S = S;
+      int n = S.n;
+      A = A.toCSC();
+      int[] Ap = A.getPointerArray(), Ai = A.getIndexArray();
+      if (A.getRowDimension() != n || A.getColumnDimension() != n
+          || !Arrays.equals(Ap, S.Ap)
+          || !Arrays.equals(Ai, 0, Ap[n], S.Ai, 0, S.Ai.length)) {
+         throw new IllegalArgumentException(
+               "Matrix pattern must match the analysis.");
+      }
+      isspd = isSymmetric(A);
+      double[] Ax = A.getValueArray();
+      int nsuper = S.superStart.length - 1;
+
+      // Assemble the lower triangle of A(p,p) into the supernodes.
+      Lx = new double[nsuper][];
+      for (int s = 0; s < nsuper; s++) {
+         Lx[s] = new double[(S.superStart[s+1] - S.superStart[s])
+                            * (S.rowPtr[s+1] - S.rowPtr[s])];
+      }
+      for (int j = 0; j < n; j++) {
+         for (int p = Ap[j]; p < Ap[j+1]; p++) {
+            if (S.map[p] >= 0) {
+               int c = Math.min(S.pinv[Ai[p]], S.pinv[j]);
+               Lx[S.superOf[c]][S.map[p]] = Ax[p];
+            }
+         }
+      }
+
+      // Left-looking factorization.  Supernode d is kept on the list of
+      // the next supernode it updates, with pos[d] the first of its rows
+      // not yet used.
+      int[] link = new int[nsuper], next = new int[nsuper],
+            pos = new int[nsuper], rel = new int[n];
+      Arrays.fill(link, -1);
+      double[] C = new double[0];
+      for (int s = 0; s < nsuper; s++) {
+         int f = S.superStart[s], l = S.superStart[s+1] - 1;
+         int nc = l - f + 1, base = S.rowPtr[s], nr = S.rowPtr[s+1] - base;
+         double[] Ls = Lx[s];
+         for (int q = 0; q < nr; q++) {
+            rel[S.rows[base+q]] = q;
+         }
+         for (int d = link[s]; d != -1; ) {
+            int dn = next[d];
+            int dbase = S.rowPtr[d], dnr = S.rowPtr[d+1] - dbase;
+            int dnc = S.superStart[d+1] - S.superStart[d];
+            int q0 = pos[d], q1 = q0;
+            while (q1 < dnr && S.rows[dbase+q1] <= l) {
+               q1++;
+            }
+            int m1 = dnr - q0, k1 = q1 - q0;
+            double[] Ld = Lx[d];
+            if ((long) m1*k1*dnc <= SMALL) {
+               // Subtract the product directly.
+               for (int jj = 0; jj < k1; jj++) {
+                  int col = (S.rows[dbase+q0+jj] - f)*nr;
+                  for (int kk = 0; kk < dnc; kk++) {
+                     int o = q0 + kk*dnr;
+                     double t = Ld[o+jj];
+                     for (int ii = jj; ii < m1; ii++) {
+                        Ls[rel[S.rows[dbase+q0+ii]] + col] -= t*Ld[o+ii];
+                     }
+                  }
+               }
+            } else {
+               if (C.length < m1*k1) {
+                  C = new double[Math.max(m1*k1, 2*C.length)];
+               }
+               Blas.dgemm(false, true, m1, k1, dnc, 1.0, Ld, q0, dnr,
+                          Ld, q0, dnr, 0.0, C, 0, m1);
+               for (int jj = 0; jj < k1; jj++) {
+                  int col = (S.rows[dbase+q0+jj] - f)*nr;
+                  for (int ii = jj; ii < m1; ii++) {
+                     Ls[rel[S.rows[dbase+q0+ii]] + col] -= C[ii + jj*m1];
+                  }
+               }
+            }
+            pos[d] = q1;
+            if (q1 < dnr) {
+               int t = S.superOf[S.rows[dbase+q1]];
+               next[d] = link[t];
+               link[t] = d;
+            }
+            d = dn;
+         }
+         if (!factor(Ls, nr, nc)) {
+            isspd = false;
+            break;
+         }
+         if (nr > nc) {
+            pos[s] = nc;
+            int t = S.superOf[S.rows[base+nc]];
+            next[s] = link[t];
+            link[t] = s;
+         }
+      }
+   }
+
+/* ------------------------
+   Public Methods
+ * ------------------------ */
+
+   /** Symbolic analysis with an approximate minimum degree ordering.
+   @param  A   Square sparse matrix.  Only its pattern is used.
+   @return     Analysis for factoring matrices with the pattern of A.
+   @exception  IllegalArgumentException  Matrix must be square.
+   */
+
+   public static Symbolic analyze (SparseMatrix A) {
+      A = A.toCSC();
+      if (A.getRowDimension() != A.getColumnDimension()) {
+         throw new IllegalArgumentException("Matrix must be square.");
+      }
+      return analyze(A, Amd.order(A.getColumnDimension(),
+                                  A.getPointerArray(), A.getIndexArray()));
+   }
+
+   /** Symbolic analysis with a given ordering.  The ordering is refined
+       by a postorder of the elimination tree, which does not change the
+       fill.
+   @param  A      Square sparse matrix.  Only its pattern is used.
+   @param  perm   Ordering of the rows and columns, or null for none.
+   @return        Analysis for factoring matrices with the pattern of A.
+   @exception  IllegalArgumentException  Matrix must be square, and perm
+               a permutation.
+   */
+
+   public static Symbolic analyze (SparseMatrix A, int[] perm) {
+      A = A.toCSC();
+      int n = A.getColumnDimension();
+      if (A.getRowDimension() != n) {
+         throw new IllegalArgumentException("Matrix must be square.");
+      }
+      if (perm == null) {
+         perm = new int[n];
+         for (int k = 0; k < n; k++) {
+            perm[k] = k;
+         }
+      }
+      if (perm.length != n) {
+         throw new IllegalArgumentException("Ordering must be a permutation.");
+      }
+      int[] pinv = inverse(perm);
+      int[] Ap = A.getPointerArray(), Ai = A.getIndexArray();
+
+      // Elimination tree of A(p,p), postordered, then recomputed in the
+      // new order, in which every subtree is a range of columns.
+      int[] parent = etree(n, Ap, Ai, pinv);
+      int[] post = Amd.postorder(parent);
+      int[] perm2 = new int[n];
+      for (int k = 0; k < n; k++) {
+         perm2[k] = perm[post[k]];
+      }
+      perm = perm2;
+      pinv = inverse(perm);
+      int[][] upper = permutedUpper(n, Ap, Ai, pinv);
+      int[] Tp = upper[0], Ti = upper[1];
+      parent = etree(Tp, Ti);
+
+      // Column counts of L: row k of L is the set of nodes reached by
+      // climbing the tree from the entries of row k of A(p,p).
+      int[] count = new int[n], flag = new int[n];
+      for (int k = 0; k < n; k++) {
+         flag[k] = k;
+         count[k]++;
+         for (int p = Tp[k]; p < Tp[k+1]; p++) {
+            for (int i = Ti[p]; flag[i] != k; i = parent[i]) {
+               flag[i] = k;
+               count[i]++;
+            }
+         }
+      }
+
+      // Supernodes: column j joins column j-1 when L(:,j-1) is L(:,j)
+      // with one more row.
+      int[] superOf = new int[n];
+      int[] start = new int[n+1];
+      int nsuper = 0;
+      for (int j = 0; j < n; j++) {
+         if (j == 0 || parent[j-1] != j || count[j-1] != count[j] + 1) {
+            start[nsuper++] = j;
+         }
+         superOf[j] = nsuper - 1;
+      }
+      start[nsuper] = n;
+      start = Arrays.copyOf(start, nsuper+1);
+
+      // Row structure of each supernode: its own columns, the rows of A
+      // below them, and the rows of its children below them.
+      long total = 0;
+      int[] rowPtr = new int[nsuper+1];
+      for (int s = 0; s < nsuper; s++) {
+         total += count[start[s]];
+         if (total > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Factor is too large.");
+         }
+         rowPtr[s+1] = (int) total;
+      }
+      int[] rows = new int[(int) total];
+      int[][] lower = permutedLower(n, Ap, Ai, pinv);
+      int[] Lp = lower[0], Li = lower[1], origin = lower[2];
+      int[] head = new int[nsuper], nextChild = new int[nsuper];
+      Arrays.fill(head, -1);
+      Arrays.fill(flag, -1);
+      for (int s = 0; s < nsuper; s++) {
+         int f = start[s], l = start[s+1] - 1;
+         int q = rowPtr[s];
+         for (int j = f; j <= l; j++) {
+            rows[q++] = j;
+            flag[j] = s;
+         }
+         for (int j = f; j <= l; j++) {
+            for (int p = Lp[j]; p < Lp[j+1]; p++) {
+               int i = Li[p];
+               if (flag[i] != s) {
+                  flag[i] = s;
+                  rows[q++] = i;
+               }
+            }
+         }
+         for (int c = head[s]; c != -1; c = nextChild[c]) {
+            for (int p = rowPtr[c]; p < rowPtr[c+1]; p++) {
+               int i = rows[p];
+               if (i > l && flag[i] != s) {
+                  flag[i] = s;
+                  rows[q++] = i;
+               }
+            }
+         }
+         Arrays.sort(rows, rowPtr[s] + (l-f+1), q);
+         if (q != rowPtr[s+1]) {
+            throw new IllegalStateException("Inconsistent column counts.");
+         }
+         if (parent[l] != -1) {
+            int t = superOf[parent[l]];
+            nextChild[s] = head[t];
+            head[t] = s;
+         }
+      }
+
+      // Position of each entry of the lower triangle in its supernode.
+      int[] map = new int[Ap[n]];
+      Arrays.fill(map, -1);
+      int[] rel = new int[n];
+      for (int s = 0; s < nsuper; s++) {
+         int nr = rowPtr[s+1] - rowPtr[s];
+         for (int p = rowPtr[s]; p < rowPtr[s+1]; p++) {
+            rel[rows[p]] = p - rowPtr[s];
+         }
+         for (int j = start[s]; j < start[s+1]; j++) {
+            for (int p = Lp[j]; p < Lp[j+1]; p++) {
+               map[origin[p]] = rel[Li[p]] + (j - start[s])*nr;
+            }
+         }
+      }
+
+      Symbolic S = new Symbolic();
+      S.n = n;
+      S.perm = perm;
+      S.pinv = pinv;
+      S.Ap = Ap.clone();
+      S.Ai = Arrays.copyOf(Ai, Ap[n]);
+      S.superStart = start;
+      S.superOf = superOf;
+      S.rowPtr = rowPtr;
+      S.rows = rows;
+      S.map = map;
+      return S;
+   }
+
+   /** Is the matrix symmetric and positive definite?
+   @return     true if A is symmetric and positive definite.
+   */
+
+   public boolean isSPD () {
+      return isspd;
+   }
+
+   /** Return the symbolic analysis, for factoring other matrices with the
+       same pattern.
+   @return     S
+   */
+
+   public Symbolic getSymbolic () {
+      return S;
+   }
+
+   /** Return the fill reducing ordering.
+   @return     p, so that A(p,p) = L*L'.
+   */
+
+   public int[] getPermutation () {
+      return S.getPermutation();
+   }
+
+   /** Return triangular factor.
+   @return     L, sparse in CSC form.
+   */
+
+   public SparseMatrix getL () {
+      int n = S.n, nsuper = Lx.length;
+      int[] ptr = new int[n+1];
+      int nnz = (int) S.nnzL();
+      int[] idx = new int[nnz];
+      double[] val = new double[nnz];
+      int q = 0;
+      for (int s = 0; s < nsuper; s++) {
+         int f = S.superStart[s], nc = S.superStart[s+1] - f;
+         int base = S.rowPtr[s], nr = S.rowPtr[s+1] - base;
+         for (int j = 0; j < nc; j++) {
+            for (int i = j; i < nr; i++) {
+               idx[q] = S.rows[base+i];
+               val[q++] = Lx[s][i + j*nr];
+            }
+            ptr[f+j+1] = q;
+         }
+      }
+      return new SparseMatrix(n, n, false, ptr, idx, val);
+   }
+
+   /** Solve A*x = b
+   @param  b   A vector with as many elements as A has rows.
+   @return     x so that A*x = b
+   @exception  IllegalArgumentException  Matrix row dimensions must agree.
+   @exception  RuntimeException  Matrix is not symmetric positive definite.
+   */
+
+   public double[] solve (double[] b) {
+      int n = S.n;
+      if (b.length != n) {
+         throw new IllegalArgumentException(
+               "Matrix row dimensions must agree.");
+      }
+      if (!isspd) {
+         throw new RuntimeException(
+               "Matrix is not symmetric positive definite.");
+      }
+      double[] y = new double[n];
+      for (int k = 0; k < n; k++) {
+         y[k] = b[S.perm[k]];
+      }
+      solvePermuted(y);
+      double[] x = new double[n];
+      for (int k = 0; k < n; k++) {
+         x[S.perm[k]] = y[k];
+      }
+      return x;
+   }
+
+   /** Solve A*X = B
+   @param  B   A Matrix with as many rows as A and any number of columns.
+   @return     X so that A*X = B
+   @exception  IllegalArgumentException  Matrix row dimensions must agree.
+   @exception  RuntimeException  Matrix is not symmetric positive definite.
+   */
+
+   public Matrix solve (Matrix B) {
+      int n = S.n;
+      if (B.getRowDimension() != n) {
+         throw new IllegalArgumentException(
+               "Matrix row dimensions must agree.");
+      }
+      int nx = B.getColumnDimension();
+      Matrix X = new Matrix(n, nx);
+      double[] b = B.getColumnPackedArray(), x = X.getColumnPackedArray();
+      double[] col = new double[n];
+      for (int j = 0; j < nx; j++) {
+         System.arraycopy(b, j*n, col, 0, n);
+         System.arraycopy(solve(col), 0, x, j*n, n);
+      }
+      return X;
+   }
+
+/* ------------------------
+   Private Methods
+ * ------------------------ */
+
+   /** Solve L*L'*y = y in the permuted order. **/
+
+   private void solvePermuted (double[] y) {
+      int nsuper = Lx.length;
+      for (int s = 0; s < nsuper; s++) {
+         int f = S.superStart[s], nc = S.superStart[s+1] - f;
+         int base = S.rowPtr[s], nr = S.rowPtr[s+1] - base;
+         double[] Ls = Lx[s];
+         for (int j = 0; j < nc; j++) {
+            double t = y[f+j] /= Ls[j + j*nr];
+            if (t != 0.0) {
+               for (int i = j+1; i < nr; i++) {
+                  y[S.rows[base+i]] -= Ls[i + j*nr]*t;
+               }
+            }
+         }
+      }
+      for (int s = nsuper-1; s >= 0; s--) {
+         int f = S.superStart[s], nc = S.superStart[s+1] - f;
+         int base = S.rowPtr[s], nr = S.rowPtr[s+1] - base;
+         double[] Ls = Lx[s];
+         for (int j = nc-1; j >= 0; j--) {
+            double t = y[f+j];
+            for (int i = j+1; i < nr; i++) {
+               t -= Ls[i + j*nr]*y[S.rows[base+i]];
+            }
+            y[f+j] = t/Ls[j + j*nr];
+         }
+      }
+   }
+
+   /** Factor the nr-by-nc block of a supernode in place: the Cholesky
+       factor of its diagonal block, and the rows below divided by its
+       transpose.
+   @return  false if a pivot is not positive.
+   */
+
+   private static boolean factor (double[] L, int nr, int nc) {
+      for (int b = 0; b < nc; b += NB) {
+         int nb = Math.min(NB, nc - b);
+         for (int j = b; j < b + nb; j++) {
+            double d = L[j + j*nr];
+            if (!(d > 0.0)) {
+               return false;
+            }
+            d = Math.sqrt(d);
+            L[j + j*nr] = d;
+            for (int i = j+1; i < nr; i++) {
+               L[i + j*nr] /= d;
+            }
+            for (int k = j+1; k < b + nb; k++) {
+               double t = L[k + j*nr];
+               if (t != 0.0) {
+                  for (int i = k; i < nr; i++) {
+                     L[i + k*nr] -= t*L[i + j*nr];
+                  }
+               }
+            }
+         }
+         int r = b + nb;
+         if (r < nc) {
+            // Trailing columns, from row r down; rows above the diagonal
+            // of the trailing block are overwritten and cleared at the
+            // end.
+            Blas.dgemm(false, true, nr - r, nc - r, nb, -1.0, L, r + b*nr,
+                       nr, L, r + b*nr, nr, 1.0, L, r + r*nr, nr);
+         }
+      }
+      for (int j = 1; j < nc; j++) {
+         Arrays.fill(L, j*nr, j*nr + j, 0.0);
+      }
+      return true;
+   }
+
+   /** Inverse of a permutation. **/
+
+   private static int[] inverse (int[] perm) {
+      int n = perm.length;
+      int[] pinv = new int[n];
+      Arrays.fill(pinv, -1);
+      for (int k = 0; k < n; k++) {
+         if (perm[k] < 0 || perm[k] >= n || pinv[perm[k]] != -1) {
+            throw new IllegalArgumentException(
+                  "Ordering must be a permutation.");
+         }
+         pinv[perm[k]] = k;
+      }
+      return pinv;
+   }
+
+   /** Pattern of the upper triangle of A(p,p), from the lower triangle of
+       A, in CSC form. **/
+
+   private static int[][] permutedUpper (int n, int[] Ap, int[] Ai,
+                                         int[] pinv) {
+      int[] Tp = new int[n+1];
+      for (int j = 0; j < n; j++) {
+         for (int p = Ap[j]; p < Ap[j+1]; p++) {
+            if (Ai[p] >= j) {
+               Tp[Math.max(pinv[Ai[p]], pinv[j]) + 1]++;
+            }
+         }
+      }
+      for (int k = 0; k < n; k++) {
+         Tp[k+1] += Tp[k];
+      }
+      int[] next = Arrays.copyOf(Tp, n);
+      int[] Ti = new int[Tp[n]];
+      for (int j = 0; j < n; j++) {
+         for (int p = Ap[j]; p < Ap[j+1]; p++) {
+            if (Ai[p] >= j) {
+               int a = pinv[Ai[p]], c = pinv[j];
+               Ti[next[Math.max(a, c)]++] = Math.min(a, c);
+            }
+         }
+      }
+      return new int[][] { Tp, Ti };
+   }
+
+   /** Pattern of the lower triangle of A(p,p), from the lower triangle of
+       A, in CSC form, with the position in A of each entry. **/
+
+   private static int[][] permutedLower (int n, int[] Ap, int[] Ai,
+                                         int[] pinv) {
+      int[] Lp = new int[n+1];
+      for (int j = 0; j < n; j++) {
+         for (int p = Ap[j]; p < Ap[j+1]; p++) {
+            if (Ai[p] >= j) {
+               Lp[Math.min(pinv[Ai[p]], pinv[j]) + 1]++;
+            }
+         }
+      }
+      for (int k = 0; k < n; k++) {
+         Lp[k+1] += Lp[k];
+      }
+      int[] next = Arrays.copyOf(Lp, n);
+      int[] Li = new int[Lp[n]], origin = new int[Lp[n]];
+      for (int j = 0; j < n; j++) {
+         for (int p = Ap[j]; p < Ap[j+1]; p++) {
+            if (Ai[p] >= j) {
+               int a = pinv[Ai[p]], c = pinv[j];
+               int q = next[Math.min(a, c)]++;
+               Li[q] = Math.max(a, c);
+               origin[q] = p;
+            }
+         }
+      }
+      return new int[][] { Lp, Li, origin };
+   }
+
+   /** Elimination tree of A(p,p). **/
+
+   private static int[] etree (int n, int[] Ap, int[] Ai, int[] pinv) {
+      int[][] upper = permutedUpper(n, Ap, Ai, pinv);
+      return etree(upper[0], upper[1]);
+   }
+
+   /** Elimination tree from the upper triangle in CSC form, by Liu's
+       algorithm with path compression. **/
+
+   private static int[] etree (int[] Tp, int[] Ti) {
+      int n = Tp.length - 1;
+      int[] parent = new int[n], ancestor = new int[n];
+      for (int k = 0; k < n; k++) {
+         parent[k] = -1;
+         ancestor[k] = -1;
+         for (int p = Tp[k]; p < Tp[k+1]; p++) {
+            int i = Ti[p];
+            while (i != -1 && i < k) {
+               int inext = ancestor[i];
+               ancestor[i] = k;
+               if (inext == -1) {
+                  parent[i] = k;
+               }
+               i = inext;
+            }
+         }
+      }
+      return parent;
+   }
+
+   /** Is A, in CSC form, lower triangular or equal to its transpose? **/
+
+   private static boolean isSymmetric (SparseMatrix A) {
+      int[] Ap = A.getPointerArray(), Ai = A.getIndexArray();
+      boolean lower = true;
+      for (int j = 0; j < A.getColumnDimension() && lower; j++) {
+         // Row indices are sorted, so the first is the smallest.
+         lower = Ap[j] == Ap[j+1] || Ai[Ap[j]] >= j;
+      }
+      if (lower) {
+         return true;
+      }
+      SparseMatrix T = A.transpose().toCSC();
+      int nnz = A.nnz();
+      return Arrays.equals(A.getPointerArray(), T.getPointerArray())
+         && Arrays.equals(A.getIndexArray(), 0, nnz, T.getIndexArray(), 0, nnz)
+         && Arrays.equals(A.getValueArray(), 0, nnz, T.getValueArray(), 0, nnz);
+   }
+
+   /** Write the analysis and flag, then the supernode blocks in bulk.
+   @serialData the analysis and flag, then Lx as written by
+   JamaEx.util.Serial.
+   */
+
+   private void writeObject (java.io.ObjectOutputStream out)
+         throws java.io.IOException {
+      out.defaultWriteObject();
+      Serial.write(out, Lx);
+   }
+
+   /** Read a decomposition written by writeObject. **/
+
+   private void readObject (java.io.ObjectInputStream in)
+         throws java.io.IOException, ClassNotFoundException {
+      in.defaultReadObject();
+      Lx = Serial.readDoubles2(in);
+   }
+
+  private static final long serialVersionUID = 1;
+
+}
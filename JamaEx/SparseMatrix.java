@@ -0,0 +1,961 @@
+package JamaEx;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import JamaEx.util.Serial;
+
+/**
+ * Sparse matrix in compressed column (CSC) or compressed row (CSR) form.
+ * <P>
+ * Only the nonzero elements are stored. In CSC form, the row indices and
+ * values of column j are idx[ptr[j] .. ptr[j+1]-1] and val[ptr[j] ..
+ * ptr[j+1]-1], with the row indices increasing; CSR form is the same with the
+ * roles of rows and columns exchanged. Storage is O(nnz + n) in CSC form and
+ * O(nnz + m) in CSR form, and every operation here takes time proportional to
+ * the number of stored elements it touches, plus the length of any dense
+ * vector or matrix involved.
+ * <P>
+ * The arrays of a CSR matrix are exactly those of its transpose in CSC form,
+ * so transpose() shares the arrays and only flips the form; toCSC() and
+ * toCSR() convert between the forms of the same matrix in O(nnz + m + n).
+ * Operations with two sparse operands convert the second to the form of the
+ * first. Elements that become exactly zero in sums and products are not
+ * stored.
+ */
+
+public class SparseMatrix implements java.io.Serializable {
+
+	/*
+	 * ------------------------ Class variables ------------------------
+	 */
+
+	/**
+	 * Start of each column (CSC) or row (CSR) in idx and val, with one more
+	 * entry holding the number of stored elements.
+	 */
+	private transient int[] ptr;
+
+	/** Row (CSC) or column (CSR) index of each stored element. **/
+	private transient int[] idx;
+
+	/** Value of each stored element. **/
+	private transient double[] val;
+
+	/**
+	 * Row and column dimensions.
+	 *
+	 * @serial row dimension.
+	 * @serial column dimension.
+	 */
+	private int m, n;
+
+	/**
+	 * Compressed row form.
+	 *
+	 * @serial true for CSR, false for CSC.
+	 */
+	private boolean csr;
+
+	/**
+	 * Products with dense matrices doing at least this many multiply-adds are
+	 * split by columns of the result over the common fork/join pool.
+	 */
+	private static final long PARALLEL = 1 << 20;
+
+	/*
+	 * ------------------------ Constructors ------------------------
+	 */
+
+	/**
+	 * Construct an m-by-n sparse matrix of zeros, in CSC form.
+	 *
+	 * @param m
+	 *            Number of rows.
+	 * @param n
+	 *            Number of columns.
+	 */
+
+	public SparseMatrix(int m, int n) {
+		this(m, n, new int[n + 1], new int[0], new double[0], false);
+	}
+
+	/**
+	 * Construct a sparse matrix from compressed arrays, without copying them.
+	 *
+	 * @param m
+	 *            Number of rows.
+	 * @param n
+	 *            Number of columns.
+	 * @param ptr
+	 *            Start of each column (CSC) or row (CSR), of length n+1 or
+	 *            m+1, starting at 0.
+	 * @param idx
+	 *            Row (CSC) or column (CSR) indices, increasing within each
+	 *            column or row.
+	 * @param val
+	 *            Values of the stored elements.
+	 * @param csr
+	 *            true if the arrays are in CSR form, false for CSC.
+	 * @exception IllegalArgumentException
+	 *                The arrays are not a valid compressed matrix.
+	 */
+
+	public SparseMatrix(int m, int n, int[] ptr, int[] idx, double[] val,
+			boolean csr) {
+		int major = csr ? m : n, minor = csr ? n : m;
+		if (m < 0 || n < 0 || ptr.length != major + 1 || ptr[0] != 0) {
+			throw new IllegalArgumentException("Bad pointer array.");
+		}
+		for (int s = 0; s < major; s++) {
+			if (ptr[s + 1] < ptr[s]) {
+				throw new IllegalArgumentException("Bad pointer array.");
+			}
+		}
+		int nnz = ptr[major];
+		if (idx.length < nnz || val.length < nnz) {
+			throw new IllegalArgumentException(
+					"Index and value arrays are too short.");
+		}
+		for (int s = 0; s < major; s++) {
+			int last = -1;
+			for (int p = ptr[s]; p < ptr[s + 1]; p++) {
+				if (idx[p] <= last || idx[p] >= minor) {
+					throw new IllegalArgumentException("Indices of "
+							+ (csr ? "row " : "column ") + s
+							+ " must be increasing and in range.");
+				}
+				last = idx[p];
+			}
+		}
+		this.m = m;
+		this.n = n;
+		this.ptr = ptr;
+		this.idx = idx;
+		this.val = val;
+		this.csr = csr;
+	}
+
+	/**
+	 * Construct the CSC form of a dense matrix, storing its nonzero elements.
+	 *
+	 * @param A
+	 *            dense matrix
+	 */
+
+	public SparseMatrix(Matrix A) {
+		m = A.getRowDimension();
+		n = A.getColumnDimension();
+		double[] a = A.getColumnPackedArray();
+		ptr = new int[n + 1];
+		for (int j = 0; j < n; j++) {
+			int count = 0;
+			for (int i = j * m; i < (j + 1) * m; i++) {
+				if (a[i] != 0.0) {
+					count++;
+				}
+			}
+			ptr[j + 1] = ptr[j] + count;
+		}
+		idx = new int[ptr[n]];
+		val = new double[ptr[n]];
+		int p = 0;
+		for (int j = 0; j < n; j++) {
+			for (int i = 0; i < m; i++) {
+				double x = a[i + j * m];
+				if (x != 0.0) {
+					idx[p] = i;
+					val[p++] = x;
+				}
+			}
+		}
+	}
+
+	/** Construct from arrays already known to be valid. **/
+
+	SparseMatrix(int m, int n, boolean csr, int[] ptr, int[] idx,
+			double[] val) {
+		this.m = m;
+		this.n = n;
+		this.csr = csr;
+		this.ptr = ptr;
+		this.idx = idx;
+		this.val = val;
+	}
+
+	/*
+	 * ------------------------ Public Methods ------------------------
+	 */
+
+	/**
+	 * Assemble a sparse matrix from triplets, as Matlab's sparse(i, j, v, m,
+	 * n). Values at the same position are summed.
+	 *
+	 * @param i
+	 *            Row indices.
+	 * @param j
+	 *            Column indices.
+	 * @param v
+	 *            values.
+	 * @param m
+	 *            Number of rows.
+	 * @param n
+	 *            Number of columns.
+	 * @return m-by-n sparse matrix in CSR form.
+	 * @see SparseBuilder
+	 */
+
+	public static SparseMatrix sparse(int[] i, int[] j, double[] v, int m,
+			int n) {
+		return new SparseBuilder(m, n, 0).add(i, j, v).build();
+	}
+
+	/**
+	 * Convert to a dense matrix.
+	 *
+	 * @return Matrix with the same elements.
+	 */
+
+	public Matrix toMatrix() {
+		Matrix X = new Matrix(m, n);
+		double[] x = X.getColumnPackedArray();
+		int major = major();
+		for (int s = 0; s < major; s++) {
+			for (int p = ptr[s]; p < ptr[s + 1]; p++) {
+				x[csr ? s + idx[p] * m : idx[p] + s * m] = val[p];
+			}
+		}
+		return X;
+	}
+
+	/**
+	 * The same matrix in CSC form.
+	 *
+	 * @return this if already in CSC form, otherwise a converted copy.
+	 */
+
+	public SparseMatrix toCSC() {
+		return csr ? reorient() : this;
+	}
+
+	/**
+	 * The same matrix in CSR form.
+	 *
+	 * @return this if already in CSR form, otherwise a converted copy.
+	 */
+
+	public SparseMatrix toCSR() {
+		return csr ? this : reorient();
+	}
+
+	/**
+	 * Is the matrix in CSR form?
+	 *
+	 * @return true for CSR, false for CSC.
+	 */
+
+	public boolean isCSR() {
+		return csr;
+	}
+
+	/**
+	 * Get row dimension.
+	 *
+	 * @return m, the number of rows.
+	 */
+
+	public int getRowDimension() {
+		return m;
+	}
+
+	/**
+	 * Get column dimension.
+	 *
+	 * @return n, the number of columns.
+	 */
+
+	public int getColumnDimension() {
+		return n;
+	}
+
+	/**
+	 * Number of stored (nonzero) elements.
+	 *
+	 * @return nnz
+	 */
+
+	public int nnz() {
+		return ptr[major()];
+	}
+
+	/**
+	 * Access the internal pointer array: the start of each column (CSC) or
+	 * row (CSR) in the index and value arrays.
+	 *
+	 * @return Pointer to the array.
+	 */
+
+	public int[] getPointerArray() {
+		return ptr;
+	}
+
+	/**
+	 * Access the internal array of row (CSC) or column (CSR) indices.
+	 *
+	 * @return Pointer to the array.
+	 */
+
+	public int[] getIndexArray() {
+		return idx;
+	}
+
+	/**
+	 * Access the internal array of stored values.
+	 *
+	 * @return Pointer to the array.
+	 */
+
+	public double[] getValueArray() {
+		return val;
+	}
+
+	/**
+	 * Get a single element, by binary search in its column or row.
+	 *
+	 * @param i
+	 *            Row index.
+	 * @param j
+	 *            Column index.
+	 * @return A(i,j)
+	 * @exception ArrayIndexOutOfBoundsException
+	 */
+
+	public double get(int i, int j) {
+		if (i < 0 || i >= m || j < 0 || j >= n) {
+			throw new ArrayIndexOutOfBoundsException("(" + i + "," + j
+					+ ") is outside a " + m + "-by-" + n + " matrix.");
+		}
+		int s = csr ? i : j;
+		int p = Arrays.binarySearch(idx, ptr[s], ptr[s + 1], csr ? j : i);
+		return p >= 0 ? val[p] : 0.0;
+	}
+
+	/**
+	 * Sparse matrix transpose. The result shares the arrays of this matrix
+	 * and is in the other form.
+	 *
+	 * @return A'
+	 */
+
+	public SparseMatrix transpose() {
+		return new SparseMatrix(n, m, !csr, ptr, idx, val);
+	}
+
+	/**
+	 * Multiply a sparse matrix by a scalar, C = s*A
+	 *
+	 * @param s
+	 *            scalar
+	 * @return s*A
+	 */
+
+	public SparseMatrix times(double s) {
+		if (s == 0.0) {
+			return new SparseMatrix(m, n, csr, new int[major() + 1],
+					new int[0], new double[0]);
+		}
+		int nnz = nnz();
+		double[] v = new double[nnz];
+		for (int p = 0; p < nnz; p++) {
+			v[p] = s * val[p];
+		}
+		return new SparseMatrix(m, n, csr, ptr, Arrays.copyOf(idx, nnz), v)
+				.compact();
+	}
+
+	/**
+	 * Unary minus
+	 *
+	 * @return -A
+	 */
+
+	public SparseMatrix uminus() {
+		return times(-1.0);
+	}
+
+	/**
+	 * Absolute value of each element.
+	 *
+	 * @return abs(A)
+	 */
+
+	public SparseMatrix abs() {
+		int nnz = nnz();
+		double[] v = new double[nnz];
+		for (int p = 0; p < nnz; p++) {
+			v[p] = Math.abs(val[p]);
+		}
+		return new SparseMatrix(m, n, csr, ptr.clone(),
+				Arrays.copyOf(idx, nnz), v);
+	}
+
+	/**
+	 * C = A + B, in the form of A.
+	 *
+	 * @param B
+	 *            another sparse matrix
+	 * @return A + B
+	 */
+
+	public SparseMatrix plus(SparseMatrix B) {
+		return merge(B, PLUS);
+	}
+
+	/**
+	 * C = A - B, in the form of A.
+	 *
+	 * @param B
+	 *            another sparse matrix
+	 * @return A - B
+	 */
+
+	public SparseMatrix minus(SparseMatrix B) {
+		return merge(B, MINUS);
+	}
+
+	/**
+	 * Element-by-element multiplication, C = A.*B, in the form of A. Only the
+	 * elements stored in both matrices are computed.
+	 *
+	 * @param B
+	 *            another sparse matrix
+	 * @return A.*B
+	 */
+
+	public SparseMatrix arrayTimes(SparseMatrix B) {
+		return merge(B, TIMES);
+	}
+
+	/**
+	 * Element-by-element multiplication by a dense matrix, C = A.*B. The
+	 * result is sparse, with at most the elements stored in A.
+	 *
+	 * @param B
+	 *            dense matrix
+	 * @return A.*B
+	 */
+
+	public SparseMatrix arrayTimes(Matrix B) {
+		checkMatrixDimensions(B.getRowDimension(), B.getColumnDimension());
+		double[] b = B.getColumnPackedArray();
+		int major = major(), nnz = nnz();
+		double[] v = new double[nnz];
+		for (int s = 0; s < major; s++) {
+			for (int p = ptr[s]; p < ptr[s + 1]; p++) {
+				v[p] = val[p] * b[csr ? s + idx[p] * m : idx[p] + s * m];
+			}
+		}
+		return new SparseMatrix(m, n, csr, ptr, Arrays.copyOf(idx, nnz), v)
+				.compact();
+	}
+
+	/**
+	 * Sparse matrix times dense matrix, C = A*B
+	 *
+	 * @param B
+	 *            dense matrix with as many rows as A has columns
+	 * @return dense A*B
+	 * @exception IllegalArgumentException
+	 *                Matrix inner dimensions must agree.
+	 */
+
+	public Matrix times(Matrix B) {
+		if (B.getRowDimension() != n) {
+			throw new IllegalArgumentException(
+					"Matrix inner dimensions must agree.");
+		}
+		int nb = B.getColumnDimension();
+		Matrix C = new Matrix(m, nb);
+		double[] b = B.getColumnPackedArray(), c = C.getColumnPackedArray();
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		if ((long) nnz() * nb < PARALLEL || nb < 2
+				|| pool.getParallelism() < 2) {
+			multiply(false, b, c, 0, nb);
+		} else {
+			int leaf = (int) Math.max(1, PARALLEL / 4 / Math.max(1, nnz()));
+			pool.invoke(new TimesTask(this, b, c, 0, nb, leaf));
+		}
+		return C;
+	}
+
+	/**
+	 * Sparse matrix-vector multiplication, y = A*x
+	 *
+	 * @param x
+	 *            vector of length n
+	 * @param y
+	 *            vector of length m, overwritten by A*x. Must not be x.
+	 * @return y
+	 * @exception IllegalArgumentException
+	 *                Vector lengths must agree.
+	 */
+
+	public double[] timesVector(double[] x, double[] y) {
+		checkVectors(x, n, y, m);
+		multiply(false, x, 0, y, 0);
+		return y;
+	}
+
+	/**
+	 * Sparse matrix-vector multiplication, A*x
+	 *
+	 * @param x
+	 *            vector of length n
+	 * @return A*x
+	 * @exception IllegalArgumentException
+	 *                Vector lengths must agree.
+	 */
+
+	public double[] timesVector(double[] x) {
+		return timesVector(x, new double[m]);
+	}
+
+	/**
+	 * Transposed sparse matrix-vector multiplication, y = A'*x, without
+	 * forming A'
+	 *
+	 * @param x
+	 *            vector of length m
+	 * @param y
+	 *            vector of length n, overwritten by A'*x. Must not be x.
+	 * @return y
+	 * @exception IllegalArgumentException
+	 *                Vector lengths must agree.
+	 */
+
+	public double[] transposeTimesVector(double[] x, double[] y) {
+		checkVectors(x, m, y, n);
+		multiply(true, x, 0, y, 0);
+		return y;
+	}
+
+	/**
+	 * Transposed sparse matrix-vector multiplication, A'*x, without forming A'
+	 *
+	 * @param x
+	 *            vector of length m
+	 * @return A'*x
+	 * @exception IllegalArgumentException
+	 *                Vector lengths must agree.
+	 */
+
+	public double[] transposeTimesVector(double[] x) {
+		return transposeTimesVector(x, new double[n]);
+	}
+
+	/**
+	 * One norm
+	 *
+	 * @return maximum column sum.
+	 */
+
+	public double norm1() {
+		return csr ? maxSum(n) : maxSlice();
+	}
+
+	/**
+	 * Infinity norm
+	 *
+	 * @return maximum row sum.
+	 */
+
+	public double normInf() {
+		return csr ? maxSlice() : maxSum(m);
+	}
+
+	/**
+	 * Frobenius norm
+	 *
+	 * @return sqrt of sum of squares of all elements.
+	 */
+
+	public double normF() {
+		int nnz = nnz();
+		double scale = 0.0;
+		for (int p = 0; p < nnz; p++) {
+			scale = Math.max(scale, Math.abs(val[p]));
+		}
+		if (scale == 0.0 || Double.isInfinite(scale)) {
+			return scale;
+		}
+		double s = 0.0;
+		for (int p = 0; p < nnz; p++) {
+			double x = val[p] / scale;
+			s += x * x;
+		}
+		return scale * Math.sqrt(s);
+	}
+
+	/**
+	 * Sparse Cholesky Decomposition, with an approximate minimum degree
+	 * ordering
+	 *
+	 * @return SparseCholeskyDecomposition
+	 * @see SparseCholeskyDecomposition
+	 */
+
+	public SparseCholeskyDecomposition chol() {
+		return new SparseCholeskyDecomposition(this);
+	}
+
+	/**
+	 * Linear indices, in column order, of the nonzero elements, as in
+	 * Matlab's find(A).
+	 *
+	 * @return 1-by-nnz matrix of indices i + j*m.
+	 */
+
+	public Matrix find() {
+		SparseMatrix A = toCSC();
+		int nnz = A.nnz();
+		Matrix X = new Matrix(1, nnz);
+		double[] x = X.getColumnPackedArray();
+		for (int j = 0; j < n; j++) {
+			for (int p = A.ptr[j]; p < A.ptr[j + 1]; p++) {
+				x[p] = A.idx[p] + (double) j * m;
+			}
+		}
+		return X;
+	}
+
+	/**
+	 * Linear indices, in column order, of the elements equal to value, as
+	 * Matrix.find does. For a nonzero value only the stored elements are
+	 * searched; for zero the result lists every element that is not stored.
+	 *
+	 * @param value
+	 *            value to search for.
+	 * @return 1-by-count matrix of indices i + j*m.
+	 * @exception IllegalArgumentException
+	 *                More than 2^31-1 elements equal value.
+	 */
+
+	public Matrix find(double value) {
+		SparseMatrix A = toCSC();
+		long count = value != 0.0 ? A.find_number(value) : (long) m * n
+				- A.nnz() + A.find_number(0.0);
+		if (count > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Matrix has " + count
+					+ " elements equal to " + value
+					+ ", more than an array can hold.");
+		}
+		Matrix X = new Matrix(1, (int) count);
+		double[] x = X.getColumnPackedArray();
+		int k = 0;
+		for (int j = 0; j < n; j++) {
+			if (value != 0.0) {
+				for (int p = A.ptr[j]; p < A.ptr[j + 1]; p++) {
+					if (A.val[p] == value) {
+						x[k++] = A.idx[p] + (double) j * m;
+					}
+				}
+			} else {
+				int p = A.ptr[j];
+				for (int i = 0; i < m; i++) {
+					if (p < A.ptr[j + 1] && A.idx[p] == i) {
+						p++;
+						if (A.val[p - 1] != 0.0) {
+							continue;
+						}
+					}
+					x[k++] = i + (double) j * m;
+				}
+			}
+		}
+		return X;
+	}
+
+	/**
+	 * Number of stored elements equal to value. Nonzero values are only ever
+	 * stored, so for them this is the count of matching elements.
+	 *
+	 * @param value
+	 *            value to search for.
+	 * @return count
+	 */
+
+	public int find_number(double value) {
+		int nnz = nnz(), count = 0;
+		for (int p = 0; p < nnz; p++) {
+			if (val[p] == value) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/*
+	 * ------------------------ Private Methods ------------------------
+	 */
+
+	/** Number of compressed columns (CSC) or rows (CSR). **/
+
+	private int major() {
+		return csr ? m : n;
+	}
+
+	/** The same matrix in the other form, by a counting sort on indices. **/
+
+	private SparseMatrix reorient() {
+		int major = major(), minor = csr ? n : m, nnz = nnz();
+		int[] tp = new int[minor + 1];
+		for (int p = 0; p < nnz; p++) {
+			tp[idx[p] + 1]++;
+		}
+		for (int s = 0; s < minor; s++) {
+			tp[s + 1] += tp[s];
+		}
+		int[] next = Arrays.copyOf(tp, minor);
+		int[] ti = new int[nnz];
+		double[] tv = new double[nnz];
+		for (int s = 0; s < major; s++) {
+			for (int p = ptr[s]; p < ptr[s + 1]; p++) {
+				int q = next[idx[p]]++;
+				ti[q] = s;
+				tv[q] = val[p];
+			}
+		}
+		return new SparseMatrix(m, n, !csr, tp, ti, tv);
+	}
+
+	/** Remove stored elements that are exactly zero. **/
+
+	private SparseMatrix compact() {
+		int major = major(), q = 0;
+		int[] p0 = ptr;
+		ptr = new int[major + 1];
+		for (int s = 0; s < major; s++) {
+			for (int p = p0[s]; p < p0[s + 1]; p++) {
+				if (val[p] != 0.0) {
+					idx[q] = idx[p];
+					val[q++] = val[p];
+				}
+			}
+			ptr[s + 1] = q;
+		}
+		if (q < idx.length / 2) {
+			idx = Arrays.copyOf(idx, q);
+			val = Arrays.copyOf(val, q);
+		}
+		return this;
+	}
+
+	/** Operations for merge. **/
+	private static final int PLUS = 0, MINUS = 1, TIMES = 2;
+
+	/**
+	 * Combine the elements of A and B, column by column (or row by row), by
+	 * merging their sorted indices.
+	 */
+
+	private SparseMatrix merge(SparseMatrix B, int op) {
+		checkMatrixDimensions(B.m, B.n);
+		if (B.csr != csr) {
+			B = B.reorient();
+		}
+		int major = major();
+		int size = op == TIMES ? Math.min(nnz(), B.nnz()) : nnz() + B.nnz();
+		int[] cp = new int[major + 1];
+		int[] ci = new int[size];
+		double[] cv = new double[size];
+		int q = 0;
+		for (int s = 0; s < major; s++) {
+			int p = ptr[s], pe = ptr[s + 1];
+			int r = B.ptr[s], re = B.ptr[s + 1];
+			while (p < pe || r < re) {
+				int i = p < pe ? idx[p] : Integer.MAX_VALUE;
+				int k = r < re ? B.idx[r] : Integer.MAX_VALUE;
+				double x;
+				int at;
+				if (i == k) {
+					at = i;
+					x = op == PLUS ? val[p] + B.val[r]
+							: op == MINUS ? val[p] - B.val[r] : val[p]
+									* B.val[r];
+					p++;
+					r++;
+				} else if (i < k) {
+					at = i;
+					x = op == TIMES ? 0.0 : val[p];
+					p++;
+				} else {
+					at = k;
+					x = op == PLUS ? B.val[r] : op == MINUS ? -B.val[r] : 0.0;
+					r++;
+				}
+				if (x != 0.0) {
+					ci[q] = at;
+					cv[q++] = x;
+				}
+			}
+			cp[s + 1] = q;
+		}
+		return new SparseMatrix(m, n, csr, cp, Arrays.copyOf(ci, q),
+				Arrays.copyOf(cv, q));
+	}
+
+	/**
+	 * y = op(A)*x, where op(A) is A or A', for vectors at offsets in x and y.
+	 * In CSC form A*x scatters each column into y and A'*x gathers a dot
+	 * product per column; in CSR form the two are exchanged.
+	 */
+
+	private void multiply(boolean trans, double[] x, int xOff, double[] y,
+			int yOff) {
+		int major = major();
+		if (trans == csr) {
+			int ylen = trans ? n : m;
+			Arrays.fill(y, yOff, yOff + ylen, 0.0);
+			for (int s = 0; s < major; s++) {
+				double xs = x[xOff + s];
+				if (xs != 0.0) {
+					for (int p = ptr[s]; p < ptr[s + 1]; p++) {
+						y[yOff + idx[p]] += val[p] * xs;
+					}
+				}
+			}
+		} else {
+			for (int s = 0; s < major; s++) {
+				double t = 0.0;
+				for (int p = ptr[s]; p < ptr[s + 1]; p++) {
+					t += val[p] * x[xOff + idx[p]];
+				}
+				y[yOff + s] = t;
+			}
+		}
+	}
+
+	/** Columns c0 to c1-1 of C = A*B, for dense B and C packed by columns. **/
+
+	private void multiply(boolean trans, double[] b, double[] c, int c0, int c1) {
+		for (int col = c0; col < c1; col++) {
+			multiply(trans, b, col * n, c, col * m);
+		}
+	}
+
+	/** Fork/join task computing a range of columns of A*B. **/
+
+	private static class TimesTask extends RecursiveAction {
+		private final SparseMatrix A;
+		private final double[] b, c;
+		private final int c0, c1, leaf;
+
+		TimesTask(SparseMatrix A, double[] b, double[] c, int c0, int c1,
+				int leaf) {
+			this.A = A;
+			this.b = b;
+			this.c = c;
+			this.c0 = c0;
+			this.c1 = c1;
+			this.leaf = leaf;
+		}
+
+		protected void compute() {
+			if (c1 - c0 <= leaf) {
+				A.multiply(false, b, c, c0, c1);
+			} else {
+				int h = (c0 + c1) >>> 1;
+				invokeAll(new TimesTask(A, b, c, c0, h, leaf), new TimesTask(
+						A, b, c, h, c1, leaf));
+			}
+		}
+
+		private static final long serialVersionUID = 1;
+	}
+
+	/** Largest sum of absolute values over the compressed slices. **/
+
+	private double maxSlice() {
+		int major = major();
+		double f = 0.0;
+		for (int s = 0; s < major; s++) {
+			double t = 0.0;
+			for (int p = ptr[s]; p < ptr[s + 1]; p++) {
+				t += Math.abs(val[p]);
+			}
+			f = Math.max(f, t);
+		}
+		return f;
+	}
+
+	/** Largest sum of absolute values over the len index positions. **/
+
+	private double maxSum(int len) {
+		double[] t = new double[len];
+		int nnz = nnz();
+		for (int p = 0; p < nnz; p++) {
+			t[idx[p]] += Math.abs(val[p]);
+		}
+		double f = 0.0;
+		for (int k = 0; k < len; k++) {
+			f = Math.max(f, t[k]);
+		}
+		return f;
+	}
+
+	/** Check the lengths of a matrix-vector product's operand and result. **/
+
+	private static void checkVectors(double[] x, int xlen, double[] y,
+			int ylen) {
+		if (x.length != xlen || y.length != ylen) {
+			throw new IllegalArgumentException("Vector lengths must agree.");
+		}
+		if (x == y) {
+			throw new IllegalArgumentException(
+					"Output vector must not be the operand.");
+		}
+	}
+
+	/** Check if size(A) == size(B) **/
+
+	private void checkMatrixDimensions(int rows, int cols) {
+		if (rows != m || cols != n) {
+			throw new IllegalArgumentException("Matrix dimensions must agree.");
+		}
+	}
+
+	/**
+	 * Write the dimensions and form, then the arrays in bulk.
+	 *
+	 * @serialData the dimensions and form, then the pointer, index and value
+	 *             arrays, trimmed to nnz, as written by JamaEx.util.Serial.
+	 */
+
+	private void writeObject(java.io.ObjectOutputStream out)
+			throws java.io.IOException {
+		out.defaultWriteObject();
+		Serial.write(out, ptr);
+		Serial.write(out, Arrays.copyOf(idx, nnz()));
+		Serial.write(out, Arrays.copyOf(val, nnz()));
+	}
+
+	/** Read a sparse matrix written by writeObject, checking its arrays. **/
+
+	private void readObject(java.io.ObjectInputStream in)
+			throws java.io.IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		int[] p = Serial.readInts(in), i = Serial.readInts(in);
+		double[] v = Serial.readDoubles(in);
+		try {
+			SparseMatrix A = new SparseMatrix(m, n, p, i, v, csr);
+			ptr = A.ptr;
+			idx = A.idx;
+			val = A.val;
+		} catch (RuntimeException e) {
+			throw new java.io.InvalidObjectException(e.getMessage());
+		}
+	}
+
+	private static final long serialVersionUID = 1;
+}
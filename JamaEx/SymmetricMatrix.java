@@ -0,0 +1,590 @@
+package JamaEx;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import JamaEx.util.Blas;
+import JamaEx.util.Serial;
+
+/**
+ * Symmetric matrix in packed storage.
+ * <P>
+ * Only the lower triangle is stored, in n(n+1)/2 elements instead of n*n: the
+ * diagonal in one array, and the elements below it packed by columns in
+ * another, so that A(i,j) with i &gt; j is at off[j*(2n-j-1)/2 + i-j-1]. The
+ * second array has exactly the layout of the distance vector of pdist and
+ * squareform, so conversion between them is a copy of that vector.
+ * <P>
+ * Products, the symmetric rank-k update and the conversions work on the packed
+ * arrays directly. CholeskyDecomposition and EigenvalueDecomposition read the
+ * packed storage without first expanding the matrix to a dense one, and the
+ * eigenvalue decomposition skips its symmetry test.
+ */
+
+public class SymmetricMatrix implements Cloneable, java.io.Serializable {
+
+	/*
+	 * ------------------------ Class variables ------------------------
+	 */
+
+	/** Diagonal elements. **/
+	private transient double[] diag;
+
+	/** Elements below the diagonal, packed by columns. **/
+	private transient double[] off;
+
+	/**
+	 * Dimension.
+	 *
+	 * @serial matrix dimension.
+	 */
+	private int n;
+
+	/** Rank-k updates are computed in blocks of this many columns. **/
+	private static final int NB = 64;
+
+	/**
+	 * Products with dense matrices doing at least this many multiply-adds are
+	 * split by columns of the result over the common fork/join pool.
+	 */
+	private static final long PARALLEL = 1 << 20;
+
+	/*
+	 * ------------------------ Constructors ------------------------
+	 */
+
+	/**
+	 * Construct an n-by-n symmetric matrix of zeros.
+	 *
+	 * @param n
+	 *            Dimension.
+	 */
+
+	public SymmetricMatrix(int n) {
+		if (n < 0 || packedLength(n) > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Bad dimension.");
+		}
+		this.n = n;
+		diag = new double[n];
+		off = new double[(int) packedLength(n)];
+	}
+
+	/**
+	 * Construct a symmetric matrix from the lower triangle of a square matrix.
+	 *
+	 * @param A
+	 *            Square matrix. Elements above the diagonal are not used.
+	 * @exception IllegalArgumentException
+	 *                Matrix must be square.
+	 */
+
+	public SymmetricMatrix(Matrix A) {
+		this(A.getRowDimension());
+		if (A.getColumnDimension() != n) {
+			throw new IllegalArgumentException("Matrix must be square.");
+		}
+		double[] a = A.getColumnPackedArray();
+		for (int j = 0; j < n; j++) {
+			diag[j] = a[j + j * n];
+			System.arraycopy(a, j + 1 + j * n, off, offset(j), n - j - 1);
+		}
+	}
+
+	/**
+	 * Construct a symmetric matrix from copies of its packed arrays.
+	 *
+	 * @param diag
+	 *            Diagonal elements, of length n.
+	 * @param off
+	 *            Elements below the diagonal packed by columns, of length
+	 *            n(n-1)/2.
+	 * @exception IllegalArgumentException
+	 *                Array lengths must agree.
+	 */
+
+	public SymmetricMatrix(double[] diag, double[] off) {
+		this(diag.length);
+		if (off.length != this.off.length) {
+			throw new IllegalArgumentException("Array lengths must agree.");
+		}
+		System.arraycopy(diag, 0, this.diag, 0, n);
+		System.arraycopy(off, 0, this.off, 0, off.length);
+	}
+
+	/*
+	 * ------------------------ Public Methods ------------------------
+	 */
+
+	/**
+	 * Symmetric matrix of a distance vector, as Matlab's squareform: zero
+	 * diagonal, and the distances below it.
+	 *
+	 * @param d
+	 *            Row or column vector of n(n-1)/2 distances, as from pdist.
+	 * @return n-by-n symmetric matrix
+	 * @exception IllegalArgumentException
+	 *                Matrix should be a dist vector.
+	 */
+
+	public static SymmetricMatrix squareform(Matrix d) {
+		int m = d.getRowDimension(), k = d.getColumnDimension();
+		if (m != 1 && k != 1) {
+			throw new IllegalArgumentException("Matrix should be a vector.");
+		}
+		long len = (long) m * k;
+		int n = (int) Math.round((1 + Math.sqrt(1 + 8.0 * len)) / 2);
+		if (packedLength(n) != len) {
+			throw new IllegalArgumentException(
+					"Matrix should be a dist vector.");
+		}
+		return new SymmetricMatrix(new double[n], d.getColumnPackedArray());
+	}
+
+	/**
+	 * Symmetric matrix of Euclidean distances between the rows of X, as
+	 * squareform(pdist(X)).
+	 *
+	 * @param X
+	 *            Matrix with one observation per row.
+	 * @return symmetric matrix of distances
+	 */
+
+	public static SymmetricMatrix pdist(Matrix X) {
+		return squareform(X.pdist());
+	}
+
+	/**
+	 * Distance vector of the elements below the diagonal, as Matlab's
+	 * squareform of a square matrix.
+	 *
+	 * @return n(n-1)/2-by-1 vector, in the layout of pdist.
+	 */
+
+	public Matrix toDistanceVector() {
+		return new Matrix(off, off.length);
+	}
+
+	/**
+	 * Convert to a dense matrix.
+	 *
+	 * @return n-by-n Matrix with both triangles filled in.
+	 */
+
+	public Matrix toMatrix() {
+		Matrix X = new Matrix(n, n);
+		double[] x = X.getColumnPackedArray();
+		for (int j = 0; j < n; j++) {
+			x[j + j * n] = diag[j];
+			int p = offset(j);
+			for (int i = j + 1; i < n; i++, p++) {
+				x[i + j * n] = off[p];
+				x[j + i * n] = off[p];
+			}
+		}
+		return X;
+	}
+
+	/**
+	 * Make a deep copy of a matrix
+	 */
+
+	public SymmetricMatrix copy() {
+		return new SymmetricMatrix(diag, off);
+	}
+
+	/**
+	 * Clone the SymmetricMatrix object.
+	 */
+
+	public Object clone() {
+		return this.copy();
+	}
+
+	/**
+	 * Access the internal array of diagonal elements.
+	 *
+	 * @return Pointer to the array.
+	 */
+
+	public double[] getDiagonalArray() {
+		return diag;
+	}
+
+	/**
+	 * Access the internal array of elements below the diagonal, packed by
+	 * columns.
+	 *
+	 * @return Pointer to the array.
+	 */
+
+	public double[] getPackedArray() {
+		return off;
+	}
+
+	/**
+	 * Number of elements below the diagonal of an n-by-n matrix, the length
+	 * of the packed array.
+	 *
+	 * @param n
+	 *            Dimension.
+	 * @return n(n-1)/2, computed without overflow.
+	 */
+
+	public static long packedLength(int n) {
+		return (long) n * (n - 1) / 2;
+	}
+
+	/**
+	 * Get dimension.
+	 *
+	 * @return n, the number of rows and columns.
+	 */
+
+	public int getDimension() {
+		return n;
+	}
+
+	/**
+	 * Get a single element.
+	 *
+	 * @param i
+	 *            Row index.
+	 * @param j
+	 *            Column index.
+	 * @return A(i,j) = A(j,i)
+	 * @exception ArrayIndexOutOfBoundsException
+	 */
+
+	public double get(int i, int j) {
+		checkIndex(i, j);
+		return i == j ? diag[i] : off[index(i, j)];
+	}
+
+	/**
+	 * Set a single element, and its mirror across the diagonal.
+	 *
+	 * @param i
+	 *            Row index.
+	 * @param j
+	 *            Column index.
+	 * @param s
+	 *            A(i,j) = A(j,i) = s
+	 * @exception ArrayIndexOutOfBoundsException
+	 */
+
+	public void set(int i, int j, double s) {
+		checkIndex(i, j);
+		if (i == j) {
+			diag[i] = s;
+		} else {
+			off[index(i, j)] = s;
+		}
+	}
+
+	/**
+	 * Multiply a symmetric matrix by a scalar, C = s*A
+	 *
+	 * @param s
+	 *            scalar
+	 * @return s*A
+	 */
+
+	public SymmetricMatrix times(double s) {
+		SymmetricMatrix X = new SymmetricMatrix(n);
+		for (int k = 0; k < n; k++) {
+			X.diag[k] = s * diag[k];
+		}
+		for (int k = 0; k < off.length; k++) {
+			X.off[k] = s * off[k];
+		}
+		return X;
+	}
+
+	/**
+	 * C = A + B
+	 *
+	 * @param B
+	 *            another symmetric matrix
+	 * @return A + B
+	 */
+
+	public SymmetricMatrix plus(SymmetricMatrix B) {
+		return combine(B, 1.0);
+	}
+
+	/**
+	 * C = A - B
+	 *
+	 * @param B
+	 *            another symmetric matrix
+	 * @return A - B
+	 */
+
+	public SymmetricMatrix minus(SymmetricMatrix B) {
+		return combine(B, -1.0);
+	}
+
+	/**
+	 * Symmetric matrix-vector multiplication, y = A*x, reading each stored
+	 * element once.
+	 *
+	 * @param x
+	 *            vector of length n
+	 * @param y
+	 *            vector of length n, overwritten by A*x. Must not be x.
+	 * @return y
+	 * @exception IllegalArgumentException
+	 *                Vector lengths must agree.
+	 */
+
+	public double[] timesVector(double[] x, double[] y) {
+		if (x.length != n || y.length != n) {
+			throw new IllegalArgumentException("Vector lengths must agree.");
+		}
+		if (x == y) {
+			throw new IllegalArgumentException(
+					"Output vector must not be the operand.");
+		}
+		symv(x, 0, y, 0);
+		return y;
+	}
+
+	/**
+	 * Symmetric matrix-vector multiplication, A*x
+	 *
+	 * @param x
+	 *            vector of length n
+	 * @return A*x
+	 * @exception IllegalArgumentException
+	 *                Vector lengths must agree.
+	 */
+
+	public double[] timesVector(double[] x) {
+		return timesVector(x, new double[n]);
+	}
+
+	/**
+	 * Symmetric matrix times dense matrix, C = A*B
+	 *
+	 * @param B
+	 *            matrix with n rows
+	 * @return A*B
+	 * @exception IllegalArgumentException
+	 *                Matrix inner dimensions must agree.
+	 */
+
+	public Matrix times(Matrix B) {
+		if (B.getRowDimension() != n) {
+			throw new IllegalArgumentException(
+					"Matrix inner dimensions must agree.");
+		}
+		int nb = B.getColumnDimension();
+		Matrix C = new Matrix(n, nb);
+		double[] b = B.getColumnPackedArray(), c = C.getColumnPackedArray();
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		long work = (long) n * n * nb;
+		if (work < PARALLEL || nb < 2 || pool.getParallelism() < 2) {
+			for (int col = 0; col < nb; col++) {
+				symv(b, col * n, c, col * n);
+			}
+		} else {
+			pool.invoke(new TimesTask(this, b, c, 0, nb));
+		}
+		return C;
+	}
+
+	/**
+	 * Symmetric rank-k update in place, A = alpha*B*B' + beta*A
+	 *
+	 * @param alpha
+	 *            Scalar multiplier of B*B'.
+	 * @param B
+	 *            n-by-k matrix
+	 * @param beta
+	 *            Scalar multiplier of A.
+	 * @return this matrix, updated.
+	 * @exception IllegalArgumentException
+	 *                Matrix row dimensions must agree.
+	 */
+
+	public SymmetricMatrix rankUpdate(double alpha, Matrix B, double beta) {
+		if (B.getRowDimension() != n) {
+			throw new IllegalArgumentException(
+					"Matrix row dimensions must agree.");
+		}
+		int k = B.getColumnDimension();
+		double[] b = B.getColumnPackedArray();
+		if (beta != 1.0) {
+			for (int p = 0; p < n; p++) {
+				diag[p] *= beta;
+			}
+			for (int p = 0; p < off.length; p++) {
+				off[p] *= beta;
+			}
+		}
+		if (k == 0 || alpha == 0.0) {
+			return this;
+		}
+		// Each block of NB columns of the lower triangle is one product,
+		// B(j0:n,:) * B(j0:j1,:)', added in.
+		double[] T = new double[n * Math.min(NB, n)];
+		for (int j0 = 0; j0 < n; j0 += NB) {
+			int j1 = Math.min(n, j0 + NB), rows = n - j0;
+			Blas.dgemm(false, true, rows, j1 - j0, k, alpha, b, j0, n, b, j0,
+					n, 0.0, T, 0, rows);
+			for (int j = j0; j < j1; j++) {
+				int t = (j - j0) * rows + (j - j0);
+				diag[j] += T[t];
+				int p = offset(j);
+				for (int i = j + 1; i < n; i++) {
+					off[p++] += T[++t];
+				}
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Cholesky Decomposition, read from the packed storage
+	 *
+	 * @return CholeskyDecomposition
+	 * @see CholeskyDecomposition
+	 */
+
+	public CholeskyDecomposition chol() {
+		return new CholeskyDecomposition(this);
+	}
+
+	/**
+	 * Symmetric Eigenvalue Decomposition, read from the packed storage
+	 *
+	 * @return EigenvalueDecomposition
+	 * @see EigenvalueDecomposition
+	 */
+
+	public EigenvalueDecomposition eig() {
+		return new EigenvalueDecomposition(this);
+	}
+
+	/*
+	 * ------------------------ Private Methods ------------------------
+	 */
+
+	/** Offset in off of the first element below the diagonal in column j. **/
+
+	private int offset(int j) {
+		return (int) ((long) j * (2 * n - j - 1) / 2);
+	}
+
+	/** Offset in off of A(i,j), i != j. **/
+
+	private int index(int i, int j) {
+		return i > j ? offset(j) + i - j - 1 : offset(i) + j - i - 1;
+	}
+
+	private void checkIndex(int i, int j) {
+		if (i < 0 || i >= n || j < 0 || j >= n) {
+			throw new ArrayIndexOutOfBoundsException("(" + i + "," + j
+					+ ") is outside a " + n + "-by-" + n + " matrix.");
+		}
+	}
+
+	/** A + s*B **/
+
+	private SymmetricMatrix combine(SymmetricMatrix B, double s) {
+		if (B.n != n) {
+			throw new IllegalArgumentException("Matrix dimensions must agree.");
+		}
+		SymmetricMatrix X = new SymmetricMatrix(n);
+		for (int k = 0; k < n; k++) {
+			X.diag[k] = diag[k] + s * B.diag[k];
+		}
+		for (int k = 0; k < off.length; k++) {
+			X.off[k] = off[k] + s * B.off[k];
+		}
+		return X;
+	}
+
+	/**
+	 * y = A*x for vectors at offsets in x and y. Column j of the lower
+	 * triangle contributes to y below the diagonal and, as row j of the upper
+	 * triangle, to y[j].
+	 */
+
+	private void symv(double[] x, int xOff, double[] y, int yOff) {
+		for (int j = 0; j < n; j++) {
+			y[yOff + j] = diag[j] * x[xOff + j];
+		}
+		int p = 0;
+		for (int j = 0; j < n; j++) {
+			double xj = x[xOff + j], t = 0.0;
+			for (int i = j + 1; i < n; i++, p++) {
+				double a = off[p];
+				y[yOff + i] += a * xj;
+				t += a * x[xOff + i];
+			}
+			y[yOff + j] += t;
+		}
+	}
+
+	/** Fork/join task computing a range of columns of A*B. **/
+
+	private static class TimesTask extends RecursiveAction {
+		private final SymmetricMatrix A;
+		private final double[] b, c;
+		private final int c0, c1;
+
+		TimesTask(SymmetricMatrix A, double[] b, double[] c, int c0, int c1) {
+			this.A = A;
+			this.b = b;
+			this.c = c;
+			this.c0 = c0;
+			this.c1 = c1;
+		}
+
+		protected void compute() {
+			int n = A.n;
+			if (c1 - c0 == 1 || (long) n * n * (c1 - c0) < PARALLEL) {
+				for (int col = c0; col < c1; col++) {
+					A.symv(b, col * n, c, col * n);
+				}
+			} else {
+				int h = (c0 + c1) >>> 1;
+				invokeAll(new TimesTask(A, b, c, c0, h), new TimesTask(A, b,
+						c, h, c1));
+			}
+		}
+
+		private static final long serialVersionUID = 1;
+	}
+
+	/**
+	 * Write the dimension, then the packed arrays in bulk.
+	 *
+	 * @serialData the dimension, then diag and off as written by
+	 *             JamaEx.util.Serial.
+	 */
+
+	private void writeObject(java.io.ObjectOutputStream out)
+			throws java.io.IOException {
+		out.defaultWriteObject();
+		Serial.write(out, diag);
+		Serial.write(out, off);
+	}
+
+	/** Read a matrix written by writeObject, checking the array lengths. **/
+
+	private void readObject(java.io.ObjectInputStream in)
+			throws java.io.IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		diag = Serial.readDoubles(in);
+		off = Serial.readDoubles(in);
+		if (diag == null || off == null || diag.length != n
+				|| off.length != packedLength(n)) {
+			throw new java.io.InvalidObjectException(
+					"Array lengths do not match the dimension.");
+		}
+	}
+
+	private static final long serialVersionUID = 1;
+}
@@ -0,0 +1,377 @@
+package JamaEx;
+
+import JamaEx.util.Serial;
+
+/**
+ * Tridiagonal matrix.
+ * <P>
+ * The subdiagonal, diagonal and superdiagonal are stored in three arrays of
+ * lengths n-1, n and n-1, so a matrix of a million rows takes 24 MB. Products
+ * take O(n) time, and solve() uses the Thomas algorithm, Gaussian elimination
+ * without pivoting, in O(n) time. The Thomas algorithm is stable for
+ * diagonally dominant and for symmetric positive definite matrices; for
+ * other matrices convert with toBandMatrix() and use band LU with partial
+ * pivoting.
+ */
+
+public class TridiagonalMatrix implements Cloneable, java.io.Serializable {
+
+	/*
+	 * ------------------------ Class variables ------------------------
+	 */
+
+	/** Subdiagonal A(i+1,i), diagonal A(i,i) and superdiagonal A(i,i+1). **/
+	private transient double[] dl, d, du;
+
+	/**
+	 * Dimension.
+	 *
+	 * @serial matrix dimension.
+	 */
+	private int n;
+
+	/*
+	 * ------------------------ Constructors ------------------------
+	 */
+
+	/**
+	 * Construct an n-by-n tridiagonal matrix of zeros.
+	 *
+	 * @param n
+	 *            Dimension.
+	 */
+
+	public TridiagonalMatrix(int n) {
+		if (n < 0) {
+			throw new IllegalArgumentException("Bad dimension.");
+		}
+		this.n = n;
+		dl = new double[Math.max(n - 1, 0)];
+		d = new double[n];
+		du = new double[Math.max(n - 1, 0)];
+	}
+
+	/**
+	 * Construct a tridiagonal matrix from copies of its three diagonals.
+	 *
+	 * @param dl
+	 *            Subdiagonal, of length n-1.
+	 * @param d
+	 *            Diagonal, of length n.
+	 * @param du
+	 *            Superdiagonal, of length n-1.
+	 * @exception IllegalArgumentException
+	 *                Array lengths must agree.
+	 */
+
+	public TridiagonalMatrix(double[] dl, double[] d, double[] du) {
+		this(d.length);
+		if (dl.length != this.dl.length || du.length != this.du.length) {
+			throw new IllegalArgumentException("Array lengths must agree.");
+		}
+		System.arraycopy(dl, 0, this.dl, 0, dl.length);
+		System.arraycopy(d, 0, this.d, 0, n);
+		System.arraycopy(du, 0, this.du, 0, du.length);
+	}
+
+	/**
+	 * Construct a tridiagonal matrix from the three central diagonals of a
+	 * square matrix.
+	 *
+	 * @param A
+	 *            Square matrix.
+	 * @exception IllegalArgumentException
+	 *                Matrix must be square.
+	 */
+
+	public TridiagonalMatrix(Matrix A) {
+		this(A.getRowDimension());
+		if (A.getColumnDimension() != n) {
+			throw new IllegalArgumentException("Matrix must be square.");
+		}
+		double[] a = A.getColumnPackedArray();
+		for (int i = 0; i < n; i++) {
+			d[i] = a[i + i * n];
+			if (i + 1 < n) {
+				dl[i] = a[i + 1 + i * n];
+				du[i] = a[i + (i + 1) * n];
+			}
+		}
+	}
+
+	/*
+	 * ------------------------ Public Methods ------------------------
+	 */
+
+	/**
+	 * Convert to a dense matrix.
+	 *
+	 * @return n-by-n Matrix
+	 */
+
+	public Matrix toMatrix() {
+		Matrix X = new Matrix(n, n);
+		double[] x = X.getColumnPackedArray();
+		for (int i = 0; i < n; i++) {
+			x[i + i * n] = d[i];
+			if (i + 1 < n) {
+				x[i + 1 + i * n] = dl[i];
+				x[i + (i + 1) * n] = du[i];
+			}
+		}
+		return X;
+	}
+
+	/**
+	 * Convert to a band matrix with one subdiagonal and one superdiagonal.
+	 *
+	 * @return BandMatrix
+	 */
+
+	public BandMatrix toBandMatrix() {
+		BandMatrix X = new BandMatrix(n, 1, 1);
+		double[] ab = X.getBandArray();
+		for (int j = 0; j < n; j++) {
+			if (j > 0) {
+				ab[3 * j] = du[j - 1];
+			}
+			ab[1 + 3 * j] = d[j];
+			if (j + 1 < n) {
+				ab[2 + 3 * j] = dl[j];
+			}
+		}
+		return X;
+	}
+
+	/**
+	 * Make a deep copy of a matrix
+	 */
+
+	public TridiagonalMatrix copy() {
+		return new TridiagonalMatrix(dl, d, du);
+	}
+
+	/**
+	 * Clone the TridiagonalMatrix object.
+	 */
+
+	public Object clone() {
+		return this.copy();
+	}
+
+	/**
+	 * Access the internal subdiagonal array.
+	 *
+	 * @return Pointer to the array of A(i+1,i).
+	 */
+
+	public double[] getSubdiagonal() {
+		return dl;
+	}
+
+	/**
+	 * Access the internal diagonal array.
+	 *
+	 * @return Pointer to the array of A(i,i).
+	 */
+
+	public double[] getDiagonal() {
+		return d;
+	}
+
+	/**
+	 * Access the internal superdiagonal array.
+	 *
+	 * @return Pointer to the array of A(i,i+1).
+	 */
+
+	public double[] getSuperdiagonal() {
+		return du;
+	}
+
+	/**
+	 * Get dimension.
+	 *
+	 * @return n, the number of rows and columns.
+	 */
+
+	public int getDimension() {
+		return n;
+	}
+
+	/**
+	 * Get a single element.
+	 *
+	 * @param i
+	 *            Row index.
+	 * @param j
+	 *            Column index.
+	 * @return A(i,j), zero off the three diagonals.
+	 * @exception ArrayIndexOutOfBoundsException
+	 */
+
+	public double get(int i, int j) {
+		if (i < 0 || i >= n || j < 0 || j >= n) {
+			throw new ArrayIndexOutOfBoundsException("(" + i + "," + j
+					+ ") is outside a " + n + "-by-" + n + " matrix.");
+		}
+		return i == j ? d[i] : i == j + 1 ? dl[j] : j == i + 1 ? du[i] : 0.0;
+	}
+
+	/**
+	 * Tridiagonal matrix-vector multiplication, y = A*x
+	 *
+	 * @param x
+	 *            vector of length n
+	 * @param y
+	 *            vector of length n, overwritten by A*x. Must not be x.
+	 * @return y
+	 * @exception IllegalArgumentException
+	 *                Vector lengths must agree.
+	 */
+
+	public double[] timesVector(double[] x, double[] y) {
+		if (x.length != n || y.length != n) {
+			throw new IllegalArgumentException("Vector lengths must agree.");
+		}
+		if (x == y) {
+			throw new IllegalArgumentException(
+					"Output vector must not be the operand.");
+		}
+		if (n == 1) {
+			y[0] = d[0] * x[0];
+		} else if (n > 1) {
+			y[0] = d[0] * x[0] + du[0] * x[1];
+			for (int i = 1; i < n - 1; i++) {
+				y[i] = dl[i - 1] * x[i - 1] + d[i] * x[i] + du[i] * x[i + 1];
+			}
+			y[n - 1] = dl[n - 2] * x[n - 2] + d[n - 1] * x[n - 1];
+		}
+		return y;
+	}
+
+	/**
+	 * Tridiagonal matrix-vector multiplication, A*x
+	 *
+	 * @param x
+	 *            vector of length n
+	 * @return A*x
+	 * @exception IllegalArgumentException
+	 *                Vector lengths must agree.
+	 */
+
+	public double[] timesVector(double[] x) {
+		return timesVector(x, new double[n]);
+	}
+
+	/**
+	 * Solve A*x = b by the Thomas algorithm.
+	 *
+	 * @param b
+	 *            vector of length n
+	 * @return x so that A*x = b
+	 * @exception IllegalArgumentException
+	 *                Matrix row dimensions must agree.
+	 * @exception RuntimeException
+	 *                Matrix is singular (a zero pivot without pivoting).
+	 */
+
+	public double[] solve(double[] b) {
+		if (b.length != n) {
+			throw new IllegalArgumentException(
+					"Matrix row dimensions must agree.");
+		}
+		double[] x = b.clone();
+		thomas(x, 0, new double[n]);
+		return x;
+	}
+
+	/**
+	 * Solve A*X = B by the Thomas algorithm, one column at a time.
+	 *
+	 * @param B
+	 *            A Matrix with n rows and any number of columns.
+	 * @return X so that A*X = B
+	 * @exception IllegalArgumentException
+	 *                Matrix row dimensions must agree.
+	 * @exception RuntimeException
+	 *                Matrix is singular (a zero pivot without pivoting).
+	 */
+
+	public Matrix solve(Matrix B) {
+		if (B.getRowDimension() != n) {
+			throw new IllegalArgumentException(
+					"Matrix row dimensions must agree.");
+		}
+		Matrix X = B.copy();
+		double[] x = X.getColumnPackedArray(), c = new double[n];
+		for (int col = 0; col < B.getColumnDimension(); col++) {
+			thomas(x, col * n, c);
+		}
+		return X;
+	}
+
+	/*
+	 * ------------------------ Private Methods ------------------------
+	 */
+
+	/**
+	 * Overwrite x[off..off+n-1] with the solution, using c for the modified
+	 * superdiagonal.
+	 */
+
+	private void thomas(double[] x, int off, double[] c) {
+		if (n == 0) {
+			return;
+		}
+		double p = d[0];
+		if (p == 0.0) {
+			throw new RuntimeException("Matrix is singular.");
+		}
+		x[off] /= p;
+		for (int i = 1; i < n; i++) {
+			c[i - 1] = du[i - 1] / p;
+			p = d[i] - dl[i - 1] * c[i - 1];
+			if (p == 0.0) {
+				throw new RuntimeException("Matrix is singular.");
+			}
+			x[off + i] = (x[off + i] - dl[i - 1] * x[off + i - 1]) / p;
+		}
+		for (int i = n - 2; i >= 0; i--) {
+			x[off + i] -= c[i] * x[off + i + 1];
+		}
+	}
+
+	/**
+	 * Write the dimension, then the diagonals in bulk.
+	 *
+	 * @serialData the dimension, then dl, d and du as written by
+	 *             JamaEx.util.Serial.
+	 */
+
+	private void writeObject(java.io.ObjectOutputStream out)
+			throws java.io.IOException {
+		out.defaultWriteObject();
+		Serial.write(out, dl);
+		Serial.write(out, d);
+		Serial.write(out, du);
+	}
+
+	/** Read a matrix written by writeObject, checking the array lengths. **/
+
+	private void readObject(java.io.ObjectInputStream in)
+			throws java.io.IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		dl = Serial.readDoubles(in);
+		d = Serial.readDoubles(in);
+		du = Serial.readDoubles(in);
+		int m = Math.max(n - 1, 0);
+		if (d == null || dl == null || du == null || d.length != n
+				|| dl.length != m || du.length != m) {
+			throw new java.io.InvalidObjectException(
+					"Array lengths do not match the dimension.");
+		}
+	}
+
+	private static final long serialVersionUID = 1;
+}
@@ -141,7 +141,8 @@ public class MagicSquareExample {
          Matrix L = LU.getL();
          Matrix U = LU.getU();
          int[] p = LU.getPivot();
-         Matrix R = L.times(U).minus(M.getMatrix(p,0,n-1));
+         Matrix R = M.getMatrix(p,0,n-1);
+         Matrix.gemm(1.0,L,false,U,false,-1.0,R);
          double res = R.norm1()/(n*eps);
          print(fixedWidthDoubletoString(res,12,3));
 
@@ -6,6 +6,8 @@ import java.io.*;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.util.Locale;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
 
 /**
  * Matrix_test tests the functionality of the Jama Matrix class and associated
@@ -206,10 +208,22 @@ public class Matrix_test {
 		}
 		B = new Matrix(avals);
 		double[][] barray = B.getArray();
-		if (barray != avals) {
-			errorCount = try_failure(errorCount, "getArray... ", "");
-		} else {
+		try {
+			check(barray, avals);
 			try_success("getArray... ", "");
+		} catch (java.lang.RuntimeException e) {
+			errorCount = try_failure(errorCount, "getArray... ", "");
+		}
+		if (B.getColumnPackedArray() != B.getColumnPackedArray()) {
+			errorCount = try_failure(errorCount, "getColumnPackedArray... ",
+					"internal storage not returned");
+		}
+		try {
+			check(B.getColumnPackedArray(), columnwise);
+			try_success("getColumnPackedArray... ", "");
+		} catch (java.lang.RuntimeException e) {
+			errorCount = try_failure(errorCount, "getColumnPackedArray... ",
+					"elements not packed by columns");
 		}
 		barray = B.getArrayCopy();
 		if (barray == avals) {
@@ -785,6 +799,68 @@ public class Matrix_test {
 			errorCount = try_failure(errorCount, "arrayTimesEquals... ",
 					"(A = R, A = A.*B, but A./B != R)");
 		}
+		A = R.copy();
+		C = new Matrix(A.getRowDimension(), A.getColumnDimension());
+		try {
+			A.plus(S, C);
+			errorCount = try_failure(errorCount,
+					"plus into conformance check... ",
+					"nonconformance not raised");
+		} catch (IllegalArgumentException e) {
+			try_success("plus into conformance check... ", "");
+		}
+		try {
+			A.plus(B, S);
+			errorCount = try_failure(errorCount,
+					"plus into output check... ",
+					"wrong output size not raised");
+		} catch (IllegalArgumentException e) {
+			try_success("plus into output check... ", "");
+		}
+		try {
+			if (A.arrayTimes(B, C) != C) {
+				throw new RuntimeException("output not returned");
+			}
+			check(C, A.arrayTimes(B));
+			check(A.minus(B, C), A.minus(B));
+			check(A.times(2.0, C), A.times(2.0));
+			check(A.transpose(new Matrix(A.getColumnDimension(),
+					A.getRowDimension())), A.transpose());
+			try_success("into variants... ", "");
+		} catch (java.lang.RuntimeException e) {
+			errorCount = try_failure(errorCount, "into variants... ",
+					"(result differs from allocating version)");
+		}
+		try {
+			Matrix W = Matrix.random(A.getRowDimension(),
+					A.getColumnDimension());
+			MatrixExpression E = A.lazy().plus(B).times(0.5);
+			check(E.arrayTimes(E).minus(W).uminus().eval(), A.plus(B)
+					.times(0.5).arrayTimes(A.plus(B).times(0.5)).minus(W)
+					.uminus());
+			check(A.lazy().arrayLeftDivide(B).abs().eval(), A
+					.arrayLeftDivide(B));
+			C = A.copy();
+			check(C.lazy().minus(A).eval(C), Z);
+			try_success("lazy expressions... ", "");
+		} catch (java.lang.RuntimeException e) {
+			errorCount = try_failure(errorCount, "lazy expressions... ",
+					"(fused result differs from eager result)");
+		}
+		try {
+			A.lazy().plus(S);
+			errorCount = try_failure(errorCount,
+					"lazy conformance check... ", "nonconformance not raised");
+		} catch (IllegalArgumentException e) {
+			try_success("lazy conformance check... ", "");
+		}
+		try {
+			A.times(A.transpose(), A);
+			errorCount = try_failure(errorCount, "times into alias check... ",
+					"aliased output not rejected");
+		} catch (IllegalArgumentException e) {
+			try_success("times into alias check... ", "");
+		}
 
 		/**
 		 * I/O methods: read print serializable: writeObject readObject
@@ -838,6 +914,169 @@ public class Matrix_test {
 			}
 		}
 
+		try {
+			R = Matrix.read(java.nio.file.Paths.get("JamaTestMatrix.out"));
+			check(R, Matrix.read(new BufferedReader(new FileReader(
+					"JamaTestMatrix.out"))));
+			R = Matrix.read(new BufferedReader(new StringReader(
+					"\n  1.5e1 -2\r\n.25\t+3E-2 \n\n junk")));
+			check(R, new Matrix(new double[][] { { 15., -2. }, { .25, .03 } }));
+			BufferedReader two = new BufferedReader(new StringReader(
+					"1 2\n3 4\n\n5 6 7\r\n8 9 10\r\n\r\n"));
+			check(Matrix.read(two), new Matrix(new double[][] { { 1., 2. },
+					{ 3., 4. } }));
+			check(Matrix.read(two), new Matrix(new double[][] {
+					{ 5., 6., 7. }, { 8., 9., 10. } }));
+			// InputStreamReader does not support mark.
+			Reader one = new InputStreamReader(new ByteArrayInputStream(
+					"1\n\n2\n".getBytes("US-ASCII")), "US-ASCII");
+			check(MatrixReader.read(one), new Matrix(1, 1, 1.));
+			check(MatrixReader.read(one), new Matrix(1, 1, 2.));
+			try_success("read(Path)/read() parsing...", "");
+		} catch (Exception e) {
+			errorCount = try_failure(errorCount, "read(Path)/read() parsing...",
+					"Matrix not parsed correctly");
+		}
+		try {
+			// Every piece size, so that piece boundaries fall before, inside
+			// and after each row and on each blank line.
+			String text = "\n \n1.5 -2 3\r\n4e-1,5 6\n\n\n7 8 9\n1 2\n";
+			java.nio.file.Path file = java.io.File.createTempFile(
+					"JamaTestMatrix", ".txt").toPath();
+			java.nio.file.Files.write(file, text.getBytes("US-ASCII"));
+			R = Matrix.read(new BufferedReader(new StringReader(text)));
+			for (int chunk = 1; chunk <= text.length() + 1; chunk++) {
+				check(MatrixReader.read(file, chunk), R);
+			}
+			R = Matrix.random(40, 6);
+			StringWriter sw = new StringWriter();
+			R.write(sw, MatrixWriter.Format.CSV);
+			java.nio.file.Files.write(file, sw.toString()
+					.getBytes("US-ASCII"));
+			for (int chunk = 1; chunk < 64; chunk += 3) {
+				if (!java.util.Arrays.equals(MatrixReader.read(file, chunk)
+						.getColumnPackedArray(), R.getColumnPackedArray())) {
+					throw new RuntimeException("chunk " + chunk);
+				}
+			}
+			java.nio.file.Files.write(file, "1 2\n3 4\n5\n"
+					.getBytes("US-ASCII"));
+			for (int chunk = 1; chunk <= 11; chunk++) {
+				try {
+					MatrixReader.read(file, chunk);
+					throw new RuntimeException("short row in chunk " + chunk);
+				} catch (java.io.IOException e) {
+					// expected
+				}
+			}
+			java.nio.file.Files.delete(file);
+			try_success("read(Path) in pieces...", "");
+		} catch (Exception e) {
+			errorCount = try_failure(errorCount, "read(Path) in pieces...",
+					"Matrix read in pieces differs from a single read");
+		}
+		try {
+			// Significands beyond 2^53 and exponents beyond 10^22 take the
+			// Eisel-Lemire path, the rest the exact one.
+			String[] edge = { "9007199254740993", "9007199254740992.5e10",
+					"2.2250738585072011e-308", "2.2250738585072012e-308",
+					"4.9e-324", "2.4703282292062328e-324", "1e23",
+					"1.7976931348623157e308", "1.7976931348623159e308",
+					"7.2057594037927933e16", "1.00000000000000011102230246251565",
+					"123456789012345678e-30", "9999999999999999999e290" };
+			java.util.Random rand = new java.util.Random(42);
+			for (int k = 0; k < 200000 + edge.length; k++) {
+				String t;
+				if (k < edge.length) {
+					t = edge[k];
+				} else {
+					StringBuilder sb = new StringBuilder();
+					int digits = 1 + rand.nextInt(19);
+					for (int d = 0; d < digits; d++) {
+						sb.append((char) ('0' + rand.nextInt(10)));
+					}
+					if (rand.nextBoolean()) {
+						sb.insert(rand.nextInt(digits + 1), '.');
+					}
+					t = sb + "e" + (rand.nextInt(680) - 345);
+				}
+				byte[] tb = t.getBytes("US-ASCII");
+				double x = JamaEx.util.Decimal.parse(tb, 0, tb.length);
+				if (Double.doubleToLongBits(x) != Double.doubleToLongBits(Double
+						.parseDouble(t))) {
+					throw new RuntimeException(t);
+				}
+			}
+			try_success("Decimal.parse...", "");
+		} catch (Exception e) {
+			errorCount = try_failure(errorCount, "Decimal.parse...",
+					"not the correctly rounded double of " + e.getMessage());
+		}
+		try {
+			R = Matrix.random(7, 5).minus(Matrix.random(7, 5)).times(1e-3);
+			R.set(0, 0, Double.MIN_VALUE);
+			R.set(6, 4, -Double.MAX_VALUE);
+			R.set(3, 2, 100.);
+			for (MatrixWriter.Format f : MatrixWriter.Format.values()) {
+				StringWriter sw = new StringWriter();
+				R.write(sw, f);
+				T = Matrix.read(new BufferedReader(new StringReader(sw
+						.toString())));
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				R.write(bytes, f);
+				if (!java.util.Arrays.equals(T.getColumnPackedArray(), R
+						.getColumnPackedArray())
+						|| !sw.toString().equals(bytes.toString("US-ASCII"))
+						|| !sw.toString().endsWith("\n\n")) {
+					throw new RuntimeException(f.toString());
+				}
+				// Written matrices end with a blank line, so they can be
+				// read back one after another.
+				sw = new StringWriter();
+				R.write(sw, f);
+				T.transpose().write(sw, f);
+				BufferedReader both = new BufferedReader(new StringReader(sw
+						.toString()));
+				check(Matrix.read(both), R);
+				check(Matrix.read(both), R.transpose());
+			}
+			try_success("write()/read() round trip...", "");
+		} catch (Exception e) {
+			errorCount = try_failure(errorCount, "write()/read() round trip...",
+					"Matrix written as text is not read back exactly");
+		}
+		try {
+			Matrix.read(new BufferedReader(new StringReader("1 2\n3\n")));
+			errorCount = try_failure(errorCount, "read() short row...",
+					"short row not rejected");
+		} catch (java.io.IOException e) {
+			try_success("read() short row...", "");
+		}
+		{
+			// Text cannot give the dimensions of an empty matrix, so read
+			// could not read it back.
+			int rejected = 0;
+			try {
+				new Matrix(0, 3).write(new StringWriter(),
+						MatrixWriter.Format.WHITESPACE);
+			} catch (IllegalArgumentException | java.io.IOException e) {
+				rejected += e instanceof IllegalArgumentException ? 1 : 0;
+			}
+			try {
+				new Matrix(3, 0).write(new ByteArrayOutputStream(),
+						MatrixWriter.Format.CSV);
+			} catch (IllegalArgumentException | java.io.IOException e) {
+				rejected += e instanceof IllegalArgumentException ? 1 : 0;
+			}
+			if (rejected == 2) {
+				try_success("write() empty matrix...", "");
+			} else {
+				errorCount = try_failure(errorCount,
+						"write() empty matrix...",
+						"empty matrix written as text");
+			}
+		}
+
 		R = Matrix.random(A.getRowDimension(), A.getColumnDimension());
 		String tmpname = "TMPMATRIX.serial";
 		try {
@@ -866,6 +1105,376 @@ public class Matrix_test {
 					"writeObject(Matrix)/readObject(Matrix)...",
 					"unexpected error in serialization test");
 		}
+		try {
+			R = Matrix.random(6, 6);
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			ObjectOutputStream out = new ObjectOutputStream(bytes);
+			out.writeObject(R.lu());
+			out.writeObject(R.qr());
+			out.writeObject(R.eig());
+			out.writeObject(R.plus(R.transpose()).eig());
+			out.writeObject(R.svd());
+			out.writeObject(R.times(R.transpose()).chol());
+			out.writeObject(new Matrix3(new double[][][] { { { 1., 2. } },
+					{ { 3., 4. } } }, 2, 1, 2));
+			out.close();
+			ObjectInputStream sin = new ObjectInputStream(
+					new ByteArrayInputStream(bytes.toByteArray()));
+			T = Matrix.identity(6, 6);
+			check(((LUDecomposition) sin.readObject()).solve(T), R.lu()
+					.solve(T));
+			check(((QRDecomposition) sin.readObject()).solve(T), R.qr()
+					.solve(T));
+			check(((EigenvalueDecomposition) sin.readObject()).getD(), R
+					.eig().getD());
+			check(((EigenvalueDecomposition) sin.readObject()).getV(), R
+					.plus(R.transpose()).eig().getV());
+			check(((SingularValueDecomposition) sin.readObject()).getU(), R
+					.svd().getU());
+			check(((CholeskyDecomposition) sin.readObject()).getL(), R
+					.times(R.transpose()).chol().getL());
+			check(((Matrix3) sin.readObject()).get(1, 0, 1), 4.);
+			// Elements that do not match the stored dimensions.
+			bytes = new ByteArrayOutputStream();
+			out = new ObjectOutputStream(bytes);
+			out.writeObject(new Matrix3(new double[][][] { { { 1., 2. } },
+					{ { 3. } } }, 2, 1, 2));
+			out.close();
+			sin = new ObjectInputStream(new ByteArrayInputStream(bytes
+					.toByteArray()));
+			try {
+				sin.readObject();
+				throw new RuntimeException("ragged Matrix3 accepted");
+			} catch (java.io.InvalidObjectException e) {
+				// expected
+			}
+			// Stored dimensions patched so that the arrays no longer match.
+			R = Matrix.random(6, 7);
+			Object[] bad = { R.lu(), R.qr(), R.times(R.transpose()).chol() };
+			int[][] dims = { { 6, 7 }, { 6, 7 }, { 6 } };
+			for (int k = 0; k < bad.length; k++) {
+				try {
+					readPatched(bad[k], dims[k]);
+					throw new RuntimeException(bad[k].getClass().getName()
+							+ " accepted");
+				} catch (java.io.InvalidObjectException e) {
+					// expected
+				}
+			}
+			try_success("writeObject/readObject decompositions...", "");
+		} catch (Exception e) {
+			errorCount = try_failure(errorCount,
+					"writeObject/readObject decompositions...",
+					"decomposition not serialized correctly");
+		}
+		try {
+			// More elements than are allocated before the data is read.
+			R = Matrix.random(1100, 1000);
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			ObjectOutputStream out = new ObjectOutputStream(bytes);
+			out.writeObject(R);
+			// A length far beyond the data that follows it.
+			out.writeInt(Integer.MAX_VALUE - 8);
+			out.writeDouble(1.);
+			out.close();
+			ObjectInputStream sin = new ObjectInputStream(
+					new ByteArrayInputStream(bytes.toByteArray()));
+			if (!java.util.Arrays.equals(((Matrix) sin.readObject())
+					.getColumnPackedArray(), R.getColumnPackedArray())) {
+				throw new RuntimeException("large array");
+			}
+			try {
+				JamaEx.util.Serial.readDoubles(sin);
+				errorCount = try_failure(errorCount,
+						"readObject array lengths...",
+						"truncated array not rejected");
+			} catch (java.io.EOFException e) {
+				try_success("readObject array lengths...", "");
+			}
+		} catch (Exception | OutOfMemoryError e) {
+			errorCount = try_failure(errorCount,
+					"readObject array lengths...",
+					"array length read from the stream was trusted");
+		}
+
+		try {
+			R = Matrix.random(9, 7).minus(new Matrix(9, 7, 0.6));
+			for (int k = 0; k < 63; k++) {
+				if (R.getColumnPackedArray()[k] < 0) {
+					R.getColumnPackedArray()[k] = 0;
+				}
+			}
+			S = Matrix.random(7, 5);
+			SparseMatrix SR = R.toSparse(), SS = S.transpose().toSparse();
+			check(SR.toMatrix(), R);
+			check(SR.toCSR().toMatrix(), R);
+			check(SR.transpose().toMatrix(), R.transpose());
+			check(SR.toCSR().transpose().toCSR().toMatrix(), R.transpose());
+			check(SR.times(S), R.times(S));
+			check(SR.toCSR().times(S), R.times(S));
+			double[] x = S.getMatrix(0, 6, 0, 0).getColumnPackedArray();
+			check(new Matrix(SR.timesVector(x), 9), R.times(new Matrix(x, 7)));
+			check(new Matrix(SR.toCSR().timesVector(x), 9), R.times(new Matrix(
+					x, 7)));
+			double[] z = Matrix.random(9, 1).getColumnPackedArray();
+			check(new Matrix(SR.transposeTimesVector(z), 7), R.transpose()
+					.times(new Matrix(z, 9)));
+			check(new Matrix(SR.toCSR().transposeTimesVector(z), 7), R
+					.transpose().times(new Matrix(z, 9)));
+			check(SR.plus(SR.toCSR()).toMatrix(), R.times(2.));
+			check(SR.minus(SR.toCSR()).nnz(), 0.);
+			check(SR.arrayTimes(SR).toMatrix(), R.arrayTimes(R));
+			check(SR.arrayTimes(R).toMatrix(), R.arrayTimes(R));
+			check(SR.uminus().abs().toMatrix(), R);
+			check(SR.times(0.).nnz(), 0.);
+			check(SR.norm1(), R.norm1());
+			check(SR.toCSR().norm1(), R.norm1());
+			check(SR.normInf(), R.normInf());
+			check(SR.toCSR().normInf(), R.normInf());
+			check(SR.normF(), R.normF());
+			check(SR.toCSR().find(), SR.find());
+			check(SR.find(0.).getColumnDimension() + SR.nnz(), 63.);
+			check(SR.find(0.), R.find(0.));
+			try {
+				new SparseMatrix(50000, 50000).find(0.);
+				throw new RuntimeException("2.5e9 zeros found");
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+			check(SR.get(3, 4), R.get(3, 4));
+			check(SR.toCSR().get(8, 6), R.get(8, 6));
+			SparseMatrix big = Matrix.random(40, 300).toSparse();
+			S = Matrix.random(300, 200);
+			check(big.times(S), big.toMatrix().times(S));
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			ObjectOutputStream out = new ObjectOutputStream(bytes);
+			out.writeObject(SS);
+			out.close();
+			check(((SparseMatrix) new ObjectInputStream(
+					new ByteArrayInputStream(bytes.toByteArray()))
+					.readObject()).toMatrix(), SS.toMatrix());
+			try_success("SparseMatrix...", "");
+		} catch (Exception e) {
+			errorCount = try_failure(errorCount, "SparseMatrix...",
+					"sparse result differs from dense");
+		}
+		try {
+			java.util.Random rnd = new java.util.Random(7);
+			int tn = 200000;
+			int[] ti = new int[tn], tj = new int[tn];
+			double[] tv = new double[tn];
+			R = new Matrix(300, 40);
+			for (int k = 0; k < tn; k++) {
+				ti[k] = rnd.nextInt(300);
+				tj[k] = rnd.nextInt(40);
+				tv[k] = rnd.nextInt(5) - 2;
+				R.set(ti[k], tj[k], R.get(ti[k], tj[k]) + tv[k]);
+			}
+			SparseMatrix SR = SparseMatrix.sparse(ti, tj, tv, 300, 40);
+			check(SR.toMatrix(), R);
+			check(SR.nnz(), R.getRowDimension() * R.getColumnDimension()
+					- R.find_number(0.));
+			SparseBuilder sb = new SparseBuilder(3, 2);
+			sb.add(IntStream.of(2, 0, 2), IntStream.of(1, 1, 1), DoubleStream
+					.of(1., 5., 2.));
+			sb.add(0, 1, -5.).add(new SparseBuilder(3, 2).add(1, 0, 4.));
+			check(sb.build().toMatrix(), new Matrix(new double[][] { { 0., 0. },
+					{ 4., 0. }, { 0., 3. } }));
+			check(sb.build().nnz(), 2.);
+			try_success("SparseBuilder...", "");
+		} catch (Exception e) {
+			errorCount = try_failure(errorCount, "SparseBuilder...",
+					"assembled matrix differs from dense sum");
+		}
+		try {
+			SparseBuilder sb = new SparseBuilder(64, 64);
+			for (int k = 0; k < 64; k++) {
+				sb.add(k, k, 4.5);
+				if (k % 8 < 7) {
+					sb.add(k, k + 1, -1.).add(k + 1, k, -1.);
+				}
+				if (k < 56) {
+					sb.add(k, k + 8, -1.).add(k + 8, k, -1.);
+				}
+			}
+			SparseMatrix SA = sb.build();
+			SparseCholeskyDecomposition SC = SA.chol();
+			B = Matrix.random(64, 3);
+			X = SC.solve(B);
+			check(SA.toMatrix().times(X), B);
+			check(X, SA.toMatrix().chol().solve(B));
+			int[] p = SC.getPermutation();
+			Matrix SL = SC.getL().toMatrix();
+			check(SL.times(SL.transpose()), SA.toMatrix().getMatrix(p, p));
+			if (SC.getSymbolic().nnzL() >= SparseCholeskyDecomposition
+					.analyze(SA, null).nnzL()) {
+				throw new RuntimeException("ordering does not reduce fill");
+			}
+			SparseCholeskyDecomposition SC2 = new SparseCholeskyDecomposition(
+					SA.times(2.), SC.getSymbolic());
+			check(SC2.solve(B), X.times(0.5));
+			if (!SC.isSPD() || SA.minus(SA.times(2.)).chol().isSPD()) {
+				throw new RuntimeException("isSPD");
+			}
+			// The lower triangle alone gives the same factorization.
+			sb = new SparseBuilder(64, 64);
+			for (int k = 0; k < 64; k++) {
+				sb.add(k, k, 4.5);
+				if (k % 8 < 7) {
+					sb.add(k + 1, k, -1.);
+				}
+				if (k < 56) {
+					sb.add(k + 8, k, -1.);
+				}
+			}
+			SparseMatrix SLow = sb.build();
+			check(SLow.chol().solve(B), X);
+			SC2 = new SparseCholeskyDecomposition(SLow,
+					SparseCholeskyDecomposition.analyze(SLow, null));
+			check(SC2.solve(B), X);
+			if (SA.plus(SparseMatrix.sparse(new int[] { 0 }, new int[] { 1 },
+					new double[] { -1. }, 64, 64)).chol().isSPD()) {
+				throw new RuntimeException("asymmetric upper triangle");
+			}
+			try_success("SparseCholeskyDecomposition...", "");
+		} catch (Exception e) {
+			errorCount = try_failure(errorCount,
+					"SparseCholeskyDecomposition...",
+					"sparse Cholesky solution differs from dense");
+		}
+		try {
+			R = Matrix.random(7, 3);
+			SymmetricMatrix SD = SymmetricMatrix.pdist(R);
+			check(SD.toMatrix(), R.pdist().squareform());
+			check(SD.toDistanceVector(), R.pdist());
+			check(SymmetricMatrix.squareform(R.pdist().transpose()).get(5, 2),
+					R.pdist().squareform().get(2, 5));
+			S = Matrix.random(7, 7);
+			S = S.plus(S.transpose());
+			SymmetricMatrix SS = new SymmetricMatrix(S);
+			check(SS.toMatrix(), S);
+			check(SS.times(R), S.times(R));
+			double[] sx = { 1., 2., 3., 4., 5., 6., 7. };
+			check(new Matrix(SS.timesVector(sx), 7), S.times(new Matrix(sx, 7)));
+			check(SS.plus(SD).minus(SS.times(2.)).toMatrix(), SD.toMatrix()
+					.minus(S));
+			Matrix W = Matrix.random(7, 90);
+			SymmetricMatrix SW = SS.copy().rankUpdate(2., W, 0.5);
+			check(SW.toMatrix(), W.times(W.transpose()).times(2.).plus(
+					S.times(0.5)));
+			check(SW.chol().getL(), SW.toMatrix().chol().getL());
+			if (!SW.chol().isSPD() || SS.chol().isSPD() != S.chol().isSPD()) {
+				throw new RuntimeException("isSPD");
+			}
+			check(SS.eig().getD(), S.eig().getD());
+			check(SS.eig().getV(), S.eig().getV());
+			// n(n-1)/2 overflows an int from n = 46342 on.
+			if (SymmetricMatrix.packedLength(46342) != 1073767311L
+					|| SymmetricMatrix.packedLength(7) != 21) {
+				throw new RuntimeException("packed length");
+			}
+			try_success("SymmetricMatrix...", "");
+		} catch (Exception e) {
+			errorCount = try_failure(errorCount, "SymmetricMatrix...",
+					"packed symmetric result differs from dense");
+		}
+		try {
+			BandMatrix BM = new BandMatrix(Matrix.random(12, 12), 2, 3);
+			Matrix BD = BM.toMatrix();
+			B = Matrix.random(12, 2);
+			check(BM.times(B), BD.times(B));
+			double[] bx = B.getMatrix(0, 11, 0, 0).getColumnPackedArray();
+			check(new Matrix(BM.transposeTimesVector(bx, new double[12]), 12),
+					BD.transpose().times(new Matrix(bx, 12)));
+			BandLUDecomposition BLU = BM.lu();
+			check(BLU.solve(B), BD.lu().solve(B));
+			check(new Matrix(1, 1, BLU.det()), new Matrix(1, 1, BD.det()));
+			check(BLU.getU().toMatrix(), BD.lu().getU());
+			check(BD.getMatrix(BLU.getPivot(), 0, 11), BD.lu().getL().times(
+					BD.lu().getU()));
+			check(BM.times(new Matrix(BM.solve(bx), 12)), new Matrix(bx, 12));
+			Matrix G = Matrix.random(12, 12);
+			BandMatrix BS = new BandMatrix(G.times(G.transpose()).plus(
+					Matrix.identity(12, 12).times(12.)), 2, 2);
+			BS = new BandMatrix(BS.toMatrix().plus(BS.toMatrix().transpose())
+					.times(0.5), 2, 2);
+			BandCholeskyDecomposition BC = BS.chol();
+			check(BC.getL().toMatrix(), BS.toMatrix().chol().getL());
+			check(BC.solve(B), BS.toMatrix().chol().solve(B));
+			if (!BC.isSPD() || BS.times(-1.).chol().isSPD()) {
+				throw new RuntimeException("isSPD");
+			}
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			ObjectOutputStream out = new ObjectOutputStream(bytes);
+			out.writeObject(BLU);
+			out.writeObject(BC);
+			out.close();
+			ObjectInputStream sin = new ObjectInputStream(
+					new ByteArrayInputStream(bytes.toByteArray()));
+			check(((BandLUDecomposition) sin.readObject()).solve(B), BLU
+					.solve(B));
+			check(((BandCholeskyDecomposition) sin.readObject()).solve(B), BC
+					.solve(B));
+			TridiagonalMatrix TM = new TridiagonalMatrix(BS.toMatrix());
+			check(TM.toBandMatrix().toMatrix(), new BandMatrix(BS.toMatrix(),
+					1, 1).toMatrix());
+			check(TM.solve(B), TM.toMatrix().lu().solve(B));
+			check(new Matrix(TM.timesVector(TM.solve(bx)), 12), new Matrix(bx,
+					12));
+			try_success("BandMatrix/TridiagonalMatrix...", "");
+		} catch (Exception e) {
+			errorCount = try_failure(errorCount,
+					"BandMatrix/TridiagonalMatrix...",
+					"band result differs from dense");
+		}
+		try {
+			new SparseMatrix(2, 2, new int[] { 0, 2, 2 }, new int[] { 1, 0 },
+					new double[] { 1., 2. }, false);
+			errorCount = try_failure(errorCount, "SparseMatrix arrays...",
+					"unsorted indices not rejected");
+		} catch (IllegalArgumentException e) {
+			try_success("SparseMatrix arrays...", "");
+		}
+
+		try {
+			R = Matrix.random(9, 7);
+			S = R.copy();
+			MatrixView V = R.view(2, 6, 1, 5);
+			check(V.copy(), S.getMatrix(2, 6, 1, 5));
+			check(R.rowView(3).copy(), S.getRow(3));
+			check(R.columnView(4).copy(), S.getCol(4));
+			check(V.transpose().copy(), S.getMatrix(2, 6, 1, 5).transpose());
+			check(V.view(1, 3, 2, 4).copy(), S.getMatrix(3, 5, 3, 5));
+			check(V.times(R.view(0, 4, 0, 2)),
+					S.getMatrix(2, 6, 1, 5).times(S.getMatrix(0, 4, 0, 2)));
+			check(V.transpose().times(V),
+					S.getMatrix(2, 6, 1, 5).transpose()
+							.times(S.getMatrix(2, 6, 1, 5)));
+			check(R.rowView(0).times(R.rowView(1).transpose()).get(0, 0), S
+					.getRow(0).times(S.getRow(1).transpose()).get(0, 0));
+			check(V.plus(V.transpose()),
+					S.getMatrix(2, 6, 1, 5).plus(
+							S.getMatrix(2, 6, 1, 5).transpose()));
+			check(R.view(0, 8, 0, 0).normF(), S.getCol(0).normF());
+			// Writes go through to the parent, and an overlapping operand
+			// is read before it is overwritten.
+			V.timesEquals(2.0).minusEquals(R.view(1, 5, 1, 5));
+			S.setMatrix(2, 6, 1, 5, S.getMatrix(2, 6, 1, 5).times(2.0));
+			S.setMatrix(2, 6, 1, 5,
+					S.getMatrix(2, 6, 1, 5).minus(S.getMatrix(1, 5, 1, 5)));
+			check(R, S);
+			R.rowView(8).assign(R.columnView(6).view(0, 6, 0, 0).transpose());
+			S.setMatrix(8, 8, 0, 6, S.getMatrix(0, 6, 6, 6).transpose());
+			check(R, S);
+			R.view(0, 3, 0, 3).plusEquals(R.view(0, 3, 0, 3).transpose());
+			T = S.getMatrix(0, 3, 0, 3);
+			S.setMatrix(0, 3, 0, 3, T.plus(T.transpose()));
+			check(R, S);
+			try_success("MatrixView...", "");
+		} catch (java.lang.RuntimeException e) {
+			errorCount = try_failure(errorCount, "MatrixView...",
+					"view result differs from copied submatrix");
+		}
 
 		/**
 		 * LA methods: transpose times cond rank det trace norm1 norm2 normF
@@ -883,6 +1492,33 @@ public class Matrix_test {
 			errorCount = try_failure(errorCount, "transpose()...",
 					"transpose unsuccessful");
 		}
+		try {
+			R = Matrix.random(70, 45);
+			T = R.transpose();
+			for (int i = 0; i < 70; i++) {
+				for (int j = 0; j < 45; j++) {
+					if (T.get(j, i) != R.get(i, j)) {
+						throw new RuntimeException("transpose mismatch");
+					}
+				}
+			}
+			R = Matrix.random(67, 67);
+			T = R.transpose();
+			check(R.transposeEquals(), T);
+			try_success("blocked transpose, transposeEquals...", "");
+		} catch (java.lang.RuntimeException e) {
+			errorCount = try_failure(errorCount,
+					"blocked transpose, transposeEquals...",
+					"transpose unsuccessful");
+		}
+		try {
+			A.copy().transposeEquals();
+			errorCount = try_failure(errorCount,
+					"transposeEquals conformance check... ",
+					"nonsquare matrix not rejected");
+		} catch (IllegalArgumentException e) {
+			try_success("transposeEquals conformance check... ", "");
+		}
 		A.transpose();
 		try {
 			check(A.norm1(), columnsummax);
@@ -928,6 +1564,120 @@ public class Matrix_test {
 			errorCount = try_failure(errorCount, "times(Matrix)...",
 					"incorrect Matrix-Matrix product calculation");
 		}
+		try {
+			// m, k, n just below, at and just above the MC = 128, KC = 256
+			// and NC = 2048 blocks of the packed kernel, none of them all
+			// multiples of the 4x4 tile.
+			int[][] shapes = { { 129, 9, 33 }, { 127, 10, 35 },
+					{ 10, 257, 14 }, { 11, 255, 13 }, { 128, 256, 9 },
+					{ 6, 5, 2049 }, { 7, 3, 2047 }, { 131, 259, 6 },
+					{ 5, 7, 4099 } };
+			for (int[] s : shapes) {
+				R = Matrix.random(s[0], s[1]);
+				T = Matrix.random(s[1], s[2]);
+				check(R.times(T), naiveTimes(R, T));
+			}
+			try_success("times(Matrix) block edges...", "");
+		} catch (java.lang.RuntimeException e) {
+			errorCount = try_failure(errorCount,
+					"times(Matrix) block edges...",
+					"packed product differs from a triple loop");
+		}
+		try {
+			// Inf and NaN in A times zeros in B give NaN, below and above
+			// the 32^3 size where the triple loop gives way to the packed
+			// kernel.
+			for (int s = 4; s <= 40; s += 36) {
+				R = Matrix.random(s, s);
+				T = Matrix.random(s, s);
+				R.set(1, 2, Double.POSITIVE_INFINITY);
+				R.set(3, 0, Double.NaN);
+				T.setMatrix(2, 2, 0, s - 1, new Matrix(1, s));
+				T.setMatrix(0, 0, 0, s - 1, new Matrix(1, s));
+				double[] x = R.times(T).getColumnPackedArray();
+				double[] y = naiveTimes(R, T).getColumnPackedArray();
+				for (int k = 0; k < x.length; k++) {
+					if (Double.isNaN(x[k]) != Double.isNaN(y[k])) {
+						throw new RuntimeException("NaN lost at size " + s);
+					}
+				}
+			}
+			try_success("times(Matrix) with Inf and NaN...", "");
+		} catch (java.lang.RuntimeException e) {
+			errorCount = try_failure(errorCount,
+					"times(Matrix) with Inf and NaN...",
+					"product drops Inf*0 or NaN*0");
+		}
+		try {
+			// Above the 192^3 threshold, so the product is split into
+			// GemmTasks whenever the common pool has two or more threads.
+			R = Matrix.random(211, 233);
+			T = Matrix.random(233, 227);
+			Matrix RT = naiveTimes(R, T);
+			check(R.times(T), RT);
+			C = new Matrix(211, 227);
+			Matrix.gemm(1., R.transpose(), true, T.transpose(), true, 0., C);
+			check(C, RT);
+			try_success("times(Matrix) in parallel...", "");
+		} catch (java.lang.RuntimeException e) {
+			errorCount = try_failure(errorCount,
+					"times(Matrix) in parallel...",
+					"parallel product differs from a triple loop");
+		}
+		try {
+			C = SQ.copy();
+			Matrix.gemm(2., A, false, A, true, -1., C);
+			check(C, SQ);
+			C = SQ.copy();
+			Matrix.gemm(1., A.transpose(), true, A.transpose(), false, 0., C);
+			check(C, SQ);
+			try_success("gemm...", "");
+		} catch (java.lang.RuntimeException e) {
+			errorCount = try_failure(errorCount, "gemm...",
+					"incorrect general Matrix-Matrix product calculation");
+		}
+		try {
+			R = Matrix.random(57, 43);
+			T = Matrix.random(43, 1);
+			check(new Matrix(R.timesVector(T.getColumnPackedArray()), 57),
+					R.times(T));
+			check(R.times(T),
+					Matrix.gemm(1., R, false, T, false, 0., new Matrix(57, 1)));
+			T = Matrix.random(1, 57);
+			check(T.times(R),
+					Matrix.gemm(1., T, false, R, false, 0., new Matrix(1, 43)));
+			check(new Matrix(R.transposeTimesVector(T.getColumnPackedArray()),
+					43), R.transpose().times(T.transpose()));
+			try_success("timesVector, transposeTimesVector...", "");
+		} catch (java.lang.RuntimeException e) {
+			errorCount = try_failure(errorCount,
+					"timesVector, transposeTimesVector...",
+					"incorrect Matrix-vector product");
+		}
+		try {
+			R = Matrix.random(37, 41);
+			T = Matrix.random(41, 35);
+			check(R.timesStrassen(T, 4), R.times(T));
+			Matrix.setStrassenCutoff(8);
+			Matrix.setStrassen(true);
+			C = R.times(T);
+			Matrix.setStrassen(false);
+			Matrix.setStrassenCutoff(512);
+			check(C, R.times(T));
+			try_success("timesStrassen...", "");
+		} catch (java.lang.RuntimeException e) {
+			Matrix.setStrassen(false);
+			Matrix.setStrassenCutoff(512);
+			errorCount = try_failure(errorCount, "timesStrassen...",
+					"incorrect Strassen-Winograd product");
+		}
+		try {
+			Matrix.gemm(1., A, false, A, false, 0., SQ.copy());
+			errorCount = try_failure(errorCount, "gemm conformance check... ",
+					"nonconformance not raised");
+		} catch (IllegalArgumentException e) {
+			try_success("gemm conformance check... ", "");
+		}
 		try {
 			check(A.times(0.), Z);
 			try_success("times(double)...", "");
@@ -936,6 +1686,197 @@ public class Matrix_test {
 					"incorrect Matrix-scalar product calculation");
 		}
 
+		try {
+			R = Matrix.random(40, 40).plus(Matrix.identity(40, 40).times(40.));
+			FloatMatrix F = R.toFloatMatrix();
+			T = Matrix.random(40, 3);
+			FloatMatrix FT = T.toFloatMatrix();
+			checkFloat(F.times(FT).toMatrix(), R.times(T));
+			checkFloat(F.plus(F).arrayTimes(F).minus(F).toMatrix(), R.plus(R)
+					.arrayTimes(R).minus(R));
+			checkFloat(F.lu().solve(FT).toMatrix(), R.lu().solve(T));
+			checkFloat(F.qr().solve(FT).toMatrix(), R.qr().solve(T));
+			Matrix SPD = R.times(R.transpose());
+			checkFloat(SPD.toFloatMatrix().chol().solve(FT).toMatrix(), SPD
+					.chol().solve(T));
+			try_success("FloatMatrix...", "");
+		} catch (java.lang.RuntimeException e) {
+			errorCount = try_failure(errorCount, "FloatMatrix...",
+					"single precision result differs from double precision");
+		}
+		try {
+			FloatMatrix F = FloatMatrix.random(9, 7);
+			Matrix FD = F.toMatrix();
+			int[] r = { 3, 0, 7 }, c = { 5, 2 };
+			check(F.getMatrix(r, c).toMatrix(), FD.getMatrix(r, c));
+			check(F.getMatrix(1, 4, c).toMatrix(), FD.getMatrix(1, 4, c));
+			FloatMatrix G = F.copy();
+			G.setMatrix(r, c, F.getMatrix(0, 2, 0, 1));
+			G.setMatrix(1, 2, 4, 6, F.getMatrix(4, 5, 0, 2));
+			G.setMatrix(r, 3, 3, F.getMatrix(0, 2, 6, 6));
+			G.setMatrix(6, 8, c, F.getMatrix(r, 0, 1));
+			T = FD.copy();
+			T.setMatrix(r, c, FD.getMatrix(0, 2, 0, 1));
+			T.setMatrix(1, 2, 4, 6, FD.getMatrix(4, 5, 0, 2));
+			T.setMatrix(r, 3, 3, FD.getMatrix(0, 2, 6, 6));
+			T.setMatrix(6, 8, c, FD.getMatrix(r, 0, 1));
+			check(G.toMatrix(), T);
+			G = FloatMatrix.random(70, 45);
+			check(G.transpose().toMatrix(), G.toMatrix().transpose());
+			for (int dim = 1; dim <= 2; dim++) {
+				check(F.max(dim).toMatrix(), FD.max(dim));
+				check(F.min(dim).toMatrix(), FD.min(dim));
+				checkFloat(F.mean(dim).toMatrix(), FD.mean(dim));
+				checkFloat(F.sum(dim).toMatrix(), FD.sum(dim));
+			}
+			check(F.norm2(), FD.norm2());
+			check(F.cond(), FD.cond());
+			check(F.svd().getS(), FD.svd().getS());
+			check(F.eig().getD(), FD.eig().getD());
+			// Rank 5 up to single precision rounding.
+			FloatMatrix F5 = FloatMatrix.random(40, 5).times(
+					FloatMatrix.random(5, 30));
+			if (F5.rank() != 5 || F.rank() != 7) {
+				throw new RuntimeException("rank");
+			}
+			// Nine significant digits, so every float reads back exactly.
+			DecimalFormat fmt = new DecimalFormat("0.00000000E00");
+			fmt.setDecimalFormatSymbols(new DecimalFormatSymbols(Locale.US));
+			StringWriter sw = new StringWriter();
+			F.print(new PrintWriter(sw), fmt, 16);
+			G = FloatMatrix.read(new BufferedReader(new StringReader(sw
+					.toString())));
+			if (!java.util.Arrays.equals(G.getColumnPackedArray(), F
+					.getColumnPackedArray())) {
+				throw new RuntimeException("print/read");
+			}
+			try_success("FloatMatrix submatrices, reductions, svd...", "");
+		} catch (Exception e) {
+			errorCount = try_failure(errorCount,
+					"FloatMatrix submatrices, reductions, svd...",
+					"single precision result differs from double precision");
+		}
+
+		R = Matrix.random(37, 45);
+		T = Matrix.random(45, 29);
+		try (OffHeapMatrix OR = new OffHeapMatrix(37, 45, 37 * 4);
+				OffHeapMatrix OT = OffHeapMatrix.valueOf(T)) {
+			for (int j = 0; j < 45; j++) {
+				OR.setColumn(j, R.getColumnPackedArray(), j * 37);
+			}
+			try (OffHeapMatrix OP = OR.times(OT)) {
+				check(OP.toMatrix(), R.times(T));
+			}
+			try (OffHeapMatrix OP = OR.plus(OR).minusEquals(OR)) {
+				check(OP.toMatrix(), R);
+			}
+			try (OffHeapMatrix OS = OR.arrayTimes(OR);
+					OffHeapMatrix OP = OS.arrayRightDivide(OR)) {
+				check(OP.toMatrix(), R);
+			}
+			try (OffHeapMatrix OS = OR.times(2.);
+					OffHeapMatrix OP = OR.arrayLeftDivide(OS)
+							.arrayTimesEquals(OR)) {
+				check(OP.toMatrix(), R.times(2.));
+				check(OP.arrayRightDivideEquals(OR).arrayLeftDivideEquals(OR)
+						.toMatrix(), R.times(0.5));
+			}
+			check(OR.get(36L, 44L), R.get(36, 44));
+			// Both norms accumulate the mn squares one at a time, in different
+			// ways, so each is within about mn*eps*normF of the exact value.
+			if (Math.abs(OR.normF() - R.normF()) > 2 * 37 * 45
+					* Math.pow(2.0, -52.0) * R.normF()) {
+				throw new RuntimeException("normF differs");
+			}
+			check(OR.norm1(), R.norm1());
+			try_success("OffHeapMatrix...", "");
+		} catch (java.lang.RuntimeException e) {
+			errorCount = try_failure(errorCount, "OffHeapMatrix...",
+					"off-heap result differs from Matrix");
+		}
+		{
+			OffHeapMatrix OR = new OffHeapMatrix(3, 3);
+			OffHeapMatrix OT = new OffHeapMatrix(0, 3);
+			OR.close();
+			OT.close();
+			int rejected = 0;
+			try {
+				OR.get(0L, 0L);
+			} catch (IllegalStateException e) {
+				rejected++;
+			}
+			try (OffHeapMatrix OS = new OffHeapMatrix(3, 3)) {
+				OR.times(OS).close();
+			} catch (IllegalStateException e) {
+				rejected++;
+			}
+			try {
+				OT.normF();
+			} catch (IllegalStateException e) {
+				rejected++;
+			}
+			if (rejected == 3) {
+				try_success("OffHeapMatrix close... ", "");
+			} else {
+				errorCount = try_failure(errorCount, "OffHeapMatrix close... ",
+						"access after close not rejected");
+			}
+		}
+		try (OffHeapMatrix OR = new OffHeapMatrix(0, 5)) {
+			OR.get(0L);
+			errorCount = try_failure(errorCount,
+					"OffHeapMatrix empty linear index... ",
+					"index into an empty matrix not rejected");
+		} catch (ArrayIndexOutOfBoundsException e) {
+			try_success("OffHeapMatrix empty linear index... ", "");
+		}
+		try {
+			java.nio.file.Path file = java.nio.file.Files.createTempFile(
+					"JamaTestMatrix", ".jmx");
+			R = Matrix.random(23, 17);
+			R.writeFile(file);
+			check(Matrix.readFile(file), R);
+			boolean readOnly;
+			try (OffHeapMatrix OR = Matrix.mapFile(file)) {
+				check(OR.toMatrix(), R);
+				readOnly = OR.isReadOnly();
+			}
+			try (OffHeapMatrix OR = MatrixFile.map(file, true)) {
+				OR.set(22L, 16L, 3.);
+			}
+			R.set(22, 16, 3.);
+			check(Matrix.readFile(file), R);
+			java.nio.file.Files.delete(file);
+			if (!readOnly) {
+				throw new RuntimeException();
+			}
+			try_success("MatrixFile...", "");
+		} catch (java.lang.Exception e) {
+			errorCount = try_failure(errorCount, "MatrixFile...",
+					"binary file round trip failed");
+		}
+		try {
+			java.nio.file.Path file = java.nio.file.Files.createTempFile(
+					"JamaTestMatrix", ".jmx");
+			// Header of a matrix with one row more than a chunk holds.
+			java.nio.ByteBuffer h = java.nio.ByteBuffer.allocate(
+					MatrixFile.HEADER).order(java.nio.ByteOrder.LITTLE_ENDIAN);
+			h.put("JAMX".getBytes("US-ASCII")).putInt(1).putInt(0).putInt(8)
+					.putLong((1L << 27) + 1).putLong(0L);
+			java.nio.file.Files.write(file, h.array());
+			try {
+				MatrixFile.map(file, false).close();
+				errorCount = try_failure(errorCount, "MatrixFile.map rows...",
+						"column larger than a chunk not rejected");
+			} catch (java.io.IOException e) {
+				try_success("MatrixFile.map rows...", "");
+			}
+			java.nio.file.Files.delete(file);
+		} catch (java.io.IOException e) {
+			warningCount = try_warning(warningCount, "MatrixFile.map rows...",
+					"unable to write a temporary file");
+		}
+
 		A = new Matrix(columnwise, 4);
 		QRDecomposition QR = A.qr();
 		R = QR.getR();
@@ -946,6 +1887,27 @@ public class Matrix_test {
 			errorCount = try_failure(errorCount, "QRDecomposition...",
 					"incorrect QR decomposition calculation");
 		}
+		try {
+			R = Matrix.random(230, 150);
+			B = Matrix.random(230, 7);
+			QR = R.qr();
+			Matrix Q = QR.getQ();
+			check(R, Q.times(QR.getR()));
+			check(Q.transpose().times(Q), Matrix.identity(150, 150));
+			check(QR.applyQTranspose(B).getMatrix(0, 149, 0, 6), Q
+					.transpose().times(B));
+			check(QR.applyQ(QR.applyQTranspose(B)), B);
+			check(QR.applyQ(Matrix.identity(150, 150)), Q);
+			X = Matrix.random(150, 7);
+			check(QR.solve(R.times(X)), X);
+			T = R.copy();
+			check(T.qrInPlace().solve(B), QR.solve(B));
+			try_success("blocked QRDecomposition, applyQ...", "");
+		} catch (java.lang.RuntimeException e) {
+			errorCount = try_failure(errorCount,
+					"blocked QRDecomposition, applyQ...",
+					"incorrect QR decomposition calculation");
+		}
 		SingularValueDecomposition SVD = A.svd();
 		try {
 			check(A, SVD.getU().times(SVD.getS().times(SVD.getV().transpose())));
@@ -989,6 +1951,27 @@ public class Matrix_test {
 			errorCount = try_failure(errorCount, "LUDecomposition...",
 					"incorrect LU decomposition calculation");
 		}
+		try {
+			R = Matrix.random(203, 150);
+			LU = R.lu();
+			check(R.getMatrix(LU.getPivot(), 0, 149),
+					LU.getL().times(LU.getU()));
+			// Well conditioned, with the large elements off the diagonal.
+			int[] rev = new int[170];
+			for (int i = 0; i < 170; i++) {
+				rev[i] = 169 - i;
+			}
+			R = Matrix.random(170, 170)
+					.plus(Matrix.identity(170, 170).times(20.))
+					.getMatrix(rev, 0, 169);
+			T = Matrix.random(170, 40);
+			check(R.times(R.lu().solve(T)), T);
+			try_success("blocked LUDecomposition...", "");
+		} catch (java.lang.RuntimeException e) {
+			errorCount = try_failure(errorCount,
+					"blocked LUDecomposition...",
+					"incorrect LU decomposition calculation");
+		}
 		X = A.inverse();
 		try {
 			check(A.times(X), Matrix.identity(3, 3));
@@ -1028,6 +2011,44 @@ public class Matrix_test {
 					"CholeskyDecomposition solve()...",
 					"incorrect Choleskydecomposition solve calculation");
 		}
+		try {
+			R = Matrix.random(150, 150);
+			S = R.times(R.transpose()).plus(Matrix.identity(150, 150));
+			T = S.copy();
+			Chol = T.cholInPlace();
+			check(T, Chol.getL());
+			check(T.times(T.transpose()), S);
+			check(T.getMatrix(0, 0, 1, 149).normInf(), 0.);
+			B = Matrix.random(150, 20);
+			check(S.times(Chol.solve(B)), B);
+			R = Matrix.random(140, 130);
+			T = R.copy();
+			LUDecomposition TLU = T.luInPlace();
+			check(R.getMatrix(TLU.getPivot(), 0, 129),
+					TLU.getL().times(TLU.getU()));
+			Matrix TL = TLU.getL(), TU = TLU.getU();
+			for (int i = 0; i < 140; i++) {
+				for (int j = 0; j < 130; j++) {
+					if (T.get(i, j) != (i > j ? TL.get(i, j) : TU.get(i, j))) {
+						throw new RuntimeException("factors not in place");
+					}
+				}
+			}
+			T = S.copy();
+			T.set(3, 4, T.get(4, 3) + 1.);
+			// The lower triangle is factored even when A is not symmetric.
+			check(T.chol().getL(), S.chol().getL());
+			if (T.cholInPlace().isSPD()
+					|| S.times(-1.).chol().isSPD()) {
+				throw new RuntimeException("not SPD");
+			}
+			check(T, S.chol().getL());
+			try_success("cholInPlace, luInPlace...", "");
+		} catch (java.lang.RuntimeException e) {
+			errorCount = try_failure(errorCount,
+					"cholInPlace, luInPlace...",
+					"in place factors differ from the decomposition");
+		}
 		EigenvalueDecomposition Eig = A.eig();
 		Matrix D = Eig.getD();
 		Matrix V = Eig.getV();
@@ -1789,6 +2810,16 @@ public class Matrix_test {
 		check(A, B);
 	}
 
+	/** Check norm of difference of Matrices to single precision. **/
+
+	private static void checkFloat(Matrix X, Matrix Y) {
+		double eps = Math.pow(2.0, -23.0);
+		if (X.minus(Y).norm1() > 100 * eps * Math.max(X.norm1(), Y.norm1())) {
+			throw new RuntimeException("The norm of (X-Y) is "
+					+ X.minus(Y).norm1() + ", which is too large");
+		}
+	}
+
 	/** Check norm of difference of Matrices. **/
 
 	private static void check(Matrix X, Matrix Y) {
@@ -1803,6 +2834,52 @@ public class Matrix_test {
 		}
 	}
 
+	/**
+	 * Serialize x, add one to the last of the ints dims where they first
+	 * appear in a row, and read the result back.
+	 */
+
+	private static Object readPatched(Object x, int[] dims)
+			throws IOException, ClassNotFoundException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(x);
+		out.close();
+		byte[] b = bytes.toByteArray();
+		java.nio.ByteBuffer bb = java.nio.ByteBuffer.wrap(b);
+		for (int p = 0; p + 4 * dims.length <= b.length; p++) {
+			boolean match = true;
+			for (int k = 0; k < dims.length && match; k++) {
+				match = bb.getInt(p + 4 * k) == dims[k];
+			}
+			if (match) {
+				int last = p + 4 * (dims.length - 1);
+				bb.putInt(last, dims[dims.length - 1] + 1);
+				return new ObjectInputStream(new ByteArrayInputStream(b))
+						.readObject();
+			}
+		}
+		throw new RuntimeException("dimensions not found");
+	}
+
+	/** Product by the textbook triple loop, as a reference. **/
+
+	private static Matrix naiveTimes(Matrix X, Matrix Y) {
+		int m = X.getRowDimension(), k = X.getColumnDimension();
+		int n = Y.getColumnDimension();
+		Matrix Z = new Matrix(m, n);
+		for (int i = 0; i < m; i++) {
+			for (int j = 0; j < n; j++) {
+				double s = 0;
+				for (int l = 0; l < k; l++) {
+					s += X.get(i, l) * Y.get(l, j);
+				}
+				Z.set(i, j, s);
+			}
+		}
+		return Z;
+	}
+
 	/** Shorten spelling of print. **/
 
 	private static void print(String s) {
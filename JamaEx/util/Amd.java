@@ -0,0 +1,480 @@
+package JamaEx.util;
+
+   /** Approximate minimum degree ordering.
+   <P>
+   Orders a symmetric sparsity pattern so that its Cholesky factor has
+   little fill.  This is the quotient graph algorithm of Amestoy, Davis and
+   Duff, in the form of cs_amd from Davis' CSparse: each step eliminates a
+   node of least approximate external degree, forming a new element that
+   absorbs the elements adjacent to it, with mass elimination,
+   indistinguishable node (supervariable) detection by hashing and
+   aggressive element absorption.  Nodes of degree above
+   max(16, 10*sqrt(n)) are ordered last.  The result is postordered on the
+   assembly tree, so that fill-related columns are adjacent.
+   */
+
+public class Amd {
+
+/* ------------------------
+   Public Methods
+ * ------------------------ */
+
+   /** Fill reducing ordering of A + A', ignoring the diagonal.
+   @param n     Dimension of A.
+   @param ptr   Column pointers of A, of length n+1.
+   @param idx   Row indices of A.  Duplicates are allowed.
+   @return      Permutation p, so that A(p,p) has a sparse Cholesky factor.
+   */
+
+   public static int[] order (int n, int[] ptr, int[] idx) {
+      if (n == 0) {
+         return new int[0];
+      }
+
+      // Pattern of A + A' without the diagonal, with elbow room for the
+      // elements created during elimination.
+      int[] Cp = new int[n+1];
+      for (int j = 0; j < n; j++) {
+         for (int p = ptr[j]; p < ptr[j+1]; p++) {
+            int i = idx[p];
+            if (i != j) {
+               Cp[i+1]++;
+               Cp[j+1]++;
+            }
+         }
+      }
+      for (int j = 0; j < n; j++) {
+         Cp[j+1] += Cp[j];
+      }
+      int[] next0 = java.util.Arrays.copyOf(Cp, n);
+      int[] Ci0 = new int[Cp[n]];
+      for (int j = 0; j < n; j++) {
+         for (int p = ptr[j]; p < ptr[j+1]; p++) {
+            int i = idx[p];
+            if (i != j) {
+               Ci0[next0[i]++] = j;
+               Ci0[next0[j]++] = i;
+            }
+         }
+      }
+      // Remove duplicates.
+      int[] seen = new int[n];
+      java.util.Arrays.fill(seen, -1);
+      int cnz = 0;
+      for (int j = 0; j < n; j++) {
+         int p0 = Cp[j];
+         Cp[j] = cnz;
+         for (int p = p0; p < next0[j]; p++) {
+            int i = Ci0[p];
+            if (seen[i] != j) {
+               seen[i] = j;
+               Ci0[cnz++] = i;
+            }
+         }
+      }
+      Cp[n] = cnz;
+      int nzmax = (int) Math.min(Integer.MAX_VALUE - 8,
+                                 cnz + cnz/5 + 2L*n);
+      int[] Ci = java.util.Arrays.copyOf(Ci0, nzmax);
+      Ci0 = null;
+
+      int dense = (int) Math.max(16, 10*Math.sqrt(n));
+      dense = Math.min(n-2, dense);
+      int[] P = new int[n+1];
+      int[] len = new int[n+1], nv = new int[n+1], next = new int[n+1],
+            head = new int[n+1], elen = new int[n+1], degree = new int[n+1],
+            w = new int[n+1], hhead = new int[n+1];
+      int[] last = P;
+
+      // Initialize the quotient graph.
+      for (int k = 0; k < n; k++) {
+         len[k] = Cp[k+1] - Cp[k];
+      }
+      len[n] = 0;
+      for (int i = 0; i <= n; i++) {
+         head[i] = -1;
+         last[i] = -1;
+         next[i] = -1;
+         hhead[i] = -1;
+         nv[i] = 1;
+         w[i] = 1;
+         elen[i] = 0;
+         degree[i] = len[i];
+      }
+      int lemax = 0;
+      int mark = wclear(0, 0, w, n);
+      elen[n] = -2;
+      Cp[n] = -1;
+      w[n] = 0;
+
+      // Initialize the degree lists.
+      int nel = 0;
+      for (int i = 0; i < n; i++) {
+         int d = degree[i];
+         if (d == 0) {
+            elen[i] = -2;
+            nel++;
+            Cp[i] = -1;
+            w[i] = 0;
+         } else if (d > dense) {
+            nv[i] = 0;
+            elen[i] = -1;
+            nel++;
+            Cp[i] = flip(n);
+            nv[n]++;
+         } else {
+            if (head[d] != -1) {
+               last[head[d]] = i;
+            }
+            next[i] = head[d];
+            head[d] = i;
+         }
+      }
+
+      int mindeg = 0;
+      while (nel < n) {
+         // Select a node of minimum approximate degree.
+         int k = -1;
+         for (; mindeg < n && (k = head[mindeg]) == -1; mindeg++) {
+         }
+         if (next[k] != -1) {
+            last[next[k]] = -1;
+         }
+         head[mindeg] = next[k];
+         int elenk = elen[k];
+         int nvk = nv[k];
+         nel += nvk;
+
+         // Garbage collection.
+         if (elenk > 0 && cnz + mindeg >= nzmax) {
+            for (int j = 0; j < n; j++) {
+               int p = Cp[j];
+               if (p >= 0) {
+                  Cp[j] = Ci[p];
+                  Ci[p] = flip(j);
+               }
+            }
+            int q = 0;
+            for (int p = 0; p < cnz; ) {
+               int j = flip(Ci[p++]);
+               if (j >= 0) {
+                  Ci[q] = Cp[j];
+                  Cp[j] = q++;
+                  for (int k3 = 0; k3 < len[j]-1; k3++) {
+                     Ci[q++] = Ci[p++];
+                  }
+               }
+            }
+            cnz = q;
+         }
+
+         // Construct the new element.
+         int dk = 0;
+         nv[k] = -nvk;
+         int p = Cp[k];
+         int pk1 = (elenk == 0) ? p : cnz;
+         int pk2 = pk1;
+         for (int k1 = 1; k1 <= elenk+1; k1++) {
+            int e, pj, ln;
+            if (k1 > elenk) {
+               e = k;
+               pj = p;
+               ln = len[k] - elenk;
+            } else {
+               e = Ci[p++];
+               pj = Cp[e];
+               ln = len[e];
+            }
+            for (int k2 = 1; k2 <= ln; k2++) {
+               int i = Ci[pj++];
+               int nvi = nv[i];
+               if (nvi <= 0) {
+                  continue;
+               }
+               dk += nvi;
+               nv[i] = -nvi;
+               if (pk2 >= nzmax) {
+                  // The elbow room was not enough; grow the workspace.
+                  Ci = java.util.Arrays.copyOf(Ci, grow(nzmax));
+                  nzmax = Ci.length;
+               }
+               Ci[pk2++] = i;
+               if (next[i] != -1) {
+                  last[next[i]] = last[i];
+               }
+               if (last[i] != -1) {
+                  next[last[i]] = next[i];
+               } else {
+                  head[degree[i]] = next[i];
+               }
+            }
+            if (e != k) {
+               Cp[e] = flip(k);
+               w[e] = 0;
+            }
+         }
+         if (elenk != 0) {
+            cnz = pk2;
+         }
+         degree[k] = dk;
+         Cp[k] = pk1;
+         len[k] = pk2 - pk1;
+         elen[k] = -2;
+
+         // Find the set differences |Le \ Lk|.
+         mark = wclear(mark, lemax, w, n);
+         for (int pk = pk1; pk < pk2; pk++) {
+            int i = Ci[pk];
+            int eln = elen[i];
+            if (eln <= 0) {
+               continue;
+            }
+            int nvi = -nv[i];
+            int wnvi = mark - nvi;
+            for (p = Cp[i]; p <= Cp[i] + eln - 1; p++) {
+               int e = Ci[p];
+               if (w[e] >= mark) {
+                  w[e] -= nvi;
+               } else if (w[e] != 0) {
+                  w[e] = degree[e] + wnvi;
+               }
+            }
+         }
+
+         // Degree update and element absorption.
+         for (int pk = pk1; pk < pk2; pk++) {
+            int i = Ci[pk];
+            int p1 = Cp[i];
+            int p2 = p1 + elen[i] - 1;
+            int pn = p1;
+            long h = 0;
+            int d = 0;
+            for (p = p1; p <= p2; p++) {
+               int e = Ci[p];
+               if (w[e] != 0) {
+                  int dext = w[e] - mark;
+                  if (dext > 0) {
+                     d += dext;
+                     Ci[pn++] = e;
+                     h += e;
+                  } else {
+                     Cp[e] = flip(k);
+                     w[e] = 0;
+                  }
+               }
+            }
+            elen[i] = pn - p1 + 1;
+            int p3 = pn;
+            int p4 = p1 + len[i];
+            for (p = p2 + 1; p < p4; p++) {
+               int j = Ci[p];
+               int nvj = nv[j];
+               if (nvj <= 0) {
+                  continue;
+               }
+               d += nvj;
+               Ci[pn++] = j;
+               h += j;
+            }
+            if (d == 0) {
+               // Mass elimination: i is adjacent only to k.
+               Cp[i] = flip(k);
+               int nvi = -nv[i];
+               dk -= nvi;
+               nvk += nvi;
+               nel += nvi;
+               nv[i] = 0;
+               elen[i] = -1;
+            } else {
+               degree[i] = Math.min(degree[i], d);
+               Ci[pn] = Ci[p3];
+               Ci[p3] = Ci[p1];
+               Ci[p1] = k;
+               len[i] = pn - p1 + 1;
+               int hash = (int) (h % n);
+               next[i] = hhead[hash];
+               hhead[hash] = i;
+               last[i] = hash;
+            }
+         }
+         degree[k] = dk;
+         lemax = Math.max(lemax, dk);
+         mark = wclear(mark + lemax, lemax, w, n);
+
+         // Supervariable detection.
+         for (int pk = pk1; pk < pk2; pk++) {
+            int i = Ci[pk];
+            if (nv[i] >= 0) {
+               continue;
+            }
+            int hash = last[i];
+            i = hhead[hash];
+            hhead[hash] = -1;
+            for (; i != -1 && next[i] != -1; i = next[i], mark++) {
+               int ln = len[i];
+               int eln = elen[i];
+               for (p = Cp[i] + 1; p <= Cp[i] + ln - 1; p++) {
+                  w[Ci[p]] = mark;
+               }
+               int jlast = i;
+               for (int j = next[i]; j != -1; ) {
+                  boolean ok = (len[j] == ln) && (elen[j] == eln);
+                  for (p = Cp[j] + 1; ok && p <= Cp[j] + ln - 1; p++) {
+                     if (w[Ci[p]] != mark) {
+                        ok = false;
+                     }
+                  }
+                  if (ok) {
+                     // i and j are indistinguishable; absorb j into i.
+                     Cp[j] = flip(i);
+                     nv[i] += nv[j];
+                     nv[j] = 0;
+                     elen[j] = -1;
+                     j = next[j];
+                     next[jlast] = j;
+                  } else {
+                     jlast = j;
+                     j = next[j];
+                  }
+               }
+            }
+         }
+
+         // Finalize the new element.
+         p = pk1;
+         for (int pk = pk1; pk < pk2; pk++) {
+            int i = Ci[pk];
+            int nvi = -nv[i];
+            if (nvi <= 0) {
+               continue;
+            }
+            nv[i] = nvi;
+            int d = degree[i] + dk - nvi;
+            d = Math.min(d, n - nel - nvi);
+            if (head[d] != -1) {
+               last[head[d]] = i;
+            }
+            next[i] = head[d];
+            last[i] = -1;
+            head[d] = i;
+            mindeg = Math.min(mindeg, d);
+            degree[i] = d;
+            Ci[p++] = i;
+         }
+         nv[k] = nvk;
+         if ((len[k] = p - pk1) == 0) {
+            Cp[k] = -1;
+            w[k] = 0;
+         }
+         if (elenk != 0) {
+            cnz = p;
+         }
+      }
+
+      // Postorder the assembly tree.
+      for (int i = 0; i < n; i++) {
+         Cp[i] = flip(Cp[i]);
+      }
+      for (int j = 0; j <= n; j++) {
+         head[j] = -1;
+      }
+      for (int j = n; j >= 0; j--) {
+         if (nv[j] > 0) {
+            continue;
+         }
+         next[j] = head[Cp[j]];
+         head[Cp[j]] = j;
+      }
+      for (int e = n; e >= 0; e--) {
+         if (nv[e] <= 0) {
+            continue;
+         }
+         if (Cp[e] != -1) {
+            next[e] = head[Cp[e]];
+            head[Cp[e]] = e;
+         }
+      }
+      for (int k = 0, i = 0; i <= n; i++) {
+         if (Cp[i] == -1) {
+            k = treeDfs(i, k, head, next, P, w);
+         }
+      }
+      return java.util.Arrays.copyOf(P, n);
+   }
+
+   /** Postorder of a forest given by parent pointers.
+   @param parent   Parent of each node, -1 for a root.
+   @return         post, the nodes in postorder, with children in
+                   increasing order.
+   */
+
+   public static int[] postorder (int[] parent) {
+      int n = parent.length;
+      int[] head = new int[n], next = new int[n], stack = new int[n];
+      int[] post = new int[n];
+      java.util.Arrays.fill(head, -1);
+      for (int j = n-1; j >= 0; j--) {
+         if (parent[j] != -1) {
+            next[j] = head[parent[j]];
+            head[parent[j]] = j;
+         }
+      }
+      for (int k = 0, j = 0; j < n; j++) {
+         if (parent[j] == -1) {
+            k = treeDfs(j, k, head, next, post, stack);
+         }
+      }
+      return post;
+   }
+
+/* ------------------------
+   Private Methods
+ * ------------------------ */
+
+   /** Mark used for flagged node and element pointers. **/
+
+   private static int flip (int i) {
+      return -i - 2;
+   }
+
+   /** Clear the marks of w when mark would overflow. **/
+
+   private static int wclear (int mark, int lemax, int[] w, int n) {
+      if (mark < 2 || mark + lemax < 0) {
+         for (int k = 0; k < n; k++) {
+            if (w[k] != 0) {
+               w[k] = 1;
+            }
+         }
+         mark = 2;
+      }
+      return mark;
+   }
+
+   private static int grow (int size) {
+      if (size >= Integer.MAX_VALUE - 8) {
+         throw new OutOfMemoryError("Ordering workspace is too large.");
+      }
+      return (int) Math.min(Integer.MAX_VALUE - 8, 2L*size);
+   }
+
+   /** Depth first search of the tree rooted at j, numbering it from k. **/
+
+   private static int treeDfs (int j, int k, int[] head, int[] next,
+                               int[] post, int[] stack) {
+      int top = 0;
+      stack[0] = j;
+      while (top >= 0) {
+         int p = stack[top];
+         int i = head[p];
+         if (i == -1) {
+            top--;
+            post[k++] = p;
+         } else {
+            head[p] = next[i];
+            stack[++top] = i;
+         }
+      }
+      return k;
+   }
+}
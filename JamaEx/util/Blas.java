@@ -0,0 +1,871 @@
+package JamaEx.util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/** Dense kernels on column packed arrays.
+<P>
+   Every matrix argument is given as an array, the offset of its first
+   element and its leading dimension, so element (i,j) of A is at
+   A[aOff + i + j*lda].  This is the layout used by Matrix, and it lets the
+   kernels work on blocks of a larger matrix without copying.
+*/
+
+public class Blas {
+
+/* ------------------------
+   Class variables
+ * ------------------------ */
+
+   /** Register tile of the micro-kernel: MR rows by NR columns of C. **/
+   private static final int MR = 4, NR = 4;
+
+   /** Cache blocking.  A KC-by-NR panel of B stays in L1, an MC-by-KC
+       block of A in L2 and a KC-by-NC block of B in L3. **/
+   private static final int MC = 128, KC = 256, NC = 2048;
+
+   /** Below this many multiply-adds, packing costs more than it saves. **/
+   private static final long SMALL = 32*32*32;
+
+   /** Matrix-vector products touching at least this many elements of A
+       are split into blocks of rows of the result and computed on the
+       common fork/join pool. **/
+   private static final long PARALLEL_GEMV = 1 << 18;
+
+   /** Transpose blocks are split until both sides are at most this long,
+       so that a source and a destination block fit in L1 together. **/
+   private static final int TB = 32;
+
+   /** Products with at least this many multiply-adds are split into tiles
+       of C and computed on the common fork/join pool. **/
+   private static final long PARALLEL = 192*192*192;
+
+   /** Triangular solves are split recursively down to triangles of this
+       order, which are solved column by column. **/
+   private static final int TRSM = 32;
+
+   /** Per thread packing buffers, so repeated products do not allocate.
+       They grow on demand up to MC*KC and KC*NC elements. **/
+   private static final ThreadLocal<double[][]> buffers =
+      new ThreadLocal<double[][]>() {
+         protected double[][] initialValue () {
+            return new double[2][0];
+         }
+      };
+
+/* ------------------------
+   Public Methods
+ * ------------------------ */
+
+   /** General matrix multiply, C = alpha*A*B + beta*C.
+   @param m      Number of rows of A and C.
+   @param n      Number of columns of B and C.
+   @param k      Number of columns of A and rows of B.
+   @param alpha  Scalar multiplier of A*B.
+   @param A      Storage of the m-by-k matrix A.
+   @param aOff   Offset of A(0,0).
+   @param lda    Leading dimension of A.
+   @param B      Storage of the k-by-n matrix B.
+   @param bOff   Offset of B(0,0).
+   @param ldb    Leading dimension of B.
+   @param beta   Scalar multiplier of C.  If beta is zero, C need not be
+                 initialized.
+   @param C      Storage of the m-by-n matrix C, overwritten by the result.
+   @param cOff   Offset of C(0,0).
+   @param ldc    Leading dimension of C.
+   */
+
+   public static void dgemm (int m, int n, int k, double alpha,
+                             double[] A, int aOff, int lda,
+                             double[] B, int bOff, int ldb,
+                             double beta, double[] C, int cOff, int ldc) {
+      dgemm(false, false, m, n, k, alpha, A, aOff, lda, B, bOff, ldb,
+            beta, C, cOff, ldc);
+   }
+
+   /** General matrix multiply with optionally transposed operands,
+       C = alpha*op(A)*op(B) + beta*C, where op(X) is X or X'.
+       The transposes are never formed, the operands are read transposed
+       while they are packed.
+   @param transA If true, op(A) = A', and A is stored k-by-m.
+   @param transB If true, op(B) = B', and B is stored n-by-k.
+   @param m      Number of rows of op(A) and C.
+   @param n      Number of columns of op(B) and C.
+   @param k      Number of columns of op(A) and rows of op(B).
+   @param alpha  Scalar multiplier of op(A)*op(B).
+   @param A      Storage of A.
+   @param aOff   Offset of A(0,0).
+   @param lda    Leading dimension of A.
+   @param B      Storage of B.
+   @param bOff   Offset of B(0,0).
+   @param ldb    Leading dimension of B.
+   @param beta   Scalar multiplier of C.  If beta is zero, C need not be
+                 initialized.
+   @param C      Storage of the m-by-n matrix C, overwritten by the result.
+                 It must not overlap A or B.
+   @param cOff   Offset of C(0,0).
+   @param ldc    Leading dimension of C.
+   */
+
+   public static void dgemm (boolean transA, boolean transB,
+                             int m, int n, int k, double alpha,
+                             double[] A, int aOff, int lda,
+                             double[] B, int bOff, int ldb,
+                             double beta, double[] C, int cOff, int ldc) {
+      scale(m, n, beta, C, cOff, ldc);
+      if (m == 0 || n == 0 || k == 0 || alpha == 0.0) {
+         return;
+      }
+      long work = (long) m*n*k;
+      if (work <= SMALL) {
+         naive(transA, transB, m, n, k, alpha, A, aOff, lda, B, bOff, ldb,
+               C, cOff, ldc);
+         return;
+      }
+      ForkJoinPool pool = ForkJoinPool.commonPool();
+      int threads = pool.getParallelism();
+      if (work < PARALLEL || threads < 2) {
+         blocked(transA, transB, m, n, k, alpha, A, aOff, lda, B, bOff, ldb,
+                 C, cOff, ldc);
+         return;
+      }
+      // Aim for a few tiles per thread so that uneven tiles balance out.
+      long leaf = Math.max(PARALLEL/8, work/(4L*threads));
+      pool.invoke(new GemmTask(transA, transB, m, n, k, alpha,
+                               A, aOff, lda, B, bOff, ldb, C, cOff, ldc, leaf));
+   }
+
+   /** Single precision matrix multiply, C = alpha*A*B + beta*C.  Each
+       column of C is built from vectorized updates with four columns of
+       A at a time, over MC-by-KC blocks of A that stay in cache.  The
+       arguments are as for dgemm.
+   @param m      Number of rows of A and C.
+   @param n      Number of columns of B and C.
+   @param k      Number of columns of A and rows of B.
+   @param alpha  Scalar multiplier of A*B.
+   @param A      Storage of the m-by-k matrix A.
+   @param aOff   Offset of A(0,0).
+   @param lda    Leading dimension of A.
+   @param B      Storage of the k-by-n matrix B.
+   @param bOff   Offset of B(0,0).
+   @param ldb    Leading dimension of B.
+   @param beta   Scalar multiplier of C.  If beta is zero, C need not be
+                 initialized.
+   @param C      Storage of the m-by-n matrix C, overwritten by the result.
+                 It must not overlap A or B.
+   @param cOff   Offset of C(0,0).
+   @param ldc    Leading dimension of C.
+   */
+
+   public static void sgemm (int m, int n, int k, float alpha,
+                             float[] A, int aOff, int lda,
+                             float[] B, int bOff, int ldb,
+                             float beta, float[] C, int cOff, int ldc) {
+      for (int j = 0; j < n; j++) {
+         int col = cOff + j*ldc;
+         if (beta == 0.0f) {
+            java.util.Arrays.fill(C, col, col+m, 0.0f);
+         } else if (beta != 1.0f) {
+            ElementOps.scale(m, beta, C, col, C, col);
+         }
+      }
+      if (m == 0 || n == 0 || k == 0 || alpha == 0.0f) {
+         return;
+      }
+      long work = (long) m*n*k;
+      ForkJoinPool pool = ForkJoinPool.commonPool();
+      if (work < PARALLEL || pool.getParallelism() < 2 || n < 2) {
+         sgemmBlocked(m, n, k, alpha, A, aOff, lda, B, bOff, ldb,
+                      C, cOff, ldc);
+         return;
+      }
+      int leaf = (int) Math.max(1, Math.max(n/(4L*pool.getParallelism()),
+                                            PARALLEL/8/((long) m*k)));
+      pool.invoke(new SgemmTask(m, n, k, alpha, A, aOff, lda, B, bOff, ldb,
+                                C, cOff, ldc, leaf));
+   }
+
+   /** Matrix-vector multiply, y = alpha*op(A)*x + beta*y, where op(A) is A
+       or A'.  For A*x, four columns of A are combined in each pass over y;
+       for A'*x, each element of y is an inner product with a column of A.
+   @param transA If true, op(A) = A'.
+   @param m      Number of rows of A.
+   @param n      Number of columns of A.
+   @param alpha  Scalar multiplier of op(A)*x.
+   @param A      Storage of the m-by-n matrix A.
+   @param aOff   Offset of A(0,0).
+   @param lda    Leading dimension of A.
+   @param x      Vector of length n, or m if transA.
+   @param xOff   Offset of x(0).
+   @param beta   Scalar multiplier of y.  If beta is zero, y need not be
+                 initialized.
+   @param y      Vector of length m, or n if transA, overwritten by the
+                 result.  It must not overlap A or x.
+   @param yOff   Offset of y(0).
+   */
+
+   public static void dgemv (boolean transA, int m, int n, double alpha,
+                             double[] A, int aOff, int lda,
+                             double[] x, int xOff,
+                             double beta, double[] y, int yOff) {
+      int len = transA ? n : m;
+      scale(len, 1, beta, y, yOff, len);
+      if (m == 0 || n == 0 || alpha == 0.0) {
+         return;
+      }
+      ForkJoinPool pool = ForkJoinPool.commonPool();
+      if ((long) m*n < PARALLEL_GEMV || pool.getParallelism() < 2) {
+         gemv(transA, m, n, alpha, A, aOff, lda, x, xOff, y, yOff);
+         return;
+      }
+      // A few blocks per thread, each touching at least PARALLEL_GEMV/8
+      // elements of A.
+      int leaf = (int) Math.max(len/(4L*pool.getParallelism()),
+                                PARALLEL_GEMV/8/(transA ? m : n));
+      pool.invoke(new GemvTask(transA, m, n, alpha, A, aOff, lda, x, xOff,
+                               y, yOff, Math.max(leaf, 8)));
+   }
+
+   /** Triangular solve with several right hand sides, B = inv(op(A))*B,
+       where op(A) is A or A'.  The triangle is split in half recursively,
+       so all but O(m^2*n/TRSM) of the work is done by dgemm; right hand
+       sides are split over the common fork/join pool when there are
+       enough of them.
+   @param upper  If true A is upper triangular, otherwise lower.  The
+                 other triangle is not referenced.
+   @param transA If true, op(A) = A', which is never formed.
+   @param unit   If true A has a unit diagonal, which is not referenced.
+   @param m      Order of A and number of rows of B.
+   @param n      Number of columns of B.
+   @param A      Storage of the m-by-m matrix A.
+   @param aOff   Offset of A(0,0).
+   @param lda    Leading dimension of A.
+   @param B      Storage of the m-by-n matrix B, overwritten by the
+                 solution.  It must not overlap A.
+   @param bOff   Offset of B(0,0).
+   @param ldb    Leading dimension of B.
+   */
+
+   public static void dtrsm (boolean upper, boolean transA, boolean unit,
+                             int m, int n, double[] A, int aOff, int lda,
+                             double[] B, int bOff, int ldb) {
+      if (m == 0 || n == 0) {
+         return;
+      }
+      ForkJoinPool pool = ForkJoinPool.commonPool();
+      if ((long) m*m*n < 2*PARALLEL || n < 2*NR || pool.getParallelism() < 2) {
+         trsm(upper, transA, unit, m, n, A, aOff, lda, B, bOff, ldb);
+         return;
+      }
+      int leaf = Math.max(NR, n/(4*pool.getParallelism()));
+      pool.invoke(new TrsmTask(upper, transA, unit, m, n, A, aOff, lda,
+                               B, bOff, ldb, leaf));
+   }
+
+   /** Out of place transpose, B = A'.  The matrix is split recursively
+       along its longer side, so the blocks stay cache friendly at every
+       cache level without tuning.
+   @param m      Number of rows of A and columns of B.
+   @param n      Number of columns of A and rows of B.
+   @param A      Storage of the m-by-n matrix A.
+   @param aOff   Offset of A(0,0).
+   @param lda    Leading dimension of A.
+   @param B      Storage of the n-by-m matrix B.  It must not overlap A.
+   @param bOff   Offset of B(0,0).
+   @param ldb    Leading dimension of B.
+   */
+
+   public static void transpose (int m, int n, double[] A, int aOff, int lda,
+                                 double[] B, int bOff, int ldb) {
+      if (m <= TB && n <= TB) {
+         for (int j = 0; j < n; j++) {
+            int src = aOff + j*lda, dst = bOff + j;
+            for (int i = 0; i < m; i++) {
+               B[dst + i*ldb] = A[src+i];
+            }
+         }
+      } else if (m >= n) {
+         int h = m/2;
+         transpose(h, n, A, aOff, lda, B, bOff, ldb);
+         transpose(m-h, n, A, aOff+h, lda, B, bOff + h*ldb, ldb);
+      } else {
+         int h = n/2;
+         transpose(m, h, A, aOff, lda, B, bOff, ldb);
+         transpose(m, n-h, A, aOff + h*lda, lda, B, bOff+h, ldb);
+      }
+   }
+
+   /** Single precision out of place transpose, B = A'.  The arguments are
+       as for the double precision transpose.
+   */
+
+   public static void transpose (int m, int n, float[] A, int aOff, int lda,
+                                 float[] B, int bOff, int ldb) {
+      if (m <= TB && n <= TB) {
+         for (int j = 0; j < n; j++) {
+            int src = aOff + j*lda, dst = bOff + j;
+            for (int i = 0; i < m; i++) {
+               B[dst + i*ldb] = A[src+i];
+            }
+         }
+      } else if (m >= n) {
+         int h = m/2;
+         transpose(h, n, A, aOff, lda, B, bOff, ldb);
+         transpose(m-h, n, A, aOff+h, lda, B, bOff + h*ldb, ldb);
+      } else {
+         int h = n/2;
+         transpose(m, h, A, aOff, lda, B, bOff, ldb);
+         transpose(m, n-h, A, aOff + h*lda, lda, B, bOff+h, ldb);
+      }
+   }
+
+   /** In place transpose of a square matrix, A = A'.  The diagonal blocks
+       are transposed recursively and the off diagonal blocks are swapped
+       with each other's transpose.
+   @param n      Order of A.
+   @param A      Storage of the n-by-n matrix A.
+   @param aOff   Offset of A(0,0).
+   @param lda    Leading dimension of A.
+   */
+
+   public static void transpose (int n, double[] A, int aOff, int lda) {
+      if (n <= TB) {
+         for (int j = 1; j < n; j++) {
+            int col = aOff + j*lda;
+            for (int i = 0; i < j; i++) {
+               int t = aOff + j + i*lda;
+               double s = A[col+i];
+               A[col+i] = A[t];
+               A[t] = s;
+            }
+         }
+         return;
+      }
+      int h = n/2;
+      transpose(h, A, aOff, lda);
+      transpose(n-h, A, aOff + h + h*lda, lda);
+      swapTranspose(n-h, h, A, aOff+h, A, aOff + h*lda, lda);
+   }
+
+/* ------------------------
+   Private Methods
+ * ------------------------ */
+
+   /** Sequential single precision C += alpha*A*B. **/
+
+   private static void sgemmBlocked (int m, int n, int k, float alpha,
+                                     float[] A, int aOff, int lda,
+                                     float[] B, int bOff, int ldb,
+                                     float[] C, int cOff, int ldc) {
+      // Twice as many floats as doubles fit in the same cache.
+      int mc0 = 2*MC;
+      for (int pc = 0; pc < k; pc += KC) {
+         int kc = Math.min(KC, k-pc);
+         for (int ic = 0; ic < m; ic += mc0) {
+            int mc = Math.min(mc0, m-ic);
+            int a0 = aOff + ic + pc*lda;
+            for (int j = 0; j < n; j++) {
+               int c0 = cOff + ic + j*ldc;
+               int b0 = bOff + pc + j*ldb;
+               int p = 0;
+               for (; p+3 < kc; p += 4) {
+                  ElementOps.axpy4(mc, alpha*B[b0+p], alpha*B[b0+p+1],
+                                   alpha*B[b0+p+2], alpha*B[b0+p+3],
+                                   A, a0 + p*lda, lda, C, c0);
+               }
+               for (; p < kc; p++) {
+                  ElementOps.axpy(mc, alpha*B[b0+p], A, a0 + p*lda, C, c0);
+               }
+            }
+         }
+      }
+   }
+
+   /** Sequential y += alpha*op(A)*x. **/
+
+   private static void gemv (boolean transA, int m, int n, double alpha,
+                             double[] A, int aOff, int lda,
+                             double[] x, int xOff, double[] y, int yOff) {
+      if (transA) {
+         for (int j = 0; j < n; j++) {
+            y[yOff+j] += alpha*ElementOps.dot(m, A, aOff + j*lda, x, xOff);
+         }
+         return;
+      }
+      int j = 0;
+      for (; j+3 < n; j += 4) {
+         ElementOps.axpy4(m, alpha*x[xOff+j], alpha*x[xOff+j+1],
+                          alpha*x[xOff+j+2], alpha*x[xOff+j+3],
+                          A, aOff + j*lda, lda, y, yOff);
+      }
+      for (; j < n; j++) {
+         ElementOps.axpy(m, alpha*x[xOff+j], A, aOff + j*lda, y, yOff);
+      }
+   }
+
+   /** Sequential B = inv(op(A))*B.  When op(A) is lower triangular the
+       first half of B is solved first, otherwise the second; the off
+       diagonal block of op(A) updates the other half by dgemm between the
+       solves with the halves.  Small triangles are solved column by
+       column of B, combining columns of A when it is not transposed and
+       forming dot products with them when it is. **/
+
+   private static void trsm (boolean upper, boolean transA, boolean unit,
+                             int m, int n, double[] A, int aOff, int lda,
+                             double[] B, int bOff, int ldb) {
+      boolean forward = upper == transA;
+      if (m <= TRSM) {
+         for (int j = 0; j < n; j++) {
+            int col = bOff + j*ldb;
+            if (!transA && !forward) {
+               for (int k = m-1; k >= 0; k--) {
+                  int acol = aOff + k*lda;
+                  double x = unit ? B[col+k] : (B[col+k] /= A[acol+k]);
+                  if (x != 0.0) {
+                     ElementOps.axpy(k, -x, A, acol, B, col);
+                  }
+               }
+            } else if (!transA) {
+               for (int k = 0; k < m; k++) {
+                  int acol = aOff + k*lda;
+                  double x = unit ? B[col+k] : (B[col+k] /= A[acol+k]);
+                  if (x != 0.0) {
+                     ElementOps.axpy(m-k-1, -x, A, acol+k+1, B, col+k+1);
+                  }
+               }
+            } else if (forward) {
+               for (int k = 0; k < m; k++) {
+                  int acol = aOff + k*lda;
+                  double x = B[col+k] - ElementOps.dot(k, A, acol, B, col);
+                  B[col+k] = unit ? x : x/A[acol+k];
+               }
+            } else {
+               for (int k = m-1; k >= 0; k--) {
+                  int acol = aOff + k*lda;
+                  double x = B[col+k] - ElementOps.dot(m-k-1, A, acol+k+1,
+                                                       B, col+k+1);
+                  B[col+k] = unit ? x : x/A[acol+k];
+               }
+            }
+         }
+         return;
+      }
+      int h = m/2;
+      int a22 = aOff + h + h*lda;
+      if (forward) {
+         // op(A)(h:m,0:h) is A(h:m,0:h), or A(0:h,h:m)'.
+         trsm(upper, transA, unit, h, n, A, aOff, lda, B, bOff, ldb);
+         dgemm(transA, false, m-h, n, h, -1.0,
+               A, transA ? aOff + h*lda : aOff+h, lda,
+               B, bOff, ldb, 1.0, B, bOff+h, ldb);
+         trsm(upper, transA, unit, m-h, n, A, a22, lda, B, bOff+h, ldb);
+      } else {
+         // op(A)(0:h,h:m) is A(0:h,h:m), or A(h:m,0:h)'.
+         trsm(upper, transA, unit, m-h, n, A, a22, lda, B, bOff+h, ldb);
+         dgemm(transA, false, h, n, m-h, -1.0,
+               A, transA ? aOff+h : aOff + h*lda, lda,
+               B, bOff+h, ldb, 1.0, B, bOff, ldb);
+         trsm(upper, transA, unit, h, n, A, aOff, lda, B, bOff, ldb);
+      }
+   }
+
+   /** Exchange the m-by-n block at aOff with the transpose of the n-by-m
+       block at bOff, both with leading dimension ld. **/
+
+   private static void swapTranspose (int m, int n, double[] A, int aOff,
+                                      double[] B, int bOff, int ld) {
+      if (m <= TB && n <= TB) {
+         for (int j = 0; j < n; j++) {
+            int src = aOff + j*ld, dst = bOff + j;
+            for (int i = 0; i < m; i++) {
+               double s = A[src+i];
+               A[src+i] = B[dst + i*ld];
+               B[dst + i*ld] = s;
+            }
+         }
+      } else if (m >= n) {
+         int h = m/2;
+         swapTranspose(h, n, A, aOff, B, bOff, ld);
+         swapTranspose(m-h, n, A, aOff+h, B, bOff + h*ld, ld);
+      } else {
+         int h = n/2;
+         swapTranspose(m, h, A, aOff, B, bOff, ld);
+         swapTranspose(m, n-h, A, aOff + h*ld, B, bOff+h, ld);
+      }
+   }
+
+   /** Sequential blocked C += alpha*op(A)*op(B). **/
+
+   private static void blocked (boolean transA, boolean transB,
+                                int m, int n, int k, double alpha,
+                                double[] A, int aOff, int lda,
+                                double[] B, int bOff, int ldb,
+                                double[] C, int cOff, int ldc) {
+      double[][] buf = buffers.get();
+      int mc0 = Math.min(MC, (m+MR-1)/MR*MR), kc0 = Math.min(KC, k);
+      int nc0 = Math.min(NC, (n+NR-1)/NR*NR);
+      if (buf[0].length < mc0*kc0) {
+         buf[0] = new double[mc0*kc0];
+      }
+      if (buf[1].length < kc0*nc0) {
+         buf[1] = new double[kc0*nc0];
+      }
+      double[] packA = buf[0];
+      double[] packB = buf[1];
+      for (int jc = 0; jc < n; jc += NC) {
+         int nc = Math.min(NC, n-jc);
+         for (int pc = 0; pc < k; pc += KC) {
+            int kc = Math.min(KC, k-pc);
+            packB(transB, kc, nc,
+                  B, bOff + (transB ? jc + pc*ldb : pc + jc*ldb), ldb, packB);
+            for (int ic = 0; ic < m; ic += MC) {
+               int mc = Math.min(MC, m-ic);
+               packA(transA, mc, kc,
+                     A, aOff + (transA ? pc + ic*lda : ic + pc*lda), lda, packA);
+               macroKernel(mc, nc, kc, alpha, packA, packB,
+                           C, cOff + ic + jc*ldc, ldc);
+            }
+         }
+      }
+   }
+
+   /** C = beta*C, treating beta == 0 as an assignment so that NaNs in an
+       uninitialized C do not propagate. **/
+
+   private static void scale (int m, int n, double beta,
+                              double[] C, int cOff, int ldc) {
+      if (beta == 1.0) {
+         return;
+      }
+      for (int j = 0; j < n; j++) {
+         int col = cOff + j*ldc;
+         if (beta == 0.0) {
+            java.util.Arrays.fill(C, col, col+m, 0.0);
+         } else {
+            for (int i = 0; i < m; i++) {
+               C[col+i] *= beta;
+            }
+         }
+      }
+   }
+
+   /** Unblocked C += alpha*op(A)*op(B) for small problems, one column at a
+       time.  Columns of A are combined when A is not transposed, and dot
+       products of columns of A are formed when it is. **/
+
+   private static void naive (boolean transA, boolean transB,
+                              int m, int n, int k, double alpha,
+                              double[] A, int aOff, int lda,
+                              double[] B, int bOff, int ldb,
+                              double[] C, int cOff, int ldc) {
+      // Element op(B)(p,j) is at B[bOff + p*bs + j*bj].
+      int bs = transB ? ldb : 1, bj = transB ? 1 : ldb;
+      for (int j = 0; j < n; j++) {
+         int ccol = cOff + j*ldc;
+         int bcol = bOff + j*bj;
+         if (transA) {
+            for (int i = 0; i < m; i++) {
+               int arow = aOff + i*lda;
+               double s = 0.0;
+               for (int p = 0; p < k; p++) {
+                  s += A[arow+p]*B[bcol + p*bs];
+               }
+               C[ccol+i] += alpha*s;
+            }
+         } else {
+            for (int p = 0; p < k; p++) {
+               // No zero skip: Inf or NaN in A must reach C, as it does
+               // in the packed kernel.
+               double s = alpha*B[bcol + p*bs];
+               int acol = aOff + p*lda;
+               for (int i = 0; i < m; i++) {
+                  C[ccol+i] += A[acol+i]*s;
+               }
+            }
+         }
+      }
+   }
+
+   /** Pack an mc-by-kc block of op(A) into row panels of height MR.  Within
+       a panel the MR elements of each column are contiguous, and the last
+       panel is padded with zeros. **/
+
+   private static void packA (boolean transA, int mc, int kc,
+                              double[] A, int aOff, int lda, double[] pack) {
+      if (transA) {
+         int dst = 0;
+         for (int ir = 0; ir < mc; ir += MR) {
+            int mr = Math.min(MR, mc-ir);
+            for (int p = 0; p < kc; p++) {
+               int src = aOff + p + ir*lda;
+               for (int i = 0; i < MR; i++) {
+                  pack[dst+i] = (i < mr ? A[src + i*lda] : 0.0);
+               }
+               dst += MR;
+            }
+         }
+         return;
+      }
+      int dst = 0;
+      for (int ir = 0; ir < mc; ir += MR) {
+         int mr = Math.min(MR, mc-ir);
+         for (int p = 0; p < kc; p++) {
+            int src = aOff + ir + p*lda;
+            if (mr == MR) {
+               pack[dst]   = A[src];
+               pack[dst+1] = A[src+1];
+               pack[dst+2] = A[src+2];
+               pack[dst+3] = A[src+3];
+            } else {
+               for (int i = 0; i < MR; i++) {
+                  pack[dst+i] = (i < mr ? A[src+i] : 0.0);
+               }
+            }
+            dst += MR;
+         }
+      }
+   }
+
+   /** Pack a kc-by-nc block of op(B) into column panels of width NR.
+       Within a panel the NR elements of each row are contiguous, and the
+       last panel is padded with zeros. **/
+
+   private static void packB (boolean transB, int kc, int nc,
+                              double[] B, int bOff, int ldb, double[] pack) {
+      // Element op(B)(p,j) is at B[bOff + p*bs + j*bj].
+      int bs = transB ? ldb : 1, bj = transB ? 1 : ldb;
+      int dst = 0;
+      for (int jr = 0; jr < nc; jr += NR) {
+         int nr = Math.min(NR, nc-jr);
+         int src = bOff + jr*bj;
+         for (int p = 0; p < kc; p++) {
+            for (int j = 0; j < NR; j++) {
+               pack[dst+j] = (j < nr ? B[src + p*bs + j*bj] : 0.0);
+            }
+            dst += NR;
+         }
+      }
+   }
+
+   /** Multiply a packed block of A by a packed block of B into C. **/
+
+   private static void macroKernel (int mc, int nc, int kc, double alpha,
+                                    double[] packA, double[] packB,
+                                    double[] C, int cOff, int ldc) {
+      for (int jr = 0; jr < nc; jr += NR) {
+         int nr = Math.min(NR, nc-jr);
+         for (int ir = 0; ir < mc; ir += MR) {
+            int mr = Math.min(MR, mc-ir);
+            microKernel(kc, alpha, packA, ir*kc, packB, jr*kc,
+                        C, cOff + ir + jr*ldc, ldc, mr, nr);
+         }
+      }
+   }
+
+   /** C(0:mr-1,0:nr-1) += alpha * (MR-by-kc panel) * (kc-by-NR panel).
+       The MR*NR partial sums are kept in local variables so that they
+       live in registers for the whole k loop. **/
+
+   private static void microKernel (int kc, double alpha,
+                                    double[] a, int ia, double[] b, int ib,
+                                    double[] C, int c0, int ldc,
+                                    int mr, int nr) {
+      double c00 = 0, c10 = 0, c20 = 0, c30 = 0;
+      double c01 = 0, c11 = 0, c21 = 0, c31 = 0;
+      double c02 = 0, c12 = 0, c22 = 0, c32 = 0;
+      double c03 = 0, c13 = 0, c23 = 0, c33 = 0;
+      for (int p = 0; p < kc; p++) {
+         double a0 = a[ia], a1 = a[ia+1], a2 = a[ia+2], a3 = a[ia+3];
+         double b0 = b[ib], b1 = b[ib+1], b2 = b[ib+2], b3 = b[ib+3];
+         c00 += a0*b0; c10 += a1*b0; c20 += a2*b0; c30 += a3*b0;
+         c01 += a0*b1; c11 += a1*b1; c21 += a2*b1; c31 += a3*b1;
+         c02 += a0*b2; c12 += a1*b2; c22 += a2*b2; c32 += a3*b2;
+         c03 += a0*b3; c13 += a1*b3; c23 += a2*b3; c33 += a3*b3;
+         ia += MR;
+         ib += NR;
+      }
+      if (mr == MR && nr == NR) {
+         int c1 = c0+ldc, c2 = c1+ldc, c3 = c2+ldc;
+         C[c0] += alpha*c00; C[c0+1] += alpha*c10;
+         C[c0+2] += alpha*c20; C[c0+3] += alpha*c30;
+         C[c1] += alpha*c01; C[c1+1] += alpha*c11;
+         C[c1+2] += alpha*c21; C[c1+3] += alpha*c31;
+         C[c2] += alpha*c02; C[c2+1] += alpha*c12;
+         C[c2+2] += alpha*c22; C[c2+3] += alpha*c32;
+         C[c3] += alpha*c03; C[c3+1] += alpha*c13;
+         C[c3+2] += alpha*c23; C[c3+3] += alpha*c33;
+      } else {
+         // Edge tile, store only the part inside C.
+         double[] t = { c00, c10, c20, c30, c01, c11, c21, c31,
+                        c02, c12, c22, c32, c03, c13, c23, c33 };
+         for (int j = 0; j < nr; j++) {
+            for (int i = 0; i < mr; i++) {
+               C[c0 + i + j*ldc] += alpha*t[i + j*MR];
+            }
+         }
+      }
+   }
+
+   /** Fork/join task computing a block of columns of a single precision
+       C = C + alpha*A*B.  The block is halved until it has at most leaf
+       columns. **/
+
+   private static class SgemmTask extends RecursiveAction {
+      private final int m, n, k, aOff, lda, bOff, ldb, cOff, ldc, leaf;
+      private final float alpha;
+      private final float[] A, B, C;
+
+      SgemmTask (int m, int n, int k, float alpha,
+                 float[] A, int aOff, int lda, float[] B, int bOff, int ldb,
+                 float[] C, int cOff, int ldc, int leaf) {
+         this.m = m; this.n = n; this.k = k; this.alpha = alpha;
+         this.A = A; this.aOff = aOff; this.lda = lda;
+         this.B = B; this.bOff = bOff; this.ldb = ldb;
+         this.C = C; this.cOff = cOff; this.ldc = ldc;
+         this.leaf = leaf;
+      }
+
+      protected void compute () {
+         if (n <= leaf) {
+            sgemmBlocked(m, n, k, alpha, A, aOff, lda, B, bOff, ldb,
+                         C, cOff, ldc);
+         } else {
+            int h = n/2;
+            invokeAll(new SgemmTask(m, h, k, alpha, A, aOff, lda,
+                                    B, bOff, ldb, C, cOff, ldc, leaf),
+                      new SgemmTask(m, n-h, k, alpha, A, aOff, lda,
+                                    B, bOff + h*ldb, ldb, C, cOff + h*ldc,
+                                    ldc, leaf));
+         }
+      }
+
+      private static final long serialVersionUID = 1;
+   }
+
+   /** Fork/join task computing a block of y = y + alpha*op(A)*x.  The
+       block is halved until it has at most leaf elements.  For A*x a block
+       is a range of rows of A, for A'*x a range of columns. **/
+
+   private static class GemvTask extends RecursiveAction {
+      private final boolean transA;
+      private final int m, n, aOff, lda, xOff, yOff, leaf;
+      private final double alpha;
+      private final double[] A, x, y;
+
+      GemvTask (boolean transA, int m, int n, double alpha,
+                double[] A, int aOff, int lda, double[] x, int xOff,
+                double[] y, int yOff, int leaf) {
+         this.transA = transA; this.m = m; this.n = n; this.alpha = alpha;
+         this.A = A; this.aOff = aOff; this.lda = lda;
+         this.x = x; this.xOff = xOff; this.y = y; this.yOff = yOff;
+         this.leaf = leaf;
+      }
+
+      protected void compute () {
+         int len = transA ? n : m;
+         if (len <= leaf) {
+            gemv(transA, m, n, alpha, A, aOff, lda, x, xOff, y, yOff);
+         } else if (transA) {
+            int h = n/2;
+            invokeAll(new GemvTask(true, m, h, alpha, A, aOff, lda,
+                                   x, xOff, y, yOff, leaf),
+                      new GemvTask(true, m, n-h, alpha, A, aOff + h*lda, lda,
+                                   x, xOff, y, yOff+h, leaf));
+         } else {
+            int h = m/2;
+            invokeAll(new GemvTask(false, h, n, alpha, A, aOff, lda,
+                                   x, xOff, y, yOff, leaf),
+                      new GemvTask(false, m-h, n, alpha, A, aOff+h, lda,
+                                   x, xOff, y, yOff+h, leaf));
+         }
+      }
+
+      private static final long serialVersionUID = 1;
+   }
+
+   /** Fork/join task solving for a range of columns of B.  The columns are
+       independent, so the range is halved until it has at most leaf
+       columns. **/
+
+   private static class TrsmTask extends RecursiveAction {
+      private final boolean upper, transA, unit;
+      private final int m, n, aOff, lda, bOff, ldb, leaf;
+      private final double[] A, B;
+
+      TrsmTask (boolean upper, boolean transA, boolean unit, int m, int n,
+                double[] A, int aOff, int lda, double[] B, int bOff, int ldb,
+                int leaf) {
+         this.upper = upper; this.transA = transA; this.unit = unit;
+         this.m = m; this.n = n;
+         this.A = A; this.aOff = aOff; this.lda = lda;
+         this.B = B; this.bOff = bOff; this.ldb = ldb;
+         this.leaf = leaf;
+      }
+
+      protected void compute () {
+         if (n <= leaf) {
+            trsm(upper, transA, unit, m, n, A, aOff, lda, B, bOff, ldb);
+         } else {
+            int h = n/2;
+            invokeAll(new TrsmTask(upper, transA, unit, m, h, A, aOff, lda,
+                                   B, bOff, ldb, leaf),
+                      new TrsmTask(upper, transA, unit, m, n-h, A, aOff, lda,
+                                   B, bOff + h*ldb, ldb, leaf));
+         }
+      }
+
+      private static final long serialVersionUID = 1;
+   }
+
+   /** Fork/join task computing one tile of C = C + alpha*op(A)*op(B).  A tile is
+       split in half along its longer side, at a multiple of the register
+       tile, until it holds at most leaf multiply-adds.  Tiles never share
+       elements of C, so no synchronization is needed. **/
+
+   private static class GemmTask extends RecursiveAction {
+      private final boolean transA, transB;
+      private final int m, n, k, aOff, lda, bOff, ldb, cOff, ldc;
+      private final double alpha;
+      private final double[] A, B, C;
+      private final long leaf;
+
+      GemmTask (boolean transA, boolean transB, int m, int n, int k,
+                double alpha,
+                double[] A, int aOff, int lda, double[] B, int bOff, int ldb,
+                double[] C, int cOff, int ldc, long leaf) {
+         this.transA = transA; this.transB = transB;
+         this.m = m; this.n = n; this.k = k; this.alpha = alpha;
+         this.A = A; this.aOff = aOff; this.lda = lda;
+         this.B = B; this.bOff = bOff; this.ldb = ldb;
+         this.C = C; this.cOff = cOff; this.ldc = ldc;
+         this.leaf = leaf;
+      }
+
+      protected void compute () {
+         if ((long) m*n*k <= leaf || (m <= MR && n <= NR)) {
+            blocked(transA, transB, m, n, k, alpha, A, aOff, lda,
+                    B, bOff, ldb, C, cOff, ldc);
+         } else if (m >= n) {
+            int h = Math.max(MR, (m/2)/MR*MR);
+            int a2 = aOff + (transA ? h*lda : h);
+            invokeAll(new GemmTask(transA, transB, h, n, k, alpha,
+                                   A, aOff, lda, B, bOff, ldb,
+                                   C, cOff, ldc, leaf),
+                      new GemmTask(transA, transB, m-h, n, k, alpha,
+                                   A, a2, lda, B, bOff, ldb,
+                                   C, cOff+h, ldc, leaf));
+         } else {
+            int h = Math.max(NR, (n/2)/NR*NR);
+            int b2 = bOff + (transB ? h : h*ldb);
+            invokeAll(new GemmTask(transA, transB, m, h, k, alpha,
+                                   A, aOff, lda, B, bOff, ldb,
+                                   C, cOff, ldc, leaf),
+                      new GemmTask(transA, transB, m, n-h, k, alpha,
+                                   A, aOff, lda, B, b2, ldb,
+                                   C, cOff+h*ldc, ldc, leaf));
+         }
+      }
+
+      private static final long serialVersionUID = 1;
+   }
+}
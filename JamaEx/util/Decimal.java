@@ -0,0 +1,451 @@
+package JamaEx.util;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+/** Conversion between doubles and decimal text in byte arrays.
+<P>
+   parse() reads the decimal significand into a long and then converts it
+   without any temporary objects: exactly by one multiplication or division
+   when the significand and the power of ten are both exact doubles
+   (Clinger), and otherwise by the Eisel-Lemire method, a 128-bit product
+   with a truncated power of ten that is accepted only when it provably
+   rounds the same way as the exact value.  Text that neither method can
+   decide, and any text that is not a plain decimal number (NaN, Infinity,
+   hexadecimal, more than 19 significant digits), is passed to
+   Double.parseDouble, so the result is always the correctly rounded
+   double that Double.valueOf would return.
+<P>
+   format() writes the shortest decimal that parses back to the same
+   double, choosing the closest such decimal when there are several, by
+   Giulietti's Schubfach method: the rounding interval of the double is
+   scaled by a 126-bit power of ten, so that the candidates can be
+   compared in 64-bit arithmetic.
+*/
+
+public class Decimal {
+
+/* ------------------------
+   Class variables
+ * ------------------------ */
+
+   /** Range of decimal exponents covered by the power of ten table. **/
+   private static final int MIN_POW = -325, MAX_POW = 308;
+
+   /** Exact double powers of ten for the Clinger fast path. **/
+   private static final double[] EXACT = {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+      1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+   };
+
+   /** 10^q normalized to 128 bits, high and low words, for q from MIN_POW
+       to MAX_POW.  Positive powers are truncated, negative powers rounded
+       up. **/
+   private static final long[] POW_HI, POW_LO;
+
+   static {
+      int count = MAX_POW - MIN_POW + 1;
+      POW_HI = new long[count];
+      POW_LO = new long[count];
+      BigInteger two128 = BigInteger.ONE.shiftLeft(128);
+      for (int q = MIN_POW; q <= MAX_POW; q++) {
+         BigInteger c;
+         if (q >= 0) {
+            c = BigInteger.valueOf(5).pow(q);
+            int shift = 128 - c.bitLength();
+            c = shift >= 0 ? c.shiftLeft(shift) : c.shiftRight(-shift);
+         } else {
+            BigInteger p = BigInteger.valueOf(5).pow(-q);
+            int z = p.bitLength();
+            int b = q >= -27 ? z + 127 : 2*z + 128;
+            c = BigInteger.ONE.shiftLeft(b).divide(p).add(BigInteger.ONE);
+            while (c.compareTo(two128) >= 0) {
+               c = c.shiftRight(1);
+            }
+         }
+         POW_HI[q-MIN_POW] = c.shiftRight(64).longValue();
+         POW_LO[q-MIN_POW] = c.longValue();
+      }
+   }
+
+   /** Range of k for which the Schubfach table holds 10^-k. **/
+   private static final int K_MIN = -324, K_MAX = 292;
+
+   /** 10^-k, scaled to 2^125 <= beta < 2^126, as g = floor(beta) + 1 split
+       into its high and low 63 bits, for k from K_MIN to K_MAX. **/
+   private static final long[] G1, G0;
+
+   /** Powers of ten that fit in a long. **/
+   private static final long[] TENS = new long[19];
+
+   /** Longest text written by format(). **/
+   public static final int MAX_CHARS = 24;
+
+   static {
+      int count = K_MAX - K_MIN + 1;
+      G1 = new long[count];
+      G0 = new long[count];
+      for (int k = K_MIN; k <= K_MAX; k++) {
+         int r = flog2pow10(-k) - 125;
+         BigInteger num = BigInteger.ONE, den = BigInteger.ONE;
+         if (k <= 0) {
+            num = BigInteger.TEN.pow(-k);
+         } else {
+            den = BigInteger.TEN.pow(k);
+         }
+         if (r <= 0) {
+            num = num.shiftLeft(-r);
+         } else {
+            den = den.shiftLeft(r);
+         }
+         BigInteger g = num.divide(den).add(BigInteger.ONE);
+         G1[k-K_MIN] = g.shiftRight(63).longValue();
+         G0[k-K_MIN] = g.longValue() & Long.MAX_VALUE;
+      }
+      TENS[0] = 1;
+      for (int i = 1; i < TENS.length; i++) {
+         TENS[i] = 10*TENS[i-1];
+      }
+   }
+
+/* ------------------------
+   Public Methods
+ * ------------------------ */
+
+   /** Write the shortest text that Double.valueOf reads back as v.  Numbers
+       between 1e-4 and 1e16 are written plainly, without trailing zeros,
+       others in scientific notation, as in 1.5E-7.
+   @param v      The number.
+   @param b      Destination, with room for MAX_CHARS bytes at off.
+   @param off    Offset of the first character.
+   @return       Offset after the last character.
+   */
+
+   public static int format (double v, byte[] b, int off) {
+      long bits = Double.doubleToRawLongBits(v);
+      long t = bits & ((1L << 52) - 1);
+      int bq = (int) (bits >>> 52) & 0x7FF;
+      if (bq == 0x7FF) {
+         String s = t != 0 ? "NaN" : bits < 0 ? "-Infinity" : "Infinity";
+         for (int i = 0; i < s.length(); i++) {
+            b[off++] = (byte) s.charAt(i);
+         }
+         return off;
+      }
+      if (bits < 0) {
+         b[off++] = '-';
+      }
+      if (bq != 0) {
+         int mq = 1075 - bq;
+         long c = (1L << 52) | t;
+         if (0 < mq && mq < 53) {
+            long f = c >> mq;
+            if (f << mq == c) {
+               return digits(f, 0, b, off);
+            }
+         }
+         return toDecimal(-mq, c, 0, b, off);
+      }
+      if (t != 0) {
+         // Subnormal.  The smallest are scaled by ten so that the shortest
+         // decimal is found.
+         return t < 3 ? toDecimal(-1074, 10*t, -1, b, off)
+                      : toDecimal(-1074, t, 0, b, off);
+      }
+      b[off++] = '0';
+      return off;
+   }
+
+   /** Parse a double from the bytes b[off..end), which must hold exactly
+       one number in any form accepted by Double.valueOf.
+   @param b      Bytes of the text, as ASCII.
+   @param off    Offset of the first character.
+   @param end    Offset after the last character.
+   @return       The correctly rounded double.
+   @exception NumberFormatException  The text is not a number.
+   */
+
+   public static double parse (byte[] b, int off, int end) {
+      int i = off;
+      boolean negative = false;
+      if (i < end && (b[i] == '-' || b[i] == '+')) {
+         negative = b[i] == '-';
+         i++;
+      }
+      long w = 0;
+      int digits = 0, exp = 0;
+      int start = i;
+      for (; i < end && b[i] >= '0' && b[i] <= '9'; i++) {
+         if (w != 0 || b[i] != '0') {
+            w = 10*w + (b[i]-'0');
+            digits++;
+         }
+      }
+      boolean any = i > start;
+      if (i < end && b[i] == '.') {
+         i++;
+         start = i;
+         for (; i < end && b[i] >= '0' && b[i] <= '9'; i++) {
+            if (w != 0 || b[i] != '0') {
+               w = 10*w + (b[i]-'0');
+               digits++;
+            }
+            exp--;
+         }
+         any = any || i > start;
+      }
+      if (any && i < end && (b[i] == 'e' || b[i] == 'E')) {
+         i++;
+         boolean eneg = false;
+         if (i < end && (b[i] == '-' || b[i] == '+')) {
+            eneg = b[i] == '-';
+            i++;
+         }
+         start = i;
+         int e = 0;
+         for (; i < end && b[i] >= '0' && b[i] <= '9' && e < 100000; i++) {
+            e = 10*e + (b[i]-'0');
+         }
+         if (i == start) {
+            any = false;
+         }
+         exp += eneg ? -e : e;
+      }
+      if (any && i == end && digits <= 19) {
+         if (w == 0) {
+            return negative ? -0.0 : 0.0;
+         }
+         double d = convert(w, exp);
+         if (!Double.isNaN(d)) {
+            return negative ? -d : d;
+         }
+      }
+      return Double.parseDouble(new String(b, off, end-off,
+                                           StandardCharsets.ISO_8859_1));
+   }
+
+/* ------------------------
+   Private Methods
+ * ------------------------ */
+
+   /** Schubfach for the double c*2^q, or c*2^q/10 if dk is -1. **/
+
+   private static int toDecimal (int q, long c, int dk, byte[] b, int off) {
+      int out = (int) c & 1;
+      long cb = c << 2;
+      long cbr = cb + 2;
+      long cbl;
+      int k;
+      if (c != (1L << 52) || q == -1074) {
+         cbl = cb - 2;
+         k = flog10pow2(q);
+      } else {
+         // The interval is asymmetric at powers of two.
+         cbl = cb - 1;
+         k = flog10threeQuartersPow2(q);
+      }
+      int h = q + flog2pow10(-k) + 2;
+      long g1 = G1[k-K_MIN], g0 = G0[k-K_MIN];
+      long vb = rop(g1, g0, cb << h);
+      long vbl = rop(g1, g0, cbl << h);
+      long vbr = rop(g1, g0, cbr << h);
+      long s = vb >> 2;
+      if (s >= 10) {
+         // Try one digit less first.  Double.toString stops at two digits,
+         // but the shortest may have one.
+         long sp10 = 10*Math.multiplyHigh(s, 115292150460684698L << 4);
+         long tp10 = sp10 + 10;
+         boolean upin = vbl + out <= sp10 << 2;
+         boolean wpin = (tp10 << 2) + out <= vbr;
+         if (upin != wpin) {
+            return digits(upin ? sp10 : tp10, k + dk, b, off);
+         }
+      }
+      long t = s + 1;
+      boolean uin = vbl + out <= s << 2;
+      boolean win = (t << 2) + out <= vbr;
+      if (uin != win) {
+         return digits(uin ? s : t, k + dk, b, off);
+      }
+      long cmp = vb - (s + t << 1);
+      return digits(cmp < 0 || cmp == 0 && (s & 1) == 0 ? s : t, k + dk,
+                    b, off);
+   }
+
+   /** Rounded to odd high bits of g*cp, with g split as in G1 and G0. **/
+
+   private static long rop (long g1, long g0, long cp) {
+      long x1 = Math.multiplyHigh(g0, cp);
+      long y0 = g1*cp;
+      long y1 = Math.multiplyHigh(g1, cp);
+      long z = (y0 >>> 1) + x1;
+      long vbp = y1 + (z >>> 63);
+      return vbp | (z & Long.MAX_VALUE) + Long.MAX_VALUE >>> 63;
+   }
+
+   /** floor(e*log10(2)). **/
+
+   private static int flog10pow2 (int e) {
+      return (int) (e*661971961083L >> 41);
+   }
+
+   /** floor(e*log10(2) + log10(3/4)). **/
+
+   private static int flog10threeQuartersPow2 (int e) {
+      return (int) (e*661971961083L - 274743187321L >> 41);
+   }
+
+   /** floor(e*log2(10)). **/
+
+   private static int flog2pow10 (int e) {
+      return (int) (e*913124641741L >> 38);
+   }
+
+   /** Write f*10^e, f > 0. **/
+
+   private static int digits (long f, int e, byte[] b, int off) {
+      while (f % 10 == 0) {
+         f /= 10;
+         e++;
+      }
+      // floor(log10(f)) is within one of floor(log2(f)*log10(2)).
+      int len = ((63 - Long.numberOfLeadingZeros(f))*1233 >>> 12) + 1;
+      if (len < TENS.length && f >= TENS[len]) {
+         len++;
+      }
+      // Scientific exponent, so that f*10^e = d.ddd * 10^x.
+      int x = e + len - 1;
+      if (x >= -4 && x < 16) {
+         if (x < 0) {
+            b[off++] = '0';
+            b[off++] = '.';
+            for (int i = -1; i > x; i--) {
+               b[off++] = '0';
+            }
+            return write(f, len, b, off);
+         }
+         if (e >= 0) {
+            off = write(f, len, b, off);
+            for (int i = 0; i < e; i++) {
+               b[off++] = '0';
+            }
+            return off;
+         }
+         // Point inside the digits.
+         int end = write(f, len, b, off+1);
+         System.arraycopy(b, off+1, b, off, x+1);
+         b[off+x+1] = '.';
+         return end;
+      }
+      if (len == 1) {
+         b[off++] = (byte) ('0' + f);
+      } else {
+         int end = write(f, len, b, off+1);
+         b[off] = b[off+1];
+         b[off+1] = '.';
+         off = end;
+      }
+      b[off++] = 'E';
+      if (x < 0) {
+         b[off++] = '-';
+         x = -x;
+      }
+      if (x >= 100) {
+         b[off++] = (byte) ('0' + x/100);
+      }
+      if (x >= 10) {
+         b[off++] = (byte) ('0' + x/10%10);
+      }
+      b[off++] = (byte) ('0' + x%10);
+      return off;
+   }
+
+   /** Write the len decimal digits of f, two at a time. **/
+
+   private static int write (long f, int len, byte[] b, int off) {
+      int i = off + len;
+      while (f >= 100000000L) {
+         long q = f / 100000000L;
+         int r = (int) (f - 100000000L*q);
+         for (int k = 0; k < 4; k++) {
+            int d = r % 100;
+            r /= 100;
+            b[--i] = (byte) ('0' + d % 10);
+            b[--i] = (byte) ('0' + d / 10);
+         }
+         f = q;
+      }
+      int v = (int) f;
+      while (v >= 100) {
+         int d = v % 100;
+         v /= 100;
+         b[--i] = (byte) ('0' + d % 10);
+         b[--i] = (byte) ('0' + d / 10);
+      }
+      if (v >= 10) {
+         b[--i] = (byte) ('0' + v % 10);
+         v /= 10;
+      }
+      b[--i] = (byte) ('0' + v);
+      return off + len;
+   }
+
+   /** w*10^q for a nonzero w of at most 19 digits, read as unsigned, or
+       NaN if the result is not certain or not a normal double. **/
+
+   private static double convert (long w, int q) {
+      if (w >= 0 && w <= (1L << 53) && q >= -22 && q <= 22) {
+         return q >= 0 ? w*EXACT[q] : w/EXACT[-q];
+      }
+      if (q < MIN_POW || q > MAX_POW) {
+         return Double.NaN;
+      }
+      long factor = POW_HI[q-MIN_POW];
+      long exponent = (((152170 + 65536) * (long) q) >> 16) + 1024 + 63;
+      int lz = Long.numberOfLeadingZeros(w);
+      w <<= lz;
+      long lower = w*factor;
+      long upper = multiplyHigh(w, factor);
+      if ((upper & 0x1FF) == 0x1FF
+          && Long.compareUnsigned(lower + w, lower) < 0) {
+         long factorLow = POW_LO[q-MIN_POW];
+         long productLow = w*factorLow;
+         long productMiddle2 = multiplyHigh(w, factorLow);
+         long productMiddle = lower + productMiddle2;
+         long productHigh = upper;
+         if (Long.compareUnsigned(productMiddle, lower) < 0) {
+            productHigh++;
+         }
+         if (productMiddle + 1 == 0 && (productHigh & 0x1FF) == 0x1FF
+             && Long.compareUnsigned(productLow + w, productLow) < 0) {
+            return Double.NaN;
+         }
+         upper = productHigh;
+         lower = productMiddle;
+      }
+      long upperbit = upper >>> 63;
+      long mantissa = upper >>> (upperbit + 9);
+      lz += (int) (1 ^ upperbit);
+      if (lower == 0 && (upper & 0x1FF) == 0 && (mantissa & 3) == 1) {
+         return Double.NaN;
+      }
+      mantissa += mantissa & 1;
+      mantissa >>>= 1;
+      if (mantissa >= (1L << 53)) {
+         mantissa = 1L << 52;
+         lz--;
+      }
+      mantissa &= ~(1L << 52);
+      long realExponent = exponent - lz;
+      if (realExponent < 1 || realExponent > 2046) {
+         return Double.NaN;
+      }
+      return Double.longBitsToDouble(mantissa | (realExponent << 52));
+   }
+
+   /** High word of the unsigned 128-bit product a*b. **/
+
+   private static long multiplyHigh (long a, long b) {
+      return Math.multiplyHigh(a, b) + ((a >> 63) & b) + ((b >> 63) & a);
+   }
+}
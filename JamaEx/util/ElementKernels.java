@@ -0,0 +1,185 @@
+package JamaEx.util;
+
+/** Scalar element-by-element kernels.
+<P>
+   This is the portable implementation behind ElementOps.  Subclasses may
+   override any kernel with a faster one; every kernel works on len
+   consecutive elements starting at the given offsets.
+*/
+
+class ElementKernels {
+
+   /** c = a + b **/
+
+   void plus (int len, double[] a, int aOff, double[] b, int bOff,
+              double[] c, int cOff) {
+      for (int i = 0; i < len; i++) {
+         c[cOff+i] = a[aOff+i] + b[bOff+i];
+      }
+   }
+
+   /** c = a - b **/
+
+   void minus (int len, double[] a, int aOff, double[] b, int bOff,
+               double[] c, int cOff) {
+      for (int i = 0; i < len; i++) {
+         c[cOff+i] = a[aOff+i] - b[bOff+i];
+      }
+   }
+
+   /** c = a .* b **/
+
+   void times (int len, double[] a, int aOff, double[] b, int bOff,
+               double[] c, int cOff) {
+      for (int i = 0; i < len; i++) {
+         c[cOff+i] = a[aOff+i] * b[bOff+i];
+      }
+   }
+
+   /** c = a ./ b **/
+
+   void divide (int len, double[] a, int aOff, double[] b, int bOff,
+                double[] c, int cOff) {
+      for (int i = 0; i < len; i++) {
+         c[cOff+i] = a[aOff+i] / b[bOff+i];
+      }
+   }
+
+   /** c = s * a **/
+
+   void scale (int len, double s, double[] a, int aOff,
+               double[] c, int cOff) {
+      for (int i = 0; i < len; i++) {
+         c[cOff+i] = s * a[aOff+i];
+      }
+   }
+
+   /** c = -a **/
+
+   void negate (int len, double[] a, int aOff, double[] c, int cOff) {
+      for (int i = 0; i < len; i++) {
+         c[cOff+i] = -a[aOff+i];
+      }
+   }
+
+   /** c = |a| **/
+
+   void abs (int len, double[] a, int aOff, double[] c, int cOff) {
+      for (int i = 0; i < len; i++) {
+         c[cOff+i] = Math.abs(a[aOff+i]);
+      }
+   }
+
+   /** c = c + s*a **/
+
+   void axpy (int len, double s, double[] a, int aOff, double[] c, int cOff) {
+      for (int i = 0; i < len; i++) {
+         c[cOff+i] += s * a[aOff+i];
+      }
+   }
+
+   /** c = c + s0*a0 + s1*a1 + s2*a2 + s3*a3, where aj starts at
+       aOff + j*lda.  One pass over c for four columns of a matrix. **/
+
+   void axpy4 (int len, double s0, double s1, double s2, double s3,
+               double[] a, int aOff, int lda, double[] c, int cOff) {
+      int a1 = aOff+lda, a2 = a1+lda, a3 = a2+lda;
+      for (int i = 0; i < len; i++) {
+         c[cOff+i] += s0*a[aOff+i] + s1*a[a1+i] + s2*a[a2+i] + s3*a[a3+i];
+      }
+   }
+
+   /** sum of a .* b, with four partial sums to break the add chain **/
+
+   double dot (int len, double[] a, int aOff, double[] b, int bOff) {
+      double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+      int i = 0;
+      for (; i+3 < len; i += 4) {
+         s0 += a[aOff+i] * b[bOff+i];
+         s1 += a[aOff+i+1] * b[bOff+i+1];
+         s2 += a[aOff+i+2] * b[bOff+i+2];
+         s3 += a[aOff+i+3] * b[bOff+i+3];
+      }
+      for (; i < len; i++) {
+         s0 += a[aOff+i] * b[bOff+i];
+      }
+      return (s0 + s1) + (s2 + s3);
+   }
+
+   /* Single precision versions of the kernels above. */
+
+   void plus (int len, float[] a, int aOff, float[] b, int bOff,
+              float[] c, int cOff) {
+      for (int i = 0; i < len; i++) {
+         c[cOff+i] = a[aOff+i] + b[bOff+i];
+      }
+   }
+
+   void minus (int len, float[] a, int aOff, float[] b, int bOff,
+               float[] c, int cOff) {
+      for (int i = 0; i < len; i++) {
+         c[cOff+i] = a[aOff+i] - b[bOff+i];
+      }
+   }
+
+   void times (int len, float[] a, int aOff, float[] b, int bOff,
+               float[] c, int cOff) {
+      for (int i = 0; i < len; i++) {
+         c[cOff+i] = a[aOff+i] * b[bOff+i];
+      }
+   }
+
+   void divide (int len, float[] a, int aOff, float[] b, int bOff,
+                float[] c, int cOff) {
+      for (int i = 0; i < len; i++) {
+         c[cOff+i] = a[aOff+i] / b[bOff+i];
+      }
+   }
+
+   void scale (int len, float s, float[] a, int aOff, float[] c, int cOff) {
+      for (int i = 0; i < len; i++) {
+         c[cOff+i] = s * a[aOff+i];
+      }
+   }
+
+   void negate (int len, float[] a, int aOff, float[] c, int cOff) {
+      for (int i = 0; i < len; i++) {
+         c[cOff+i] = -a[aOff+i];
+      }
+   }
+
+   void abs (int len, float[] a, int aOff, float[] c, int cOff) {
+      for (int i = 0; i < len; i++) {
+         c[cOff+i] = Math.abs(a[aOff+i]);
+      }
+   }
+
+   void axpy (int len, float s, float[] a, int aOff, float[] c, int cOff) {
+      for (int i = 0; i < len; i++) {
+         c[cOff+i] += s * a[aOff+i];
+      }
+   }
+
+   void axpy4 (int len, float s0, float s1, float s2, float s3,
+               float[] a, int aOff, int lda, float[] c, int cOff) {
+      int a1 = aOff+lda, a2 = a1+lda, a3 = a2+lda;
+      for (int i = 0; i < len; i++) {
+         c[cOff+i] += s0*a[aOff+i] + s1*a[a1+i] + s2*a[a2+i] + s3*a[a3+i];
+      }
+   }
+
+   float dot (int len, float[] a, int aOff, float[] b, int bOff) {
+      float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+      int i = 0;
+      for (; i+3 < len; i += 4) {
+         s0 += a[aOff+i] * b[bOff+i];
+         s1 += a[aOff+i+1] * b[bOff+i+1];
+         s2 += a[aOff+i+2] * b[bOff+i+2];
+         s3 += a[aOff+i+3] * b[bOff+i+3];
+      }
+      for (; i < len; i++) {
+         s0 += a[aOff+i] * b[bOff+i];
+      }
+      return (s0 + s1) + (s2 + s3);
+   }
+}
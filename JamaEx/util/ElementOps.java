@@ -0,0 +1,200 @@
+package JamaEx.util;
+
+/** Element-by-element array arithmetic.
+<P>
+   The kernels are chosen once, when this class is loaded.  If the
+   jdk.incubator.vector module is available they use the Java Vector API,
+   otherwise plain scalar loops.  Each method works on len consecutive
+   elements starting at the given offsets; the output may be the same
+   array as an input, at the same offset.
+<P>
+   The element operations round exactly as the scalar loops do, so they
+   give the same results on either path.  axpy, axpy4 and dot do not: the
+   Vector API kernels use fused multiply-adds, and dot sums in a different
+   order, so their results may differ in the last bits.
+*/
+
+public class ElementOps {
+
+/* ------------------------
+   Class variables
+ * ------------------------ */
+
+   /** Kernels selected at class load time. **/
+   private static final ElementKernels kernels = load();
+
+/* ------------------------
+   Public Methods
+ * ------------------------ */
+
+   /** True if the Vector API kernels are in use.
+   @return     whether element operations are vectorized.
+   */
+
+   public static boolean isVectorized () {
+      return kernels.getClass() != ElementKernels.class;
+   }
+
+   /** c = a + b **/
+
+   public static void plus (int len, double[] a, int aOff, double[] b,
+                            int bOff, double[] c, int cOff) {
+      kernels.plus(len, a, aOff, b, bOff, c, cOff);
+   }
+
+   /** c = a - b **/
+
+   public static void minus (int len, double[] a, int aOff, double[] b,
+                             int bOff, double[] c, int cOff) {
+      kernels.minus(len, a, aOff, b, bOff, c, cOff);
+   }
+
+   /** c = a .* b **/
+
+   public static void times (int len, double[] a, int aOff, double[] b,
+                             int bOff, double[] c, int cOff) {
+      kernels.times(len, a, aOff, b, bOff, c, cOff);
+   }
+
+   /** c = a ./ b **/
+
+   public static void divide (int len, double[] a, int aOff, double[] b,
+                              int bOff, double[] c, int cOff) {
+      kernels.divide(len, a, aOff, b, bOff, c, cOff);
+   }
+
+   /** c = s * a **/
+
+   public static void scale (int len, double s, double[] a, int aOff,
+                             double[] c, int cOff) {
+      kernels.scale(len, s, a, aOff, c, cOff);
+   }
+
+   /** c = -a **/
+
+   public static void negate (int len, double[] a, int aOff,
+                              double[] c, int cOff) {
+      kernels.negate(len, a, aOff, c, cOff);
+   }
+
+   /** c = |a| **/
+
+   public static void abs (int len, double[] a, int aOff,
+                           double[] c, int cOff) {
+      kernels.abs(len, a, aOff, c, cOff);
+   }
+
+   /** c = c + s*a **/
+
+   public static void axpy (int len, double s, double[] a, int aOff,
+                            double[] c, int cOff) {
+      kernels.axpy(len, s, a, aOff, c, cOff);
+   }
+
+   /** c = c + s0*a0 + s1*a1 + s2*a2 + s3*a3, where aj is the array a
+       starting at aOff + j*lda. **/
+
+   public static void axpy4 (int len, double s0, double s1, double s2,
+                             double s3, double[] a, int aOff, int lda,
+                             double[] c, int cOff) {
+      kernels.axpy4(len, s0, s1, s2, s3, a, aOff, lda, c, cOff);
+   }
+
+   /** Inner product of a and b. **/
+
+   public static double dot (int len, double[] a, int aOff,
+                             double[] b, int bOff) {
+      return kernels.dot(len, a, aOff, b, bOff);
+   }
+
+   /** c = a + b, single precision **/
+
+   public static void plus (int len, float[] a, int aOff, float[] b,
+                            int bOff, float[] c, int cOff) {
+      kernels.plus(len, a, aOff, b, bOff, c, cOff);
+   }
+
+   /** c = a - b, single precision **/
+
+   public static void minus (int len, float[] a, int aOff, float[] b,
+                             int bOff, float[] c, int cOff) {
+      kernels.minus(len, a, aOff, b, bOff, c, cOff);
+   }
+
+   /** c = a .* b, single precision **/
+
+   public static void times (int len, float[] a, int aOff, float[] b,
+                             int bOff, float[] c, int cOff) {
+      kernels.times(len, a, aOff, b, bOff, c, cOff);
+   }
+
+   /** c = a ./ b, single precision **/
+
+   public static void divide (int len, float[] a, int aOff, float[] b,
+                              int bOff, float[] c, int cOff) {
+      kernels.divide(len, a, aOff, b, bOff, c, cOff);
+   }
+
+   /** c = s * a, single precision **/
+
+   public static void scale (int len, float s, float[] a, int aOff,
+                             float[] c, int cOff) {
+      kernels.scale(len, s, a, aOff, c, cOff);
+   }
+
+   /** c = -a, single precision **/
+
+   public static void negate (int len, float[] a, int aOff,
+                              float[] c, int cOff) {
+      kernels.negate(len, a, aOff, c, cOff);
+   }
+
+   /** c = |a|, single precision **/
+
+   public static void abs (int len, float[] a, int aOff,
+                           float[] c, int cOff) {
+      kernels.abs(len, a, aOff, c, cOff);
+   }
+
+   /** c = c + s*a, single precision **/
+
+   public static void axpy (int len, float s, float[] a, int aOff,
+                            float[] c, int cOff) {
+      kernels.axpy(len, s, a, aOff, c, cOff);
+   }
+
+   /** c = c + s0*a0 + s1*a1 + s2*a2 + s3*a3, single precision **/
+
+   public static void axpy4 (int len, float s0, float s1, float s2,
+                             float s3, float[] a, int aOff, int lda,
+                             float[] c, int cOff) {
+      kernels.axpy4(len, s0, s1, s2, s3, a, aOff, lda, c, cOff);
+   }
+
+   /** Inner product of a and b, single precision. **/
+
+   public static float dot (int len, float[] a, int aOff,
+                            float[] b, int bOff) {
+      return kernels.dot(len, a, aOff, b, bOff);
+   }
+
+/* ------------------------
+   Private Methods
+ * ------------------------ */
+
+   /** Use the Vector API kernels if the incubator module was resolved at
+       startup, the scalar ones otherwise. **/
+
+   private static ElementKernels load () {
+      if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+         try {
+            return (ElementKernels) Class.forName(
+               "JamaEx.util.VectorElementKernels")
+               .getDeclaredConstructor().newInstance();
+         } catch (ReflectiveOperationException | LinkageError e) {
+            // Class left out of the build or not linkable, use scalar code.
+         }
+      }
+      return new ElementKernels();
+   }
+}
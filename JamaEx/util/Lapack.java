@@ -0,0 +1,222 @@
+package JamaEx.util;
+
+   /** Dense factorizations on column packed arrays.
+   <P>
+   Matrices are passed as in Blas: an array, the offset of element (0,0)
+   and the leading dimension.  The factorizations overwrite their argument
+   and are blocked so that almost all of the arithmetic is done by
+   Blas.dgemm, which runs on the common fork/join pool for large blocks.
+   */
+
+public class Lapack {
+
+/* ------------------------
+   Class variables
+ * ------------------------ */
+
+   /** Columns per panel of the blocked factorizations. **/
+   private static final int NB = 64;
+
+/* ------------------------
+   Public Methods
+ * ------------------------ */
+
+   /** LU factorization with partial pivoting, A = P*L*U, as LAPACK's
+       dgetrf.  The matrix is factored in panels of NB columns, right
+       looking: each panel is factored recursively, its row interchanges
+       are applied to the rest of the matrix, the row block of U to its
+       right is found by a triangular solve, and the trailing matrix is
+       updated by one dgemm.
+   @param m      Number of rows of A.
+   @param n      Number of columns of A.
+   @param A      Storage of the m-by-n matrix A, overwritten by L below the
+                 diagonal (the unit diagonal is not stored) and U on and
+                 above it.
+   @param aOff   Offset of A(0,0).
+   @param lda    Leading dimension of A.
+   @param ipiv   Array of at least min(m,n) elements, set so that row i
+                 was interchanged with row ipiv[i] at step i.
+   @return       0 if U is nonsingular, otherwise i+1 where U(i,i) is the
+                 first exactly zero pivot.  The factorization is completed
+                 either way.
+   */
+
+   public static int dgetrf (int m, int n, double[] A, int aOff, int lda,
+                             int[] ipiv) {
+      int k = Math.min(m, n);
+      for (int j = 0; j < k; j += NB) {
+         int jb = Math.min(NB, k-j);
+         getrf2(m-j, jb, A, aOff + j + j*lda, lda, ipiv, j);
+         for (int i = j; i < j+jb; i++) {
+            ipiv[i] += j;
+         }
+         laswp(j, A, aOff, lda, j, j+jb, ipiv, 0);
+         int j1 = j + jb;
+         if (j1 < n) {
+            laswp(n-j1, A, aOff + j1*lda, lda, j, j1, ipiv, 0);
+            Blas.dtrsm(false, false, true, jb, n-j1,
+                       A, aOff + j + j*lda, lda, A, aOff + j + j1*lda, lda);
+            Blas.dgemm(false, false, m-j1, n-j1, jb, -1.0,
+                       A, aOff + j1 + j*lda, lda, A, aOff + j + j1*lda, lda,
+                       1.0, A, aOff + j1 + j1*lda, lda);
+         }
+      }
+      for (int j = 0; j < k; j++) {
+         if (A[aOff + j + j*lda] == 0.0) {
+            return j+1;
+         }
+      }
+      return 0;
+   }
+
+   /** Cholesky factorization of a symmetric positive definite matrix,
+       A = L*L', as LAPACK's dpotrf with a lower triangle.  The matrix is
+       factored in blocks of NB columns, right looking: the diagonal block
+       is factored, the block below it is found by a triangular solve, and
+       the lower triangle of the trailing matrix is updated by a recursive
+       rank-NB update whose off diagonal blocks are single dgemm calls.
+   @param n      Order of A.
+   @param A      Storage of the n-by-n matrix A.  Its lower triangle is
+                 overwritten by L.  Elements above the diagonal are not
+                 read, but those in the NB-by-NB diagonal blocks are used
+                 as workspace and left undefined.
+   @param aOff   Offset of A(0,0).
+   @param lda    Leading dimension of A.
+   @return       0 if A is positive definite, otherwise j+1 where the
+                 pivot of column j was not positive.  The factorization
+                 stops there, leaving columns j and after partly updated.
+   */
+
+   public static int dpotrf (int n, double[] A, int aOff, int lda) {
+      double[] T = new double[Math.min(NB, n)*Math.max(n - NB, 0)];
+      for (int j = 0; j < n; j += NB) {
+         int jb = Math.min(NB, n-j), j1 = j + jb, m2 = n - j1;
+         int info = potf2(jb, A, aOff + j + j*lda, lda);
+         if (info != 0) {
+            return j + info;
+         }
+         if (m2 > 0) {
+            // L21 = A21*inv(L11'), computed as L21' = inv(L11)*A21' so that
+            // the solve runs on the columns of A21'.
+            Blas.transpose(m2, jb, A, aOff + j1 + j*lda, lda, T, 0, jb);
+            Blas.dtrsm(false, false, false, jb, m2,
+                       A, aOff + j + j*lda, lda, T, 0, jb);
+            Blas.transpose(jb, m2, T, 0, jb, A, aOff + j1 + j*lda, lda);
+            syrk(m2, jb, A, aOff + j1 + j*lda, lda,
+                 A, aOff + j1 + j1*lda, lda);
+         }
+      }
+      return 0;
+   }
+
+/* ------------------------
+   Private Methods
+ * ------------------------ */
+
+   /** Recursive LU of an m-by-n panel, m >= n, as LAPACK's dgetrf2.  The
+       left half is factored, the right half is updated by a triangular
+       solve and dgemm and factored in turn, and the interchanges of each
+       half are applied to the other.  ipiv[ipOff+i] is set relative to
+       the first row of the panel. **/
+
+   private static void getrf2 (int m, int n, double[] A, int aOff, int lda,
+                               int[] ipiv, int ipOff) {
+      if (n == 1) {
+         int p = 0;
+         double max = Math.abs(A[aOff]);
+         for (int i = 1; i < m; i++) {
+            double a = Math.abs(A[aOff+i]);
+            if (a > max) {
+               max = a;
+               p = i;
+            }
+         }
+         ipiv[ipOff] = p;
+         double d = A[aOff+p];
+         if (d != 0.0) {
+            if (p != 0) {
+               A[aOff+p] = A[aOff];
+               A[aOff] = d;
+            }
+            for (int i = 1; i < m; i++) {
+               A[aOff+i] /= d;
+            }
+         }
+         return;
+      }
+      int n1 = n/2, n2 = n - n1;
+      int a12 = aOff + n1*lda, a22 = a12 + n1;
+      getrf2(m, n1, A, aOff, lda, ipiv, ipOff);
+      laswp(n2, A, a12, lda, 0, n1, ipiv, ipOff);
+      Blas.dtrsm(false, false, true, n1, n2, A, aOff, lda, A, a12, lda);
+      Blas.dgemm(false, false, m-n1, n2, n1, -1.0, A, aOff+n1, lda,
+                 A, a12, lda, 1.0, A, a22, lda);
+      getrf2(m-n1, n2, A, a22, lda, ipiv, ipOff+n1);
+      for (int i = ipOff+n1; i < ipOff+n; i++) {
+         ipiv[i] += n1;
+      }
+      laswp(n1, A, aOff, lda, n1, n, ipiv, ipOff);
+   }
+
+   /** Unblocked right looking Cholesky of the lower triangle of an n-by-n
+       block, as LAPACK's dpotf2.  Returns 0, or j+1 if the pivot of
+       column j is not positive. **/
+
+   private static int potf2 (int n, double[] A, int aOff, int lda) {
+      for (int j = 0; j < n; j++) {
+         int d = aOff + j + j*lda;
+         double ajj = A[d];
+         if (!(ajj > 0.0)) {
+            return j+1;
+         }
+         ajj = Math.sqrt(ajj);
+         A[d] = ajj;
+         for (int i = 1; i < n-j; i++) {
+            A[d+i] /= ajj;
+         }
+         for (int c = j+1; c < n; c++) {
+            double t = A[d+c-j];
+            if (t != 0.0) {
+               ElementOps.axpy(n-c, -t, A, d+c-j, A, aOff + c + c*lda);
+            }
+         }
+      }
+      return 0;
+   }
+
+   /** Lower triangle of C = C - A*A' for an n-by-k block A.  The triangle
+       is halved recursively: its off diagonal block is one dgemm, and
+       diagonal blocks of order at most NB are computed in full. **/
+
+   private static void syrk (int n, int k, double[] A, int aOff, int lda,
+                             double[] C, int cOff, int ldc) {
+      if (n <= NB) {
+         Blas.dgemm(false, true, n, n, k, -1.0, A, aOff, lda, A, aOff, lda,
+                    1.0, C, cOff, ldc);
+         return;
+      }
+      int h = n/2;
+      syrk(h, k, A, aOff, lda, C, cOff, ldc);
+      Blas.dgemm(false, true, n-h, h, k, -1.0, A, aOff+h, lda, A, aOff, lda,
+                 1.0, C, cOff+h, ldc);
+      syrk(n-h, k, A, aOff+h, lda, C, cOff + h + h*ldc, ldc);
+   }
+
+   /** Apply the interchanges of rows k1..k2-1 to n columns, one column at
+       a time so that each is read once, as LAPACK's dlaswp. **/
+
+   private static void laswp (int n, double[] A, int aOff, int lda,
+                              int k1, int k2, int[] ipiv, int ipOff) {
+      for (int j = 0; j < n; j++) {
+         int col = aOff + j*lda;
+         for (int i = k1; i < k2; i++) {
+            int p = ipiv[ipOff+i];
+            if (p != i) {
+               double t = A[col+i];
+               A[col+i] = A[col+p];
+               A[col+p] = t;
+            }
+         }
+      }
+   }
+}
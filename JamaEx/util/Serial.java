@@ -0,0 +1,243 @@
+package JamaEx.util;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+   /** Bulk serialization of primitive arrays.
+   <P>
+   Used by the writeObject and readObject methods of the matrix and
+   decomposition classes.  Each array is written as its length followed
+   by its elements, little-endian, converted through a ByteBuffer in
+   blocks of BLOCK bytes and passed to the stream with one write per
+   block, rather than one call per element.  A null array is written as
+   length -1.  Two and three dimensional arrays are written as the
+   number of rows followed by each row, so ragged arrays survive.
+   <P>
+   A length read from the stream is not trusted: arrays of more than
+   INITIAL elements start at INITIAL and grow as their elements arrive,
+   so a corrupt or hostile stream cannot force an allocation much larger
+   than the data it actually holds.
+   */
+
+public class Serial {
+
+/* ------------------------
+   Class variables
+ * ------------------------ */
+
+   /** Size of the conversion buffer in bytes. **/
+   private static final int BLOCK = 1 << 16;
+
+   /** Elements allocated before any are read, at most. **/
+   private static final int INITIAL = 1 << 20;
+
+/* ------------------------
+   Public Methods
+ * ------------------------ */
+
+   /** Write a double array.
+   @param out    the stream.
+   @param a      the array, may be null.
+   */
+
+   public static void write (ObjectOutput out, double[] a) throws IOException {
+      write(out, a, new byte[BLOCK]);
+   }
+
+   /** Read a double array written by write(ObjectOutput, double[]).
+   @param in     the stream.
+   @return       the array, or null.
+   */
+
+   public static double[] readDoubles (ObjectInput in) throws IOException {
+      return readDoubles(in, new byte[BLOCK]);
+   }
+
+   /** Write a two dimensional double array.
+   @param out    the stream.
+   @param a      the array, may be null.
+   */
+
+   public static void write (ObjectOutput out, double[][] a) throws IOException {
+      write(out, a, new byte[BLOCK]);
+   }
+
+   /** Read a two dimensional double array written by write(ObjectOutput, double[][]).
+   @param in     the stream.
+   @return       the array, or null.
+   */
+
+   public static double[][] readDoubles2 (ObjectInput in) throws IOException {
+      return readDoubles2(in, new byte[BLOCK]);
+   }
+
+   /** Write a three dimensional double array.
+   @param out    the stream.
+   @param a      the array, may be null.
+   */
+
+   public static void write (ObjectOutput out, double[][][] a) throws IOException {
+      if (a == null) {
+         out.writeInt(-1);
+         return;
+      }
+      byte[] buf = new byte[BLOCK];
+      out.writeInt(a.length);
+      for (int i = 0; i < a.length; i++) {
+         write(out, a[i], buf);
+      }
+   }
+
+   /** Read a three dimensional double array written by write(ObjectOutput, double[][][]).
+   @param in     the stream.
+   @return       the array, or null.
+   */
+
+   public static double[][][] readDoubles3 (ObjectInput in) throws IOException {
+      int len = readLength(in);
+      if (len < 0) {
+         return null;
+      }
+      byte[] buf = new byte[BLOCK];
+      double[][][] a = new double[Math.min(len, INITIAL)][][];
+      for (int i = 0; i < len; i++) {
+         if (i == a.length) {
+            a = Arrays.copyOf(a, grow(a.length, len));
+         }
+         a[i] = readDoubles2(in, buf);
+      }
+      return a;
+   }
+
+   /** Write an int array.
+   @param out    the stream.
+   @param a      the array, may be null.
+   */
+
+   public static void write (ObjectOutput out, int[] a) throws IOException {
+      if (a == null) {
+         out.writeInt(-1);
+         return;
+      }
+      byte[] buf = new byte[BLOCK];
+      ByteBuffer bb = ByteBuffer.wrap(buf).order(ByteOrder.LITTLE_ENDIAN);
+      out.writeInt(a.length);
+      for (int k = 0; k < a.length; k += BLOCK/4) {
+         int l = Math.min(BLOCK/4, a.length-k);
+         bb.clear();
+         bb.asIntBuffer().put(a, k, l);
+         out.write(buf, 0, 4*l);
+      }
+   }
+
+   /** Read an int array written by write(ObjectOutput, int[]).
+   @param in     the stream.
+   @return       the array, or null.
+   */
+
+   public static int[] readInts (ObjectInput in) throws IOException {
+      int len = readLength(in);
+      if (len < 0) {
+         return null;
+      }
+      byte[] buf = new byte[BLOCK];
+      ByteBuffer bb = ByteBuffer.wrap(buf).order(ByteOrder.LITTLE_ENDIAN);
+      int[] a = new int[Math.min(len, INITIAL)];
+      for (int k = 0; k < len; k += BLOCK/4) {
+         int l = Math.min(BLOCK/4, len-k);
+         if (k == a.length) {
+            a = Arrays.copyOf(a, grow(a.length, len));
+         }
+         in.readFully(buf, 0, 4*l);
+         bb.clear();
+         bb.asIntBuffer().get(a, k, l);
+      }
+      return a;
+   }
+
+/* ------------------------
+   Private Methods
+ * ------------------------ */
+
+   private static void write (ObjectOutput out, double[] a, byte[] buf) throws IOException {
+      if (a == null) {
+         out.writeInt(-1);
+         return;
+      }
+      ByteBuffer bb = ByteBuffer.wrap(buf).order(ByteOrder.LITTLE_ENDIAN);
+      out.writeInt(a.length);
+      for (int k = 0; k < a.length; k += BLOCK/8) {
+         int l = Math.min(BLOCK/8, a.length-k);
+         bb.clear();
+         bb.asDoubleBuffer().put(a, k, l);
+         out.write(buf, 0, 8*l);
+      }
+   }
+
+   private static double[] readDoubles (ObjectInput in, byte[] buf) throws IOException {
+      int len = readLength(in);
+      if (len < 0) {
+         return null;
+      }
+      ByteBuffer bb = ByteBuffer.wrap(buf).order(ByteOrder.LITTLE_ENDIAN);
+      double[] a = new double[Math.min(len, INITIAL)];
+      for (int k = 0; k < len; k += BLOCK/8) {
+         int l = Math.min(BLOCK/8, len-k);
+         if (k == a.length) {
+            a = Arrays.copyOf(a, grow(a.length, len));
+         }
+         in.readFully(buf, 0, 8*l);
+         bb.clear();
+         bb.asDoubleBuffer().get(a, k, l);
+      }
+      return a;
+   }
+
+   private static void write (ObjectOutput out, double[][] a, byte[] buf) throws IOException {
+      if (a == null) {
+         out.writeInt(-1);
+         return;
+      }
+      out.writeInt(a.length);
+      for (int i = 0; i < a.length; i++) {
+         write(out, a[i], buf);
+      }
+   }
+
+   private static double[][] readDoubles2 (ObjectInput in, byte[] buf) throws IOException {
+      int len = readLength(in);
+      if (len < 0) {
+         return null;
+      }
+      double[][] a = new double[Math.min(len, INITIAL)][];
+      for (int i = 0; i < len; i++) {
+         if (i == a.length) {
+            a = Arrays.copyOf(a, grow(a.length, len));
+         }
+         a[i] = readDoubles(in, buf);
+      }
+      return a;
+   }
+
+   /** Next capacity of an array of the given capacity that is full,
+       doubling up to the length read from the stream. **/
+
+   private static int grow (int capacity, int len) {
+      return (int) Math.min(len, 2L*capacity);
+   }
+
+   /** Read an array length, -1 for null. **/
+
+   private static int readLength (ObjectInput in) throws IOException {
+      int len = in.readInt();
+      if (len < -1) {
+         throw new InvalidObjectException("Negative array length " + len + ".");
+      }
+      return len;
+   }
+}
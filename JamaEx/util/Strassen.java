@@ -0,0 +1,152 @@
+package JamaEx.util;
+
+/** Strassen-Winograd matrix multiplication.
+<P>
+   The product is split into 2-by-2 blocks and formed with the Winograd
+   variant of Strassen's algorithm, 7 block products and 15 block additions
+   instead of 8 products, recursively until a block dimension falls below a
+   cutoff.  The remaining products are computed by Blas.dgemm.  Odd
+   dimensions are handled by peeling off the last row or column and fixing
+   up the result with a thin conventional product.
+<P>
+   Accuracy.  The conventional product satisfies a componentwise error
+   bound, every element of C is accurate relative to the sum of |a_ik*b_kj|.
+   Strassen-Winograd satisfies only a normwise bound, the error is small
+   relative to ||A||*||B||, so elements much smaller than that norm may
+   lose relative accuracy.  The worst case bound also grows by about a
+   factor of 18 per level of recursion rather than by a factor of 2.
+   In practice a few levels cost a digit or less, but the method should
+   not be used on badly scaled operands.
+*/
+
+public class Strassen {
+
+/* ------------------------
+   Public Methods
+ * ------------------------ */
+
+   /** Matrix multiply, C = A*B, using Strassen-Winograd above the cutoff.
+   @param m      Number of rows of A and C.
+   @param n      Number of columns of B and C.
+   @param k      Number of columns of A and rows of B.
+   @param A      Storage of the m-by-k matrix A.
+   @param aOff   Offset of A(0,0).
+   @param lda    Leading dimension of A.
+   @param B      Storage of the k-by-n matrix B.
+   @param bOff   Offset of B(0,0).
+   @param ldb    Leading dimension of B.
+   @param C      Storage of the m-by-n matrix C, overwritten by A*B.
+                 It must not overlap A or B.
+   @param cOff   Offset of C(0,0).
+   @param ldc    Leading dimension of C.
+   @param cutoff Blocks with a dimension at or below cutoff are multiplied
+                 conventionally.
+   @exception IllegalArgumentException cutoff must be positive.
+   */
+
+   public static void dgemm (int m, int n, int k,
+                             double[] A, int aOff, int lda,
+                             double[] B, int bOff, int ldb,
+                             double[] C, int cOff, int ldc, int cutoff) {
+      if (cutoff < 1) {
+         throw new IllegalArgumentException("Cutoff must be positive.");
+      }
+      multiply(m, n, k, A, aOff, lda, B, bOff, ldb, C, cOff, ldc, cutoff);
+   }
+
+/* ------------------------
+   Private Methods
+ * ------------------------ */
+
+   /** C = A*B, peeling odd dimensions before splitting. **/
+
+   private static void multiply (int m, int n, int k,
+                                 double[] A, int aOff, int lda,
+                                 double[] B, int bOff, int ldb,
+                                 double[] C, int cOff, int ldc, int cutoff) {
+      if (m <= cutoff || n <= cutoff || k <= cutoff) {
+         Blas.dgemm(m, n, k, 1.0, A, aOff, lda, B, bOff, ldb,
+                    0.0, C, cOff, ldc);
+         return;
+      }
+      int m2 = m & ~1, n2 = n & ~1, k2 = k & ~1;
+      winograd(m2, n2, k2, A, aOff, lda, B, bOff, ldb, C, cOff, ldc, cutoff);
+      if (k2 < k) {
+         // C(0:m2-1,0:n2-1) += A(0:m2-1,k-1) * B(k-1,0:n2-1)
+         Blas.dgemm(m2, n2, 1, 1.0, A, aOff + k2*lda, lda,
+                    B, bOff + k2, ldb, 1.0, C, cOff, ldc);
+      }
+      if (n2 < n) {
+         Blas.dgemm(m, 1, k, 1.0, A, aOff, lda, B, bOff + n2*ldb, ldb,
+                    0.0, C, cOff + n2*ldc, ldc);
+      }
+      if (m2 < m) {
+         Blas.dgemm(1, n2, k, 1.0, A, aOff + m2, lda, B, bOff, ldb,
+                    0.0, C, cOff + m2, ldc);
+      }
+   }
+
+   /** C = A*B for even m, n and k, one level of Strassen-Winograd.  The
+       quadrants of C hold partial results, so only three temporaries of
+       a quarter of the size of A, B and C are needed. **/
+
+   private static void winograd (int m, int n, int k,
+                                 double[] A, int aOff, int lda,
+                                 double[] B, int bOff, int ldb,
+                                 double[] C, int cOff, int ldc, int cutoff) {
+      int mh = m/2, nh = n/2, kh = k/2;
+      int a11 = aOff, a21 = aOff + mh, a12 = aOff + kh*lda, a22 = a12 + mh;
+      int b11 = bOff, b21 = bOff + kh, b12 = bOff + nh*ldb, b22 = b12 + kh;
+      int c11 = cOff, c21 = cOff + mh, c12 = cOff + nh*ldc, c22 = c12 + mh;
+      double[] X = new double[mh*kh];
+      double[] Y = new double[kh*nh];
+      double[] Z = new double[mh*nh];
+
+      // C21 = P7 = (A11 - A21) * (B22 - B12)
+      add(mh, kh, A, a11, lda, -1.0, A, a21, lda, X, 0, mh);
+      add(kh, nh, B, b22, ldb, -1.0, B, b12, ldb, Y, 0, kh);
+      multiply(mh, nh, kh, X, 0, mh, Y, 0, kh, C, c21, ldc, cutoff);
+      // C22 = P5 = S1 * T1, S1 = A21 + A22, T1 = B12 - B11
+      add(mh, kh, A, a21, lda, 1.0, A, a22, lda, X, 0, mh);
+      add(kh, nh, B, b12, ldb, -1.0, B, b11, ldb, Y, 0, kh);
+      multiply(mh, nh, kh, X, 0, mh, Y, 0, kh, C, c22, ldc, cutoff);
+      // C12 = P6 = S2 * T2, S2 = S1 - A11, T2 = B22 - T1
+      add(mh, kh, X, 0, mh, -1.0, A, a11, lda, X, 0, mh);
+      add(kh, nh, B, b22, ldb, -1.0, Y, 0, kh, Y, 0, kh);
+      multiply(mh, nh, kh, X, 0, mh, Y, 0, kh, C, c12, ldc, cutoff);
+      // C11 = P3 = S4 * B22, S4 = A12 - S2
+      add(mh, kh, A, a12, lda, -1.0, X, 0, mh, X, 0, mh);
+      multiply(mh, nh, kh, X, 0, mh, B, b22, ldb, C, c11, ldc, cutoff);
+      // Z = P1 = A11 * B11
+      multiply(mh, nh, kh, A, a11, lda, B, b11, ldb, Z, 0, mh, cutoff);
+      // C12 = U2 = P1 + P6, C21 = U3 = U2 + P7, C12 = U4 = U2 + P5,
+      // C22 = U7 = U3 + P5, C12 = U5 = U4 + P3
+      add(mh, nh, Z, 0, mh, 1.0, C, c12, ldc, C, c12, ldc);
+      add(mh, nh, C, c12, ldc, 1.0, C, c21, ldc, C, c21, ldc);
+      add(mh, nh, C, c12, ldc, 1.0, C, c22, ldc, C, c12, ldc);
+      add(mh, nh, C, c21, ldc, 1.0, C, c22, ldc, C, c22, ldc);
+      add(mh, nh, C, c12, ldc, 1.0, C, c11, ldc, C, c12, ldc);
+      // C11 = P4 = A22 * T4, T4 = T2 - B21, C21 = U6 = U3 - P4
+      add(kh, nh, Y, 0, kh, -1.0, B, b21, ldb, Y, 0, kh);
+      multiply(mh, nh, kh, A, a22, lda, Y, 0, kh, C, c11, ldc, cutoff);
+      add(mh, nh, C, c21, ldc, -1.0, C, c11, ldc, C, c21, ldc);
+      // C11 = U1 = P1 + P2, P2 = A12 * B21
+      multiply(mh, nh, kh, A, a12, lda, B, b21, ldb, C, c11, ldc, cutoff);
+      add(mh, nh, C, c11, ldc, 1.0, Z, 0, mh, C, c11, ldc);
+   }
+
+   /** C = A + s*B for m-by-n blocks, s = 1 or -1.  C may be A or B. **/
+
+   private static void add (int m, int n, double[] A, int aOff, int lda,
+                            double s, double[] B, int bOff, int ldb,
+                            double[] C, int cOff, int ldc) {
+      for (int j = 0; j < n; j++) {
+         int a = aOff + j*lda, b = bOff + j*ldb, c = cOff + j*ldc;
+         if (s > 0) {
+            ElementOps.plus(m, A, a, B, b, C, c);
+         } else {
+            ElementOps.minus(m, A, a, B, b, C, c);
+         }
+      }
+   }
+}
@@ -0,0 +1,284 @@
+package JamaEx.util;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/** Element-by-element kernels on the Java Vector API.
+<P>
+   Each kernel runs over whole vectors of the preferred species and
+   finishes the remaining elements with scalar code.  This class needs the
+   jdk.incubator.vector module both to compile and to run
+   (--add-modules jdk.incubator.vector).  ElementOps only loads it when the
+   module is present, so it may also be left out of a build entirely.
+*/
+
+class VectorElementKernels extends ElementKernels {
+
+   private static final VectorSpecies<Double> S = DoubleVector.SPECIES_PREFERRED;
+   private static final VectorSpecies<Float> F = FloatVector.SPECIES_PREFERRED;
+
+   void plus (int len, double[] a, int aOff, double[] b, int bOff,
+              double[] c, int cOff) {
+      int i = 0;
+      for (int bound = S.loopBound(len); i < bound; i += S.length()) {
+         DoubleVector va = DoubleVector.fromArray(S, a, aOff+i);
+         DoubleVector vb = DoubleVector.fromArray(S, b, bOff+i);
+         va.add(vb).intoArray(c, cOff+i);
+      }
+      for (; i < len; i++) {
+         c[cOff+i] = a[aOff+i] + b[bOff+i];
+      }
+   }
+
+   void minus (int len, double[] a, int aOff, double[] b, int bOff,
+               double[] c, int cOff) {
+      int i = 0;
+      for (int bound = S.loopBound(len); i < bound; i += S.length()) {
+         DoubleVector va = DoubleVector.fromArray(S, a, aOff+i);
+         DoubleVector vb = DoubleVector.fromArray(S, b, bOff+i);
+         va.sub(vb).intoArray(c, cOff+i);
+      }
+      for (; i < len; i++) {
+         c[cOff+i] = a[aOff+i] - b[bOff+i];
+      }
+   }
+
+   void times (int len, double[] a, int aOff, double[] b, int bOff,
+               double[] c, int cOff) {
+      int i = 0;
+      for (int bound = S.loopBound(len); i < bound; i += S.length()) {
+         DoubleVector va = DoubleVector.fromArray(S, a, aOff+i);
+         DoubleVector vb = DoubleVector.fromArray(S, b, bOff+i);
+         va.mul(vb).intoArray(c, cOff+i);
+      }
+      for (; i < len; i++) {
+         c[cOff+i] = a[aOff+i] * b[bOff+i];
+      }
+   }
+
+   void divide (int len, double[] a, int aOff, double[] b, int bOff,
+                double[] c, int cOff) {
+      int i = 0;
+      for (int bound = S.loopBound(len); i < bound; i += S.length()) {
+         DoubleVector va = DoubleVector.fromArray(S, a, aOff+i);
+         DoubleVector vb = DoubleVector.fromArray(S, b, bOff+i);
+         va.div(vb).intoArray(c, cOff+i);
+      }
+      for (; i < len; i++) {
+         c[cOff+i] = a[aOff+i] / b[bOff+i];
+      }
+   }
+
+   void scale (int len, double s, double[] a, int aOff,
+               double[] c, int cOff) {
+      int i = 0;
+      for (int bound = S.loopBound(len); i < bound; i += S.length()) {
+         DoubleVector.fromArray(S, a, aOff+i).mul(s).intoArray(c, cOff+i);
+      }
+      for (; i < len; i++) {
+         c[cOff+i] = s * a[aOff+i];
+      }
+   }
+
+   void negate (int len, double[] a, int aOff, double[] c, int cOff) {
+      int i = 0;
+      for (int bound = S.loopBound(len); i < bound; i += S.length()) {
+         DoubleVector.fromArray(S, a, aOff+i).neg().intoArray(c, cOff+i);
+      }
+      for (; i < len; i++) {
+         c[cOff+i] = -a[aOff+i];
+      }
+   }
+
+   void abs (int len, double[] a, int aOff, double[] c, int cOff) {
+      int i = 0;
+      for (int bound = S.loopBound(len); i < bound; i += S.length()) {
+         DoubleVector.fromArray(S, a, aOff+i).abs().intoArray(c, cOff+i);
+      }
+      for (; i < len; i++) {
+         c[cOff+i] = Math.abs(a[aOff+i]);
+      }
+   }
+
+   void axpy (int len, double s, double[] a, int aOff, double[] c, int cOff) {
+      DoubleVector vs = DoubleVector.broadcast(S, s);
+      int i = 0;
+      for (int bound = S.loopBound(len); i < bound; i += S.length()) {
+         DoubleVector va = DoubleVector.fromArray(S, a, aOff+i);
+         DoubleVector vc = DoubleVector.fromArray(S, c, cOff+i);
+         va.fma(vs, vc).intoArray(c, cOff+i);
+      }
+      for (; i < len; i++) {
+         c[cOff+i] += s * a[aOff+i];
+      }
+   }
+
+   void axpy4 (int len, double s0, double s1, double s2, double s3,
+               double[] a, int aOff, int lda, double[] c, int cOff) {
+      int a1 = aOff+lda, a2 = a1+lda, a3 = a2+lda;
+      DoubleVector v0 = DoubleVector.broadcast(S, s0);
+      DoubleVector v1 = DoubleVector.broadcast(S, s1);
+      DoubleVector v2 = DoubleVector.broadcast(S, s2);
+      DoubleVector v3 = DoubleVector.broadcast(S, s3);
+      int i = 0;
+      for (int bound = S.loopBound(len); i < bound; i += S.length()) {
+         DoubleVector vc = DoubleVector.fromArray(S, c, cOff+i);
+         vc = DoubleVector.fromArray(S, a, aOff+i).fma(v0, vc);
+         vc = DoubleVector.fromArray(S, a, a1+i).fma(v1, vc);
+         vc = DoubleVector.fromArray(S, a, a2+i).fma(v2, vc);
+         vc = DoubleVector.fromArray(S, a, a3+i).fma(v3, vc);
+         vc.intoArray(c, cOff+i);
+      }
+      for (; i < len; i++) {
+         c[cOff+i] += s0*a[aOff+i] + s1*a[a1+i] + s2*a[a2+i] + s3*a[a3+i];
+      }
+   }
+
+   double dot (int len, double[] a, int aOff, double[] b, int bOff) {
+      DoubleVector acc = DoubleVector.zero(S);
+      int i = 0;
+      for (int bound = S.loopBound(len); i < bound; i += S.length()) {
+         DoubleVector va = DoubleVector.fromArray(S, a, aOff+i);
+         acc = va.fma(DoubleVector.fromArray(S, b, bOff+i), acc);
+      }
+      double s = acc.reduceLanes(VectorOperators.ADD);
+      for (; i < len; i++) {
+         s += a[aOff+i] * b[bOff+i];
+      }
+      return s;
+   }
+
+   /* Single precision kernels, on FloatVector. */
+
+   void plus (int len, float[] a, int aOff, float[] b, int bOff,
+              float[] c, int cOff) {
+      int i = 0;
+      for (int bound = F.loopBound(len); i < bound; i += F.length()) {
+         FloatVector va = FloatVector.fromArray(F, a, aOff+i);
+         FloatVector vb = FloatVector.fromArray(F, b, bOff+i);
+         va.add(vb).intoArray(c, cOff+i);
+      }
+      for (; i < len; i++) {
+         c[cOff+i] = a[aOff+i] + b[bOff+i];
+      }
+   }
+
+   void minus (int len, float[] a, int aOff, float[] b, int bOff,
+               float[] c, int cOff) {
+      int i = 0;
+      for (int bound = F.loopBound(len); i < bound; i += F.length()) {
+         FloatVector va = FloatVector.fromArray(F, a, aOff+i);
+         FloatVector vb = FloatVector.fromArray(F, b, bOff+i);
+         va.sub(vb).intoArray(c, cOff+i);
+      }
+      for (; i < len; i++) {
+         c[cOff+i] = a[aOff+i] - b[bOff+i];
+      }
+   }
+
+   void times (int len, float[] a, int aOff, float[] b, int bOff,
+               float[] c, int cOff) {
+      int i = 0;
+      for (int bound = F.loopBound(len); i < bound; i += F.length()) {
+         FloatVector va = FloatVector.fromArray(F, a, aOff+i);
+         FloatVector vb = FloatVector.fromArray(F, b, bOff+i);
+         va.mul(vb).intoArray(c, cOff+i);
+      }
+      for (; i < len; i++) {
+         c[cOff+i] = a[aOff+i] * b[bOff+i];
+      }
+   }
+
+   void divide (int len, float[] a, int aOff, float[] b, int bOff,
+                float[] c, int cOff) {
+      int i = 0;
+      for (int bound = F.loopBound(len); i < bound; i += F.length()) {
+         FloatVector va = FloatVector.fromArray(F, a, aOff+i);
+         FloatVector vb = FloatVector.fromArray(F, b, bOff+i);
+         va.div(vb).intoArray(c, cOff+i);
+      }
+      for (; i < len; i++) {
+         c[cOff+i] = a[aOff+i] / b[bOff+i];
+      }
+   }
+
+   void scale (int len, float s, float[] a, int aOff, float[] c, int cOff) {
+      int i = 0;
+      for (int bound = F.loopBound(len); i < bound; i += F.length()) {
+         FloatVector.fromArray(F, a, aOff+i).mul(s).intoArray(c, cOff+i);
+      }
+      for (; i < len; i++) {
+         c[cOff+i] = s * a[aOff+i];
+      }
+   }
+
+   void negate (int len, float[] a, int aOff, float[] c, int cOff) {
+      int i = 0;
+      for (int bound = F.loopBound(len); i < bound; i += F.length()) {
+         FloatVector.fromArray(F, a, aOff+i).neg().intoArray(c, cOff+i);
+      }
+      for (; i < len; i++) {
+         c[cOff+i] = -a[aOff+i];
+      }
+   }
+
+   void abs (int len, float[] a, int aOff, float[] c, int cOff) {
+      int i = 0;
+      for (int bound = F.loopBound(len); i < bound; i += F.length()) {
+         FloatVector.fromArray(F, a, aOff+i).abs().intoArray(c, cOff+i);
+      }
+      for (; i < len; i++) {
+         c[cOff+i] = Math.abs(a[aOff+i]);
+      }
+   }
+
+   void axpy (int len, float s, float[] a, int aOff, float[] c, int cOff) {
+      FloatVector vs = FloatVector.broadcast(F, s);
+      int i = 0;
+      for (int bound = F.loopBound(len); i < bound; i += F.length()) {
+         FloatVector va = FloatVector.fromArray(F, a, aOff+i);
+         FloatVector vc = FloatVector.fromArray(F, c, cOff+i);
+         va.fma(vs, vc).intoArray(c, cOff+i);
+      }
+      for (; i < len; i++) {
+         c[cOff+i] += s * a[aOff+i];
+      }
+   }
+
+   void axpy4 (int len, float s0, float s1, float s2, float s3,
+               float[] a, int aOff, int lda, float[] c, int cOff) {
+      int a1 = aOff+lda, a2 = a1+lda, a3 = a2+lda;
+      FloatVector v0 = FloatVector.broadcast(F, s0);
+      FloatVector v1 = FloatVector.broadcast(F, s1);
+      FloatVector v2 = FloatVector.broadcast(F, s2);
+      FloatVector v3 = FloatVector.broadcast(F, s3);
+      int i = 0;
+      for (int bound = F.loopBound(len); i < bound; i += F.length()) {
+         FloatVector vc = FloatVector.fromArray(F, c, cOff+i);
+         vc = FloatVector.fromArray(F, a, aOff+i).fma(v0, vc);
+         vc = FloatVector.fromArray(F, a, a1+i).fma(v1, vc);
+         vc = FloatVector.fromArray(F, a, a2+i).fma(v2, vc);
+         vc = FloatVector.fromArray(F, a, a3+i).fma(v3, vc);
+         vc.intoArray(c, cOff+i);
+      }
+      for (; i < len; i++) {
+         c[cOff+i] += s0*a[aOff+i] + s1*a[a1+i] + s2*a[a2+i] + s3*a[a3+i];
+      }
+   }
+
+   float dot (int len, float[] a, int aOff, float[] b, int bOff) {
+      FloatVector acc = FloatVector.zero(F);
+      int i = 0;
+      for (int bound = F.loopBound(len); i < bound; i += F.length()) {
+         FloatVector va = FloatVector.fromArray(F, a, aOff+i);
+         acc = va.fma(FloatVector.fromArray(F, b, bOff+i), acc);
+      }
+      float s = acc.reduceLanes(VectorOperators.ADD);
+      for (; i < len; i++) {
+         s += a[aOff+i] * b[bOff+i];
+      }
+      return s;
+   }
+}